@@ -17,12 +17,15 @@
  */
 package de.tudarmstadt.ukp.inception.kb;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.LongConsumer;
 
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
@@ -57,8 +60,33 @@ public interface KnowledgeBaseService
      */
     Map<String, KnowledgeBaseProfile> readKnowledgeBaseProfiles() throws IOException;
 
+    /**
+     * Imports RDF data into a local knowledge base in a single transaction. Use
+     * {@link #importData(KnowledgeBase, File, LongConsumer)} to import very large files.
+     */
     void importData(KnowledgeBase kb, String aFilename, InputStream aIS) throws IOException;
 
+    /**
+     * Imports an RDF file into a local knowledge base. The statements are committed in chunks and
+     * the full text index is rebuilt once after the import, so this is suitable also for very large
+     * files.
+     * <p>
+     * If the calling thread is interrupted, the import stops after the current chunk with an
+     * {@link java.io.InterruptedIOException}. Calling this method again with the same unchanged
+     * file then resumes the import where it stopped.
+     *
+     * @param aKB
+     *            the knowledge base to import into.
+     * @param aFile
+     *            the RDF file. The format is detected from the file name. The file may be
+     *            compressed.
+     * @param aProgressListener
+     *            called with the number of statements imported so far after every chunk. May be
+     *            {@code null}.
+     */
+    void importData(KnowledgeBase aKB, File aFile, LongConsumer aProgressListener)
+        throws IOException;
+
     /**
      * Writes the contents of a knowledge base of type {@link RepositoryType#LOCAL} to a given
      * {@link OutputStream} in a specificable format.<br>
@@ -428,11 +456,44 @@ public interface KnowledgeBaseService
      */
     Optional<KBObject> readItem(KnowledgeBase akb, String aIdentifier);
 
+    /**
+     * Read multiple identifiers from the enabled knowledge bases of the given project. Each
+     * identifier is resolved from the first knowledge base which contains it. Identifiers which
+     * cannot be resolved are not contained in the result.
+     *
+     * @param aProject
+     *            Project to read the KB identifiers
+     * @param aIdentifiers
+     *            String values for IRIs
+     * @return map from the identifiers to {@link KBObject}s of type {@link KBConcept},
+     *         {@link KBProperty} or {@link KBInstance}
+     */
+    Map<String, KBObject> readItems(Project aProject, Collection<String> aIdentifiers);
+
+    /**
+     * Read multiple identifiers from a particular kb. In contrast to calling
+     * {@link #readItem(KnowledgeBase, String)} for every identifier, the identifiers are looked up
+     * in bulk.
+     *
+     * @return map from the identifiers to {@link KBObject}s of type {@link KBConcept},
+     *         {@link KBProperty} or {@link KBInstance}
+     */
+    Map<String, KBObject> readItems(KnowledgeBase aKB, Collection<String> aIdentifiers);
+
     /**
      * Obtain basic information about the given identifier.
      */
     Optional<KBHandle> readHandle(KnowledgeBase aKB, String aIdentifier);
-    
+
+    /**
+     * Obtain basic information about the given identifiers. In contrast to calling
+     * {@link #readHandle(KnowledgeBase, String)} for every identifier, the identifiers are looked
+     * up in bulk.
+     *
+     * @return map from the identifiers to their handles.
+     */
+    Map<String, KBHandle> readHandles(KnowledgeBase aKB, Collection<String> aIdentifiers);
+
     /**
      * Retrieves the distinct parent concepts till the root element for an identifier regardless of
      * it being an instance or concept
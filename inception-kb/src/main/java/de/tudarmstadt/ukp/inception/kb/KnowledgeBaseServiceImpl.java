@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.kb;
 
+import static de.tudarmstadt.ukp.inception.kb.IriConstants.hasImplicitNamespace;
 import static de.tudarmstadt.ukp.inception.kb.querybuilder.Path.zeroOrMore;
 import static de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryBuilder.DEFAULT_LIMIT;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -25,6 +26,7 @@ import static org.eclipse.rdf4j.sparqlbuilder.rdf.Rdf.iri;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -32,12 +34,20 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
@@ -58,6 +68,7 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.RepositoryResult;
@@ -73,6 +84,7 @@ import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFParseException;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.sail.Sail;
 import org.eclipse.rdf4j.sail.lucene.LuceneSail;
 import org.eclipse.rdf4j.sail.lucene.config.LuceneSailConfig;
 import org.eclipse.rdf4j.sail.nativerdf.config.NativeStoreConfig;
@@ -87,6 +99,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
@@ -101,6 +114,11 @@ import de.tudarmstadt.ukp.clarin.webanno.api.dao.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.support.SettingsUtil;
 import de.tudarmstadt.ukp.clarin.webanno.support.StopWatch;
+import de.tudarmstadt.ukp.inception.kb.cache.QueryCachingRepositoryConnection;
+import de.tudarmstadt.ukp.inception.kb.cache.QueryResultCache;
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseUpdatedEvent;
 import de.tudarmstadt.ukp.inception.kb.graph.KBConcept;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
@@ -108,9 +126,12 @@ import de.tudarmstadt.ukp.inception.kb.graph.KBObject;
 import de.tudarmstadt.ukp.inception.kb.graph.KBProperty;
 import de.tudarmstadt.ukp.inception.kb.graph.KBQualifier;
 import de.tudarmstadt.ukp.inception.kb.graph.KBStatement;
+import de.tudarmstadt.ukp.inception.kb.hierarchy.ClassHierarchyIndex;
+import de.tudarmstadt.ukp.inception.kb.io.BulkRdfImporter;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
 import de.tudarmstadt.ukp.inception.kb.querybuilder.Path;
 import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryBuilder;
+import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryOptionalElements;
 import de.tudarmstadt.ukp.inception.kb.reification.NoReification;
 import de.tudarmstadt.ukp.inception.kb.reification.ReificationStrategy;
 import de.tudarmstadt.ukp.inception.kb.reification.WikiDataReification;
@@ -122,17 +143,38 @@ public class KnowledgeBaseServiceImpl
     implements KnowledgeBaseService, DisposableBean
 {
     private static final String KNOWLEDGEBASE_PROFILES_YAML = "knowledgebase-profiles.yaml";
+    private static final String QUERY_CACHE_FILE = "kb-query-cache.ser";
+    
+    /**
+     * Maximum number of identifiers which are looked up in a single query by the bulk read
+     * methods. Larger sets of identifiers are split into multiple queries to keep the size of the
+     * query within the limits of typical SPARQL endpoints.
+     */
+    private static final int BULK_READ_BATCH_SIZE = 100;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @PersistenceContext EntityManager entityManager;
     private final RepositoryManager repoManager;
     private final File kbRepositoriesRoot;
+    private final QueryResultCache queryCache;
+    private final Map<String, LazyValue<String>> queryCacheConfigHashes =
+            new ConcurrentHashMap<>();
+    private final int bulkImportChunkSize;
+    private final Map<String, LazyValue<ClassHierarchyIndex>> classHierarchyIndexes =
+            new ConcurrentHashMap<>();
 
     private @SpringBean FeatureSupportRegistry featureSupportRegistry;
+    private @Autowired(required = false) ApplicationEventPublisher applicationEventPublisher;
 
-    @Autowired
     public KnowledgeBaseServiceImpl(RepositoryProperties aRepoProperties)
+    {
+        this(aRepoProperties, new KnowledgeBasePropertiesImpl());
+    }
+    
+    @Autowired
+    public KnowledgeBaseServiceImpl(RepositoryProperties aRepoProperties,
+            KnowledgeBaseProperties aKbProperties)
     {
         kbRepositoriesRoot = new File(aRepoProperties.getPath(), "kb");
         
@@ -163,6 +205,13 @@ public class KnowledgeBaseServiceImpl
         
         repoManager = RepositoryProvider.getRepositoryManager(kbRepositoriesRoot);
         log.info("Knowledge base repository path: {}", kbRepositoriesRoot);
+        
+        queryCache = new QueryResultCache(aKbProperties.getQueryCacheSize(),
+                aKbProperties.getQueryCacheTtl(),
+                aKbProperties.isQueryCachePersistent()
+                        ? new File(aRepoProperties.getPath(), QUERY_CACHE_FILE)
+                        : null);
+        bulkImportChunkSize = aKbProperties.getBulkImportChunkSize();
     }
     
     public KnowledgeBaseServiceImpl(RepositoryProperties aRepoProperties,
@@ -210,6 +259,8 @@ public class KnowledgeBaseServiceImpl
     @Override
     public void destroy() throws Exception
     {
+        queryCache.persist();
+        persistClassHierarchyIndexes();
         repoManager.shutDown();
     }
 
@@ -285,6 +336,8 @@ public class KnowledgeBaseServiceImpl
     {
         assertRegistration(kb);
         entityManager.merge(kb);
+        invalidateClassHierarchyIndex(kb);
+        fireKnowledgeBaseUpdated(kb);
     }
 
     @Transactional
@@ -294,7 +347,10 @@ public class KnowledgeBaseServiceImpl
     {
         assertRegistration(kb);
         repoManager.addRepositoryConfig(new RepositoryConfig(kb.getRepositoryId(), cfg));
+        queryCacheConfigHashes.remove(kb.getRepositoryId());
         entityManager.merge(kb);
+        invalidateClassHierarchyIndex(kb);
+        fireKnowledgeBaseUpdated(kb);
     }
 
     @SuppressWarnings("unchecked")
@@ -336,8 +392,13 @@ public class KnowledgeBaseServiceImpl
         assertRegistration(aKB);
         
         repoManager.removeRepository(aKB.getRepositoryId());
+        queryCacheConfigHashes.remove(aKB.getRepositoryId());
+        queryCache.invalidate(aKB.getRepositoryId());
+        invalidateClassHierarchyIndex(aKB);
 
         entityManager.remove(entityManager.contains(aKB) ? aKB : entityManager.merge(aKB));
+        
+        fireKnowledgeBaseUpdated(aKB);
     }
 
     @Override
@@ -374,7 +435,6 @@ public class KnowledgeBaseServiceImpl
         return repoManager.getRepository(kb.getRepositoryId()).getConnection();
     }
 
-    @SuppressWarnings("resource")
     @Override
     public void importData(KnowledgeBase kb, String aFilename, InputStream aIS)
         throws RDFParseException, RepositoryException, IOException
@@ -384,27 +444,106 @@ public class KnowledgeBaseServiceImpl
             return;
         }
 
+        // Stream is expected to be closed by caller of importData
+        InputStream is = openImportStream(aIS);
+
+        // Detect the file format
+        RDFFormat format = Rio.getParserFormatForFileName(aFilename).orElse(RDFFormat.RDFXML);
+
+        // Load files into the repository
+        try (RepositoryConnection conn = getConnection(kb)) {
+            conn.add(is, getImportBaseUri(kb), format);
+        }
+        
+        invalidateClassHierarchyIndex(kb);
+        fireKnowledgeBaseUpdated(kb);
+    }
+
+    @Override
+    public void importData(KnowledgeBase aKB, File aFile, LongConsumer aProgressListener)
+        throws RDFParseException, RepositoryException, IOException
+    {
+        if (aKB.isReadOnly()) {
+            log.warn("Knowledge base [{}] is read only, will not import!", aKB.getName());
+            return;
+        }
+
+        assertRegistration(aKB);
+        
+        File checkpointFile = new File(kbRepositoriesRoot,
+                "imports/" + aKB.getRepositoryId() + ".checkpoint");
+        // If the file is replaced, an unfinished import of the previous file is not resumed
+        String source = aFile.getAbsolutePath() + ":" + aFile.length() + ":"
+                + aFile.lastModified();
+
+        // Detect the file format
+        RDFFormat format = Rio.getParserFormatForFileName(aFile.getName())
+                .orElse(RDFFormat.RDFXML);
+
+        Repository repo = repoManager.getRepository(aKB.getRepositoryId());
+        if (!(repo instanceof SailRepository)) {
+            try (InputStream is = openImportStream(new FileInputStream(aFile));
+                    RepositoryConnection conn = repo.getConnection()) {
+                conn.add(is, getImportBaseUri(aKB), format);
+            }
+            invalidateClassHierarchyIndex(aKB);
+            fireKnowledgeBaseUpdated(aKB);
+            return;
+        }
+
+        // Updating the full text index statement by statement is slow and memory-intensive, so
+        // we write directly to the store underneath the Lucene sail and rebuild the index once
+        // the import is complete
+        Sail sail = ((SailRepository) repo).getSail();
+        boolean bypassFullTextIndex = sail instanceof LuceneSail;
+        if (bypassFullTextIndex) {
+            sail = ((LuceneSail) sail).getBaseSail();
+        }
+
+        try (InputStream is = openImportStream(new FileInputStream(aFile))) {
+            new BulkRdfImporter(bulkImportChunkSize, checkpointFile, aProgressListener)
+                    .importData(sail, is, getImportBaseUri(aKB), format, source);
+        }
+        finally {
+            // Also when interrupted, part of the data has already been committed
+            invalidateClassHierarchyIndex(aKB);
+            fireKnowledgeBaseUpdated(aKB);
+        }
+
+        if (bypassFullTextIndex) {
+            try {
+                rebuildFullTextIndex(aKB);
+            }
+            catch (Exception e) {
+                throw new IOException("Data was imported into knowledge base [" + aKB.getName()
+                        + "] but its full text index could not be rebuilt", e);
+            }
+        }
+    }
+
+    /**
+     * Buffers the given import stream and decompresses it if necessary.
+     */
+    @SuppressWarnings("resource")
+    private InputStream openImportStream(InputStream aIS)
+    {
         InputStream is = new BufferedInputStream(aIS);
         try {
-            // Stream is expected to be closed by caller of importData
             is = new CompressorStreamFactory().createCompressorInputStream(is);
         }
         catch (CompressorException e) {
             // Probably not compressed then or unknown format - just try as is.
             log.debug("Stream is not compressed, continue as is.");
         }
+        return is;
+    }
 
-        // Detect the file format
-        RDFFormat format = Rio.getParserFormatForFileName(aFilename).orElse(RDFFormat.RDFXML);
-
-        // Load files into the repository
-        try (RepositoryConnection conn = getConnection(kb)) {
-            // If the RDF file contains relative URLs, then they probably start with a hash.
-            // To avoid having two hashes here, we drop the hash from the base prefix configured
-            // by the user.
-            String prefix = StringUtils.removeEnd(kb.getBasePrefix(), "#");
-            conn.add(is, prefix, format);
-        }
+    private String getImportBaseUri(KnowledgeBase aKB)
+    {
+        // If the RDF file contains relative URLs, then they probably start with a hash.
+        // To avoid having two hashes here, we drop the hash from the base prefix configured
+        // by the user.
+        return StringUtils.removeEnd(aKB.getBasePrefix(), "#");
     }
     
     @Override
@@ -426,6 +565,9 @@ public class KnowledgeBaseServiceImpl
         try (RepositoryConnection conn = getConnection(kb)) {
             conn.clear();
         }
+        
+        invalidateClassHierarchyIndex(kb);
+        fireKnowledgeBaseUpdated(kb);
     }
 
     @Override
@@ -447,7 +589,7 @@ public class KnowledgeBaseServiceImpl
             String identifier = getReificationStrategy(kb).generateConceptIdentifier(conn, kb);
             aConcept.setIdentifier(identifier);
             aConcept.write(conn, kb);
-        });
+        }, aConcept::getIdentifier);
     }
     
     @Override 
@@ -489,7 +631,7 @@ public class KnowledgeBaseServiceImpl
         update(kb, (conn) -> {
             conn.remove(aConcept.getOriginalStatements());
             aConcept.write(conn, kb);
-        });
+        }, aConcept::getIdentifier);
     }
 
     @Override
@@ -497,7 +639,7 @@ public class KnowledgeBaseServiceImpl
     {
         update(aKB, conn -> {
             getReificationStrategy(aKB).deleteConcept(conn, aKB, aConcept);
-        });
+        }, aConcept::getIdentifier);
     }
 
     @Override
@@ -598,7 +740,7 @@ public class KnowledgeBaseServiceImpl
             String identifier = getReificationStrategy(kb).generateInstanceIdentifier(conn, kb);
             aInstance.setIdentifier(identifier);
             aInstance.write(conn, kb);
-        });
+        }, aInstance::getIdentifier);
     }
     
     @Override
@@ -640,7 +782,7 @@ public class KnowledgeBaseServiceImpl
         update(kb, (conn) -> {
             conn.remove(aInstance.getOriginalStatements());
             aInstance.write(conn ,kb);
-        });
+        }, aInstance::getIdentifier);
     }
 
     @Override
@@ -648,7 +790,7 @@ public class KnowledgeBaseServiceImpl
     {
         update(aKB, conn -> {
             getReificationStrategy(aKB).deleteInstance(conn, aKB, aInstance);
-        });
+        }, aInstance::getIdentifier);
     }
 
     @Override
@@ -672,7 +814,7 @@ public class KnowledgeBaseServiceImpl
     {
         update(aKB, conn -> {
             getReificationStrategy(aKB).upsertStatement(conn, aKB, aStatement);
-        });
+        }, () -> aStatement.getInstance().getIdentifier());
     }
 
     @Override
@@ -681,7 +823,7 @@ public class KnowledgeBaseServiceImpl
     {
         update(aKB, conn -> {
             getReificationStrategy(aKB).deleteStatement(conn, aKB, aStatement);
-        });
+        }, () -> aStatement.getInstance().getIdentifier());
     }
 
     @Override
@@ -724,6 +866,19 @@ public class KnowledgeBaseServiceImpl
 
     @Override
     public void update(KnowledgeBase kb, UpdateAction aAction)
+    {
+        update(kb, aAction, null);
+    }
+
+    /**
+     * @param aAffectedResource
+     *            supplies the identifier of the only resource whose position in the class
+     *            hierarchy may have been changed by the action. It is called after the action and
+     *            the class hierarchy index is then updated incrementally. If {@code null}, the
+     *            class hierarchy index is discarded and rebuilt when it is needed next.
+     */
+    private void update(KnowledgeBase kb, UpdateAction aAction,
+            Supplier<String> aAffectedResource)
     {
         if (kb.isReadOnly()) {
             throw new ReadOnlyException(
@@ -743,6 +898,30 @@ public class KnowledgeBaseServiceImpl
                     conn.rollback();
                 }
             }
+
+            LazyValue<ClassHierarchyIndex> holder = classHierarchyIndexes
+                    .get(kb.getRepositoryId());
+            ClassHierarchyIndex index = holder != null ? holder.getIfPresent() : null;
+            if (index != null && aAffectedResource != null) {
+                index.refresh(conn, aAffectedResource.get());
+            }
+            else {
+                invalidateClassHierarchyIndex(kb);
+            }
+        }
+        
+        fireKnowledgeBaseUpdated(kb);
+    }
+    
+    /**
+     * Announces that the contents of the given knowledge base have changed, e.g. such that cached
+     * entities can be invalidated. No event is published if the service is used outside of a
+     * Spring context.
+     */
+    private void fireKnowledgeBaseUpdated(KnowledgeBase aKB)
+    {
+        if (applicationEventPublisher != null) {
+            applicationEventPublisher.publishEvent(new KnowledgeBaseUpdatedEvent(this, aKB));
         }
     }
 
@@ -750,9 +929,41 @@ public class KnowledgeBaseServiceImpl
     public <T> T read(KnowledgeBase kb, ReadAction<T> aAction)
     {
         try (RepositoryConnection conn = getConnection(kb)) {
+            if (isQueryCacheApplicable(kb)) {
+                return aAction.accept(new QueryCachingRepositoryConnection(conn, queryCache,
+                        kb.getRepositoryId(), getQueryCacheConfigHash(kb)));
+            }
+            
             return aAction.accept(conn);
         }
     }
+    
+    /**
+     * Query results are only cached for remote knowledge bases which cannot be changed through
+     * the application and for which caching has been enabled.
+     */
+    private boolean isQueryCacheApplicable(KnowledgeBase aKB)
+    {
+        return aKB.isQueryCacheEnabled() && aKB.getType() == RepositoryType.REMOTE
+                && aKB.isReadOnly();
+    }
+    
+    /**
+     * Hash of the repository configuration (i.e. the SPARQL endpoint) of the given knowledge
+     * base. The hash is part of the cache key of query results, so that results obtained from a
+     * previously configured endpoint are not used anymore.
+     */
+    private String getQueryCacheConfigHash(KnowledgeBase aKB)
+    {
+        String id = aKB.getRepositoryId();
+        return queryCacheConfigHashes.computeIfAbsent(id, _key -> new LazyValue<>()).get(() -> {
+            RepositoryImplConfig cfg = getKnowledgeBaseConfig(aKB);
+            String endpoint = cfg instanceof SPARQLRepositoryConfig
+                    ? ((SPARQLRepositoryConfig) cfg).getQueryEndpointUrl()
+                    : cfg.getType();
+            return Integer.toHexString(Objects.hash(id, endpoint));
+        });
+    }
 
     @Override
     public List<KBProperty> listDomainProperties(KnowledgeBase aKB, String aDomain,
@@ -792,6 +1003,12 @@ public class KnowledgeBaseServiceImpl
     public boolean hasChildConcepts(KnowledgeBase aKB, String aParentIdentifier, boolean aAll)
     {
         try (StopWatch watch = new StopWatch(log, "hasChildConcepts(%s)", aParentIdentifier)) {
+            Optional<ClassHierarchyIndex> index = getClassHierarchyIndex(aKB);
+            if (index.isPresent()) {
+                return !filterHierarchyResources(aKB,
+                        index.get().getChildren(aParentIdentifier), aAll).isEmpty();
+            }
+            
             return read(aKB, conn -> SPARQLQueryBuilder
                     .forClasses(aKB)
                     .childrenOf(aParentIdentifier)
@@ -827,6 +1044,28 @@ public class KnowledgeBaseServiceImpl
         throws QueryEvaluationException
     {
         try (StopWatch watch = new StopWatch(log, "getParentConceptList(%s)", aIdentifier)) {
+            Optional<ClassHierarchyIndex> index = getClassHierarchyIndex(aKB);
+            if (index.isPresent()) {
+                return read(aKB, conn -> {
+                    // The ancestors of an instance are its types and their ancestors
+                    Set<String> start = new LinkedHashSet<>();
+                    start.add(aIdentifier);
+                    try (RepositoryResult<Statement> types = conn.getStatements(
+                            conn.getValueFactory().createIRI(aIdentifier), aKB.getTypeIri(),
+                            null, true)) {
+                        while (types.hasNext()) {
+                            start.add(types.next().getObject().stringValue());
+                        }
+                    }
+                    
+                    Set<String> ancestors = new LinkedHashSet<>(start);
+                    ancestors.remove(aIdentifier);
+                    ancestors.addAll(index.get().getAncestors(start));
+                    
+                    return listHierarchyConcepts(conn, aKB, ancestors, aAll, 0);
+                });
+            }
+            
             return read(aKB, conn -> SPARQLQueryBuilder
                     .forClasses(aKB)
                     .ancestorsOf(aIdentifier)
@@ -842,6 +1081,12 @@ public class KnowledgeBaseServiceImpl
         throws QueryEvaluationException
     {
         try (StopWatch watch = new StopWatch(log, "listChildConcepts(%s)", aParentIdentifier)) {
+            Optional<ClassHierarchyIndex> index = getClassHierarchyIndex(aKB);
+            if (index.isPresent()) {
+                return read(aKB, conn -> listHierarchyConcepts(conn, aKB,
+                        index.get().getChildren(aParentIdentifier), aAll, aLimit));
+            }
+            
             return read(aKB, conn -> SPARQLQueryBuilder
                     .forClasses(aKB)
                     .childrenOf(aParentIdentifier)
@@ -852,6 +1097,116 @@ public class KnowledgeBaseServiceImpl
         }
     }
     
+    /**
+     * Retrieves the given classes obtained from the class hierarchy index along with their labels
+     * and descriptions.
+     * 
+     * @param aLimit
+     *            maximum number of results or {@code 0} for no limit.
+     */
+    private List<KBHandle> listHierarchyConcepts(RepositoryConnection aConn, KnowledgeBase aKB,
+            Collection<String> aIdentifiers, boolean aAll, int aLimit)
+    {
+        Set<String> identifiers = filterHierarchyResources(aKB, aIdentifiers, aAll);
+        if (identifiers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        SPARQLQueryOptionalElements query = SPARQLQueryBuilder
+                .forClasses(aKB)
+                .withIdentifier(identifiers.toArray(new String[identifiers.size()]))
+                .retrieveLabel()
+                .retrieveDescription();
+        if (aLimit > 0) {
+            query.limit(aLimit);
+        }
+        return query.asHandles(aConn, aAll);
+    }
+    
+    /**
+     * Drops blank nodes from the class hierarchy index as well as resources from implicit
+     * namespaces unless all resources are requested - like the SPARQL query builder does.
+     */
+    private Set<String> filterHierarchyResources(KnowledgeBase aKB,
+            Collection<String> aIdentifiers, boolean aAll)
+    {
+        return aIdentifiers.stream()
+                .filter(id -> id.contains(":") && (aAll || !hasImplicitNamespace(aKB, id)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+    
+    /**
+     * Returns the class hierarchy index of the given knowledge base. The index is only maintained
+     * for local knowledge bases which cannot change without the application noticing. It is built
+     * when it is needed for the first time or loaded from disk if it was persisted on shutdown.
+     */
+    private Optional<ClassHierarchyIndex> getClassHierarchyIndex(KnowledgeBase aKB)
+    {
+        if (aKB.getType() != RepositoryType.LOCAL) {
+            return Optional.empty();
+        }
+        
+        String id = aKB.getRepositoryId();
+        LazyValue<ClassHierarchyIndex> holder = classHierarchyIndexes.computeIfAbsent(id,
+            _key -> new LazyValue<>());
+        return Optional.of(holder.get(() -> {
+            File file = getClassHierarchyIndexFile(id);
+            if (file.exists()) {
+                try {
+                    ClassHierarchyIndex index = ClassHierarchyIndex.read(file);
+                    if (index.isCompatible(aKB)) {
+                        return index;
+                    }
+                }
+                catch (IOException e) {
+                    log.warn("Unable to load class hierarchy index of [{}] - rebuilding",
+                            aKB.getName(), e);
+                }
+                finally {
+                    // The index is kept in memory from now on and only persisted again on
+                    // shutdown - remove it so it cannot get stale if the application crashes
+                    file.delete();
+                }
+            }
+            
+            try (StopWatch watch = new StopWatch(log, "building class hierarchy index of [%s]",
+                    aKB.getName())) {
+                return read(aKB, conn -> ClassHierarchyIndex.build(conn, aKB));
+            }
+        }));
+    }
+    
+    private void invalidateClassHierarchyIndex(KnowledgeBase aKB)
+    {
+        classHierarchyIndexes.remove(aKB.getRepositoryId());
+        getClassHierarchyIndexFile(aKB.getRepositoryId()).delete();
+    }
+    
+    private void persistClassHierarchyIndexes()
+    {
+        for (Entry<String, LazyValue<ClassHierarchyIndex>> e : classHierarchyIndexes
+                .entrySet()) {
+            ClassHierarchyIndex index = e.getValue().getIfPresent();
+            if (index == null) {
+                continue;
+            }
+            
+            File file = getClassHierarchyIndexFile(e.getKey());
+            try {
+                index.write(file);
+            }
+            catch (IOException ex) {
+                log.error("Unable to save class hierarchy index to [{}]", file, ex);
+                file.delete();
+            }
+        }
+    }
+    
+    private File getClassHierarchyIndexFile(String aRepositoryId)
+    {
+        return new File(kbRepositoriesRoot, "hierarchy/" + aRepositoryId + ".ser");
+    }
+    
     private ReificationStrategy getReificationStrategy(KnowledgeBase kb)
     {
         switch (kb.getReification()) {
@@ -948,6 +1303,23 @@ public class KnowledgeBaseServiceImpl
         return Optional.empty();
     }
     
+    @Override
+    public Map<String, KBObject> readItems(Project aProject, Collection<String> aIdentifiers)
+    {
+        Map<String, KBObject> items = new LinkedHashMap<>();
+        Set<String> remaining = new LinkedHashSet<>(aIdentifiers);
+        for (KnowledgeBase kb : getEnabledKnowledgeBases(aProject)) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            
+            Map<String, KBObject> kbItems = readItems(kb, remaining);
+            items.putAll(kbItems);
+            remaining.removeAll(kbItems.keySet());
+        }
+        return items;
+    }
+    
     @Override
     public Optional<KBObject> readItem(KnowledgeBase aKb, String aIdentifier)
     {
@@ -982,6 +1354,110 @@ public class KnowledgeBaseServiceImpl
         }
     }
 
+    @Override
+    public Map<String, KBObject> readItems(KnowledgeBase aKB, Collection<String> aIdentifiers)
+    {
+        try (StopWatch watch = new StopWatch(log, "readItems(%d)", aIdentifiers.size())) {
+            Map<String, KBObject> items = new LinkedHashMap<>();
+            
+            // Like readItem, we look for concepts first and then for properties and instances.
+            // Each of these steps only looks for the identifiers not found in the previous
+            // steps and uses a single query per batch of identifiers.
+            // The queries are not limited since the result is bounded by the identifiers anyway
+            // and an item may produce several result rows (e.g. one per label language).
+            read(aKB, conn -> {
+                for (List<String> batch : partition(aIdentifiers)) {
+                    Set<String> remaining = new LinkedHashSet<>(batch);
+                    
+                    collectItems(remaining, KBConcept.class, () -> SPARQLQueryBuilder
+                            .forClasses(aKB)
+                            .withIdentifier(remaining.toArray(new String[remaining.size()]))
+                            .excludeInferred()
+                            .retrieveLabel()
+                            .retrieveDescription()
+                            .noLimit()
+                            .asHandles(conn, false), items);
+                    
+                    collectItems(remaining, KBProperty.class, () -> SPARQLQueryBuilder
+                            .forProperties(aKB)
+                            .withIdentifier(remaining.toArray(new String[remaining.size()]))
+                            .retrieveDescription()
+                            .retrieveLabel()
+                            .retrieveDomainAndRange()
+                            .excludeInferred()
+                            .noLimit()
+                            .asHandles(conn, true), items);
+                    
+                    collectItems(remaining, KBInstance.class, () -> SPARQLQueryBuilder
+                            .forInstances(aKB)
+                            .withIdentifier(remaining.toArray(new String[remaining.size()]))
+                            .retrieveDescription()
+                            .retrieveLabel()
+                            .excludeInferred()
+                            .noLimit()
+                            .asHandles(conn, true), items);
+                }
+                return null;
+            });
+            
+            return items;
+        }
+    }
+    
+    /**
+     * Runs the given query unless all identifiers have already been resolved and adds the results
+     * converted to the given type to the items. Resolved identifiers are removed from the set of
+     * remaining identifiers.
+     */
+    private <T extends KBObject> void collectItems(Set<String> aRemaining, Class<T> aType,
+            Supplier<List<KBHandle>> aQuery, Map<String, KBObject> aItems)
+    {
+        if (aRemaining.isEmpty()) {
+            return;
+        }
+        
+        for (KBHandle handle : aQuery.get()) {
+            if (aRemaining.remove(handle.getIdentifier())) {
+                aItems.put(handle.getIdentifier(), KBHandle.convertTo(aType, handle));
+            }
+        }
+    }
+    
+    @Override
+    public Map<String, KBHandle> readHandles(KnowledgeBase aKB, Collection<String> aIdentifiers)
+    {
+        try (StopWatch watch = new StopWatch(log, "readHandles(%d)", aIdentifiers.size())) {
+            Map<String, KBHandle> handles = new LinkedHashMap<>();
+            read(aKB, conn -> {
+                for (List<String> batch : partition(aIdentifiers)) {
+                    SPARQLQueryBuilder.forItems(aKB)
+                        .withIdentifier(batch.toArray(new String[batch.size()]))
+                        .retrieveLabel()
+                        .noLimit()
+                        .asHandles(conn, true)
+                        .forEach(handle -> handles.put(handle.getIdentifier(), handle));
+                }
+                return null;
+            });
+            return handles;
+        }
+    }
+    
+    /**
+     * Splits the given identifiers into batches which are small enough to be looked up in a
+     * single query.
+     */
+    private static List<List<String>> partition(Collection<String> aIdentifiers)
+    {
+        List<String> identifiers = new ArrayList<>(new LinkedHashSet<>(aIdentifiers));
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < identifiers.size(); i += BULK_READ_BATCH_SIZE) {
+            batches.add(identifiers.subList(i,
+                    Math.min(i + BULK_READ_BATCH_SIZE, identifiers.size())));
+        }
+        return batches;
+    }
+
     /**
      * List label properties.
      * 
@@ -1135,4 +1611,40 @@ public class KnowledgeBaseServiceImpl
         }
         return kb.isPresent() && kb.get().isEnabled();
     }
+
+    /**
+     * A value which is computed when it is requested for the first time. The value is computed
+     * while holding the lock of the holder, so e.g. building the class hierarchy index of one
+     * knowledge base does not block access to the other knowledge bases as it would when
+     * computing the value within {@link Map#computeIfAbsent}. Removing the holder from its map
+     * invalidates the value - a value which is still being computed at that time is only passed
+     * to the callers waiting for it.
+     */
+    private static final class LazyValue<T>
+    {
+        private volatile T value;
+        
+        public T get(Supplier<T> aSupplier)
+        {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = aSupplier.get();
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+        
+        /**
+         * @return the value or {@code null} if it has not been computed yet.
+         */
+        public T getIfPresent()
+        {
+            return value;
+        }
+    }
 }
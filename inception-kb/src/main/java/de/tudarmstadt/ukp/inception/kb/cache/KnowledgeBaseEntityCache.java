@@ -0,0 +1,534 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.RepositoryType;
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseUpdatedEvent;
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
+import de.tudarmstadt.ukp.inception.kb.graph.KBObject;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+/**
+ * Caches the entities (label, description, type) and the parent concepts looked up from the
+ * knowledge bases of a project. Entries are keyed by project, knowledge base and IRI. Lookups
+ * which are not restricted to a particular knowledge base are cached separately from lookups in
+ * a particular knowledge base.
+ * <p>
+ * Entries from local knowledge bases stay in the cache until the knowledge base is changed - the
+ * {@link KnowledgeBaseService} announces changes via a {@link KnowledgeBaseUpdatedEvent}. Since a
+ * change to one entity may affect the parent concepts of many others, such a change invalidates
+ * all entries of the knowledge base rather than only those of the changed entity. Remote
+ * knowledge bases can change at any time, so entries depending on a remote knowledge base expire
+ * after the time configured in {@link KnowledgeBaseProperties#getEntityCacheRemoteTtl()}.
+ * Entities which do not exist are cached as well so they are not looked up over and over again.
+ * <p>
+ * A lookup may still be in progress when the knowledge base is changed. To avoid caching the
+ * result of such a lookup, each project has a generation which is advanced whenever entries of
+ * the project are invalidated. Values are stamped with the generation at which their lookup
+ * started and values from an earlier generation are removed instead of being returned from the
+ * cache.
+ */
+@Component
+@ManagedResource(description = "Knowledge base entity cache")
+public class KnowledgeBaseEntityCache
+{
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final KnowledgeBaseService kbService;
+
+    private final Cache<EntityKey, CachedValue<Optional<KBObject>>> itemCache;
+    private final Cache<EntityKey, CachedValue<List<KBHandle>>> parentConceptCache;
+
+    // Generations by project ID - the generation of a project is the sum of its own counter and
+    // the global counter which is advanced when the whole cache is invalidated
+    private final Map<Long, AtomicLong> projectGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+
+    @Autowired
+    public KnowledgeBaseEntityCache(KnowledgeBaseService aKbService,
+            KnowledgeBaseProperties aProperties)
+    {
+        kbService = aKbService;
+
+        long remoteTtl = TimeUnit.MILLISECONDS.toNanos(aProperties.getEntityCacheRemoteTtl());
+        itemCache = Caffeine.newBuilder()
+                .maximumSize(aProperties.getEntityCacheSize())
+                .expireAfter(new RemoteEntryExpiry<Optional<KBObject>>(remoteTtl))
+                .recordStats()
+                .build();
+        parentConceptCache = Caffeine.newBuilder()
+                .maximumSize(aProperties.getEntityCacheSize())
+                .expireAfter(new RemoteEntryExpiry<List<KBHandle>>(remoteTtl))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Looks up the given item in the given knowledge base.
+     *
+     * @see KnowledgeBaseService#readItem(KnowledgeBase, String)
+     */
+    public Optional<KBObject> getItem(KnowledgeBase aKB, String aIdentifier)
+    {
+        return get(itemCache, new EntityKey(aKB, aIdentifier),
+            generation -> new CachedValue<>(kbService.readItem(aKB, aIdentifier), isRemote(aKB),
+                    generation));
+    }
+
+    /**
+     * Looks up the given item in the knowledge base with the given repository ID. If no
+     * repository ID is given, the item is looked up in all enabled knowledge bases of the project.
+     *
+     * @see KnowledgeBaseService#readItem(KnowledgeBase, String)
+     * @see KnowledgeBaseService#readItem(Project, String)
+     */
+    public Optional<KBObject> getItem(Project aProject, String aRepositoryId, String aIdentifier)
+    {
+        if (aRepositoryId == null) {
+            return getItem(aProject, aIdentifier);
+        }
+
+        return get(itemCache, new EntityKey(aProject.getId(), aRepositoryId, aIdentifier),
+            generation -> {
+                Optional<KnowledgeBase> kb = kbService.getKnowledgeBaseById(aProject,
+                        aRepositoryId);
+                return new CachedValue<>(kb.flatMap(k -> kbService.readItem(k, aIdentifier)),
+                        kb.map(this::isRemote).orElse(false), generation);
+            });
+    }
+
+    /**
+     * Looks up the given item in all enabled knowledge bases of the project.
+     *
+     * @see KnowledgeBaseService#readItem(Project, String)
+     */
+    public Optional<KBObject> getItem(Project aProject, String aIdentifier)
+    {
+        return get(itemCache, new EntityKey(aProject.getId(), null, aIdentifier),
+            generation -> new CachedValue<>(kbService.readItem(aProject, aIdentifier),
+                    hasRemoteKnowledgeBase(aProject), generation));
+    }
+
+    /**
+     * Looks up the given items in the knowledge base with the given repository ID. If no
+     * repository ID is given, the items are looked up in all enabled knowledge bases of the
+     * project. Items which are not in the cache are looked up from the knowledge base in bulk.
+     *
+     * @return map from the identifiers to the items. Identifiers for which no item exists are
+     *         not contained in the map.
+     * @see KnowledgeBaseService#readItems(KnowledgeBase, Collection)
+     * @see KnowledgeBaseService#readItems(Project, Collection)
+     */
+    public Map<String, KBObject> getItems(Project aProject, String aRepositoryId,
+            Collection<String> aIdentifiers)
+    {
+        if (aRepositoryId == null) {
+            return getItems(aIdentifiers, id -> new EntityKey(aProject.getId(), null, id),
+                ids -> kbService.readItems(aProject, ids),
+                () -> hasRemoteKnowledgeBase(aProject));
+        }
+
+        return getItems(aIdentifiers, id -> new EntityKey(aProject.getId(), aRepositoryId, id),
+            ids -> kbService.getKnowledgeBaseById(aProject, aRepositoryId)
+                    .map(kb -> kbService.readItems(kb, ids))
+                    .orElse(new HashMap<>()),
+            () -> kbService.getKnowledgeBaseById(aProject, aRepositoryId)
+                    .map(this::isRemote)
+                    .orElse(false));
+    }
+
+    private Map<String, KBObject> getItems(Collection<String> aIdentifiers,
+            Function<String, EntityKey> aKeyFunction,
+            Function<Collection<String>, Map<String, KBObject>> aLoader,
+            BooleanSupplier aRemote)
+    {
+        List<EntityKey> keys = new ArrayList<>();
+        for (String identifier : new LinkedHashSet<>(aIdentifiers)) {
+            keys.add(aKeyFunction.apply(identifier));
+        }
+
+        Map<EntityKey, CachedValue<Optional<KBObject>>> values = itemCache.getAll(keys,
+            missingKeys -> {
+                Map<Long, Long> generations = new HashMap<>();
+                missingKeys.forEach(key -> generations.computeIfAbsent(key.projectId,
+                    this::getGeneration));
+                
+                List<String> identifiers = new ArrayList<>();
+                missingKeys.forEach(key -> identifiers.add(key.getIdentifier()));
+
+                Map<String, KBObject> items = aLoader.apply(identifiers);
+                boolean remote = aRemote.getAsBoolean();
+
+                Map<EntityKey, CachedValue<Optional<KBObject>>> loaded = new HashMap<>();
+                for (EntityKey key : missingKeys) {
+                    loaded.put(key, new CachedValue<>(
+                            Optional.ofNullable(items.get(key.getIdentifier())), remote,
+                            generations.get(key.projectId)));
+                }
+                return loaded;
+            });
+
+        Map<String, KBObject> items = new LinkedHashMap<>();
+        for (EntityKey key : keys) {
+            CachedValue<Optional<KBObject>> value = values.get(key);
+            if (value != null) {
+                removeIfOutdated(itemCache, key, value);
+            }
+            if (value != null && value.getValue().isPresent()) {
+                items.put(key.getIdentifier(), value.getValue().get());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Looks up all the ancestor concepts of the given concept.
+     *
+     * @see KnowledgeBaseService#getParentConceptList(KnowledgeBase, String, boolean)
+     */
+    public List<KBHandle> getParentConcepts(KnowledgeBase aKB, String aIdentifier)
+    {
+        return get(parentConceptCache, new EntityKey(aKB, aIdentifier),
+            generation -> new CachedValue<>(
+                    kbService.getParentConceptList(aKB, aIdentifier, false), isRemote(aKB),
+                    generation));
+    }
+
+    /**
+     * Looks up the given key in the given cache. If the key is not in the cache, the loader is
+     * called with the current generation of the project of the key. A value which is outdated
+     * because the cache has been invalidated while it was loaded is returned to the caller, but it
+     * is not kept in the cache.
+     */
+    private <V> V get(Cache<EntityKey, CachedValue<V>> aCache, EntityKey aKey,
+            Function<Long, CachedValue<V>> aLoader)
+    {
+        CachedValue<V> value = aCache.get(aKey,
+            key -> aLoader.apply(getGeneration(key.projectId)));
+        removeIfOutdated(aCache, aKey, value);
+        return value.getValue();
+    }
+
+    private <V> void removeIfOutdated(Cache<EntityKey, CachedValue<V>> aCache, EntityKey aKey,
+            CachedValue<V> aValue)
+    {
+        if (aValue.getGeneration() != getGeneration(aKey.projectId)) {
+            aCache.asMap().remove(aKey, aValue);
+        }
+    }
+
+    private long getGeneration(Long aProjectId)
+    {
+        if (aProjectId == null) {
+            return globalGeneration.get();
+        }
+        
+        AtomicLong projectGeneration = projectGenerations.get(aProjectId);
+        return globalGeneration.get() + (projectGeneration != null ? projectGeneration.get() : 0);
+    }
+
+    /**
+     * Advances the generation of the given project. This must happen before the entries are
+     * removed, so that lookups which are still in progress cannot add outdated entries afterwards.
+     */
+    private void nextGeneration(Long aProjectId)
+    {
+        if (aProjectId == null) {
+            globalGeneration.incrementAndGet();
+            return;
+        }
+        
+        projectGenerations.computeIfAbsent(aProjectId, _key -> new AtomicLong())
+                .incrementAndGet();
+    }
+
+    /**
+     * Removes all entries for the given knowledge base from the cache. This includes the entries
+     * which have been looked up in all knowledge bases of the project.
+     */
+    public void invalidate(KnowledgeBase aKB)
+    {
+        Long projectId = aKB.getProject().getId();
+        String repositoryId = aKB.getRepositoryId();
+
+        log.trace("Invalidating cached entities of knowledge base [{}]({})", aKB.getName(),
+                repositoryId);
+
+        nextGeneration(projectId);
+        itemCache.asMap().keySet().removeIf(key -> key.isAffectedBy(projectId, repositoryId));
+        parentConceptCache.asMap().keySet()
+                .removeIf(key -> key.isAffectedBy(projectId, repositoryId));
+    }
+
+    /**
+     * Removes all entries for the knowledge bases of the given project from the cache.
+     */
+    public void invalidate(Project aProject)
+    {
+        Long projectId = aProject.getId();
+
+        log.trace("Invalidating cached entities of project [{}]({})", aProject.getName(),
+                projectId);
+
+        nextGeneration(projectId);
+        itemCache.asMap().keySet().removeIf(key -> Objects.equals(key.projectId, projectId));
+        parentConceptCache.asMap().keySet()
+                .removeIf(key -> Objects.equals(key.projectId, projectId));
+    }
+
+    @ManagedOperation(description = "Removes all entries from the knowledge base entity cache")
+    public void invalidateAll()
+    {
+        globalGeneration.incrementAndGet();
+        itemCache.invalidateAll();
+        parentConceptCache.invalidateAll();
+    }
+
+    @EventListener
+    public void onKnowledgeBaseUpdated(KnowledgeBaseUpdatedEvent aEvent)
+    {
+        invalidate(aEvent.getKnowledgeBase());
+    }
+
+    @EventListener
+    public void onKnowledgeBaseConfigurationChanged(KnowledgeBaseConfigurationChangedEvent aEvent)
+    {
+        invalidate(aEvent.getProject());
+    }
+
+    @ManagedAttribute(description = "Ratio of entity lookups answered from the cache")
+    public double getItemCacheHitRate()
+    {
+        return itemCache.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Number of entity lookups answered from the cache")
+    public long getItemCacheHitCount()
+    {
+        return itemCache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of entity lookups which had to query the KB")
+    public long getItemCacheMissCount()
+    {
+        return itemCache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Number of entities in the cache")
+    public long getItemCacheSize()
+    {
+        return itemCache.estimatedSize();
+    }
+
+    @ManagedAttribute(description = "Ratio of parent concept lookups answered from the cache")
+    public double getParentConceptCacheHitRate()
+    {
+        return parentConceptCache.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Number of parent concept lookups answered from the cache")
+    public long getParentConceptCacheHitCount()
+    {
+        return parentConceptCache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of parent concept lookups which had to query the KB")
+    public long getParentConceptCacheMissCount()
+    {
+        return parentConceptCache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Number of parent concept lists in the cache")
+    public long getParentConceptCacheSize()
+    {
+        return parentConceptCache.estimatedSize();
+    }
+
+    private boolean isRemote(KnowledgeBase aKB)
+    {
+        return aKB.getType() == RepositoryType.REMOTE;
+    }
+
+    private boolean hasRemoteKnowledgeBase(Project aProject)
+    {
+        return kbService.getEnabledKnowledgeBases(aProject).stream().anyMatch(this::isRemote);
+    }
+
+    /**
+     * Identifies an entity. If the repository ID is {@code null}, the entity has been looked up
+     * in all enabled knowledge bases of the project.
+     */
+    private static final class EntityKey
+    {
+        private final Long projectId;
+        private final String repositoryId;
+        private final String identifier;
+
+        public EntityKey(KnowledgeBase aKB, String aIdentifier)
+        {
+            this(aKB.getProject().getId(), aKB.getRepositoryId(), aIdentifier);
+        }
+
+        public EntityKey(Long aProjectId, String aRepositoryId, String aIdentifier)
+        {
+            projectId = aProjectId;
+            repositoryId = aRepositoryId;
+            identifier = aIdentifier;
+        }
+
+        public String getIdentifier()
+        {
+            return identifier;
+        }
+
+        /**
+         * Checks if the entry may have changed when the knowledge base with the given repository
+         * ID has changed.
+         */
+        public boolean isAffectedBy(Long aProjectId, String aRepositoryId)
+        {
+            if (repositoryId == null) {
+                return Objects.equals(projectId, aProjectId);
+            }
+            else {
+                return repositoryId.equals(aRepositoryId);
+            }
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof EntityKey)) {
+                return false;
+            }
+            EntityKey other = (EntityKey) aOther;
+            return Objects.equals(projectId, other.projectId)
+                    && Objects.equals(repositoryId, other.repositoryId)
+                    && Objects.equals(identifier, other.identifier);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(projectId, repositoryId, identifier);
+        }
+    }
+
+    /**
+     * A cached value along with the information whether it depends on a remote knowledge base and
+     * the generation at which it has been looked up.
+     */
+    private static final class CachedValue<V>
+    {
+        private final V value;
+        private final boolean remote;
+        private final long generation;
+
+        public CachedValue(V aValue, boolean aRemote, long aGeneration)
+        {
+            value = aValue;
+            remote = aRemote;
+            generation = aGeneration;
+        }
+
+        public V getValue()
+        {
+            return value;
+        }
+
+        public boolean isRemote()
+        {
+            return remote;
+        }
+
+        public long getGeneration()
+        {
+            return generation;
+        }
+    }
+
+    /**
+     * Expires values depending on a remote knowledge base after the configured time. All other
+     * values are only removed from the cache on invalidation or when the cache is full.
+     */
+    private static final class RemoteEntryExpiry<V>
+        implements Expiry<EntityKey, CachedValue<V>>
+    {
+        private final long remoteTtl;
+
+        public RemoteEntryExpiry(long aRemoteTtl)
+        {
+            remoteTtl = aRemoteTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(EntityKey aKey, CachedValue<V> aValue, long aCurrentTime)
+        {
+            return aValue.isRemote() ? remoteTtl : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(EntityKey aKey, CachedValue<V> aValue, long aCurrentTime,
+                long aCurrentDuration)
+        {
+            return expireAfterCreate(aKey, aValue, aCurrentTime);
+        }
+
+        @Override
+        public long expireAfterRead(EntityKey aKey, CachedValue<V> aValue, long aCurrentTime,
+                long aCurrentDuration)
+        {
+            return aCurrentDuration;
+        }
+    }
+}
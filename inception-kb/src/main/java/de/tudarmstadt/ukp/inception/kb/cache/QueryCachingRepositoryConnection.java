@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.cache;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.query.TupleQueryResultHandler;
+import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+
+import de.tudarmstadt.ukp.inception.kb.cache.QueryResultCache.QueryKey;
+
+/**
+ * Connection which answers SPARQL tuple queries from a {@link QueryResultCache} if possible. All
+ * other operations are passed on to the wrapped connection.
+ */
+public class QueryCachingRepositoryConnection
+    extends RepositoryConnectionWrapper
+{
+    private final QueryResultCache cache;
+    private final String repositoryId;
+    private final String configHash;
+
+    public QueryCachingRepositoryConnection(RepositoryConnection aDelegate,
+            QueryResultCache aCache, String aRepositoryId, String aConfigHash)
+    {
+        super(aDelegate.getRepository(), aDelegate);
+        cache = aCache;
+        repositoryId = aRepositoryId;
+        configHash = aConfigHash;
+    }
+
+    @Override
+    public TupleQuery prepareTupleQuery(String aQuery)
+        throws RepositoryException, MalformedQueryException
+    {
+        return prepareTupleQuery(QueryLanguage.SPARQL, aQuery, null);
+    }
+
+    @Override
+    public TupleQuery prepareTupleQuery(QueryLanguage aQueryLanguage, String aQuery)
+        throws RepositoryException, MalformedQueryException
+    {
+        return prepareTupleQuery(aQueryLanguage, aQuery, null);
+    }
+
+    @Override
+    public TupleQuery prepareTupleQuery(QueryLanguage aQueryLanguage, String aQuery,
+            String aBaseURI)
+        throws RepositoryException, MalformedQueryException
+    {
+        return new CachingTupleQuery(
+                getDelegate().prepareTupleQuery(aQueryLanguage, aQuery, aBaseURI), aQuery);
+    }
+
+    /**
+     * Tuple query which looks up its result in the cache. Queries with bindings or a dataset are
+     * not cached because these are not part of the query string.
+     */
+    private class CachingTupleQuery
+        implements TupleQuery
+    {
+        private final TupleQuery delegate;
+        private final String query;
+
+        public CachingTupleQuery(TupleQuery aDelegate, String aQuery)
+        {
+            delegate = aDelegate;
+            query = aQuery;
+        }
+
+        @Override
+        public TupleQueryResult evaluate() throws QueryEvaluationException
+        {
+            if (delegate.getBindings().size() > 0 || delegate.getDataset() != null) {
+                return delegate.evaluate();
+            }
+
+            QueryKey key = new QueryKey(repositoryId, configHash, delegate.getIncludeInferred(),
+                    query);
+            return cache.get(key, delegate::evaluate);
+        }
+
+        @Override
+        public void evaluate(TupleQueryResultHandler aHandler)
+            throws QueryEvaluationException, TupleQueryResultHandlerException
+        {
+            QueryResults.report(evaluate(), aHandler);
+        }
+
+        @Override
+        public void setBinding(String aName, Value aValue)
+        {
+            delegate.setBinding(aName, aValue);
+        }
+
+        @Override
+        public void removeBinding(String aName)
+        {
+            delegate.removeBinding(aName);
+        }
+
+        @Override
+        public void clearBindings()
+        {
+            delegate.clearBindings();
+        }
+
+        @Override
+        public BindingSet getBindings()
+        {
+            return delegate.getBindings();
+        }
+
+        @Override
+        public void setDataset(Dataset aDataset)
+        {
+            delegate.setDataset(aDataset);
+        }
+
+        @Override
+        public Dataset getDataset()
+        {
+            return delegate.getDataset();
+        }
+
+        @Override
+        public void setIncludeInferred(boolean aIncludeInferred)
+        {
+            delegate.setIncludeInferred(aIncludeInferred);
+        }
+
+        @Override
+        public boolean getIncludeInferred()
+        {
+            return delegate.getIncludeInferred();
+        }
+
+        @Override
+        public void setMaxExecutionTime(int aMaxExecutionTime)
+        {
+            delegate.setMaxExecutionTime(aMaxExecutionTime);
+        }
+
+        @Override
+        public int getMaxExecutionTime()
+        {
+            return delegate.getMaxExecutionTime();
+        }
+
+        @Deprecated
+        @Override
+        public void setMaxQueryTime(int aMaxQueryTime)
+        {
+            delegate.setMaxExecutionTime(aMaxQueryTime);
+        }
+
+        @Deprecated
+        @Override
+        public int getMaxQueryTime()
+        {
+            return delegate.getMaxExecutionTime();
+        }
+    }
+}
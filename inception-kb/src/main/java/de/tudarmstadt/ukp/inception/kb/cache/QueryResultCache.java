@@ -0,0 +1,273 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.cache;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.query.impl.IteratingTupleQueryResult;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Caches the results of SPARQL tuple queries sent to remote knowledge bases. Results are keyed by
+ * the query string, the repository ID and a hash of the knowledge base configuration, so results
+ * obtained before the configuration of a knowledge base was changed are not used anymore.
+ * <p>
+ * If a persistence file is given, the cache is restored from this file on creation and written
+ * back to it by {@link #persist()}. The time-to-live of restored results continues to count from
+ * the time they were originally obtained.
+ */
+public class QueryResultCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private final Cache<QueryKey, CachedQueryResult> cache;
+    private final long ttl;
+    private final File persistenceFile;
+
+    /**
+     * @param aMaximumSize
+     *            maximum number of query results in the cache.
+     * @param aTtl
+     *            time in milliseconds after which query results are evicted.
+     * @param aPersistenceFile
+     *            file in which the cache is persisted or {@code null} if the cache should only be
+     *            kept in memory.
+     */
+    public QueryResultCache(long aMaximumSize, long aTtl, File aPersistenceFile)
+    {
+        ttl = aTtl;
+        persistenceFile = aPersistenceFile;
+        cache = Caffeine.newBuilder()
+                .maximumSize(aMaximumSize)
+                .expireAfter(new RemainingTtlExpiry())
+                .recordStats()
+                .build();
+
+        if (persistenceFile != null && persistenceFile.exists()) {
+            restore();
+        }
+    }
+
+    /**
+     * Returns the cached result for the given query or evaluates the query if there is no
+     * cached result yet. The query result is fully read into memory before it is cached.
+     */
+    public TupleQueryResult get(QueryKey aKey, Supplier<TupleQueryResult> aQuery)
+    {
+        CachedQueryResult result = cache.get(aKey, key -> {
+            LOG.trace("Query result cache miss for [{}]", key.repositoryId);
+            try (TupleQueryResult queryResult = aQuery.get()) {
+                List<BindingSet> bindingSets = new ArrayList<>();
+                while (queryResult.hasNext()) {
+                    // Copy the bindings such that they do not depend on the implementation used
+                    // by the repository and can be persisted
+                    MapBindingSet bindings = new MapBindingSet();
+                    queryResult.next().forEach(bindings::addBinding);
+                    bindingSets.add(bindings);
+                }
+                return new CachedQueryResult(currentTimeMillis(),
+                        new ArrayList<>(queryResult.getBindingNames()), bindingSets);
+            }
+        });
+
+        return new IteratingTupleQueryResult(result.bindingNames, result.bindingSets);
+    }
+
+    /**
+     * Removes all cached results of the given knowledge base.
+     */
+    public void invalidate(String aRepositoryId)
+    {
+        cache.asMap().keySet().removeIf(key -> key.repositoryId.equals(aRepositoryId));
+    }
+
+    public long getHitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Writes the cached results to the persistence file. Does nothing if the cache is not
+     * persistent.
+     */
+    public void persist()
+    {
+        if (persistenceFile == null) {
+            return;
+        }
+
+        cache.cleanUp();
+        Map<QueryKey, CachedQueryResult> entries = new HashMap<>(cache.asMap());
+
+        try (ObjectOutputStream os = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(persistenceFile)))) {
+            os.writeObject(entries);
+            LOG.info("Saved {} cached query results to [{}]", entries.size(), persistenceFile);
+        }
+        catch (IOException e) {
+            LOG.error("Unable to save query result cache to [{}]", persistenceFile, e);
+            persistenceFile.delete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void restore()
+    {
+        try (ObjectInputStream is = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(persistenceFile)))) {
+            Map<QueryKey, CachedQueryResult> entries = (Map<QueryKey, CachedQueryResult>) is
+                    .readObject();
+
+            long now = currentTimeMillis();
+            for (Entry<QueryKey, CachedQueryResult> e : entries.entrySet()) {
+                if (now - e.getValue().created < ttl) {
+                    cache.put(e.getKey(), e.getValue());
+                }
+            }
+            LOG.info("Restored {} cached query results from [{}]", cache.estimatedSize(),
+                    persistenceFile);
+        }
+        catch (IOException | ClassNotFoundException | ClassCastException e) {
+            // The cache is only an optimization - if it cannot be restored, we start afresh
+            LOG.warn("Unable to restore query result cache from [{}]", persistenceFile, e);
+            persistenceFile.delete();
+        }
+    }
+
+    /**
+     * Identifies the result of a query.
+     */
+    public static final class QueryKey
+        implements Serializable
+    {
+        private static final long serialVersionUID = -2310735003620434722L;
+
+        private final String repositoryId;
+        private final String configHash;
+        private final boolean includeInferred;
+        private final String query;
+
+        public QueryKey(String aRepositoryId, String aConfigHash, boolean aIncludeInferred,
+                String aQuery)
+        {
+            repositoryId = aRepositoryId;
+            configHash = aConfigHash;
+            includeInferred = aIncludeInferred;
+            query = aQuery;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof QueryKey)) {
+                return false;
+            }
+            QueryKey other = (QueryKey) aOther;
+            return includeInferred == other.includeInferred
+                    && repositoryId.equals(other.repositoryId)
+                    && configHash.equals(other.configHash) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(repositoryId, configHash, includeInferred, query);
+        }
+    }
+
+    private static final class CachedQueryResult
+        implements Serializable
+    {
+        private static final long serialVersionUID = 4360183618568046862L;
+
+        private final long created;
+        private final List<String> bindingNames;
+        private final List<BindingSet> bindingSets;
+
+        public CachedQueryResult(long aCreated, List<String> aBindingNames,
+                List<BindingSet> aBindingSets)
+        {
+            created = aCreated;
+            bindingNames = aBindingNames;
+            bindingSets = aBindingSets;
+        }
+    }
+
+    /**
+     * Expires results after the TTL counting from the time they were originally obtained. This
+     * also applies to results restored from the persistence file.
+     */
+    private final class RemainingTtlExpiry
+        implements Expiry<QueryKey, CachedQueryResult>
+    {
+        @Override
+        public long expireAfterCreate(QueryKey aKey, CachedQueryResult aValue, long aCurrentTime)
+        {
+            long remaining = ttl - (currentTimeMillis() - aValue.created);
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(QueryKey aKey, CachedQueryResult aValue,
+                long aCurrentTime, long aCurrentDuration)
+        {
+            return expireAfterCreate(aKey, aValue, aCurrentTime);
+        }
+
+        @Override
+        public long expireAfterRead(QueryKey aKey, CachedQueryResult aValue, long aCurrentTime,
+                long aCurrentDuration)
+        {
+            return aCurrentDuration;
+        }
+    }
+}
@@ -28,4 +28,28 @@ public interface KnowledgeBaseProperties
     public int getHardMaxResults();
 
     public void setHardMaxResults(int aHardMaxResults);
+
+    public long getEntityCacheSize();
+
+    public void setEntityCacheSize(long aEntityCacheSize);
+
+    public long getEntityCacheRemoteTtl();
+
+    public void setEntityCacheRemoteTtl(long aEntityCacheRemoteTtl);
+
+    public long getQueryCacheSize();
+
+    public void setQueryCacheSize(long aQueryCacheSize);
+
+    public long getQueryCacheTtl();
+
+    public void setQueryCacheTtl(long aQueryCacheTtl);
+
+    public boolean isQueryCachePersistent();
+
+    public void setQueryCachePersistent(boolean aQueryCachePersistent);
+
+    public int getBulkImportChunkSize();
+
+    public void setBulkImportChunkSize(int aBulkImportChunkSize);
 }
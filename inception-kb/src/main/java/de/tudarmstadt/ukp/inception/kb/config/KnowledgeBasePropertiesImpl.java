@@ -28,6 +28,12 @@ public class KnowledgeBasePropertiesImpl implements KnowledgeBaseProperties
     
     private int defaultMaxResults = 1000;
     private int hardMaxResults = 10000;
+    private long entityCacheSize = 10000;
+    private long entityCacheRemoteTtl = 60000;
+    private long queryCacheSize = 10000;
+    private long queryCacheTtl = 3600000;
+    private boolean queryCachePersistent = false;
+    private int bulkImportChunkSize = 50000;
 
     @Override
     public int getDefaultMaxResults()
@@ -52,4 +58,90 @@ public class KnowledgeBasePropertiesImpl implements KnowledgeBaseProperties
     {
         hardMaxResults = aHardMaxResults;
     }
+
+    @Override
+    public long getEntityCacheSize()
+    {
+        return entityCacheSize;
+    }
+
+    @Override
+    public void setEntityCacheSize(long aEntityCacheSize)
+    {
+        entityCacheSize = aEntityCacheSize;
+    }
+
+    /**
+     * @return time in milliseconds after which entities from remote knowledge bases are evicted
+     *         from the entity cache.
+     */
+    @Override
+    public long getEntityCacheRemoteTtl()
+    {
+        return entityCacheRemoteTtl;
+    }
+
+    @Override
+    public void setEntityCacheRemoteTtl(long aEntityCacheRemoteTtl)
+    {
+        entityCacheRemoteTtl = aEntityCacheRemoteTtl;
+    }
+
+    @Override
+    public long getQueryCacheSize()
+    {
+        return queryCacheSize;
+    }
+
+    @Override
+    public void setQueryCacheSize(long aQueryCacheSize)
+    {
+        queryCacheSize = aQueryCacheSize;
+    }
+
+    /**
+     * @return time in milliseconds after which cached SPARQL query results are evicted.
+     */
+    @Override
+    public long getQueryCacheTtl()
+    {
+        return queryCacheTtl;
+    }
+
+    @Override
+    public void setQueryCacheTtl(long aQueryCacheTtl)
+    {
+        queryCacheTtl = aQueryCacheTtl;
+    }
+
+    /**
+     * @return whether cached SPARQL query results are saved on shutdown and restored on startup.
+     */
+    @Override
+    public boolean isQueryCachePersistent()
+    {
+        return queryCachePersistent;
+    }
+
+    @Override
+    public void setQueryCachePersistent(boolean aQueryCachePersistent)
+    {
+        queryCachePersistent = aQueryCachePersistent;
+    }
+
+    /**
+     * @return number of statements committed at once when importing data into a local knowledge
+     *         base.
+     */
+    @Override
+    public int getBulkImportChunkSize()
+    {
+        return bulkImportChunkSize;
+    }
+
+    @Override
+    public void setBulkImportChunkSize(int aBulkImportChunkSize)
+    {
+        bulkImportChunkSize = aBulkImportChunkSize;
+    }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+/**
+ * Published when the contents of a knowledge base have been changed, e.g. when statements have
+ * been written to it, data has been imported or it has been cleared.
+ */
+public class KnowledgeBaseUpdatedEvent
+    extends ApplicationEvent
+{
+    private static final long serialVersionUID = 4416412287357315347L;
+
+    private final KnowledgeBase knowledgeBase;
+
+    public KnowledgeBaseUpdatedEvent(Object aSource, KnowledgeBase aKnowledgeBase)
+    {
+        super(aSource);
+        knowledgeBase = aKnowledgeBase;
+    }
+
+    public KnowledgeBase getKnowledgeBase()
+    {
+        return knowledgeBase;
+    }
+}
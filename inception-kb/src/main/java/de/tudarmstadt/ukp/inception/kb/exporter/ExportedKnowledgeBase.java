@@ -89,6 +89,9 @@ public class ExportedKnowledgeBase
     
     @JsonProperty("max_results")
     private int maxResults;
+
+    @JsonProperty("query_cache_enabled")
+    private boolean queryCacheEnabled;
     
     /**
      *  The IRI for a property describing B being a subproperty of A
@@ -301,6 +304,16 @@ public class ExportedKnowledgeBase
         maxResults = aMaxResults;
     }
 
+    public boolean isQueryCacheEnabled()
+    {
+        return queryCacheEnabled;
+    }
+
+    public void setQueryCacheEnabled(boolean aQueryCacheEnabled)
+    {
+        queryCacheEnabled = aQueryCacheEnabled;
+    }
+
     public String getSubPropertyIri()
     {
         return subPropertyIri;
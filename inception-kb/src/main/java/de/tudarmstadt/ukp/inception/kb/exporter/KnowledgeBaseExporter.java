@@ -130,6 +130,7 @@ public class KnowledgeBaseExporter implements ProjectExporter
                     kb.getDefaultDatasetIri() != null ? kb.getDefaultDatasetIri().stringValue()
                             : null);
             exportedKB.setMaxResults(kb.getMaxResults());
+            exportedKB.setQueryCacheEnabled(kb.isQueryCacheEnabled());
             exportedKB.setSubPropertyIri(kb.getSubPropertyIri().stringValue());
             exportedKnowledgeBases.add(exportedKB);
 
@@ -249,6 +250,7 @@ public class KnowledgeBaseExporter implements ProjectExporter
             if (kb.getMaxResults() > kbProperties.getHardMaxResults()) {
                 kb.setMaxResults(kbProperties.getHardMaxResults());
             }
+            kb.setQueryCacheEnabled(exportedKB.isQueryCacheEnabled());
             kb.setProject(aProject);
 
             // Get config and register knowledge base
@@ -303,8 +305,17 @@ public class KnowledgeBaseExporter implements ProjectExporter
         // remove leading "/"
         ZipEntry entry = aZip.getEntry(sourceFileName.substring(1));
 
-        try (InputStream is = aZip.getInputStream(entry)) {
-            kbService.importData(kb, sourceFileName, is);
+        // Extract the file so that it can be imported in chunks instead of in a single transaction
+        File tmpFile = File.createTempFile("inception-kb-import",
+                "." + knowledgeBaseFileExportFormat.getDefaultFileExtension());
+        try {
+            try (InputStream is = aZip.getInputStream(entry)) {
+                FileUtils.copyInputStreamToFile(is, tmpFile);
+            }
+            kbService.importData(kb, tmpFile, null);
+        }
+        finally {
+            FileUtils.deleteQuietly(tmpFile);
         }
     }
 
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.hierarchy;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.OWL;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+/**
+ * In-memory index of the direct parent/child relations between the classes of a knowledge base.
+ * A class is a child of another class if it is a subclass of it (using the subclass property of
+ * the knowledge base) or - for knowledge bases using OWL classes - if it is defined as an
+ * {@code owl:intersectionOf} that includes the other class. Ancestors and descendants are obtained
+ * by following these relations transitively.
+ * <p>
+ * Resources are identified by their string value. Blank nodes are included in the index so that
+ * relations can be followed through them, e.g. through anonymous intersection classes.
+ */
+public class ClassHierarchyIndex
+    implements Serializable
+{
+    private static final long serialVersionUID = -6594021722384467195L;
+
+    private final String subclassIri;
+    private final boolean followIntersections;
+
+    private final Map<String, Set<String>> parents = new HashMap<>();
+    private final Map<String, Set<String>> children = new HashMap<>();
+
+    private ClassHierarchyIndex(KnowledgeBase aKB)
+    {
+        subclassIri = aKB.getSubclassIri().stringValue();
+        followIntersections = OWL.CLASS.equals(aKB.getClassIri());
+    }
+
+    /**
+     * Builds the index from all relevant statements in the given knowledge base.
+     */
+    public static ClassHierarchyIndex build(RepositoryConnection aConn, KnowledgeBase aKB)
+    {
+        ClassHierarchyIndex index = new ClassHierarchyIndex(aKB);
+
+        try (RepositoryResult<Statement> stmts = aConn.getStatements(null, aKB.getSubclassIri(),
+                null, true)) {
+            while (stmts.hasNext()) {
+                Statement st = stmts.next();
+                if (st.getObject() instanceof Resource) {
+                    index.addRelation(st.getSubject().stringValue(),
+                            st.getObject().stringValue());
+                }
+            }
+        }
+
+        if (index.followIntersections) {
+            try (RepositoryResult<Statement> stmts = aConn.getStatements(null,
+                    OWL.INTERSECTIONOF, null, true)) {
+                while (stmts.hasNext()) {
+                    Statement st = stmts.next();
+                    for (Resource member : listMembers(aConn, st.getObject())) {
+                        index.addRelation(st.getSubject().stringValue(), member.stringValue());
+                    }
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Reads an index that was previously written using {@link #write(File)}.
+     */
+    public static ClassHierarchyIndex read(File aFile) throws IOException
+    {
+        try (ObjectInputStream is = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(aFile)))) {
+            return (ClassHierarchyIndex) is.readObject();
+        }
+        catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("File [" + aFile + "] does not contain a class hierarchy index",
+                    e);
+        }
+    }
+
+    public synchronized void write(File aFile) throws IOException
+    {
+        aFile.getParentFile().mkdirs();
+        try (ObjectOutputStream os = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(aFile)))) {
+            os.writeObject(this);
+        }
+    }
+
+    /**
+     * @return whether the index was built using the same hierarchy mapping as the one currently
+     *         configured for the given knowledge base.
+     */
+    public boolean isCompatible(KnowledgeBase aKB)
+    {
+        return subclassIri.equals(aKB.getSubclassIri().stringValue())
+                && followIntersections == OWL.CLASS.equals(aKB.getClassIri());
+    }
+
+    /**
+     * Re-reads all relations in which the given resource participates from the knowledge base.
+     * This must be called after any change to the knowledge base which may have affected the
+     * relations of the resource, including its deletion.
+     */
+    public synchronized void refresh(RepositoryConnection aConn, String aIdentifier)
+    {
+        removeResource(aIdentifier);
+
+        IRI resource = aConn.getValueFactory().createIRI(aIdentifier);
+        IRI subclassProperty = aConn.getValueFactory().createIRI(subclassIri);
+
+        // Parents of the resource
+        try (RepositoryResult<Statement> stmts = aConn.getStatements(resource, subclassProperty,
+                null, true)) {
+            while (stmts.hasNext()) {
+                Statement st = stmts.next();
+                if (st.getObject() instanceof Resource) {
+                    addRelation(aIdentifier, st.getObject().stringValue());
+                }
+            }
+        }
+
+        // Children of the resource
+        try (RepositoryResult<Statement> stmts = aConn.getStatements(null, subclassProperty,
+                resource, true)) {
+            while (stmts.hasNext()) {
+                addRelation(stmts.next().getSubject().stringValue(), aIdentifier);
+            }
+        }
+
+        if (!followIntersections) {
+            return;
+        }
+
+        // Classes included in the intersection which defines the resource
+        try (RepositoryResult<Statement> stmts = aConn.getStatements(resource,
+                OWL.INTERSECTIONOF, null, true)) {
+            while (stmts.hasNext()) {
+                for (Resource member : listMembers(aConn, stmts.next().getObject())) {
+                    addRelation(aIdentifier, member.stringValue());
+                }
+            }
+        }
+
+        // Classes which are intersections including the resource - walk from the list nodes
+        // containing the resource back to the heads of the lists
+        Deque<Resource> queue = new ArrayDeque<>();
+        try (RepositoryResult<Statement> stmts = aConn.getStatements(null, RDF.FIRST, resource,
+                true)) {
+            while (stmts.hasNext()) {
+                queue.add(stmts.next().getSubject());
+            }
+        }
+        Set<Resource> visited = new HashSet<>();
+        while (!queue.isEmpty()) {
+            Resource node = queue.poll();
+            if (!visited.add(node)) {
+                continue;
+            }
+
+            try (RepositoryResult<Statement> stmts = aConn.getStatements(null,
+                    OWL.INTERSECTIONOF, node, true)) {
+                while (stmts.hasNext()) {
+                    addRelation(stmts.next().getSubject().stringValue(), aIdentifier);
+                }
+            }
+
+            try (RepositoryResult<Statement> stmts = aConn.getStatements(null, RDF.REST, node,
+                    true)) {
+                while (stmts.hasNext()) {
+                    queue.add(stmts.next().getSubject());
+                }
+            }
+        }
+    }
+
+    public synchronized Set<String> getChildren(String aIdentifier)
+    {
+        return copy(children.get(aIdentifier));
+    }
+
+    /**
+     * @return the transitive parents of the given resources. The resources themselves are only
+     *         included if they are part of a cycle.
+     */
+    public synchronized Set<String> getAncestors(Collection<String> aIdentifiers)
+    {
+        return closure(parents, aIdentifiers);
+    }
+
+    /**
+     * @return the transitive children of the given resources. The resources themselves are only
+     *         included if they are part of a cycle.
+     */
+    public synchronized Set<String> getDescendants(Collection<String> aIdentifiers)
+    {
+        return closure(children, aIdentifiers);
+    }
+
+    private void addRelation(String aChild, String aParent)
+    {
+        parents.computeIfAbsent(aChild, k -> new HashSet<>()).add(aParent);
+        children.computeIfAbsent(aParent, k -> new HashSet<>()).add(aChild);
+    }
+
+    private void removeResource(String aIdentifier)
+    {
+        Set<String> oldParents = parents.remove(aIdentifier);
+        if (oldParents != null) {
+            for (String parent : oldParents) {
+                removeFrom(children, parent, aIdentifier);
+            }
+        }
+
+        Set<String> oldChildren = children.remove(aIdentifier);
+        if (oldChildren != null) {
+            for (String child : oldChildren) {
+                removeFrom(parents, child, aIdentifier);
+            }
+        }
+    }
+
+    private static void removeFrom(Map<String, Set<String>> aRelation, String aKey,
+            String aValue)
+    {
+        Set<String> values = aRelation.get(aKey);
+        if (values != null) {
+            values.remove(aValue);
+            if (values.isEmpty()) {
+                aRelation.remove(aKey);
+            }
+        }
+    }
+
+    private static Set<String> closure(Map<String, Set<String>> aRelation,
+            Collection<String> aStart)
+    {
+        Set<String> result = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>(aStart);
+        while (!queue.isEmpty()) {
+            for (String next : aRelation.getOrDefault(queue.poll(), emptySet())) {
+                if (result.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return unmodifiableSet(result);
+    }
+
+    private static Set<String> copy(Set<String> aValues)
+    {
+        return aValues != null ? unmodifiableSet(new HashSet<>(aValues)) : emptySet();
+    }
+
+    /**
+     * Collects the members of an RDF list. Branching or cyclic lists are handled gracefully.
+     */
+    private static Set<Resource> listMembers(RepositoryConnection aConn, Value aList)
+    {
+        Set<Resource> members = new LinkedHashSet<>();
+        Set<Value> visited = new HashSet<>();
+        Deque<Value> queue = new ArrayDeque<>();
+        queue.add(aList);
+        while (!queue.isEmpty()) {
+            Value node = queue.poll();
+            if (!(node instanceof Resource) || RDF.NIL.equals(node) || !visited.add(node)) {
+                continue;
+            }
+
+            try (RepositoryResult<Statement> stmts = aConn.getStatements((Resource) node, null,
+                    null, true)) {
+                while (stmts.hasNext()) {
+                    Statement st = stmts.next();
+                    if (RDF.FIRST.equals(st.getPredicate())
+                            && st.getObject() instanceof Resource) {
+                        members.add((Resource) st.getObject());
+                    }
+                    else if (RDF.REST.equals(st.getPredicate())) {
+                        queue.add(st.getObject());
+                    }
+                }
+            }
+        }
+        return members;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.io;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.AbstractValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.sail.Sail;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams RDF data into a {@link Sail} and commits the statements in chunks of a fixed size. This
+ * avoids keeping the whole import in a single transaction.
+ * <p>
+ * If a checkpoint file is given, the number of committed statements is recorded in it after every
+ * chunk. When the import is interrupted (by interrupting the importing thread) and later started
+ * again for the same source, the statements that were already committed are skipped. Blank node
+ * IDs are generated deterministically per import so that statements imported before and after the
+ * interruption still refer to the same blank nodes. The checkpoint file is removed once the import
+ * is complete.
+ */
+public class BulkRdfImporter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(BulkRdfImporter.class);
+
+    private static final String PROP_SOURCE = "source";
+    private static final String PROP_BNODE_PREFIX = "bnodePrefix";
+    private static final String PROP_COMMITTED = "committed";
+
+    private final int chunkSize;
+    private final File checkpointFile;
+    private final LongConsumer progressListener;
+
+    /**
+     * @param aChunkSize
+     *            number of statements committed at once.
+     * @param aCheckpointFile
+     *            file in which the import progress is recorded or {@code null} if the import
+     *            should not be resumable.
+     * @param aProgressListener
+     *            called with the total number of committed statements after every chunk. May be
+     *            {@code null}.
+     */
+    public BulkRdfImporter(int aChunkSize, File aCheckpointFile, LongConsumer aProgressListener)
+    {
+        isTrue(aChunkSize > 0, "Chunk size must be positive");
+
+        chunkSize = aChunkSize;
+        checkpointFile = aCheckpointFile;
+        progressListener = aProgressListener;
+    }
+
+    /**
+     * Imports the given RDF data into the given sail.
+     *
+     * @param aSail
+     *            the target sail.
+     * @param aIS
+     *            the RDF data. The stream is not closed.
+     * @param aBaseUri
+     *            the base URI against which relative IRIs are resolved.
+     * @param aFormat
+     *            the RDF format.
+     * @param aSource
+     *            identifies the data being imported. An import is only resumed from the
+     *            checkpoint file if this matches the source recorded in it.
+     * @return the total number of statements imported, including any statements imported before
+     *         the import was resumed.
+     * @throws InterruptedIOException
+     *             if the importing thread was interrupted. The statements imported so far remain
+     *             committed.
+     */
+    public long importData(Sail aSail, InputStream aIS, String aBaseUri, RDFFormat aFormat,
+            String aSource)
+        throws IOException
+    {
+        Properties checkpoint = readCheckpoint(aSource);
+        long skip = Long.parseLong(checkpoint.getProperty(PROP_COMMITTED));
+        if (skip > 0) {
+            LOG.info("Resuming import of [{}] after {} statements", aSource, skip);
+        }
+
+        RDFParser parser = Rio.createParser(aFormat,
+                new DeterministicBNodeValueFactory(checkpoint.getProperty(PROP_BNODE_PREFIX)));
+        parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+
+        ChunkingHandler handler;
+        try (SailConnection conn = aSail.getConnection()) {
+            handler = new ChunkingHandler(conn, checkpoint, skip);
+            parser.setRDFHandler(handler);
+            parser.parse(aIS, aBaseUri);
+        }
+        catch (RDFHandlerException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                // The flag was cleared so the interrupt did not affect closing the connection.
+                // Now restore it for the caller.
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import of [" + aSource
+                        + "] was interrupted after "
+                        + checkpoint.getProperty(PROP_COMMITTED) + " statements");
+            }
+            throw e;
+        }
+
+        if (checkpointFile != null) {
+            checkpointFile.delete();
+        }
+
+        LOG.info("Imported {} statements from [{}]", handler.committed, aSource);
+
+        return handler.committed;
+    }
+
+    private Properties readCheckpoint(String aSource) throws IOException
+    {
+        Properties checkpoint = new Properties();
+
+        if (checkpointFile != null && checkpointFile.exists()) {
+            try (InputStream is = new FileInputStream(checkpointFile)) {
+                checkpoint.load(is);
+            }
+
+            if (aSource.equals(checkpoint.getProperty(PROP_SOURCE))) {
+                return checkpoint;
+            }
+
+            LOG.info("Discarding checkpoint of unfinished import of [{}]",
+                    checkpoint.getProperty(PROP_SOURCE));
+            checkpoint.clear();
+        }
+
+        checkpoint.setProperty(PROP_SOURCE, aSource);
+        checkpoint.setProperty(PROP_BNODE_PREFIX, UUID.randomUUID().toString() + "-");
+        checkpoint.setProperty(PROP_COMMITTED, "0");
+        return checkpoint;
+    }
+
+    private void writeCheckpoint(Properties aCheckpoint) throws IOException
+    {
+        if (checkpointFile == null) {
+            return;
+        }
+
+        checkpointFile.getParentFile().mkdirs();
+        try (OutputStream os = new FileOutputStream(checkpointFile)) {
+            aCheckpoint.store(os, null);
+        }
+    }
+
+    private class ChunkingHandler
+        extends AbstractRDFHandler
+    {
+        private final SailConnection conn;
+        private final Properties checkpoint;
+        private final List<Statement> buffer;
+
+        private long skip;
+        private long committed;
+
+        public ChunkingHandler(SailConnection aConn, Properties aCheckpoint, long aSkip)
+        {
+            conn = aConn;
+            checkpoint = aCheckpoint;
+            skip = aSkip;
+            committed = aSkip;
+            buffer = new ArrayList<>(chunkSize);
+        }
+
+        @Override
+        public void handleStatement(Statement aStatement)
+        {
+            // Statements committed before the import was interrupted are parsed again but not
+            // added again
+            if (skip > 0) {
+                skip--;
+                return;
+            }
+
+            buffer.add(aStatement);
+            if (buffer.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void endRDF()
+        {
+            flush();
+        }
+
+        private void flush()
+        {
+            if (buffer.isEmpty()) {
+                return;
+            }
+
+            // Check for interruption before touching the store and clear the flag - file channels
+            // used by the native store are closed if the thread is interrupted during I/O
+            if (Thread.interrupted()) {
+                throw new RDFHandlerException(new InterruptedException());
+            }
+
+            conn.begin();
+            for (Statement st : buffer) {
+                if (st.getContext() != null) {
+                    conn.addStatement(st.getSubject(), st.getPredicate(), st.getObject(),
+                            st.getContext());
+                }
+                else {
+                    conn.addStatement(st.getSubject(), st.getPredicate(), st.getObject());
+                }
+            }
+            conn.commit();
+
+            committed += buffer.size();
+            buffer.clear();
+
+            checkpoint.setProperty(PROP_COMMITTED, String.valueOf(committed));
+            try {
+                writeCheckpoint(checkpoint);
+            }
+            catch (IOException e) {
+                throw new RDFHandlerException("Unable to write import checkpoint", e);
+            }
+
+            LOG.debug("Committed {} statements", committed);
+
+            if (progressListener != null) {
+                progressListener.accept(committed);
+            }
+        }
+    }
+
+    /**
+     * Prefixes all blank node IDs with a prefix that is specific to the import. Since the parser
+     * processes the data in the same order every time, blank nodes without an ID are numbered
+     * identically when an interrupted import is resumed.
+     */
+    private static class DeterministicBNodeValueFactory
+        extends AbstractValueFactory
+    {
+        private final String prefix;
+        private long nextId = 0;
+
+        public DeterministicBNodeValueFactory(String aPrefix)
+        {
+            prefix = aPrefix;
+        }
+
+        @Override
+        public BNode createBNode()
+        {
+            return super.createBNode(prefix + "anon-" + nextId++);
+        }
+
+        @Override
+        public BNode createBNode(String aNodeID)
+        {
+            return super.createBNode(prefix + "id-" + aNodeID);
+        }
+    }
+}
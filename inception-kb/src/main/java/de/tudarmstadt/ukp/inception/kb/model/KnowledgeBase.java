@@ -201,6 +201,13 @@ public class KnowledgeBase
     @Column(nullable = false)
     private int maxResults;
 
+    /**
+     * Whether the results of SPARQL queries are cached. Only applies to remote read-only
+     * knowledge bases.
+     */
+    @Column(nullable = false)
+    private boolean queryCacheEnabled = false;
+
     public String getRepositoryId() {
         return repositoryId;
     }
@@ -423,6 +430,16 @@ public class KnowledgeBase
         maxResults = aSparqlQueryResultLimit;
     }
 
+    public boolean isQueryCacheEnabled()
+    {
+        return queryCacheEnabled;
+    }
+
+    public void setQueryCacheEnabled(boolean aQueryCacheEnabled)
+    {
+        queryCacheEnabled = aQueryCacheEnabled;
+    }
+
     public void applyMapping(KnowledgeBaseMapping aMapping)
     {
         setClassIri(aMapping.getClassIri());
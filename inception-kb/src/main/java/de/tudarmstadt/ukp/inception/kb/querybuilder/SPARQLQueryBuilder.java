@@ -187,6 +187,8 @@ public class SPARQLQueryBuilder
     
     private int limitOverride = DEFAULT_LIMIT;
     
+    private boolean noLimit = false;
+    
     private boolean includeInferred = true;
     
     /**
@@ -564,6 +566,14 @@ public class SPARQLQueryBuilder
     public SPARQLQueryOptionalElements limit(int aLimit)
     {
         limitOverride = aLimit;
+        noLimit = false;
+        return this;
+    }
+    
+    @Override
+    public SPARQLQueryOptionalElements noLimit()
+    {
+        noLimit = true;
         return this;
     }
 
@@ -1494,17 +1504,19 @@ public class SPARQLQueryBuilder
                     SparqlBuilder.from(iri(kb.getDefaultDatasetIri()))));
         }
         
-        int actualLimit = getLimit();
-        
-        if (!serverSideReduce) {
-            // If we do not do a server-side reduce, then we may get two results for every item
-            // from the server (one with and one without the language), so we need to double the
-            // query limit and cut down results locally later.
-            actualLimit = actualLimit * 2;
+        if (!noLimit) {
+            int actualLimit = getLimit();
+            
+            if (!serverSideReduce) {
+                // If we do not do a server-side reduce, then we may get two results for every
+                // item from the server (one with and one without the language), so we need to
+                // double the query limit and cut down results locally later.
+                actualLimit = actualLimit * 2;
+            }
+            
+            query.limit(actualLimit);
         }
         
-        query.limit(actualLimit);
-        
         return query;
     }
     
@@ -1684,6 +1696,10 @@ public class SPARQLQueryBuilder
         LOG.trace("Input: {}", aHandles);
         LOG.trace("Output: {}", cMap.values());
 
+        if (noLimit) {
+            return new ArrayList<>(cMap.values());
+        }
+        
         return cMap.values().stream().limit(getLimit()).collect(Collectors.toList());
     }
     
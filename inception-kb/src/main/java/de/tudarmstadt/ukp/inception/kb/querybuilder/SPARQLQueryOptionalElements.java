@@ -38,6 +38,14 @@ public interface SPARQLQueryOptionalElements
     
     SPARQLQueryOptionalElements limit(int aLimit);
 
+    /**
+     * Do not limit the number of results. This should only be used if the results are bounded by
+     * other means, e.g. because the query looks for specific identifiers.
+     * 
+     * @return the builder (fluent API)
+     */
+    SPARQLQueryOptionalElements noLimit();
+
     SPARQLQueryOptionalElements caseSensitive();
 
     SPARQLQueryOptionalElements caseSensitive(boolean aEnabled);
@@ -30,6 +30,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -115,6 +117,8 @@ public class KnowledgeBaseExporterTest
 
         ProjectImportRequest importRequest = new ProjectImportRequest(true);
         ZipFile zipFile = mock(ZipFile.class);
+        when(zipFile.getInputStream(any()))
+                .thenAnswer(_invocation -> new ByteArrayInputStream(new byte[0]));
 
         sut.importData(importRequest, targetProject, exportedProject, zipFile);
 
@@ -126,7 +130,7 @@ public class KnowledgeBaseExporterTest
 
         // Verify that importData is called as many times as there are localKBs
         verify(kbService, times(numOfLocalKBs)).importData(any(),
-            any(), any());
+            any(File.class), any());
 
         assertThat(exportedKbs)
             .usingElementComparatorIgnoringFields("repositoryId", "project")
@@ -160,6 +164,8 @@ public class KnowledgeBaseExporterTest
         // Import the project again
         ProjectImportRequest importRequest = new ProjectImportRequest(true);
         ZipFile zipFile = mock(ZipFile.class);
+        when(zipFile.getInputStream(any()))
+                .thenAnswer(_invocation -> new ByteArrayInputStream(new byte[0]));
         sut.importData(importRequest, targetProject, exportedProject, zipFile);
 
         // Verify that features were actually processed
@@ -24,6 +24,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -31,6 +32,7 @@ import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 
+import org.apache.commons.io.FileUtils;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.After;
 import org.junit.Before;
@@ -50,11 +52,13 @@ import de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst;
 import de.tudarmstadt.ukp.clarin.webanno.api.dao.RepositoryProperties;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.kb.graph.KBConcept;
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
 import de.tudarmstadt.ukp.inception.kb.graph.KBObject;
 import de.tudarmstadt.ukp.inception.kb.graph.KBProperty;
 import de.tudarmstadt.ukp.inception.kb.graph.KBStatement;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQueryBuilder;
 import de.tudarmstadt.ukp.inception.kb.reification.Reification;
 import de.tudarmstadt.ukp.inception.kb.util.TestFixtures;
 import de.tudarmstadt.ukp.inception.kb.yaml.KnowledgeBaseProfile;
@@ -121,6 +125,35 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest {
             .containsExactlyInAnyOrder("Loves", "Hates", "Has Character", "Year Of Birth");
     }
 
+    @Test
+    public void importData_WithUploadedFile_ShouldImportTriplesAndIndexLabels() throws Exception {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        // The UI and the project import pass the uploaded file to the service
+        File file = temporaryFolder.newFile("upload-pets.ttl");
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("data/pets.ttl")) {
+            FileUtils.copyInputStreamToFile(is, file);
+        }
+        List<Long> progress = new ArrayList<>();
+        sut.importData(kb, file, progress::add);
+
+        Stream<String> conceptLabels = sut.listAllConcepts(kb, false).stream().map(KBObject::getName);
+        assertThat(conceptLabels)
+            .as("Check that concepts all have been imported")
+            .containsExactlyInAnyOrder("Animal", "Character", "Cat", "Dog");
+        assertThat(progress)
+            .as("Check that the progress has been reported")
+            .isNotEmpty();
+
+        List<KBHandle> matches = sut.read(kb, conn -> SPARQLQueryBuilder.forItems(kb)
+                .withLabelContainingAnyOf("Cat")
+                .asHandles(conn, true));
+        assertThat(matches)
+            .as("Check that the full text index has been rebuilt after the import")
+            .extracting(KBHandle::getUiLabel)
+            .contains("Cat");
+    }
+
     @Test
     public void importData_WithReadOnlyKb_ShouldDoNothing() throws Exception {
         sut.registerKnowledgeBase(kb, sut.getNativeConfig());
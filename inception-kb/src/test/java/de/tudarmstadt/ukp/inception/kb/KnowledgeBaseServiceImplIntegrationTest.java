@@ -1556,6 +1556,91 @@ public class KnowledgeBaseServiceImplIntegrationTest  {
             .isInstanceOf(KBProperty.class);
     }
 
+    @Test
+    public void readItems_ShouldReturnCorrectClassInstances()
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        KBConcept concept = buildConcept();
+        sut.createConcept(kb, concept);
+        KBInstance instance = buildInstance();
+        sut.createInstance(kb, instance);
+        KBProperty property = buildProperty();
+        sut.createProperty(kb, property);
+
+        Map<String, KBObject> items = sut.readItems(kb, Arrays.asList(concept.getIdentifier(),
+                instance.getIdentifier(), property.getIdentifier(),
+                "https://nonexistent.identifier.test"));
+
+        assertThat(items)
+            .as("Check that only the existing identifiers were read")
+            .containsOnlyKeys(concept.getIdentifier(), instance.getIdentifier(),
+                    property.getIdentifier());
+        assertThat(items.get(concept.getIdentifier()))
+            .as("Check that reading a concept id returns an instance of KBConcept")
+            .isInstanceOf(KBConcept.class)
+            .hasFieldOrPropertyWithValue("name", concept.getName());
+        assertThat(items.get(instance.getIdentifier()))
+            .as("Check that reading an instance id returns an instance of KBInstance")
+            .isInstanceOf(KBInstance.class)
+            .hasFieldOrPropertyWithValue("name", instance.getName());
+        assertThat(items.get(property.getIdentifier()))
+            .as("Check that reading a property id returns an instance of KBProperty")
+            .isInstanceOf(KBProperty.class)
+            .hasFieldOrPropertyWithValue("name", property.getName());
+    }
+
+    @Test
+    public void readHandles_ShouldReturnHandlesWithLabels()
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        KBConcept concept = buildConcept();
+        sut.createConcept(kb, concept);
+        KBInstance instance = buildInstance();
+        sut.createInstance(kb, instance);
+
+        Map<String, KBHandle> handles = sut.readHandles(kb,
+                Arrays.asList(concept.getIdentifier(), instance.getIdentifier()));
+
+        assertThat(handles)
+            .as("Check that all identifiers were read")
+            .containsOnlyKeys(concept.getIdentifier(), instance.getIdentifier());
+        assertThat(handles.get(concept.getIdentifier()))
+            .hasFieldOrPropertyWithValue("name", concept.getName());
+        assertThat(handles.get(instance.getIdentifier()))
+            .hasFieldOrPropertyWithValue("name", instance.getName());
+    }
+
+    @Test
+    public void readItems_WithMultipleLabelsAndDescriptions_ShouldReturnAllItems()
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+        List<String> identifiers = createItemsWithMultipleLabels(3);
+
+        Map<String, KBObject> items = sut.readItems(kb, identifiers);
+
+        assertThat(items)
+            .as("Check that all identifiers were read")
+            .containsOnlyKeys(identifiers);
+        assertThat(items.values())
+            .extracting(KBObject::getUiLabel)
+            .containsExactlyInAnyOrder("item-0 (en)", "item-1 (en)", "item-2 (en)");
+    }
+
+    @Test
+    public void readHandles_WithMultipleLabels_ShouldReturnAllHandles()
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+        List<String> identifiers = createItemsWithMultipleLabels(3);
+
+        Map<String, KBHandle> handles = sut.readHandles(kb, identifiers);
+
+        assertThat(handles)
+            .as("Check that all identifiers were read")
+            .containsOnlyKeys(identifiers);
+    }
+
     @Test
     public void checkIfKBIsEnabledById_WithExistingAndEnabledKB_ShouldReturnTrue() {
         sut.registerKnowledgeBase(kb, sut.getNativeConfig());
@@ -1631,6 +1716,29 @@ public class KnowledgeBaseServiceImplIntegrationTest  {
                 .anyMatch(ns -> handle.getIdentifier().startsWith(ns));
     }
 
+    /**
+     * Creates concepts which each have labels in several languages and multiple descriptions, so
+     * that each concept produces several result rows in queries retrieving labels/descriptions.
+     */
+    private List<String> createItemsWithMultipleLabels(int aCount)
+    {
+        ValueFactory vf = SimpleValueFactory.getInstance();
+        List<String> identifiers = new ArrayList<>();
+        sut.update(kb, (conn) -> {
+            for (int i = 0; i < aCount; i++) {
+                IRI item = vf.createIRI("http://example.org/#item-" + i);
+                conn.add(item, kb.getTypeIri(), kb.getClassIri());
+                conn.add(item, kb.getLabelIri(), vf.createLiteral("item-" + i + " (en)", "en"));
+                conn.add(item, kb.getLabelIri(), vf.createLiteral("item-" + i + " (de)", "de"));
+                conn.add(item, kb.getLabelIri(), vf.createLiteral("item-" + i));
+                conn.add(item, kb.getDescriptionIri(), vf.createLiteral("first", "en"));
+                conn.add(item, kb.getDescriptionIri(), vf.createLiteral("second"));
+                identifiers.add(item.stringValue());
+            }
+        });
+        return identifiers;
+    }
+
     private void importKnowledgeBase(String resourceName) throws Exception {
         ClassLoader classLoader = getClass().getClassLoader();
         String fileName = classLoader.getResource(resourceName).getFile();
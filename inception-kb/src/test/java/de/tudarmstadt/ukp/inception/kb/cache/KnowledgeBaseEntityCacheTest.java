@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.cache;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.RepositoryType;
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseUpdatedEvent;
+import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+public class KnowledgeBaseEntityCacheTest
+{
+    private @Mock KnowledgeBaseService kbService;
+
+    private KnowledgeBasePropertiesImpl properties;
+    private Project project;
+    private KnowledgeBase kb;
+    private KBInstance instance;
+
+    @Before
+    public void setUp()
+    {
+        initMocks(this);
+
+        properties = new KnowledgeBasePropertiesImpl();
+
+        project = new Project();
+        project.setId(1l);
+        project.setName("Test Project");
+
+        kb = new KnowledgeBase();
+        kb.setRepositoryId("kb");
+        kb.setName("Test KB");
+        kb.setProject(project);
+        kb.setType(RepositoryType.LOCAL);
+
+        instance = new KBInstance("urn:a", "A");
+        instance.setKB(kb);
+
+        when(kbService.readItem(kb, "urn:a")).thenReturn(Optional.of(instance));
+        when(kbService.readItem(kb, "urn:missing")).thenReturn(Optional.empty());
+    }
+
+    @Test
+    public void getItem_ShouldLookUpItemOnlyOnce()
+    {
+        KnowledgeBaseEntityCache sut = new KnowledgeBaseEntityCache(kbService, properties);
+
+        assertThat(sut.getItem(kb, "urn:a")).contains(instance);
+        assertThat(sut.getItem(kb, "urn:a")).contains(instance);
+        assertThat(sut.getItem(kb, "urn:missing")).isEmpty();
+        assertThat(sut.getItem(kb, "urn:missing")).isEmpty();
+
+        verify(kbService, times(1)).readItem(kb, "urn:a");
+        verify(kbService, times(1)).readItem(kb, "urn:missing");
+        assertThat(sut.getItemCacheHitCount()).isEqualTo(2);
+        assertThat(sut.getItemCacheMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getItem_WithNullIdentifier_ShouldLookUpItemOnlyOnce()
+    {
+        when(kbService.readItem(kb, null)).thenReturn(Optional.empty());
+        KnowledgeBaseEntityCache sut = new KnowledgeBaseEntityCache(kbService, properties);
+
+        assertThat(sut.getItem(kb, null)).isEmpty();
+        assertThat(sut.getItem(kb, null)).isEmpty();
+        assertThat(sut.getItem(kb, "urn:a")).contains(instance);
+
+        verify(kbService, times(1)).readItem(kb, null);
+    }
+
+    @Test
+    public void getItem_ShouldLookUpItemAgainAfterUpdate()
+    {
+        KnowledgeBaseEntityCache sut = new KnowledgeBaseEntityCache(kbService, properties);
+
+        sut.getItem(kb, "urn:a");
+        sut.onKnowledgeBaseUpdated(new KnowledgeBaseUpdatedEvent(this, kb));
+        sut.getItem(kb, "urn:a");
+        sut.onKnowledgeBaseConfigurationChanged(
+                new KnowledgeBaseConfigurationChangedEvent(this, project));
+        sut.getItem(kb, "urn:a");
+
+        verify(kbService, times(3)).readItem(kb, "urn:a");
+    }
+
+    @Test
+    public void getItem_ShouldNotCacheItemLookedUpBeforeUpdate()
+    {
+        KnowledgeBaseEntityCache sut = new KnowledgeBaseEntityCache(kbService, properties);
+
+        // The knowledge base is updated while the item is being looked up
+        when(kbService.readItem(kb, "urn:a")).thenAnswer(invocation -> {
+            sut.onKnowledgeBaseUpdated(new KnowledgeBaseUpdatedEvent(this, kb));
+            return Optional.of(instance);
+        }).thenReturn(Optional.of(instance));
+
+        assertThat(sut.getItem(kb, "urn:a")).contains(instance);
+        assertThat(sut.getItem(kb, "urn:a")).contains(instance);
+        assertThat(sut.getItem(kb, "urn:a")).contains(instance);
+
+        verify(kbService, times(2)).readItem(kb, "urn:a");
+    }
+
+    @Test
+    public void getItem_ShouldExpireOnlyRemoteItems()
+    {
+        properties.setEntityCacheRemoteTtl(0);
+        KnowledgeBaseEntityCache sut = new KnowledgeBaseEntityCache(kbService, properties);
+
+        KnowledgeBase remoteKb = new KnowledgeBase();
+        remoteKb.setRepositoryId("remote-kb");
+        remoteKb.setProject(project);
+        remoteKb.setType(RepositoryType.REMOTE);
+        when(kbService.readItem(remoteKb, "urn:a")).thenReturn(Optional.of(instance));
+
+        sut.getItem(kb, "urn:a");
+        sut.getItem(kb, "urn:a");
+        sut.getItem(remoteKb, "urn:a");
+        sut.getItem(remoteKb, "urn:a");
+
+        verify(kbService, times(1)).readItem(kb, "urn:a");
+        verify(kbService, times(2)).readItem(remoteKb, "urn:a");
+    }
+
+    @Test
+    public void getItems_ShouldLookUpOnlyItemsNotInCache()
+    {
+        when(kbService.getKnowledgeBaseById(project, "kb")).thenReturn(Optional.of(kb));
+        when(kbService.readItems(eq(kb), anyCollection()))
+                .thenReturn(singletonMap("urn:a", instance));
+        KnowledgeBaseEntityCache sut = new KnowledgeBaseEntityCache(kbService, properties);
+
+        sut.getItem(project, "kb", "urn:a");
+
+        assertThat(sut.getItems(project, "kb", asList("urn:a", "urn:missing")))
+                .containsOnlyKeys("urn:a")
+                .containsEntry("urn:a", instance);
+        assertThat(sut.getItem(project, "kb", "urn:missing")).isEmpty();
+
+        verify(kbService, times(1)).readItem(kb, "urn:a");
+        verify(kbService, times(1)).readItems(kb, singletonList("urn:missing"));
+        verify(kbService, times(0)).readItem(kb, "urn:missing");
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueryResultCacheTest
+{
+    private static final String QUERY = "SELECT ?s WHERE { ?s ?p ?o }";
+
+    public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SailRepository repo;
+    private IRI subject;
+
+    @Before
+    public void setUp()
+    {
+        repo = new SailRepository(new MemoryStore());
+        repo.init();
+
+        ValueFactory vf = repo.getValueFactory();
+        subject = vf.createIRI("http://example.org/#subject");
+        try (RepositoryConnection conn = repo.getConnection()) {
+            conn.add(subject, RDFS.LABEL, vf.createLiteral("Subject"));
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        repo.shutDown();
+    }
+
+    @Test
+    public void thatRepeatedQueryIsAnsweredFromCache()
+    {
+        QueryResultCache sut = new QueryResultCache(100, 60_000, null);
+
+        assertThat(query(sut, "hash")).containsExactly(subject.stringValue());
+
+        clearRepository();
+
+        assertThat(query(sut, "hash")).containsExactly(subject.stringValue());
+        assertThat(sut.getMissCount()).isEqualTo(1);
+        assertThat(sut.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatChangedConfigurationIsNotAnsweredFromCache()
+    {
+        QueryResultCache sut = new QueryResultCache(100, 60_000, null);
+
+        query(sut, "hash");
+
+        clearRepository();
+
+        assertThat(query(sut, "other-hash")).isEmpty();
+    }
+
+    @Test
+    public void thatInvalidatedResultIsNotAnsweredFromCache()
+    {
+        QueryResultCache sut = new QueryResultCache(100, 60_000, null);
+
+        query(sut, "hash");
+
+        clearRepository();
+        sut.invalidate("kb");
+
+        assertThat(query(sut, "hash")).isEmpty();
+    }
+
+    @Test
+    public void thatPersistedResultIsRestored() throws Exception
+    {
+        File cacheFile = new File(temporaryFolder.getRoot(), "cache.ser");
+
+        QueryResultCache cache = new QueryResultCache(100, 60_000, cacheFile);
+        query(cache, "hash");
+        cache.persist();
+
+        clearRepository();
+
+        QueryResultCache sut = new QueryResultCache(100, 60_000, cacheFile);
+        assertThat(query(sut, "hash")).containsExactly(subject.stringValue());
+        assertThat(sut.getMissCount()).isEqualTo(0);
+    }
+
+    private List<String> query(QueryResultCache aCache, String aConfigHash)
+    {
+        try (RepositoryConnection conn = new QueryCachingRepositoryConnection(
+                repo.getConnection(), aCache, "kb", aConfigHash)) {
+            List<BindingSet> result = Iterations
+                    .asList(conn.prepareTupleQuery(QUERY).evaluate());
+            return result.stream()
+                    .map(bindings -> bindings.getValue("s").stringValue())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void clearRepository()
+    {
+        try (RepositoryConnection conn = repo.getConnection()) {
+            conn.clear();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.hierarchy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.OWL;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+public class ClassHierarchyIndexTest
+{
+    private static final String NS = "http://example.org/#";
+
+    private static final String DATA = String.join("\n",
+            "@prefix ex: <http://example.org/#> .",
+            "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .",
+            "@prefix owl: <http://www.w3.org/2002/07/owl#> .",
+            "ex:animal a owl:Class .",
+            "ex:mammal rdfs:subClassOf ex:animal .",
+            "ex:dog rdfs:subClassOf ex:mammal .",
+            "ex:pet a owl:Class .",
+            "ex:petDog owl:intersectionOf ( ex:dog ex:pet ) .");
+
+    public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SailRepository repo;
+    private KnowledgeBase kb;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        repo = new SailRepository(new MemoryStore());
+        repo.init();
+
+        try (RepositoryConnection conn = repo.getConnection()) {
+            conn.add(new ByteArrayInputStream(DATA.getBytes(UTF_8)), NS, RDFFormat.TURTLE);
+        }
+
+        kb = new KnowledgeBase();
+        kb.setClassIri(OWL.CLASS);
+        kb.setSubclassIri(RDFS.SUBCLASSOF);
+        kb.setTypeIri(RDF.TYPE);
+    }
+
+    @After
+    public void tearDown()
+    {
+        repo.shutDown();
+    }
+
+    @Test
+    public void thatRelationsAreIndexed()
+    {
+        ClassHierarchyIndex sut = build();
+
+        assertThat(sut.getChildren(NS + "animal")).containsExactly(NS + "mammal");
+        assertThat(sut.getChildren(NS + "dog")).containsExactly(NS + "petDog");
+        assertThat(sut.getChildren(NS + "pet")).containsExactly(NS + "petDog");
+        assertThat(sut.getChildren(NS + "petDog")).isEmpty();
+        assertThat(sut.getAncestors(singletonList(NS + "petDog")))
+                .containsExactlyInAnyOrder(NS + "dog", NS + "pet", NS + "mammal", NS + "animal");
+        assertThat(sut.getDescendants(singletonList(NS + "animal")))
+                .containsExactlyInAnyOrder(NS + "mammal", NS + "dog", NS + "petDog");
+    }
+
+    @Test
+    public void thatIntersectionsAreIgnoredWithoutOwlClasses()
+    {
+        kb.setClassIri(RDFS.CLASS);
+
+        ClassHierarchyIndex sut = build();
+
+        assertThat(sut.getChildren(NS + "dog")).isEmpty();
+        assertThat(sut.getAncestors(singletonList(NS + "petDog"))).isEmpty();
+    }
+
+    @Test
+    public void thatRefreshPicksUpChanges()
+    {
+        ClassHierarchyIndex sut = build();
+
+        ValueFactory vf = repo.getValueFactory();
+        try (RepositoryConnection conn = repo.getConnection()) {
+            conn.add(vf.createIRI(NS, "cat"), RDFS.SUBCLASSOF, vf.createIRI(NS, "mammal"));
+            sut.refresh(conn, NS + "cat");
+
+            conn.remove(vf.createIRI(NS, "dog"), null, null);
+            conn.remove((Resource) null, null, vf.createIRI(NS, "dog"));
+            sut.refresh(conn, NS + "dog");
+        }
+
+        assertThat(sut.getChildren(NS + "mammal")).containsExactly(NS + "cat");
+        assertThat(sut.getDescendants(singletonList(NS + "animal")))
+                .containsExactlyInAnyOrder(NS + "mammal", NS + "cat");
+        assertThat(sut.getAncestors(singletonList(NS + "petDog"))).containsExactly(NS + "pet");
+    }
+
+    @Test
+    public void thatRefreshPicksUpNewIntersectionMember()
+    {
+        ClassHierarchyIndex sut = build();
+
+        try (RepositoryConnection conn = repo.getConnection()) {
+            conn.add(new ByteArrayInputStream(String.join("\n",
+                    "@prefix ex: <http://example.org/#> .",
+                    "@prefix owl: <http://www.w3.org/2002/07/owl#> .",
+                    "ex:guardDog owl:intersectionOf ( ex:worker ex:dog ) .").getBytes(UTF_8)),
+                    NS, RDFFormat.TURTLE);
+            sut.refresh(conn, NS + "worker");
+        }
+
+        assertThat(sut.getChildren(NS + "worker")).containsExactly(NS + "guardDog");
+    }
+
+    @Test
+    public void thatIndexCanBeWrittenAndRead() throws Exception
+    {
+        File file = new File(temporaryFolder.getRoot(), "hierarchy/kb.ser");
+
+        build().write(file);
+        ClassHierarchyIndex sut = ClassHierarchyIndex.read(file);
+
+        assertThat(sut.isCompatible(kb)).isTrue();
+        assertThat(sut.getChildren(NS + "mammal")).containsExactly(NS + "dog");
+
+        kb.setSubclassIri(repo.getValueFactory().createIRI(NS, "subClassOf"));
+        assertThat(sut.isCompatible(kb)).isFalse();
+    }
+
+    private ClassHierarchyIndex build()
+    {
+        try (RepositoryConnection conn = repo.getConnection()) {
+            return ClassHierarchyIndex.build(conn, kb);
+        }
+    }
+}
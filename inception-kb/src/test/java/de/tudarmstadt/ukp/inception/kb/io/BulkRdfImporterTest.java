@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkRdfImporterTest
+{
+    private static final String DATA = String.join("\n",
+            "@prefix ex: <http://example.org/#> .",
+            "_:x ex:p ex:a .",
+            "ex:a ex:p ex:b .",
+            "_:x ex:p ex:b .",
+            "ex:b ex:p ex:c .",
+            "_:x ex:p ex:c .");
+
+    public @Rule TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MemoryStore sail;
+    private SailRepository repo;
+
+    @Before
+    public void setUp()
+    {
+        sail = new MemoryStore();
+        repo = new SailRepository(sail);
+        repo.init();
+    }
+
+    @After
+    public void tearDown()
+    {
+        repo.shutDown();
+    }
+
+    @Test
+    public void thatDataIsCommittedInChunks() throws Exception
+    {
+        List<Long> progress = new ArrayList<>();
+        BulkRdfImporter sut = new BulkRdfImporter(2, null, progress::add);
+
+        long imported = sut.importData(sail, data(), "", RDFFormat.TURTLE, "data.ttl");
+
+        assertThat(imported).isEqualTo(5);
+        assertThat(progress).containsExactly(2l, 4l, 5l);
+        assertThat(statements()).hasSize(5);
+    }
+
+    @Test
+    public void thatInterruptedImportIsResumed() throws Exception
+    {
+        File checkpointFile = new File(temporaryFolder.getRoot(), "import.checkpoint");
+
+        List<Long> progress = new ArrayList<>();
+        BulkRdfImporter interrupted = new BulkRdfImporter(2, checkpointFile, committed -> {
+            progress.add(committed);
+            Thread.currentThread().interrupt();
+        });
+
+        assertThatThrownBy(
+            () -> interrupted.importData(sail, data(), "", RDFFormat.TURTLE, "data.ttl"))
+                .isInstanceOf(InterruptedIOException.class);
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(checkpointFile).exists();
+        assertThat(statements()).hasSize(2);
+
+        BulkRdfImporter sut = new BulkRdfImporter(2, checkpointFile, progress::add);
+        long imported = sut.importData(sail, data(), "", RDFFormat.TURTLE, "data.ttl");
+
+        assertThat(imported).isEqualTo(5);
+        assertThat(progress).containsExactly(2l, 4l, 5l);
+        assertThat(checkpointFile).doesNotExist();
+
+        // The blank node statements were committed in different runs, but must still share the
+        // same subject
+        List<Statement> statements = statements();
+        assertThat(statements).hasSize(5);
+        assertThat(statements.stream()
+                .map(Statement::getSubject)
+                .filter(s -> s instanceof BNode)
+                .distinct()
+                .count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void thatCheckpointOfOtherSourceIsNotResumed() throws Exception
+    {
+        File checkpointFile = new File(temporaryFolder.getRoot(), "import.checkpoint");
+
+        BulkRdfImporter interrupted = new BulkRdfImporter(2, checkpointFile,
+            committed -> Thread.currentThread().interrupt());
+        assertThatThrownBy(
+            () -> interrupted.importData(sail, data(), "", RDFFormat.TURTLE, "other.ttl"))
+                .isInstanceOf(InterruptedIOException.class);
+        Thread.interrupted();
+
+        try (RepositoryConnection conn = repo.getConnection()) {
+            conn.clear();
+        }
+
+        BulkRdfImporter sut = new BulkRdfImporter(2, checkpointFile, null);
+        long imported = sut.importData(sail, data(), "", RDFFormat.TURTLE, "data.ttl");
+
+        assertThat(imported).isEqualTo(5);
+        assertThat(statements()).hasSize(5);
+    }
+
+    private InputStream data()
+    {
+        return new ByteArrayInputStream(DATA.getBytes(UTF_8));
+    }
+
+    private List<Statement> statements()
+    {
+        try (RepositoryConnection conn = repo.getConnection()) {
+            return Iterations.asList(conn.getStatements(null, null, null));
+        }
+    }
+}
@@ -106,7 +106,9 @@ public interface RecommendationService
     Optional<RecommenderContext> getContext(User aUser, Recommender aRecommender);
 
     /**
-     * Publishes a new context for the given recommender.
+     * Publishes a new context for the given recommender. The context replaces the current one
+     * atomically unless the current one has a newer model version (cf.
+     * {@link RecommenderContext#getVersion()}).
      * 
      * @param aUser
      *            The owner of the context.
@@ -129,6 +131,25 @@ public interface RecommendationService
         throws AnnotationException;
     
     Predictions computePredictions(User aUser, Project aProject, List<SourceDocument> aDocuments);
+
+    /**
+     * Computes predictions for the given documents, but only re-predicts those documents which
+     * have been written since the last prediction run. The predictions for all other documents
+     * are taken over from the last run. If the active models have changed since the last run or
+     * if there are no previous predictions, all documents are predicted.
+     * 
+     * @param aUser
+     *            The owner of the predictions.
+     * @param aProject
+     *            The project the documents belong to.
+     * @param aDocuments
+     *            All documents in the project.
+     * @return the new predictions or nothing if no document or model has changed since the last
+     *         run or if the prediction failed and the predictions of the last run should remain
+     *         active.
+     */
+    Optional<Predictions> computeIncrementalPredictions(User aUser, Project aProject,
+            List<SourceDocument> aDocuments);
     
     void calculateVisibility(CAS aCas, String aUser, AnnotationLayer aLayer,
             Collection<SuggestionGroup> aRecommendations, int aWindowBegin, int aWindowEnd);
@@ -137,5 +158,11 @@ public interface RecommendationService
 
     void clearState(String aUsername);
 
-    void triggerTrainingAndClassification(String aUser, Project aProject, String aEventName);
+    /**
+     * Schedules the selection or training of the recommenders of the given user and project,
+     * which is followed by new predictions.
+     * 
+     * @return whether the task has been scheduled - {@code false} if the scheduler queue is full.
+     */
+    boolean triggerTrainingAndClassification(String aUser, Project aProject, String aEventName);
 }
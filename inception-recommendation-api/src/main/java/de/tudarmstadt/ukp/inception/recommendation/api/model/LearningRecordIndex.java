@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Index of the learning records of a user on a layer. It allows looking up the record which
+ * applies to a suggestion by the document, position and label of the suggestion in constant time.
+ * If there are multiple records for a suggestion, the most recent one applies.
+ * <p>
+ * Lookups do not lock and may run concurrently with updates.
+ */
+public class LearningRecordIndex
+{
+    /**
+     * Records by position - most recent records (i.e. highest IDs) first. The lists are never
+     * modified, they are replaced on update.
+     */
+    private final Map<Key, List<LearningRecord>> records = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an index from the given records.
+     * 
+     * @param aRecords
+     *            the records, most recent records first.
+     */
+    public static LearningRecordIndex of(List<LearningRecord> aRecords)
+    {
+        LearningRecordIndex index = new LearningRecordIndex();
+        for (int i = aRecords.size() - 1; i >= 0; i--) {
+            index.add(aRecords.get(i));
+        }
+        return index;
+    }
+
+    /**
+     * Adds the given record to the index. Records are ordered by their ID, so a record which has
+     * already been in the index (e.g. because it has been updated) replaces the old entry and keeps
+     * its place. Records without an ID are considered to be the most recent ones. Records of the
+     * type {@link LearningRecordType#SHOWN} are ignored.
+     */
+    public synchronized void add(LearningRecord aRecord)
+    {
+        remove(aRecord);
+        
+        if (aRecord.getUserAction() == LearningRecordType.SHOWN) {
+            return;
+        }
+
+        Key key = new Key(aRecord);
+        List<LearningRecord> current = records.getOrDefault(key, Collections.emptyList());
+        List<LearningRecord> updated = new ArrayList<>(current.size() + 1);
+        updated.addAll(current);
+        int i = 0;
+        while (i < updated.size() && isMoreRecent(updated.get(i), aRecord)) {
+            i++;
+        }
+        updated.add(i, aRecord);
+        records.put(key, updated);
+    }
+
+    private static boolean isMoreRecent(LearningRecord aRecord1, LearningRecord aRecord2)
+    {
+        if (aRecord2.getId() == null) {
+            return false;
+        }
+        
+        return aRecord1.getId() == null || aRecord1.getId() > aRecord2.getId();
+    }
+
+    /**
+     * Removes the given record from the index.
+     */
+    public synchronized void remove(LearningRecord aRecord)
+    {
+        Key key = new Key(aRecord);
+        removeIf(key.documentName, key.begin, key.end, key.label, r -> isSameRecord(r, aRecord));
+    }
+
+    /**
+     * Removes all records for a suggestion with the given label at the given position in the given
+     * document which match the given condition.
+     */
+    public synchronized void removeIf(String aDocumentName, int aBegin, int aEnd, String aLabel,
+            Predicate<LearningRecord> aCondition)
+    {
+        Key key = new Key(aDocumentName, aBegin, aEnd, aLabel);
+        List<LearningRecord> current = records.get(key);
+        if (current == null) {
+            return;
+        }
+
+        List<LearningRecord> updated = new ArrayList<>(current);
+        updated.removeIf(aCondition);
+        if (updated.isEmpty()) {
+            records.remove(key);
+        }
+        else {
+            records.put(key, updated);
+        }
+    }
+
+    private static boolean isSameRecord(LearningRecord aRecord1, LearningRecord aRecord2)
+    {
+        // LearningRecord.equals() ignores the ID and the user action, so we compare by ID here
+        if (aRecord1.getId() != null && aRecord2.getId() != null) {
+            return aRecord1.getId().equals(aRecord2.getId());
+        }
+        
+        return aRecord1 == aRecord2;
+    }
+
+    /**
+     * @return the most recent record for a suggestion with the given label at the given position
+     *         in the given document.
+     */
+    public Optional<LearningRecord> get(String aDocumentName, int aBegin, int aEnd, String aLabel)
+    {
+        List<LearningRecord> candidates = records
+                .get(new Key(aDocumentName, aBegin, aEnd, aLabel));
+        return candidates != null ? Optional.of(candidates.get(0)) : Optional.empty();
+    }
+
+    /**
+     * @return the most recent record applying to the given suggestion.
+     */
+    public Optional<LearningRecord> get(AnnotationSuggestion aSuggestion)
+    {
+        return get(aSuggestion.getDocumentName(), aSuggestion.getBegin(), aSuggestion.getEnd(),
+                aSuggestion.getLabel());
+    }
+
+    public int size()
+    {
+        return records.values().stream().mapToInt(List::size).sum();
+    }
+
+    private static class Key
+    {
+        private final String documentName;
+        private final int begin;
+        private final int end;
+        private final String label;
+
+        public Key(LearningRecord aRecord)
+        {
+            this(aRecord.getSourceDocument() != null ? aRecord.getSourceDocument().getName()
+                    : null, aRecord.getOffsetCharacterBegin(), aRecord.getOffsetCharacterEnd(),
+                    aRecord.getAnnotation());
+        }
+
+        public Key(String aDocumentName, int aBegin, int aEnd, String aLabel)
+        {
+            documentName = aDocumentName;
+            begin = aBegin;
+            end = aEnd;
+            label = aLabel;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key that = (Key) o;
+            return begin == that.begin && end == that.end
+                    && Objects.equals(documentName, that.documentName)
+                    && Objects.equals(label, that.label);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(documentName, begin, end, label);
+        }
+    }
+}
@@ -18,12 +18,18 @@
 package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -43,13 +49,30 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
  * 
  * If the prediction task has run it stores the predicted annotations for an annotation layer in the
  * predictions map.
+ * 
+ * In addition to the predictions map, the predictions are indexed by document, layer and begin
+ * offset as well as by their VID. This allows the rendering code to look up the predictions for
+ * a window or a VID without having to scan all predictions in the project. All modifications must
+ * go through the methods of this class to keep the indexes in sync.
  */
 public class Predictions
     implements Serializable
 {
     private static final long serialVersionUID = -1598768729246662885L;
     
-    private Map<ExtendedId, AnnotationSuggestion> predictions = new ConcurrentHashMap<>();
+    private final Map<ExtendedId, AnnotationSuggestion> predictions = new ConcurrentHashMap<>();
+    
+    /**
+     * Document name -> layer ID -> begin offset -> predictions
+     */
+    private final Map<String, Map<Long, ConcurrentNavigableMap<Integer, 
+            Map<ExtendedId, AnnotationSuggestion>>>> offsetIndex = new ConcurrentHashMap<>();
+    
+    /**
+     * Document name -> VID -> prediction
+     */
+    private final Map<String, Map<VidKey, AnnotationSuggestion>> vidIndex = 
+            new ConcurrentHashMap<>();
     
     private final Project project;
     private final User user;
@@ -67,7 +90,7 @@ public class Predictions
         user = aUser;
 
         if (aPredictions != null) {
-            predictions = new ConcurrentHashMap<ExtendedId, AnnotationSuggestion>(aPredictions);
+            aPredictions.forEach(this::put);
         }
     }
     
@@ -119,13 +142,25 @@ public class Predictions
     private List<AnnotationSuggestion> getFlattenedPredictions(String aDocumentName,
         AnnotationLayer aLayer, int aWindowBegin, int aWindowEnd)
     {
-        return predictions.entrySet().stream()
-            .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-            .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-            .filter(f -> aWindowBegin == -1 || (f.getKey().getBegin() >= aWindowBegin))
-            .filter(f -> aWindowEnd == -1 || (f.getKey().getEnd() <= aWindowEnd))
-            .sorted(Comparator.comparingInt(e2 -> e2.getValue().getBegin()))
-            .map(Map.Entry::getValue)
+        NavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>> byBegin = getOffsetIndex(
+                aDocumentName, aLayer.getId());
+        
+        if (byBegin == null) {
+            return new ArrayList<>();
+        }
+        
+        // A prediction cannot end before it begins, so only predictions beginning within the
+        // window can also end within the window.
+        if (aWindowBegin != -1) {
+            byBegin = byBegin.tailMap(aWindowBegin, true);
+        }
+        if (aWindowEnd != -1) {
+            byBegin = byBegin.headMap(aWindowEnd, true);
+        }
+        
+        return byBegin.values().stream()
+            .flatMap(group -> group.values().stream())
+            .filter(f -> aWindowEnd == -1 || (f.getEnd() <= aWindowEnd))
             .collect(Collectors.toList());
     }
 
@@ -135,11 +170,13 @@ public class Predictions
      */
     public Optional<AnnotationSuggestion> getPredictionByVID(SourceDocument aDocument, VID aVID)
     {
-        return predictions.values().stream()
-                .filter(f -> f.getDocumentName().equals(aDocument.getName()))
-                .filter(f -> f.getId() == aVID.getSubId())
-                .filter(f -> f.getRecommenderId() == aVID.getId())
-                .findFirst();
+        Map<VidKey, AnnotationSuggestion> byVid = vidIndex.get(aDocument.getName());
+        
+        if (byVid == null) {
+            return Optional.empty();
+        }
+        
+        return Optional.ofNullable(byVid.get(new VidKey(aVID.getId(), aVID.getSubId())));
     }
 
     /**
@@ -148,9 +185,18 @@ public class Predictions
     public Optional<AnnotationSuggestion> getPrediction(SourceDocument aDocument, int aBegin,
             int aEnd, String aLabel)
     {
-        return predictions.values().stream()
-                .filter(f -> f.getDocumentName().equals(aDocument.getName()))
-                .filter(f -> f.getBegin() == aBegin && f.getEnd() == aEnd)
+        Map<Long, ConcurrentNavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>>> 
+                byLayer = offsetIndex.get(aDocument.getName());
+        
+        if (byLayer == null) {
+            return Optional.empty();
+        }
+        
+        return byLayer.values().stream()
+                .map(byBegin -> byBegin.get(aBegin))
+                .filter(Objects::nonNull)
+                .flatMap(group -> group.values().stream())
+                .filter(f -> f.getEnd() == aEnd)
                 .filter(f -> f.getLabel().equals(aLabel))
                 .max(Comparator.comparingInt(AnnotationSuggestion::getId));
     }
@@ -163,13 +209,21 @@ public class Predictions
     public void putPredictions(long aLayerId, List<AnnotationSuggestion> aPredictions)
     {
         aPredictions.forEach(prediction -> {
-            predictions.put(new ExtendedId(user.getUsername(), project.getId(),
+            put(new ExtendedId(user.getUsername(), project.getId(),
                     prediction.getDocumentName(), aLayerId, prediction.getOffset(),
                     prediction.getRecommenderId(), prediction.getId(), -1), prediction);
-
         });
     }
 
+    /**
+     * Adds all predictions from the given predictions object, replacing predictions which have
+     * the same ID.
+     */
+    public void putAll(Predictions aPredictions)
+    {
+        aPredictions.getPredictions().forEach(this::put);
+    }
+
     public Project getProject() {
         return project;
     }
@@ -179,20 +233,48 @@ public class Predictions
         return !predictions.isEmpty();
     }
 
+    /**
+     * @return an unmodifiable view on all predictions.
+     */
     public Map<ExtendedId, AnnotationSuggestion> getPredictions()
     {
-        return predictions;
+        return Collections.unmodifiableMap(predictions);
     }
     
-    public void clearPredictions()
+    public synchronized void clearPredictions()
     {
         predictions.clear();
+        offsetIndex.clear();
+        vidIndex.clear();
     }
 
-    public void removePredictions(Long recommenderId)
+    public synchronized void removePredictions(Long recommenderId)
     {
-        predictions.entrySet()
-            .removeIf((p) -> p.getKey().getRecommenderId() == recommenderId);
+        List<ExtendedId> ids = predictions.keySet().stream()
+            .filter(id -> id.getRecommenderId() == recommenderId)
+            .collect(Collectors.toList());
+        
+        ids.forEach(this::remove);
+    }
+
+    /**
+     * TODO #176 use the document Id once it it available in the CAS
+     * 
+     * Removes all predictions for the given document, e.g. because the document is predicted
+     * again.
+     */
+    public synchronized void removePredictionsForDocument(String aDocumentName)
+    {
+        Map<Long, ConcurrentNavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>>> 
+                byLayer = offsetIndex.remove(aDocumentName);
+        vidIndex.remove(aDocumentName);
+        
+        if (byLayer != null) {
+            byLayer.values().stream()
+                    .flatMap(byBegin -> byBegin.values().stream())
+                    .flatMap(group -> group.keySet().stream())
+                    .forEach(predictions::remove);
+        }
     }
 
     /**
@@ -210,14 +292,104 @@ public class Predictions
     public List<AnnotationSuggestion> getPredictionsByTokenAndFeature(String aDocumentName,
         AnnotationLayer aLayer, int aBegin, int aEnd, String aFeature)
     {
-        return predictions.entrySet().stream()
-            .filter(f -> f.getKey().getDocumentName().equals(aDocumentName))
-            .filter(f -> f.getKey().getLayerId() == aLayer.getId())
-            .filter(f -> f.getKey().getOffset().getBeginCharacter() == aBegin)
-            .filter(f -> f.getKey().getOffset().getEndCharacter() == aEnd)
-            .filter(f -> f.getValue().getFeature().equals(aFeature))
-            .map(Map.Entry::getValue)
+        NavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>> byBegin = getOffsetIndex(
+                aDocumentName, aLayer.getId());
+        
+        if (byBegin == null || !byBegin.containsKey(aBegin)) {
+            return new ArrayList<>();
+        }
+        
+        return byBegin.get(aBegin).values().stream()
+            .filter(f -> f.getEnd() == aEnd)
+            .filter(f -> f.getFeature().equals(aFeature))
             .collect(Collectors.toList());
+    }
+    
+    private NavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>> getOffsetIndex(
+            String aDocumentName, long aLayerId)
+    {
+        Map<Long, ConcurrentNavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>>> 
+                byLayer = offsetIndex.get(aDocumentName);
+        
+        return byLayer != null ? byLayer.get(aLayerId) : null;
+    }
+    
+    private synchronized void put(ExtendedId aId, AnnotationSuggestion aPrediction)
+    {
+        AnnotationSuggestion previous = predictions.put(aId, aPrediction);
+        if (previous != null) {
+            unindex(aId, previous);
+        }
+        
+        offsetIndex.computeIfAbsent(aId.getDocumentName(), _key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(aId.getLayerId(), _key -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(aId.getBegin(), _key -> new ConcurrentHashMap<>())
+                .put(aId, aPrediction);
+        
+        vidIndex.computeIfAbsent(aId.getDocumentName(), _key -> new ConcurrentHashMap<>())
+                .put(new VidKey(aPrediction.getRecommenderId(), aPrediction.getId()), aPrediction);
+    }
+    
+    private synchronized void remove(ExtendedId aId)
+    {
+        AnnotationSuggestion previous = predictions.remove(aId);
+        if (previous != null) {
+            unindex(aId, previous);
+        }
+    }
 
+    private void unindex(ExtendedId aId, AnnotationSuggestion aPrediction)
+    {
+        NavigableMap<Integer, Map<ExtendedId, AnnotationSuggestion>> byBegin = getOffsetIndex(
+                aId.getDocumentName(), aId.getLayerId());
+        if (byBegin != null) {
+            Map<ExtendedId, AnnotationSuggestion> group = byBegin.get(aId.getBegin());
+            if (group != null) {
+                group.remove(aId);
+                if (group.isEmpty()) {
+                    byBegin.remove(aId.getBegin());
+                }
+            }
+        }
+        
+        Map<VidKey, AnnotationSuggestion> byVid = vidIndex.get(aId.getDocumentName());
+        if (byVid != null) {
+            byVid.remove(new VidKey(aPrediction.getRecommenderId(), aPrediction.getId()),
+                    aPrediction);
+        }
+    }
+    
+    private static class VidKey
+        implements Serializable
+    {
+        private static final long serialVersionUID = 6298445536618419543L;
+        
+        private final long recommenderId;
+        private final int id;
+        
+        public VidKey(long aRecommenderId, int aId)
+        {
+            recommenderId = aRecommenderId;
+            id = aId;
+        }
+        
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            VidKey that = (VidKey) o;
+            return recommenderId == that.recommenderId && id == that.id;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(recommenderId, id);
+        }
     }
 }
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -31,6 +32,9 @@ import de.tudarmstadt.ukp.clarin.webanno.support.logging.LogMessage;
 
 public class RecommenderContext
 {
+    // Must be initialized before EMPTY_CONTEXT since closing the empty context uses it
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong();
+    
     /**
      * Empty context which starts out being closed.
      */
@@ -45,6 +49,8 @@ public class RecommenderContext
     private List<LogMessage> messages;
     private Optional<User> user;
     private boolean closed = false;
+    private volatile long version = 0;
+    private String trainingDataHash;
 
     public RecommenderContext()
     {
@@ -108,6 +114,7 @@ public class RecommenderContext
         if (!closed) {
             closed = true;
             messages = Collections.unmodifiableList(messages);
+            version = VERSION_SEQUENCE.incrementAndGet();
         }
     }
     
@@ -119,6 +126,40 @@ public class RecommenderContext
         return closed;
     }
     
+    /**
+     * @return the model version of the context. The version is assigned when the context is
+     *         closed and it is {@code 0} before. A context which has been closed later always has
+     *         a higher version than one which has been closed earlier, so if the version of the
+     *         context of a recommender did not change, the model did not change either.
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+    
+    /**
+     * Sets a hash of the data (and configuration) which the model in this context has been
+     * trained on. If the hash of the current training data is the same, the model does not need
+     * to be trained again.
+     */
+    synchronized public void setTrainingDataHash(String aTrainingDataHash)
+    {
+        if (closed) {
+            throw new IllegalStateException("Adding data to a closed context is not permitted.");
+        }
+        
+        trainingDataHash = aTrainingDataHash;
+    }
+    
+    /**
+     * @return the hash of the training data or {@code null} if none was set.
+     * @see #setTrainingDataHash(String)
+     */
+    synchronized public String getTrainingDataHash()
+    {
+        return trainingDataHash;
+    }
+    
     public static class Key<T>
     {
         private final String name;
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+
+public class LearningRecordIndexTest
+{
+    private SourceDocument doc1;
+    private SourceDocument doc2;
+    
+    @Before
+    public void setUp()
+    {
+        doc1 = new SourceDocument();
+        doc1.setName("doc1");
+        
+        doc2 = new SourceDocument();
+        doc2.setName("doc2");
+    }
+    
+    @Test
+    public void thatMostRecentRecordApplies()
+    {
+        LearningRecord rejected = record(doc1, 0, 4, "A", LearningRecordType.REJECTED);
+        LearningRecord accepted = record(doc1, 0, 4, "A", LearningRecordType.ACCEPTED);
+        
+        // Records are passed most recent first
+        LearningRecordIndex sut = LearningRecordIndex.of(asList(accepted, rejected));
+        
+        assertThat(sut.get("doc1", 0, 4, "A")).containsSame(accepted);
+        
+        sut.add(record(doc1, 0, 4, "A", LearningRecordType.SKIPPED));
+        
+        assertThat(sut.get("doc1", 0, 4, "A")).hasValueSatisfying(
+            r -> assertThat(r.getUserAction()).isEqualTo(LearningRecordType.SKIPPED));
+    }
+    
+    @Test
+    public void thatRecordsOnlyApplyToTheirDocumentPositionAndLabel()
+    {
+        LearningRecordIndex sut = LearningRecordIndex
+                .of(asList(record(doc1, 0, 4, "A", LearningRecordType.REJECTED)));
+
+        assertThat(sut.get("doc1", 0, 4, "A")).isPresent();
+        assertThat(sut.get("doc2", 0, 4, "A")).isEmpty();
+        assertThat(sut.get("doc1", 0, 5, "A")).isEmpty();
+        assertThat(sut.get("doc1", 0, 4, "B")).isEmpty();
+    }
+    
+    @Test
+    public void thatShownRecordsAreIgnored()
+    {
+        LearningRecordIndex sut = LearningRecordIndex
+                .of(asList(record(doc2, 5, 7, "B", LearningRecordType.SHOWN)));
+
+        assertThat(sut.get("doc2", 5, 7, "B")).isEmpty();
+        assertThat(sut.size()).isEqualTo(0);
+    }
+    
+    @Test
+    public void thatRemovedRecordNoLongerApplies()
+    {
+        LearningRecord rejected = record(doc1, 0, 4, "A", LearningRecordType.REJECTED);
+        LearningRecordIndex sut = LearningRecordIndex.of(asList(rejected));
+        
+        sut.remove(rejected);
+        
+        assertThat(sut.get("doc1", 0, 4, "A")).isEmpty();
+        assertThat(sut.size()).isEqualTo(0);
+    }
+    
+    @Test
+    public void thatOlderRecordDoesNotApplyAfterDeletingAllRecordsAtPosition()
+    {
+        LearningRecord rejected = record(1l, doc1, 0, 4, "A", LearningRecordType.REJECTED);
+        LearningRecord accepted = record(2l, doc1, 0, 4, "A", LearningRecordType.ACCEPTED);
+        LearningRecordIndex sut = LearningRecordIndex.of(asList(accepted, rejected));
+        
+        sut.removeIf("doc1", 0, 4, "A", r -> true);
+        
+        assertThat(sut.get("doc1", 0, 4, "A")).isEmpty();
+        assertThat(sut.size()).isEqualTo(0);
+    }
+    
+    @Test
+    public void thatOlderRecordAppliesAfterDeletingMostRecentRecord()
+    {
+        LearningRecord rejected = record(1l, doc1, 0, 4, "A", LearningRecordType.REJECTED);
+        LearningRecord accepted = record(2l, doc1, 0, 4, "A", LearningRecordType.ACCEPTED);
+        LearningRecordIndex sut = LearningRecordIndex.of(asList(accepted, rejected));
+        
+        sut.remove(accepted);
+        
+        assertThat(sut.get("doc1", 0, 4, "A")).containsSame(rejected);
+    }
+    
+    @Test
+    public void thatUpdatedRecordKeepsItsPlace()
+    {
+        LearningRecord rejected = record(1l, doc1, 0, 4, "A", LearningRecordType.REJECTED);
+        LearningRecord accepted = record(2l, doc1, 0, 4, "A", LearningRecordType.ACCEPTED);
+        LearningRecordIndex sut = LearningRecordIndex.of(asList(accepted, rejected));
+        
+        LearningRecord updated = record(1l, doc1, 0, 4, "A", LearningRecordType.SKIPPED);
+        sut.add(updated);
+        
+        assertThat(sut.get("doc1", 0, 4, "A")).containsSame(accepted);
+        assertThat(sut.size()).isEqualTo(2);
+    }
+    
+    private LearningRecord record(Long aId, SourceDocument aDocument, int aBegin, int aEnd,
+            String aLabel, LearningRecordType aType)
+    {
+        LearningRecord record = record(aDocument, aBegin, aEnd, aLabel, aType);
+        record.setId(aId);
+        return record;
+    }
+    
+    private LearningRecord record(SourceDocument aDocument, int aBegin, int aEnd, String aLabel,
+            LearningRecordType aType)
+    {
+        LearningRecord record = new LearningRecord();
+        record.setSourceDocument(aDocument);
+        record.setOffsetCharacterBegin(aBegin);
+        record.setOffsetCharacterEnd(aEnd);
+        record.setAnnotation(aLabel);
+        record.setUserAction(aType);
+        return record;
+    }
+}
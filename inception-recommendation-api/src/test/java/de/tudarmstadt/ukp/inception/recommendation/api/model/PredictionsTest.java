@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class PredictionsTest
+{
+    private Project project;
+    private AnnotationLayer layer;
+    private SourceDocument doc1;
+    
+    private AnnotationSuggestion sug1;
+    private AnnotationSuggestion sug2;
+    private AnnotationSuggestion sug3;
+    private AnnotationSuggestion sug4;
+    
+    private Predictions sut;
+
+    @Before
+    public void setUp()
+    {
+        project = new Project();
+        project.setId(1l);
+        project.setName("project");
+        
+        layer = new AnnotationLayer();
+        layer.setId(1l);
+        
+        doc1 = new SourceDocument();
+        doc1.setName("doc1");
+        
+        sug1 = new AnnotationSuggestion(0, 1, "rec1", 1, "value", "doc1", 0, 4, "This", "A", "#A",
+                0.1, "E1");
+        sug2 = new AnnotationSuggestion(1, 1, "rec1", 1, "value", "doc1", 5, 7, "is", "B", "#B",
+                0.2, "E2");
+        sug3 = new AnnotationSuggestion(2, 1, "rec1", 1, "value", "doc1", 8, 12, "text", "C", "#C",
+                0.3, "E3");
+        sug4 = new AnnotationSuggestion(0, 1, "rec1", 1, "value", "doc2", 5, 7, "is", "D", "#D",
+                0.4, "E4");
+        
+        sut = new Predictions(new User("user"), project);
+        sut.putPredictions(layer.getId(), asList(sug1, sug2, sug3, sug4));
+    }
+    
+    @Test
+    public void thatWindowedQueryOnlyReturnsPredictionsInWindow()
+    {
+        assertThat(flatten(sut.getPredictions("doc1", layer, 5, 12)))
+                .containsExactly(sug2, sug3);
+        assertThat(flatten(sut.getPredictions("doc1", layer, 0, 10)))
+                .containsExactly(sug1, sug2);
+        assertThat(flatten(sut.getPredictions("doc1", layer, -1, -1)))
+                .containsExactly(sug1, sug2, sug3);
+        assertThat(flatten(sut.getPredictions("doc3", layer, -1, -1)))
+                .isEmpty();
+    }
+    
+    @Test
+    public void thatPredictionCanBeFoundByVid()
+    {
+        assertThat(sut.getPredictionByVID(doc1, sug3.getVID())).contains(sug3);
+        assertThat(sut.getPrediction(doc1, 5, 7, "B")).contains(sug2);
+        assertThat(sut.getPredictionsByTokenAndFeature("doc1", layer, 5, 7, "value"))
+                .containsExactly(sug2);
+    }
+    
+    @Test
+    public void thatRemovedPredictionsAreRemovedFromIndexes()
+    {
+        sut.removePredictionsForDocument("doc1");
+        
+        assertThat(sut.getPredictions()).hasSize(1);
+        assertThat(flatten(sut.getPredictions("doc1", layer, -1, -1))).isEmpty();
+        assertThat(sut.getPredictionByVID(doc1, sug3.getVID())).isEmpty();
+        
+        sut.removePredictions(1l);
+        
+        assertThat(sut.hasPredictions()).isFalse();
+        assertThat(sut.getPredictionsByTokenAndFeature("doc2", layer, 5, 7, "value")).isEmpty();
+    }
+    
+    private List<AnnotationSuggestion> flatten(SuggestionDocumentGroup aGroup)
+    {
+        return aGroup.stream()
+                .flatMap(SuggestionGroup::stream)
+                .collect(Collectors.toList());
+    }
+}
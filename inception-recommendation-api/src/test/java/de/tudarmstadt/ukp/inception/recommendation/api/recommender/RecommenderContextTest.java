@@ -83,4 +83,30 @@ public class RecommenderContextTest {
         sut.close();
         assertThat(sut.isClosed()).isTrue();
     }
+
+    @Test
+    public void thatVersionIsAssignedOnClose()
+    {
+        RecommenderContext other = new RecommenderContext();
+        
+        assertThat(sut.getVersion()).isEqualTo(0);
+        
+        sut.close();
+        long version = sut.getVersion();
+        other.close();
+        
+        assertThat(version).isGreaterThan(0);
+        assertThat(other.getVersion()).isGreaterThan(version);
+        
+        // Closing again does not change the version
+        sut.close();
+        assertThat(sut.getVersion()).isEqualTo(version);
+    }
+    
+    @Test
+    public void thatEmptyContextIsClosed()
+    {
+        assertThat(RecommenderContext.EMPTY_CONTEXT.isClosed()).isTrue();
+        assertThat(RecommenderContext.EMPTY_CONTEXT.getVersion()).isGreaterThan(0);
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties("inception.recommendation")
+public class RecommendationProperties
+{
+    private int predictionThreads = 4;
+    private int maxPredictionThreadsPerUser = 2;
+    private int casSnapshotCacheSize = 100;
+    private long casSnapshotCacheIdleTime = 300;
+    private int learningRecordIndexCacheSize = 100;
+    private int evaluationThreads = 2;
+    private long evaluationTimeout = 600;
+
+    public int getPredictionThreads()
+    {
+        return predictionThreads;
+    }
+
+    public void setPredictionThreads(int aPredictionThreads)
+    {
+        predictionThreads = aPredictionThreads;
+    }
+
+    public int getMaxPredictionThreadsPerUser()
+    {
+        return maxPredictionThreadsPerUser;
+    }
+
+    public void setMaxPredictionThreadsPerUser(int aMaxPredictionThreadsPerUser)
+    {
+        maxPredictionThreadsPerUser = aMaxPredictionThreadsPerUser;
+    }
+
+    public int getCasSnapshotCacheSize()
+    {
+        return casSnapshotCacheSize;
+    }
+
+    public void setCasSnapshotCacheSize(int aCasSnapshotCacheSize)
+    {
+        casSnapshotCacheSize = aCasSnapshotCacheSize;
+    }
+
+    public long getCasSnapshotCacheIdleTime()
+    {
+        return casSnapshotCacheIdleTime;
+    }
+
+    /**
+     * @param aCasSnapshotCacheIdleTime
+     *            time in seconds after which an unused CAS snapshot is evicted from the cache.
+     */
+    public void setCasSnapshotCacheIdleTime(long aCasSnapshotCacheIdleTime)
+    {
+        casSnapshotCacheIdleTime = aCasSnapshotCacheIdleTime;
+    }
+
+    public int getLearningRecordIndexCacheSize()
+    {
+        return learningRecordIndexCacheSize;
+    }
+
+    public void setLearningRecordIndexCacheSize(int aLearningRecordIndexCacheSize)
+    {
+        learningRecordIndexCacheSize = aLearningRecordIndexCacheSize;
+    }
+
+    public int getEvaluationThreads()
+    {
+        return evaluationThreads;
+    }
+
+    public void setEvaluationThreads(int aEvaluationThreads)
+    {
+        evaluationThreads = aEvaluationThreads;
+    }
+
+    public long getEvaluationTimeout()
+    {
+        return evaluationTimeout;
+    }
+
+    /**
+     * @param aEvaluationTimeout
+     *            time in seconds the selection waits for the evaluation of a recommender.
+     */
+    public void setEvaluationTimeout(long aEvaluationTimeout)
+    {
+        evaluationTimeout = aEvaluationTimeout;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeDocumentRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+/**
+ * Cache of annotation CASes shared by the selection, training and prediction tasks. One recommender
+ * cycle runs these tasks one after the other on the same documents, so without the cache, every
+ * CAS would be read and deserialized once per task.
+ * <p>
+ * The cached CASes are snapshots: they are keyed by the timestamp of the annotation CAS on disk,
+ * so a modified CAS is never served from the cache. The snapshots are shared between tasks and
+ * threads and therefore <b>must not be modified</b>. Callers which need to modify a CAS must copy
+ * it first.
+ */
+@Component
+public class CasSnapshotCache
+{
+    private static final Logger log = LoggerFactory.getLogger(CasSnapshotCache.class);
+
+    private final DocumentService documentService;
+    private final AnnotationSchemaService annoService;
+
+    private final Cache<Key, CAS> snapshots;
+
+    @Autowired
+    public CasSnapshotCache(DocumentService aDocumentService,
+            AnnotationSchemaService aAnnoService, RecommendationProperties aProperties)
+    {
+        documentService = aDocumentService;
+        annoService = aAnnoService;
+
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(aProperties.getCasSnapshotCacheSize())
+                .expireAfterAccess(aProperties.getCasSnapshotCacheIdleTime(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Returns a read-only snapshot of the annotation CAS of the given user. The snapshot has
+     * already been upgraded to the current type system of the project.
+     */
+    public CAS getSnapshot(SourceDocument aDocument, String aUsername)
+        throws IOException
+    {
+        long timestamp = documentService.getAnnotationCasTimestamp(aDocument, aUsername)
+                .orElse(-1l);
+        Key key = new Key(aDocument, aUsername, timestamp);
+
+        try {
+            return snapshots.get(key, _key -> readSnapshot(aDocument, aUsername));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Computes a fingerprint of the annotation CASes of the given user for the given documents.
+     * The fingerprint is based on the CAS timestamps, so it changes whenever one of the CASes is
+     * written, but it can be computed without reading any CAS.
+     */
+    public String getFingerprint(Collection<SourceDocument> aDocuments, String aUsername)
+        throws IOException
+    {
+        return getFingerprint(aDocuments, aUsername, null);
+    }
+
+    /**
+     * Computes a fingerprint of the annotation CASes of the given user for the given documents
+     * which additionally covers the given qualifier, e.g. a configuration which determines how
+     * the data is used.
+     */
+    public String getFingerprint(Collection<SourceDocument> aDocuments, String aUsername,
+            String aQualifier)
+        throws IOException
+    {
+        List<SourceDocument> documents = new ArrayList<>(aDocuments);
+        documents.sort(Comparator.comparing(SourceDocument::getId));
+
+        StringBuilder data = new StringBuilder(aUsername);
+        for (SourceDocument document : documents) {
+            data.append(';').append(document.getId()).append(':').append(documentService
+                    .getAnnotationCasTimestamp(document, aUsername).orElse(-1l));
+        }
+        if (aQualifier != null) {
+            data.append('|').append(aQualifier);
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return new BigInteger(1, digest.digest(data.toString()
+                    .getBytes(StandardCharsets.UTF_8))).toString(16);
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CAS readSnapshot(SourceDocument aDocument, String aUsername)
+    {
+        log.trace("[{}][{}]: Reading CAS snapshot", aUsername, aDocument.getName());
+
+        try {
+            CAS cas = documentService.readAnnotationCas(aDocument, aUsername);
+            annoService.upgradeCasIfRequired(cas, aDocument, aUsername);
+            return cas;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (UIMAException e) {
+            throw new UncheckedIOException(new IOException(e));
+        }
+    }
+
+    @EventListener
+    public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
+    {
+        // The snapshot of the old CAS would not be returned anyway because the timestamp changed,
+        // but there is no reason to keep it in memory any longer.
+        long documentId = aEvent.getDocument().getDocument().getId();
+        String username = aEvent.getDocument().getUser();
+        snapshots.asMap().keySet().removeIf(key ->
+                key.documentId == documentId && key.username.equals(username));
+    }
+
+    @EventListener
+    public void beforeDocumentRemove(BeforeDocumentRemovedEvent aEvent)
+    {
+        long documentId = aEvent.getDocument().getId();
+        snapshots.asMap().keySet().removeIf(key -> key.documentId == documentId);
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        // The snapshots have been upgraded to the previous type system of the project
+        long projectId = aEvent.getProject().getId();
+        snapshots.asMap().keySet().removeIf(key -> key.projectId == projectId);
+    }
+
+    private static class Key
+    {
+        private final long projectId;
+        private final long documentId;
+        private final String username;
+        private final long timestamp;
+
+        public Key(SourceDocument aDocument, String aUsername, long aTimestamp)
+        {
+            projectId = aDocument.getProject().getId();
+            documentId = aDocument.getId();
+            username = aUsername;
+            timestamp = aTimestamp;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key castOther = (Key) other;
+            return new EqualsBuilder().append(projectId, castOther.projectId)
+                    .append(documentId, castOther.documentId)
+                    .append(username, castOther.username)
+                    .append(timestamp, castOther.timestamp).isEquals();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return new HashCodeBuilder().append(projectId).append(documentId).append(username)
+                    .append(timestamp).toHashCode();
+        }
+    }
+}
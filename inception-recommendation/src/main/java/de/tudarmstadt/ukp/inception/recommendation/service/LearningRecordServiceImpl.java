@@ -18,14 +18,23 @@
 package de.tudarmstadt.ukp.inception.recommendation.service;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentResetEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
@@ -36,15 +45,42 @@ import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordChangeLocation;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
 
 @Component(LearningRecordService.SERVICE_NAME)
 public class LearningRecordServiceImpl
     implements LearningRecordService
 {
+    private static final int RECORD_INDEX_VERSION_STRIPES = 64;
+    private static final int RECORD_INDEX_BUILD_ATTEMPTS = 3;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * Record indexes by user and layer. The indexes are created when they are first requested and
+     * then updated incrementally.
+     */
+    private final Cache<RecordIndexKey, LearningRecordIndex> recordIndexes;
+
+    /**
+     * Versions of the record indexes, striped by key. The version of an index is incremented
+     * whenever its records change, so an index which has been built from records read before the
+     * change is not published.
+     */
+    private final AtomicLongArray recordIndexVersions =
+            new AtomicLongArray(RECORD_INDEX_VERSION_STRIPES);
+
+    @Autowired
+    public LearningRecordServiceImpl(RecommendationProperties aProperties)
+    {
+        recordIndexes = Caffeine.newBuilder()
+                .maximumSize(aProperties.getLearningRecordIndexCacheSize())
+                .build();
+    }
+
     @Transactional
     @EventListener
     public void afterDocumentReset(AfterDocumentResetEvent aEvent) {
@@ -93,6 +129,9 @@ public class LearningRecordServiceImpl
                 .setParameter("annotationFeature", aFeature)
                 .setParameter("annotation", aAlternativeLabel)
                 .executeUpdate();
+        updateRecordIndex(aUsername, aLayer, index -> index.removeIf(aDocument.getName(),
+                aSuggestion.getBegin(), aSuggestion.getEnd(), aAlternativeLabel,
+            r -> Objects.equals(r.getAnnotationFeature(), aFeature)));
         
         LearningRecord record = new LearningRecord();
         record.setUser(aUsername);
@@ -140,6 +179,98 @@ public class LearningRecordServiceImpl
         return listRecords(aUsername, aLayer, 0);
     }
 
+    @Override
+    public LearningRecordIndex getRecordIndex(String aUsername, AnnotationLayer aLayer)
+    {
+        RecordIndexKey key = new RecordIndexKey(aUsername, aLayer.getId());
+        LearningRecordIndex index = recordIndexes.getIfPresent(key);
+        if (index != null) {
+            return index;
+        }
+        
+        // The index is built outside of the cache, so no lock is held while the records are
+        // loaded. If the records change while the index is built, the index may be missing the
+        // change and is not published. Publishing and updating are atomic per key, so an update
+        // either finds the published index or it has already changed the version.
+        for (int attempt = 1; ; attempt++) {
+            long version = recordIndexVersions.get(key.stripe());
+            LearningRecordIndex newIndex = LearningRecordIndex.of(listRecords(aUsername, aLayer));
+            LearningRecordIndex published = recordIndexes.asMap().compute(key,
+                (_key, current) -> current != null ? current
+                        : recordIndexVersions.get(key.stripe()) == version ? newIndex : null);
+            
+            if (published != null || attempt == RECORD_INDEX_BUILD_ATTEMPTS) {
+                return published != null ? published : newIndex;
+            }
+        }
+    }
+
+    /**
+     * Applies the given update to the record index for the user and layer of the given record -
+     * if that index has already been built.
+     */
+    private void updateRecordIndex(LearningRecord aRecord,
+            Consumer<LearningRecordIndex> aUpdate)
+    {
+        updateRecordIndex(aRecord.getUser(), aRecord.getLayer(), aUpdate);
+    }
+
+    /**
+     * Applies the given update to the record index for the given user and layer - if that index
+     * has already been built.
+     */
+    private void updateRecordIndex(String aUsername, AnnotationLayer aLayer,
+            Consumer<LearningRecordIndex> aUpdate)
+    {
+        if (aLayer == null) {
+            return;
+        }
+        
+        RecordIndexKey key = new RecordIndexKey(aUsername, aLayer.getId());
+        afterCommit(() -> {
+            recordIndexVersions.incrementAndGet(key.stripe());
+            recordIndexes.asMap().computeIfPresent(key, (_key, index) -> {
+                aUpdate.accept(index);
+                return index;
+            });
+        });
+    }
+
+    /**
+     * Removes the record indexes of the given user. Indexes of the user which are currently being
+     * built are not published.
+     */
+    private void invalidateRecordIndexes(String aUsername)
+    {
+        for (int i = 0; i < RECORD_INDEX_VERSION_STRIPES; i++) {
+            recordIndexVersions.incrementAndGet(i);
+        }
+        recordIndexes.asMap().keySet().removeIf(key -> key.username.equals(aUsername));
+    }
+
+    /**
+     * Runs the given action once the current transaction has been committed - or immediately if
+     * there is no transaction. This way, the record indexes do not pick up changes which are rolled
+     * back and they are not rebuilt from data which is about to change.
+     */
+    private void afterCommit(Runnable aAction)
+    {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aAction.run();
+            return;
+        }
+        
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter()
+                {
+                    @Override
+                    public void afterCommit()
+                    {
+                        aAction.run();
+                    }
+                });
+    }
+
     @Transactional
     @Override
     public LearningRecord getRecordById(long recordId) {
@@ -159,6 +290,7 @@ public class LearningRecordServiceImpl
             .setParameter("document", document)
             .setParameter("user",user)
             .executeUpdate();
+        afterCommit(() -> invalidateRecordIndexes(user));
     }
 
     @Override
@@ -166,6 +298,7 @@ public class LearningRecordServiceImpl
     public void create(LearningRecord learningRecord) {
         entityManager.persist(learningRecord);
         entityManager.flush();
+        updateRecordIndex(learningRecord, index -> index.add(learningRecord));
     }
 
     @Override
@@ -173,6 +306,7 @@ public class LearningRecordServiceImpl
     public void update(LearningRecord learningRecord) {
         entityManager.merge(learningRecord);
         entityManager.flush();
+        updateRecordIndex(learningRecord, index -> index.add(learningRecord));
     }
 
     @Override
@@ -180,6 +314,7 @@ public class LearningRecordServiceImpl
     public void delete(LearningRecord learningRecord) {
         entityManager.remove(entityManager.contains(learningRecord) ? learningRecord :
             entityManager.merge(learningRecord));
+        updateRecordIndex(learningRecord, index -> index.remove(learningRecord));
     }
 
     @Override
@@ -222,5 +357,47 @@ public class LearningRecordServiceImpl
                 .setParameter("layer", aLayer)
                 .setParameter("action", LearningRecordType.SKIPPED)
                 .executeUpdate();
+
+        RecordIndexKey key = new RecordIndexKey(aUser.getUsername(), aLayer.getId());
+        afterCommit(() -> {
+            recordIndexVersions.incrementAndGet(key.stripe());
+            recordIndexes.invalidate(key);
+        });
+    }
+    
+    private static final class RecordIndexKey
+    {
+        private final String username;
+        private final long layerId;
+        
+        public RecordIndexKey(String aUsername, long aLayerId)
+        {
+            username = aUsername;
+            layerId = aLayerId;
+        }
+        
+        public int stripe()
+        {
+            return Math.floorMod(hashCode(), RECORD_INDEX_VERSION_STRIPES);
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof RecordIndexKey)) {
+                return false;
+            }
+            RecordIndexKey other = (RecordIndexKey) aOther;
+            return layerId == other.layerId && username.equals(other.username);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(username, layerId);
+        }
     }
 }
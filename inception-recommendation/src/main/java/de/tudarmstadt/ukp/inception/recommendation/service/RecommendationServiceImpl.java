@@ -24,38 +24,56 @@ import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSu
 import static de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion.FLAG_SKIPPED;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.select;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 
 import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.MultiMapUtils;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.Serialization;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.util.CasUtil;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -68,6 +86,7 @@ import org.apache.wicket.request.cycle.IRequestCycleListener;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
@@ -89,6 +108,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentCreatedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.AfterDocumentResetEvent;
 import de.tudarmstadt.ukp.clarin.webanno.api.event.BeforeDocumentRemovedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
@@ -102,7 +122,8 @@ import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommenderFactoryRegistry;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
-import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.ExtendedId;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Preferences;
@@ -111,6 +132,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderDeletedEvent;
 import de.tudarmstadt.ukp.inception.recommendation.tasks.SelectionTask;
 import de.tudarmstadt.ukp.inception.recommendation.tasks.TrainingTask;
@@ -123,7 +145,7 @@ import de.tudarmstadt.ukp.inception.scheduling.Task;
  */
 @Component(RecommendationService.SERVICE_NAME)
 public class RecommendationServiceImpl
-    implements RecommendationService
+    implements RecommendationService, DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -143,6 +165,13 @@ public class RecommendationServiceImpl
     private final ConcurrentMap<RecommendationStateKey, AtomicInteger> trainingTaskCounter;
     private final ConcurrentMap<RecommendationStateKey, RecommendationState> states;
     
+    private final RecommendationProperties properties;
+    private final CasSnapshotCache casSnapshotCache;
+    private final ExecutorService predictionExecutor;
+    private final ConcurrentMap<String, Semaphore> predictionPermits;
+    private final ConcurrentMap<Long, AtomicLong> layerConfigurationVersions;
+    private final ConcurrentMap<Long, PredictionCasPool> predictionCasPools;
+    
     private IRequestCycleListener triggerTraingRunListener;
 
     /*
@@ -165,7 +194,8 @@ public class RecommendationServiceImpl
             RecommenderFactoryRegistry aRecommenderFactoryRegistry,
             SchedulingService aSchedulingService, AnnotationSchemaService aAnnoService,
             DocumentService aDocumentService, LearningRecordService aLearningRecordService,
-            ProjectService aProjectService)
+            ProjectService aProjectService, RecommendationProperties aProperties,
+            CasSnapshotCache aCasSnapshotCache)
     {
         sessionRegistry = aSessionRegistry;
         userRepository = aUserRepository;
@@ -175,9 +205,21 @@ public class RecommendationServiceImpl
         documentService = aDocumentService;
         learningRecordService = aLearningRecordService;
         projectService = aProjectService;
+        properties = aProperties;
+        casSnapshotCache = aCasSnapshotCache;
         
         trainingTaskCounter = new ConcurrentHashMap<>();
         states = new ConcurrentHashMap<>();
+        layerConfigurationVersions = new ConcurrentHashMap<>();
+        predictionCasPools = new ConcurrentHashMap<>();
+        predictionPermits = new ConcurrentHashMap<>();
+        
+        predictionExecutor = Executors.newFixedThreadPool(properties.getPredictionThreads(),
+                new BasicThreadFactory.Builder()
+                        .daemon(true)
+                        .priority(Thread.MIN_PRIORITY)
+                        .namingPattern("prediction-worker-%d")
+                        .build());
     }
 
     public RecommendationServiceImpl(SessionRegistry aSessionRegistry, UserDao aUserRepository,
@@ -187,18 +229,26 @@ public class RecommendationServiceImpl
             EntityManager aEntityManager)
     {
         this(aSessionRegistry, aUserRepository, aRecommenderFactoryRegistry, aSchedulingService,
-                aAnnoService, aDocumentService, aLearningRecordService, (ProjectService) null);
+                aAnnoService, aDocumentService, aLearningRecordService, (ProjectService) null,
+                new RecommendationProperties(), null);
         
         entityManager = aEntityManager;
     }
 
     public RecommendationServiceImpl(EntityManager aEntityManager)
     {
-        this(null, null, null, null, null, null, null, (ProjectService) null);
+        this(null, null, null, null, null, null, null, (ProjectService) null,
+                new RecommendationProperties(), null);
 
         entityManager = aEntityManager;
     }
 
+    @Override
+    public void destroy()
+    {
+        predictionExecutor.shutdownNow();
+    }
+
     @Override
     public Predictions getPredictions(User aUser, Project aProject)
     {
@@ -217,9 +267,7 @@ public class RecommendationServiceImpl
     public void putIncomingPredictions(User aUser, Project aProject, Predictions aPredictions)
     {
         RecommendationState state = getState(aUser.getUsername(), aProject);
-        synchronized (state) {
-            state.setIncomingPredictions(aPredictions);
-        }
+        state.setIncomingPredictions(aPredictions);
     }
     
     @Override
@@ -227,23 +275,14 @@ public class RecommendationServiceImpl
             List<EvaluatedRecommender> aRecommenders)
     {
         RecommendationState state = getState(aUser.getUsername(), aLayer.getProject());
-        synchronized (state) {
-            MultiValuedMap<AnnotationLayer, EvaluatedRecommender> activeRecommenders = state
-                    .getActiveRecommenders();
-            activeRecommenders.remove(aLayer);
-            activeRecommenders.putAll(aLayer, aRecommenders);
-        }
+        state.setActiveRecommenders(aLayer, aRecommenders);
     }
     
     @Override
     public List<EvaluatedRecommender> getActiveRecommenders(User aUser, AnnotationLayer aLayer)
     {
         RecommendationState state = getState(aUser.getUsername(), aLayer.getProject());
-        synchronized (state) {
-            MultiValuedMap<AnnotationLayer, EvaluatedRecommender> activeRecommenders = 
-                    state.getActiveRecommenders();
-            return new ArrayList<>(activeRecommenders.get(aLayer));
-        }
+        return new ArrayList<>(state.getActiveRecommenders().get(aLayer));
     }
 
     @Override
@@ -447,6 +486,14 @@ public class RecommendationServiceImpl
     @EventListener
     public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
     {
+        // Remember which documents have changed so the next prediction run only needs to
+        // predict these again. If there is no state yet, there is also nothing to update.
+        RecommendationState state = states.get(new RecommendationStateKey(
+                aEvent.getDocument().getUser(), aEvent.getDocument().getProject()));
+        if (state != null) {
+            state.markDocumentChanged(aEvent.getDocument().getName());
+        }
+        
         RequestCycle requestCycle = RequestCycle.get();
         
         if (requestCycle == null) {
@@ -490,7 +537,8 @@ public class RecommendationServiceImpl
     }
 
     @Override
-    public void triggerTrainingAndClassification(String aUser, Project aProject, String aEventName)
+    public boolean triggerTrainingAndClassification(String aUser, Project aProject,
+            String aEventName)
     {
         User user = userRepository.get(aUser);
 
@@ -504,10 +552,10 @@ public class RecommendationServiceImpl
         // i.e. we do not start it here.
         if (count.getAndIncrement() % TRAININGS_PER_SELECTION == 0) {
             Task task = new SelectionTask(aProject, user, aEventName);
-            schedulingService.enqueue(task);
+            return schedulingService.enqueue(task);
         } else {
             Task task = new TrainingTask(user, aProject, aEventName);
-            schedulingService.enqueue(task);
+            return schedulingService.enqueue(task);
         }
     }
     
@@ -555,10 +603,8 @@ public class RecommendationServiceImpl
     
     private RecommendationState getState(String aUsername, Project aProject)
     {
-        synchronized (states) {
-            return states.computeIfAbsent(new RecommendationStateKey(aUsername, aProject), (v) -> 
-                    new RecommendationState());
-        }
+        return states.computeIfAbsent(new RecommendationStateKey(aUsername, aProject), (v) -> 
+                new RecommendationState());
     }
     
     @Override
@@ -588,27 +634,21 @@ public class RecommendationServiceImpl
     public boolean switchPredictions(User aUser, Project aProject)
     {
         RecommendationState state = getState(aUser.getUsername(), aProject);
-        synchronized (state) {
-            return state.switchPredictions();
-        }
+        return state.switchPredictions();
     }
 
     @Override
     public Optional<RecommenderContext> getContext(User aUser, Recommender aRecommender)
     {
         RecommendationState state = getState(aUser.getUsername(), aRecommender.getProject());
-        synchronized (state) {
-            return state.getContext(aRecommender);
-        }
+        return state.getContext(aRecommender);
     }
     
     @Override
     public void putContext(User aUser, Recommender aRecommender, RecommenderContext aContext)
     {
         RecommendationState state = getState(aUser.getUsername(), aRecommender.getProject());
-        synchronized (state) {
-            state.putContext(aRecommender, aContext);
-        }
+        state.putContext(aRecommender, aContext);
     }
     
     @Override
@@ -684,18 +724,77 @@ public class RecommendationServiceImpl
         }
     }
     
+    /**
+     * Pool of prediction CASes for a project which all share the same monkey-patched type system.
+     * A pool is bound to a particular version of the layer configuration of the project and is
+     * discarded when the layer configuration changes.
+     */
+    private static class PredictionCasPool
+    {
+        private final long version;
+        private final TypeSystemDescription typeSystem;
+        private final int maxIdle;
+        private final Queue<CAS> idleCasses = new ConcurrentLinkedQueue<>();
+        
+        public PredictionCasPool(long aVersion, TypeSystemDescription aTypeSystem, int aMaxIdle)
+        {
+            version = aVersion;
+            typeSystem = aTypeSystem;
+            maxIdle = aMaxIdle;
+        }
+        
+        public long getVersion()
+        {
+            return version;
+        }
+        
+        public TypeSystemDescription getTypeSystem()
+        {
+            return typeSystem;
+        }
+        
+        public CAS borrowCas() throws ResourceInitializationException
+        {
+            CAS cas = idleCasses.poll();
+            if (cas != null) {
+                return cas;
+            }
+            
+            // The type system description is shared by all CASes of the pool, so we make sure
+            // that it is not resolved concurrently.
+            synchronized (this) {
+                return CasCreationUtils.createCas(typeSystem, null, null);
+            }
+        }
+        
+        public void returnCas(CAS aCas)
+        {
+            if (idleCasses.size() < maxIdle) {
+                aCas.reset();
+                idleCasses.offer(aCas);
+            }
+        }
+    }
+    
     /**
      * We are assuming that the user is actively working on one project at a time.
      * Otherwise, the RecommendationUserState might take up a lot of memory.
+     * <p>
+     * The state is read by the UI while the recommendation tasks update it in the background. In
+     * order for readers never to block on the tasks, all fields are either concurrent data
+     * structures or immutable values which are swapped atomically. Compound updates by the tasks
+     * still synchronize on the state object.
      */
     private static class RecommendationState
     {
-        private Preferences preferences = new Preferences();
-        private MultiValuedMap<AnnotationLayer, EvaluatedRecommender> activeRecommenders = 
+        private volatile Preferences preferences = new Preferences();
+        private volatile MultiValuedMap<AnnotationLayer, EvaluatedRecommender> activeRecommenders =
                 new HashSetValuedHashMap<>();
-        private Map<Recommender, RecommenderContext> contexts = new ConcurrentHashMap<>();
-        private Predictions activePredictions;
-        private Predictions incomingPredictions;
+        private final Map<Recommender, RecommenderContext> contexts = new ConcurrentHashMap<>();
+        private volatile Map<Recommender, Long> predictionModelVersions;
+        private final Set<String> changedDocuments = ConcurrentHashMap.newKeySet();
+        private volatile Predictions activePredictions;
+        private final AtomicReference<Predictions> incomingPredictions = new AtomicReference<>();
         
         public Preferences getPreferences()
         {
@@ -707,15 +806,29 @@ public class RecommendationServiceImpl
             preferences = aPreferences;
         }
 
+        /**
+         * @return the active recommenders. The returned map must not be modified.
+         */
         public MultiValuedMap<AnnotationLayer, EvaluatedRecommender> getActiveRecommenders()
         {
             return activeRecommenders;
         }
 
-        public void setActiveRecommenders(
+        private void setActiveRecommenders(
             MultiValuedMap<AnnotationLayer, EvaluatedRecommender> aActiveRecommenders)
         {
-            activeRecommenders = aActiveRecommenders;
+            activeRecommenders = MultiMapUtils.unmodifiableMultiValuedMap(aActiveRecommenders);
+        }
+        
+        public synchronized void setActiveRecommenders(AnnotationLayer aLayer,
+                List<EvaluatedRecommender> aRecommenders)
+        {
+            // Copy-on-write so that readers never see a partially updated map
+            MultiValuedMap<AnnotationLayer, EvaluatedRecommender> newActiveRecommenders =
+                    new HashSetValuedHashMap<>(activeRecommenders);
+            newActiveRecommenders.remove(aLayer);
+            newActiveRecommenders.putAll(aLayer, aRecommenders);
+            setActiveRecommenders(newActiveRecommenders);
         }
         
         public Predictions getActivePredictions()
@@ -727,19 +840,29 @@ public class RecommendationServiceImpl
         {
             Validate.notNull(aIncomingPredictions, "Predictions must be specified");
             
-            incomingPredictions = aIncomingPredictions;
+            incomingPredictions.set(aIncomingPredictions);
         }
         
         public Predictions getIncomingPredictions()
         {
-            return incomingPredictions;
+            return incomingPredictions.get();
+        }
+
+        /**
+         * Returns the most recent predictions, i.e. the incoming predictions if there are any and
+         * otherwise the active predictions.
+         */
+        public Predictions getLatestPredictions()
+        {
+            Predictions incoming = incomingPredictions.get();
+            return incoming != null ? incoming : activePredictions;
         }
 
         public boolean switchPredictions()
         {
-            if (incomingPredictions != null) {
-                activePredictions = incomingPredictions;
-                incomingPredictions = null;
+            Predictions incoming = incomingPredictions.getAndSet(null);
+            if (incoming != null) {
+                activePredictions = incoming;
                 return true;
             }
             else {
@@ -757,20 +880,78 @@ public class RecommendationServiceImpl
             return Optional.ofNullable(contexts.get(aRecommender));
         }
         
+        /**
+         * Sets the context for the given recommender unless there already is a context with a
+         * newer model version, e.g. because training tasks finished out of order.
+         */
         public void putContext(Recommender aRecommender, RecommenderContext aContext)
         {
             Validate.notNull(aRecommender, "Recommender must be specified");
             Validate.notNull(aContext, "Context must be specified");
             Validate.isTrue(aContext.isClosed(), "Context must be closed");
             
-            contexts.put(aRecommender, aContext);
+            contexts.merge(aRecommender, aContext, (oldContext, newContext) -> 
+                    newContext.getVersion() >= oldContext.getVersion() ? newContext : oldContext);
         }
-                
+
+        /**
+         * Returns the model versions of all active recommenders. If these differ from the ones 
+         * used in the last prediction run, then the models have changed. Recommenders without a
+         * context are mapped to {@code null}.
+         */
+        public Map<Recommender, Long> getActiveModelVersions()
+        {
+            Map<Recommender, Long> result = new HashMap<>();
+            for (EvaluatedRecommender r : activeRecommenders.values()) {
+                RecommenderContext context = contexts.get(r.getRecommender());
+                result.put(r.getRecommender(), context != null ? context.getVersion() : null);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the model versions used in the last prediction run or {@code null} if there
+         * was no prediction run yet.
+         */
+        public Map<Recommender, Long> getPredictionModelVersions()
+        {
+            return predictionModelVersions;
+        }
+
+        public void setPredictionModelVersions(Map<Recommender, Long> aModelVersions)
+        {
+            predictionModelVersions = aModelVersions;
+        }
+
+        public void markDocumentChanged(String aDocumentName)
+        {
+            changedDocuments.add(aDocumentName);
+        }
+
+        /**
+         * Returns the names of the documents which have changed since the last successful
+         * prediction run.
+         */
+        public Set<String> getChangedDocuments()
+        {
+            return new HashSet<>(changedDocuments);
+        }
+
+        /**
+         * Marks the given documents as predicted. Documents which have changed again in the
+         * meantime remain changed since they were marked again after the prediction run started.
+         */
+        public void clearChangedDocuments(Set<String> aDocumentNames)
+        {
+            changedDocuments.removeAll(aDocumentNames);
+        }
+        
         public void removePredictions(Recommender aRecommender)
         {
             // Remove incoming predictions
-            if (incomingPredictions != null) {
-                incomingPredictions.removePredictions(aRecommender.getId());
+            Predictions incoming = incomingPredictions.get();
+            if (incoming != null) {
+                incoming.removePredictions(aRecommender.getId());
             }
 
             // Remove active predictions
@@ -805,146 +986,332 @@ public class RecommendationServiceImpl
     public Predictions computePredictions(User aUser, Project aProject,
                                           List<SourceDocument> aDocuments)
     {
-        String username = aUser.getUsername();
         Predictions predictions = new Predictions(aUser, aProject);
+        predictDocuments(aUser, aProject, aDocuments, predictions);
+        return predictions;
+    }
+    
+    /**
+     * Predicts the given documents and puts the results into the given predictions.
+     * 
+     * @return whether all documents have been predicted, i.e. no prediction worker has failed
+     *         and the prediction has not been interrupted.
+     */
+    private boolean predictDocuments(User aUser, Project aProject,
+            List<SourceDocument> aDocuments, Predictions aPredictions)
+    {
+        if (aDocuments.isEmpty()) {
+            return true;
+        }
+        
+        List<AnnotationLayer> layers = annoService.listAnnotationLayer(aProject);
+
+        // Distribute the documents over as many partitions as the user may occupy prediction
+        // threads. Each partition is processed sequentially by a single worker using its own
+        // prediction CAS. The workers put their results directly into the predictions which are
+        // backed by a concurrent map.
+        int partitionCount = Math.max(1,
+                Math.min(properties.getMaxPredictionThreadsPerUser(), aDocuments.size()));
+        List<List<SourceDocument>> partitions = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < aDocuments.size(); i++) {
+            partitions.get(i % partitionCount).add(aDocuments.get(i));
+        }
+        
+        // The user may run predictions in several projects at the same time, so the number of
+        // workers per user is limited across all prediction runs of the user. A permit is taken
+        // before a worker is submitted and returned when the worker is done - including when it
+        // is cancelled before it even started.
+        Semaphore permits = predictionPermits.computeIfAbsent(aUser.getUsername(),
+            _key -> new Semaphore(Math.max(1, properties.getMaxPredictionThreadsPerUser())));
+        
+        boolean complete = true;
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (List<SourceDocument> partition : partitions) {
+                permits.acquire();
+                FutureTask<Void> worker = new FutureTask<Void>(() -> {
+                    predictPartition(aUser, aProject, layers, partition, aPredictions);
+                    return null;
+                })
+                {
+                    @Override
+                    protected void done()
+                    {
+                        permits.release();
+                    }
+                };
+                futures.add(worker);
+                predictionExecutor.execute(worker);
+            }
 
-        CAS predictionCas = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                }
+                catch (ExecutionException e) {
+                    log.error("[{}]: Prediction worker failed", aUser.getUsername(),
+                            e.getCause());
+                    complete = false;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            log.info("[{}]: Prediction interrupted - stopping all workers", aUser.getUsername());
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        
+        return complete;
+    }
+    
+    private void predictPartition(User aUser, Project aProject, List<AnnotationLayer> aLayers,
+            List<SourceDocument> aDocuments, Predictions aPredictions)
+        throws ResourceInitializationException, InterruptedException
+    {
+        PredictionCasPool pool = getPredictionCasPool(aProject);
+        CAS predictionCas = pool.borrowCas();
+        
         try {
-            predictionCas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+            for (SourceDocument document : aDocuments) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Prediction worker interrupted");
+                }
+                
+                predictDocument(aUser, aProject, aLayers, document, predictionCas, aPredictions);
+            }
         }
-        catch (ResourceInitializationException e) {
-            log.info("Cannot create prediction CAS, stopping predictions!");
-            return predictions;
+        finally {
+            releasePredictionCas(aProject, pool, predictionCas);
         }
+    }
 
-        nextDocument: for (SourceDocument document : aDocuments) {
-            Optional<CAS> originalCas = Optional.empty();
-            nextLayer: for (AnnotationLayer layer : annoService
-                    .listAnnotationLayer(document.getProject())) {
-                if (!layer.isEnabled()) {
-                    continue nextLayer;
-                }
+    private void predictDocument(User aUser, Project aProject, List<AnnotationLayer> aLayers,
+            SourceDocument document, CAS aPredictionCas, Predictions aPredictions)
+    {
+        String username = aUser.getUsername();
+        
+        Optional<CAS> originalCas = Optional.empty();
+        nextLayer: for (AnnotationLayer layer : aLayers) {
+            if (!layer.isEnabled()) {
+                continue nextLayer;
+            }
+
+            List<EvaluatedRecommender> recommenders = getActiveRecommenders(aUser, layer);
+            
+            if (recommenders.isEmpty()) {
+                log.trace("[{}]: No active recommenders on layer [{}]", username,
+                        layer.getUiName());
+                continue;
+            }
 
-                List<EvaluatedRecommender> recommenders = getActiveRecommenders(aUser, layer);
+            nextRecommender: for (EvaluatedRecommender r : recommenders) {
                 
-                if (recommenders.isEmpty()) {
-                    log.trace("[{}]: No active recommenders on layer [{}]", username,
-                            layer.getUiName());
-                    continue;
+                // Make sure we have the latest recommender config from the DB - the one from
+                // the active recommenders list may be outdated
+                Recommender recommender;
+
+                try {
+                    recommender = getRecommender(r.getRecommender().getId());
+                }
+                catch (NoResultException e) {
+                    log.info("[{}][{}]: Recommender no longer available... skipping",
+                            username, r.getRecommender().getName());
+                    continue nextRecommender;
                 }
 
-                nextRecommender: for (EvaluatedRecommender r : recommenders) {
-                    
-                    // Make sure we have the latest recommender config from the DB - the one from
-                    // the active recommenders list may be outdated
-                    Recommender recommender;
+                if (!recommender.isEnabled()) {
+                    log.debug("[{}][{}]: Disabled - skipping", username,
+                            r.getRecommender().getName());
+                    continue nextRecommender;
+                }
+
+                Optional<RecommenderContext> context = getContext(aUser, recommender);
 
+                if (!context.isPresent()) {
+                    log.info("No context available for recommender [{}]({}) for user [{}] "
+                            + "on document [{}]({}) in project [{}]({}) - skipping recommender",
+                            recommender.getName(), recommender.getId(), username,
+                            document.getName(), document.getId(),
+                            document.getProject().getName(), document.getProject().getId());
+                    continue nextRecommender;
+                }
+                
+                RecommenderContext ctx = context.get();
+                ctx.setUser(aUser);
+                
+                RecommendationEngineFactory<?> factory = getRecommenderFactory(recommender);
+                
+                // Check that configured layer and feature are accepted 
+                // by this type of recommender
+                if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
+                    log.info("[{}][{}]: Recommender configured with invalid layer or feature "
+                            + "- skipping recommender", username, r.getRecommender().getName());
+                    continue nextRecommender;
+                }
+
+                // We lazily load the CAS only at this point because that allows us to skip
+                // loading the CAS entirely if there is no enabled layer or recommender.
+                // If the CAS cannot be loaded, then we skip to the next document.
+                if (!originalCas.isPresent()) {
                     try {
-                        recommender = getRecommender(r.getRecommender().getId());
-                    }
-                    catch (NoResultException e) {
-                        log.info("[{}][{}]: Recommender no longer available... skipping",
-                                username, r.getRecommender().getName());
-                        continue nextRecommender;
+                        originalCas = Optional.of(casSnapshotCache.getSnapshot(document,
+                                username));
                     }
-
-                    if (!recommender.isEnabled()) {
-                        log.debug("[{}][{}]: Disabled - skipping", username,
-                                r.getRecommender().getName());
-                        continue nextRecommender;
+                    catch (IOException e) {
+                        log.error(
+                                "Cannot read annotation CAS for user [{}] of document "
+                                        + "[{}]({}) in project [{}]({}) - skipping document",
+                                username, document.getName(), document.getId(),
+                                document.getProject().getName(), document.getProject().getId(),
+                                e);
+                        return;
                     }
+                }
 
-                    Optional<RecommenderContext> context = getContext(aUser, recommender);
-
-                    if (!context.isPresent()) {
-                        log.info("No context available for recommender [{}]({}) for user [{}] "
-                                + "on document [{}]({}) in project [{}]({}) - skipping recommender",
+                try {
+                    RecommendationEngine recommendationEngine = factory.build(recommender);
+                    
+                    if (!recommendationEngine.isReadyForPrediction(ctx)) {
+                        log.info("Recommender context [{}]({}) for user [{}] in project "
+                                + "[{}]({}) is not ready for prediction - skipping recommender",
                                 recommender.getName(), recommender.getId(), username,
-                                document.getName(), document.getId(),
                                 document.getProject().getName(), document.getProject().getId());
                         continue nextRecommender;
                     }
-                    
-                    RecommenderContext ctx = context.get();
-                    ctx.setUser(aUser);
-                    
-                    RecommendationEngineFactory<?> factory = getRecommenderFactory(recommender);
-                    
-                    // Check that configured layer and feature are accepted 
-                    // by this type of recommender
-                    if (!factory.accepts(recommender.getLayer(), recommender.getFeature())) {
-                        log.info("[{}][{}]: Recommender configured with invalid layer or feature "
-                                + "- skipping recommender", username, r.getRecommender().getName());
-                        continue nextRecommender;
-                    }
-
-                    // We lazily load the CAS only at this point because that allows us to skip
-                    // loading the CAS entirely if there is no enabled layer or recommender.
-                    // If the CAS cannot be loaded, then we skip to the next document.
-                    if (!originalCas.isPresent()) {
-                        try {
-                            originalCas = Optional.of(documentService.readAnnotationCas(document,
-                                    username));
-                        }
-                        catch (IOException e) {
-                            log.error(
-                                    "Cannot read annotation CAS for user [{}] of document "
-                                            + "[{}]({}) in project [{}]({}) - skipping document",
-                                    username, document.getName(), document.getId(),
-                                    document.getProject().getName(), document.getProject().getId(),
-                                    e);
-                            continue nextDocument;
-                        }
-                    }
-
-                    try {
-                        RecommendationEngine recommendationEngine = factory.build(recommender);
-                        
-                        if (!recommendationEngine.isReadyForPrediction(ctx)) {
-                            log.info("Recommender context [{}]({}) for user [{}] in project "
-                                    + "[{}]({}) is not ready for prediction - skipping recommender",
-                                    recommender.getName(), recommender.getId(), username,
-                                    document.getProject().getName(), document.getProject().getId());
-                            continue nextRecommender;
-                        }
 
-                        log.trace("[{}][{}]: Generating predictions for layer [{}]", username,
-                                r.getRecommender().getName(), layer.getUiName());
-                        
-                        cloneAndMonkeyPatchCAS(aProject, originalCas.get(), predictionCas);
+                    log.trace("[{}][{}]: Generating predictions for layer [{}]", username,
+                            r.getRecommender().getName(), layer.getUiName());
+                    
+                    fillPredictionCas(originalCas.get(), aPredictionCas);
 
-                        // Perform the actual prediction
-                        recommendationEngine.predict(ctx, predictionCas);
+                    // Perform the actual prediction
+                    recommendationEngine.predict(ctx, aPredictionCas);
 
-                        // Extract the suggestions from the data which the recommender has written 
-                        // into the CAS
-                        List<AnnotationSuggestion> suggestions = extractSuggestions(aUser,
-                                predictionCas,
-                                document, recommender);
-                        
-                        // Calculate the visibility of the suggestions. This happens via the 
-                        // original CAS which contains only the manually created annotations and 
-                        // *not* the suggestions.
-                        Collection<SuggestionGroup> groups = SuggestionGroup.group(suggestions);
-                        calculateVisibility(originalCas.get(), username, layer,
-                                groups, 0, originalCas.get().getDocumentText().length());
-
-                        predictions.putPredictions(layer.getId(), suggestions);
-                    }
-                    catch (Throwable e) {
-                        log.error(
-                                "Error applying recommender [{}]({}) for user [{}] to document "
-                                        + "[{}]({}) in project [{}]({}) - skipping recommender",
-                                recommender.getName(), recommender.getId(), username,
-                                document.getName(), document.getId(),
-                                document.getProject().getName(), document.getProject().getId(), e);
-                        continue nextRecommender;
-                    }
+                    // Extract the suggestions from the data which the recommender has written 
+                    // into the CAS
+                    List<AnnotationSuggestion> suggestions = extractSuggestions(aUser,
+                            aPredictionCas, document, recommender);
+                    
+                    // Calculate the visibility of the suggestions. This happens via the 
+                    // original CAS which contains only the manually created annotations and 
+                    // *not* the suggestions.
+                    Collection<SuggestionGroup> groups = SuggestionGroup.group(suggestions);
+                    calculateVisibility(originalCas.get(), username, layer,
+                            groups, 0, originalCas.get().getDocumentText().length());
+
+                    aPredictions.putPredictions(layer.getId(), suggestions);
+                }
+                catch (Throwable e) {
+                    log.error(
+                            "Error applying recommender [{}]({}) for user [{}] to document "
+                                    + "[{}]({}) in project [{}]({}) - skipping recommender",
+                            recommender.getName(), recommender.getId(), username,
+                            document.getName(), document.getId(),
+                            document.getProject().getName(), document.getProject().getId(), e);
+                    continue nextRecommender;
                 }
             }
         }
+    }
 
-        return predictions;
+    @Override
+    public Optional<Predictions> computeIncrementalPredictions(User aUser, Project aProject,
+            List<SourceDocument> aDocuments)
+    {
+        String username = aUser.getUsername();
+        RecommendationState state = getState(username, aProject);
+        
+        Predictions predecessor;
+        Map<Recommender, Long> activeModelVersions;
+        Set<String> changedDocuments;
+        boolean modelChanged;
+        synchronized (state) {
+            predecessor = state.getLatestPredictions();
+            activeModelVersions = state.getActiveModelVersions();
+            modelChanged = !activeModelVersions.equals(state.getPredictionModelVersions());
+            // The changed documents are only cleared once the prediction run has succeeded. If
+            // the run fails or is interrupted, the next run predicts them again.
+            changedDocuments = state.getChangedDocuments();
+        }
+        
+        // If there are no previous predictions or if any of the models has changed, then we 
+        // need to predict all documents again
+        if (predecessor == null || modelChanged) {
+            log.debug("[{}]: Model changed or no previous predictions - predicting all [{}] "
+                    + "documents", username, aDocuments.size());
+            
+            Predictions predictions = new Predictions(aUser, aProject);
+            if (!predictDocuments(aUser, aProject, aDocuments, predictions)) {
+                // Keep the previous predictions if there are any - the next run predicts all
+                // documents again since the model versions remain unchanged
+                log.warn("[{}]: Prediction incomplete", username);
+                return predecessor != null ? Optional.empty() : Optional.of(predictions);
+            }
+            
+            state.setPredictionModelVersions(activeModelVersions);
+            state.clearChangedDocuments(changedDocuments);
+            
+            return Optional.of(predictions);
+        }
+        
+        List<SourceDocument> documentsToPredict = aDocuments.stream()
+                .filter(doc -> changedDocuments.contains(doc.getName()))
+                .collect(toList());
+        
+        // Recommenders may have been disabled since the last run without the model changing
+        List<Recommender> disabledRecommenders = activeModelVersions.keySet().stream()
+                .filter(r -> !getEnabledRecommender(r.getId()).isPresent())
+                .collect(toList());
+        
+        // Documents may have been removed from the project since the last run
+        Set<String> documentNames = aDocuments.stream()
+                .map(SourceDocument::getName)
+                .collect(toSet());
+        Set<String> removedDocuments = predecessor.getPredictions().keySet().stream()
+                .map(ExtendedId::getDocumentName)
+                .filter(name -> !documentNames.contains(name))
+                .collect(toSet());
+        
+        if (documentsToPredict.isEmpty() && disabledRecommenders.isEmpty()
+                && removedDocuments.isEmpty()) {
+            log.debug("[{}]: Neither models nor documents changed - skipping prediction",
+                    username);
+            state.clearChangedDocuments(changedDocuments);
+            return Optional.empty();
+        }
+        
+        log.debug("[{}]: Predicting [{}] changed documents out of [{}]", username,
+                documentsToPredict.size(), aDocuments.size());
+        
+        Predictions newPredictions = new Predictions(aUser, aProject);
+        if (!predictDocuments(aUser, aProject, documentsToPredict, newPredictions)) {
+            // Keep the previous predictions - the changed documents remain marked as changed, so
+            // the next run predicts them again
+            log.warn("[{}]: Prediction incomplete - keeping previous predictions", username);
+            return Optional.empty();
+        }
+        
+        // Take over the predictions of the unchanged documents and replace the ones of the changed
+        // documents
+        Predictions predictions = new Predictions(aProject, aUser, predecessor.getPredictions());
+        for (Recommender recommender : disabledRecommenders) {
+            predictions.removePredictions(recommender.getId());
+        }
+        for (String document : removedDocuments) {
+            predictions.removePredictionsForDocument(document);
+        }
+        for (SourceDocument document : documentsToPredict) {
+            predictions.removePredictionsForDocument(document.getName());
+        }
+        predictions.putAll(newPredictions);
+        
+        state.clearChangedDocuments(changedDocuments);
+
+        return Optional.of(predictions);
     }
 
     private List<AnnotationSuggestion> extractSuggestions(User aUser, CAS aCas,
@@ -1033,23 +1400,41 @@ public class RecommendationServiceImpl
             return;
         }
         
-        List<AnnotationFS> annotationsInWindow = select(aCas, type).stream()
+        // Collect all annotations of the given layer within the view window. We need to use a
+        // multi-valued map here because there may be multiple annotations at a given position.
+        // This does not depend on the feature, so it is only done once per layer.
+        MultiValuedMap<Offset, AnnotationFS> annotations = new ArrayListValuedHashMap<>();
+        select(aCas, type).stream()
                 .filter(fs -> aWindowBegin <= fs.getBegin() && fs.getEnd() <= aWindowEnd)
-                .collect(toList());
-
-        // Collect all suggestions of the given layer within the view window
-        List<SuggestionGroup> suggestionsInWindow = aRecommendations.stream()
+                .forEach(fs -> annotations.put(new Offset(fs.getBegin(), fs.getEnd()), fs));
+        // We need to constructed a sorted list of the keys for the OverlapIterator below
+        List<Offset> sortedAnnotationKeys = new ArrayList<>(annotations.keySet());
+        sortedAnnotationKeys.sort(comparingInt(Offset::getBegin).thenComparingInt(Offset::getEnd));
+
+        // Collect all suggestions of the given layer within the view window and group them by
+        // feature. We can use the tree here since we only have a single SuggestionGroup for every
+        // position and feature
+        Map<String, Map<Offset, SuggestionGroup>> suggestionsByFeature = new HashMap<>();
+        aRecommendations.stream()
                 // Only suggestions for the given layer
                 .filter(group -> group.getLayerId() == aLayer.getId())
                 // ... and in the given window
                 .filter(group -> {
                     Offset offset = group.getOffset();
                     return aWindowBegin <= offset.getBegin() && offset.getEnd() <= aWindowEnd;
-                }).collect(toList());
-
-        // Get all the skipped/rejected entries for the current layer
-        List<LearningRecord> recordedAnnotations = learningRecordService.listRecords(aUser,
-                aLayer);
+                })
+                .forEach(group -> suggestionsByFeature
+                        .computeIfAbsent(group.getFeature(), _key -> new TreeMap<>(
+                                comparingInt(Offset::getBegin).thenComparingInt(Offset::getEnd)))
+                        .put(group.getOffset(), group));
+
+        // If there are no suggestions, there is nothing to do here
+        if (suggestionsByFeature.isEmpty()) {
+            return;
+        }
+        
+        // Get the skipped/rejected entries for the current layer
+        LearningRecordIndex recordIndex = learningRecordService.getRecordIndex(aUser, aLayer);
 
         for (AnnotationFeature feature : annoService.listAnnotationFeature(aLayer)) {
             Feature feat = type.getFeatureByBaseName(feature.getName());
@@ -1061,95 +1446,157 @@ public class RecommendationServiceImpl
                 return;
             }
             
-            // Reduce the annotations to the ones which have a non-null feature value. We need to
-            // use a multi-valued map here because there may be multiple annotations at a
-            // given position.
-            MultiValuedMap<Offset, AnnotationFS> annotations = new ArrayListValuedHashMap<>();
-            annotationsInWindow.stream()
-                    .forEach(fs -> annotations.put(new Offset(fs.getBegin(), fs.getEnd()), fs));
-            // We need to constructed a sorted list of the keys for the OverlapIterator below
-            List<Offset> sortedAnnotationKeys = new ArrayList<>(annotations.keySet());
-            sortedAnnotationKeys
-                    .sort(comparingInt(Offset::getBegin).thenComparingInt(Offset::getEnd));
-
-            // Reduce the suggestions to the ones for the given feature. We can use the tree here
-            // since we only have a single SuggestionGroup for every position
-            Map<Offset, SuggestionGroup> suggestions = new TreeMap<>(
-                    comparingInt(Offset::getBegin).thenComparingInt(Offset::getEnd));
-            suggestionsInWindow.stream()
-                    .filter(group -> group.getFeature().equals(feature.getName()))
-                    .forEach(group -> suggestions.put(group.getOffset(), group));
-
-            // If there are no suggestions or no annotations, there is nothing to do here
-            if (suggestions.isEmpty() || annotations.isEmpty()) {
+            Map<Offset, SuggestionGroup> suggestions = suggestionsByFeature
+                    .get(feature.getName());
+
+            // If there are no suggestions, there is nothing to do here
+            if (suggestions == null) {
                 continue;
             }
 
-            // This iterator gives us pairs of annotations and suggestions. Note that both lists
-            // must be sorted in the same way. The suggestion offsets are sorted because they are 
-            // the keys in a TreeSet - and the annotation offsets are sorted in the same way 
-            // manually
-            OverlapIterator oi = new OverlapIterator(new ArrayList<>(suggestions.keySet()),
-                    sortedAnnotationKeys);
-
-            // Bulk-hide any groups that overlap with existing annotations on the current layer
-            // and for the current feature
-            while (oi.hasNext()) {
-                if (oi.getA().overlaps(oi.getB())) {
-                    // Fetch the current suggestion and annotation
-                    SuggestionGroup group = suggestions.get(oi.getA());
-                    for (AnnotationFS annotation : annotations.get(oi.getB())) {
-                        String label = annotation.getFeatureValueAsString(feat);
-                        for (AnnotationSuggestion suggestion : group) {
-                            if (!aLayer.isAllowStacking()
-                                    || (label != null && label.equals(suggestion.getLabel()))
-                                    || suggestion.getLabel() == null) {
-                                suggestion.hide(FLAG_OVERLAP);
-                            }
-                        }
-                    }
-
-                    // Do not want to process the group again since the relevant annotations are
-                    // already hidden
-                    oi.ignoraA();
-                }
-                oi.step();
+            // If there are no annotations, there cannot be any overlap. The suggestions might
+            // still have been rejected though
+            if (!annotations.isEmpty()) {
+                hideSuggestionsOverlappingAnnotations(aLayer, feat, suggestions, annotations,
+                        sortedAnnotationKeys);
             }
 
             // Anything that was not hidden so far might still have been rejected
             suggestions.values().stream().flatMap(SuggestionGroup::stream)
                     .filter(AnnotationSuggestion::isVisible)
                     .forEach(suggestion -> hideSuggestionsRejectedOrSkipped(suggestion,
-                            recordedAnnotations));
+                            recordIndex));
         }
     }
 
-    private void hideSuggestionsRejectedOrSkipped(AnnotationSuggestion aSuggestion,
-            List<LearningRecord> aRecordedRecommendations)
+    private void hideSuggestionsOverlappingAnnotations(AnnotationLayer aLayer, Feature aFeature,
+            Map<Offset, SuggestionGroup> aSuggestions,
+            MultiValuedMap<Offset, AnnotationFS> aAnnotations, List<Offset> aSortedAnnotationKeys)
     {
-        // If it was rejected or skipped, hide it
-        for (LearningRecord record : aRecordedRecommendations) {
-            boolean isAtTheSamePlace = record.getOffsetCharacterBegin() == aSuggestion
-                    .getBegin() && record.getOffsetCharacterEnd() == aSuggestion.getEnd();
-            if (isAtTheSamePlace && aSuggestion.labelEquals(record.getAnnotation())) {
-                switch (record.getUserAction()) {
-                case REJECTED:
-                    aSuggestion.hide(FLAG_REJECTED);
-                    break;
-                case SKIPPED:
-                    aSuggestion.hide(FLAG_SKIPPED);
-                    break;
-                default:
-                    // Nothing to do for the other cases. ACCEPTED annotation are filtered out
-                    // because the overlap with a created annotation and the same for CORRECTED
+        // This iterator gives us pairs of annotations and suggestions. Note that both lists
+        // must be sorted in the same way. The suggestion offsets are sorted because they are 
+        // the keys in a TreeSet - and the annotation offsets are sorted in the same way 
+        // manually
+        OverlapIterator oi = new OverlapIterator(new ArrayList<>(aSuggestions.keySet()),
+                aSortedAnnotationKeys);
+
+        // Bulk-hide any groups that overlap with existing annotations on the current layer
+        // and for the current feature
+        while (oi.hasNext()) {
+            if (oi.getA().overlaps(oi.getB())) {
+                // Fetch the current suggestion and annotation
+                SuggestionGroup group = aSuggestions.get(oi.getA());
+                for (AnnotationFS annotation : aAnnotations.get(oi.getB())) {
+                    String label = annotation.getFeatureValueAsString(aFeature);
+                    for (AnnotationSuggestion suggestion : group) {
+                        if (!aLayer.isAllowStacking()
+                                || (label != null && label.equals(suggestion.getLabel()))
+                                || suggestion.getLabel() == null) {
+                            suggestion.hide(FLAG_OVERLAP);
+                        }
+                    }
                 }
-                return;
+
+                // Do not want to process the group again since the relevant annotations are
+                // already hidden
+                oi.ignoraA();
             }
+            oi.step();
         }
     }
 
+    private void hideSuggestionsRejectedOrSkipped(AnnotationSuggestion aSuggestion,
+            LearningRecordIndex aRecordIndex)
+    {
+        // If it was rejected or skipped, hide it
+        aRecordIndex.get(aSuggestion).ifPresent(record -> {
+            switch (record.getUserAction()) {
+            case REJECTED:
+                aSuggestion.hide(FLAG_REJECTED);
+                break;
+            case SKIPPED:
+                aSuggestion.hide(FLAG_SKIPPED);
+                break;
+            default:
+                // Nothing to do for the other cases. ACCEPTED annotation are filtered out
+                // because the overlap with a created annotation and the same for CORRECTED
+            }
+        });
+    }
+
     public CAS cloneAndMonkeyPatchCAS(Project aProject, CAS aSourceCas, CAS aTargetCas)
         throws UIMAException, IOException
+    {
+        TypeSystemDescription tsd = getPredictionCasPool(aProject).getTypeSystem();
+        
+        annoService.upgradeCas(aSourceCas, aTargetCas, tsd);
+
+        return aTargetCas;
+    }
+    
+    /**
+     * Copies the contents of the given source CAS into the given prediction CAS. The prediction
+     * CAS must have been obtained from the {@link PredictionCasPool} of the project, i.e. its type
+     * system must be a superset of the type system of the source CAS. Since the prediction CAS
+     * is only reset and refilled, no type system needs to be created here.
+     */
+    private void fillPredictionCas(CAS aSourceCas, CAS aPredictionCas)
+        throws UIMAException, IOException
+    {
+        TypeSystem sourceTypeSystem = aSourceCas.getTypeSystem();
+        
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Serialization.serializeWithCompression(aSourceCas, buffer, sourceTypeSystem);
+        
+        // The source type system is passed along to leniently map the source types and features
+        // to the ones of the prediction CAS.
+        aPredictionCas.reset();
+        Serialization.deserializeCAS(aPredictionCas,
+                new ByteArrayInputStream(buffer.toByteArray()), sourceTypeSystem, null);
+    }
+    
+    private PredictionCasPool getPredictionCasPool(Project aProject)
+        throws ResourceInitializationException
+    {
+        long version = layerConfigurationVersions
+                .computeIfAbsent(aProject.getId(), _key -> new AtomicLong()).get();
+        
+        synchronized (predictionCasPools) {
+            // If the layer configuration has changed since the pool has been created, then the
+            // pool is replaced by a new one using the updated type system.
+            PredictionCasPool pool = predictionCasPools.get(aProject.getId());
+            if (pool == null || pool.getVersion() != version) {
+                pool = new PredictionCasPool(version, createPredictionTypeSystem(aProject),
+                        properties.getPredictionThreads());
+                predictionCasPools.put(aProject.getId(), pool);
+            }
+            return pool;
+        }
+    }
+
+    private void releasePredictionCas(Project aProject, PredictionCasPool aPool, CAS aCas)
+    {
+        // Only keep the CAS if its pool is still the current one for the project
+        if (predictionCasPools.get(aProject.getId()) == aPool) {
+            aPool.returnCas(aCas);
+        }
+    }
+    
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        long projectId = aEvent.getProject().getId();
+        layerConfigurationVersions.computeIfAbsent(projectId, _key -> new AtomicLong())
+                .incrementAndGet();
+        predictionCasPools.remove(projectId);
+    }
+
+    /**
+     * Creates the full project type system extended with the score and prediction marker features
+     * required by the recommenders.
+     */
+    private TypeSystemDescription createPredictionTypeSystem(Project aProject)
+        throws ResourceInitializationException
     {
         try (StopWatch watch = new StopWatch(log, "adding score features")) {
             TypeSystemDescription tsd = annoService.getFullProjectTypeSystem(aProject);
@@ -1174,11 +1621,9 @@ public class RecommendationServiceImpl
 
                 td.addFeature(FEATURE_NAME_IS_PREDICTION, "Is Prediction", CAS.TYPE_NAME_BOOLEAN);
             }
-
-            annoService.upgradeCas(aSourceCas, aTargetCas, tsd);
+            
+            return tsd;
         }
-
-        return aTargetCas;
     }
     
     private synchronized IRequestCycleListener triggerTrainingTaskListener()
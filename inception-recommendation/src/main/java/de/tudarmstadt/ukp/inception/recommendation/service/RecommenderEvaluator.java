@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.recommendation.api.evaluation.EvaluationResult;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
+
+/**
+ * Evaluates recommenders concurrently on a dedicated pool and caches the evaluation results. If
+ * neither the recommender configuration nor the data it is evaluated on have changed, the previous
+ * result is reused. Concurrent requests for the same evaluation share a single computation.
+ */
+@Component
+public class RecommenderEvaluator
+    implements DisposableBean
+{
+    private static final Logger log = LoggerFactory.getLogger(RecommenderEvaluator.class);
+
+    private final ForkJoinPool evaluationPool;
+    private final AsyncCache<Key, EvaluationResult> results;
+
+    @Autowired
+    public RecommenderEvaluator(RecommendationProperties aProperties)
+    {
+        evaluationPool = new ForkJoinPool(aProperties.getEvaluationThreads());
+        results = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .executor(evaluationPool)
+                .buildAsync();
+    }
+
+    @Override
+    public void destroy()
+    {
+        evaluationPool.shutdownNow();
+    }
+
+    /**
+     * Evaluates the given recommender for the given user.
+     * 
+     * @param aUser
+     *            the user whose annotations are used for the evaluation.
+     * @param aRecommender
+     *            the recommender to evaluate.
+     * @param aDataFingerprint
+     *            a fingerprint of the data the recommender is evaluated on (cf.
+     *            {@link CasSnapshotCache#getFingerprint}). If this is {@code null}, the result is
+     *            neither looked up in the cache nor cached.
+     * @param aEvaluation
+     *            the actual evaluation. It is run on the evaluation pool.
+     * @return the (future) evaluation result.
+     */
+    public CompletableFuture<EvaluationResult> evaluate(User aUser, Recommender aRecommender,
+            String aDataFingerprint, Supplier<EvaluationResult> aEvaluation)
+    {
+        if (aDataFingerprint == null) {
+            return CompletableFuture.supplyAsync(aEvaluation, evaluationPool);
+        }
+
+        Key key = new Key(aUser, aRecommender, aDataFingerprint);
+        return results.get(key, _key -> {
+            log.trace("[{}][{}]: No cached evaluation result", aUser.getUsername(),
+                    aRecommender.getName());
+            return aEvaluation.get();
+        });
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        long projectId = aEvent.getProject().getId();
+        results.synchronous().asMap().keySet().removeIf(key -> key.projectId == projectId);
+    }
+
+    private static class Key
+    {
+        private final long projectId;
+        private final String username;
+        private final String recommenderConfiguration;
+        private final String dataFingerprint;
+
+        public Key(User aUser, Recommender aRecommender, String aDataFingerprint)
+        {
+            projectId = aRecommender.getProject().getId();
+            username = aUser.getUsername();
+            // The threshold is not included since it does not affect the evaluation result
+            recommenderConfiguration = aRecommender.getId() + "|" + aRecommender.getTool() + "|"
+                    + aRecommender.getLayer().getId() + "|" + aRecommender.getFeature().getId()
+                    + "|" + aRecommender.getMaxRecommendations() + "|"
+                    + aRecommender.getTraits();
+            dataFingerprint = aDataFingerprint;
+        }
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key castOther = (Key) other;
+            return new EqualsBuilder().append(projectId, castOther.projectId)
+                    .append(username, castOther.username)
+                    .append(recommenderConfiguration, castOther.recommenderConfiguration)
+                    .append(dataFingerprint, castOther.dataFingerprint).isEquals();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return new HashCodeBuilder().append(projectId).append(username)
+                    .append(recommenderConfiguration).append(dataFingerprint).toHashCode();
+        }
+    }
+}
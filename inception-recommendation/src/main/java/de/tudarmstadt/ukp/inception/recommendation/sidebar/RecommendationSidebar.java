@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.feedback.IFeedback;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.form.CheckBox;
 import org.apache.wicket.markup.html.form.Form;
@@ -133,8 +134,11 @@ public class RecommendationSidebar
     {
         AnnotatorState state = getModelObject();
         recommendationService.clearState(state.getUser().getUsername());
-        recommendationService.triggerTrainingAndClassification(state.getUser().getUsername(),
-                state.getProject(), "User request via sidebar");
+        if (!recommendationService.triggerTrainingAndClassification(
+                state.getUser().getUsername(), state.getProject(), "User request via sidebar")) {
+            error("The server is busy - please try again later.");
+            aTarget.addChildren(getPage(), IFeedback.class);
+        }
     }
     
     private List<String> findMismatchedRecommenders()
@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.recommendation.tasks;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +31,7 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskPriority;
 
 /**
  * This consumer predicts new annotations for a given annotation layer, if a classification tool for
@@ -48,6 +50,13 @@ public class PredictionTask
         super(aUser, aProject, aTrigger);
     }
 
+    @Override
+    public TaskPriority getPriority()
+    {
+        // The user is waiting for the predictions
+        return TaskPriority.HIGH;
+    }
+
     @Override
     public void run()
     {
@@ -61,11 +70,13 @@ public class PredictionTask
         
         long startTime = System.currentTimeMillis();
 
-        Predictions predictions = recommendationService.computePredictions(user, project, docs);
+        Optional<Predictions> predictions = recommendationService
+                .computeIncrementalPredictions(user, project, docs);
         
         log.debug("[{}][{}]: Prediction complete ({} ms)", getId(), user.getUsername(),
                 (System.currentTimeMillis() - startTime));
 
-        recommendationService.putIncomingPredictions(user, project, predictions);
+        // If nothing has changed since the last run, the current predictions remain valid
+        predictions.ifPresent(p -> recommendationService.putIncomingPredictions(user, project, p));
     }
 }
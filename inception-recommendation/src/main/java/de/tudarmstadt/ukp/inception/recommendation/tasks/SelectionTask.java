@@ -17,14 +17,23 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.tasks;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.lang3.concurrent.ConcurrentUtils;
 import org.apache.commons.lang3.concurrent.LazyInitializer;
-import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,9 +54,13 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommende
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommendationProperties;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderEvaluationResultEvent;
+import de.tudarmstadt.ukp.inception.recommendation.service.CasSnapshotCache;
+import de.tudarmstadt.ukp.inception.recommendation.service.RecommenderEvaluator;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.scheduling.TaskPriority;
 
 /**
  * This task evaluates all available classification tools for all annotation layers of the current
@@ -64,12 +77,23 @@ public class SelectionTask
     private @Autowired RecommendationService recommendationService;
     private @Autowired ApplicationEventPublisher appEventPublisher;
     private @Autowired SchedulingService schedulingService;
+    private @Autowired CasSnapshotCache casSnapshotCache;
+    private @Autowired RecommenderEvaluator recommenderEvaluator;
+    private @Autowired RecommendationProperties properties;
 
     public SelectionTask(Project aProject, User aUser, String aTrigger)
     {
         super(aUser, aProject, aTrigger);
     }
 
+    @Override
+    public TaskPriority getPriority()
+    {
+        // Evaluating all recommenders is expensive and may wait until predictions and training
+        // are done
+        return TaskPriority.LOW;
+    }
+
     @Override
     public void run()
     {
@@ -88,7 +112,23 @@ public class SelectionTask
                 return readCasses(project, userName);
             }
         };
+        
+        // If the annotations have not changed since the last selection, the evaluation results
+        // of unchanged recommenders are reused
+        String dataFingerprint;
+        try {
+            dataFingerprint = casSnapshotCache.getFingerprint(
+                    documentService.listSourceDocuments(project), userName);
+        }
+        catch (IOException e) {
+            log.error("[{}]: Unable to fingerprint annotations - not reusing evaluation results",
+                    userName, e);
+            dataFingerprint = null;
+        }
 
+        // First, start the evaluation of all recommenders on all layers so that they can run
+        // concurrently. Then, collect the results.
+        Map<AnnotationLayer, List<PendingEvaluation>> evaluations = new LinkedHashMap<>();
         for (AnnotationLayer layer : annoService.listAnnotationLayer(getProject())) {
             if (!layer.isEnabled()) {
                 continue;
@@ -101,9 +141,15 @@ public class SelectionTask
                 continue;
             }
     
-            List<EvaluatedRecommender> activeRecommenders = new ArrayList<>();
+            List<PendingEvaluation> layerEvaluations = new ArrayList<>();
+            evaluations.put(layer, layerEvaluations);
             
             for (Recommender r : recommenders) {
+                if (Thread.currentThread().isInterrupted()) {
+                    log.info("[{}]: Selection interrupted", userName);
+                    return;
+                }
+                
                 // Make sure we have the latest recommender config from the DB - the one from
                 // the active recommenders list may be outdated
                 Recommender recommender;
@@ -124,7 +170,6 @@ public class SelectionTask
                 String recommenderName = recommender.getName();
                 
                 try {
-                    long start = System.currentTimeMillis();
                     RecommendationEngineFactory factory = recommendationService
                         .getRecommenderFactory(recommender);
                     
@@ -145,21 +190,50 @@ public class SelectionTask
                     if (recommender.isAlwaysSelected()) {
                         log.debug("[{}][{}]: Activating [{}] without evaluating - always selected",
                                 userName, recommenderName, recommenderName);
-                        activeRecommenders.add(
-                                new EvaluatedRecommender(recommender, EvaluationResult.skipped()));
+                        layerEvaluations.add(new PendingEvaluation(recommender));
                         continue;
                     } else if (!factory.isEvaluable()) {
                         log.debug("[{}][{}]: Activating [{}] without evaluating - not evaluable",
                                 userName, recommenderName, recommenderName);
-                        activeRecommenders.add(
-                                new EvaluatedRecommender(recommender, EvaluationResult.skipped()));
+                        layerEvaluations.add(new PendingEvaluation(recommender));
                         continue;
                     }
     
                     log.info("[{}][{}]: Evaluating...", userName, recommenderName);
 
-                    DataSplitter splitter = new PercentageBasedSplitter(0.8, 10);
-                    EvaluationResult result = recommendationEngine.evaluate(casses.get(), splitter);
+                    CompletableFuture<EvaluationResult> result = recommenderEvaluator.evaluate(
+                            user, recommender, dataFingerprint, () -> {
+                                DataSplitter splitter = new PercentageBasedSplitter(0.8, 10);
+                                return recommendationEngine.evaluate(
+                                        ConcurrentUtils.initializeUnchecked(casses), splitter);
+                            });
+                    layerEvaluations.add(new PendingEvaluation(recommender, result));
+                }
+                catch (Throwable e) {
+                    log.error("[{}][{}]: Failed", user.getUsername(), recommenderName, e);
+                }
+            }
+        }
+        
+        for (Entry<AnnotationLayer, List<PendingEvaluation>> entry : evaluations.entrySet()) {
+            List<EvaluatedRecommender> activeRecommenders = new ArrayList<>();
+            
+            for (PendingEvaluation evaluation : entry.getValue()) {
+                Recommender recommender = evaluation.recommender;
+                String recommenderName = recommender.getName();
+                
+                if (evaluation.result == null) {
+                    activeRecommenders.add(
+                            new EvaluatedRecommender(recommender, EvaluationResult.skipped()));
+                    continue;
+                }
+                
+                try {
+                    long remaining = evaluation.start
+                            + SECONDS.toMillis(properties.getEvaluationTimeout())
+                            - System.currentTimeMillis();
+                    EvaluationResult result = evaluation.result.get(Math.max(remaining, 0),
+                            MILLISECONDS);
                     double score = result.computeF1Score();
 
                     Double threshold = recommender.getThreshold();
@@ -180,14 +254,27 @@ public class SelectionTask
 
                     appEventPublisher.publishEvent(new RecommenderEvaluationResultEvent(this,
                             recommender, user.getUsername(), result,
-                            System.currentTimeMillis() - start, activated));
+                            System.currentTimeMillis() - evaluation.start, activated));
+                }
+                catch (TimeoutException e) {
+                    // The evaluation keeps running in the background and its result is cached,
+                    // so it can be used by the next selection run
+                    log.warn("[{}][{}]: Not activated (evaluation exceeded {} seconds)",
+                            user.getUsername(), recommenderName,
+                            properties.getEvaluationTimeout());
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.info("[{}]: Selection interrupted", userName);
+                    return;
                 }
                 catch (Throwable e) {
-                    log.error("[{}][{}]: Failed", user.getUsername(), recommenderName, e);
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    log.error("[{}][{}]: Failed", user.getUsername(), recommenderName, cause);
                 }
             }
     
-            recommendationService.setActiveRecommenders(user, layer, activeRecommenders);
+            recommendationService.setActiveRecommenders(user, entry.getKey(), activeRecommenders);
         }
 
         schedulingService.enqueue(new TrainingTask(user, getProject(),
@@ -199,15 +286,34 @@ public class SelectionTask
         List<CAS> casses = new ArrayList<>();
         for (SourceDocument document : documentService.listSourceDocuments(aProject)) {
             try {
-                CAS cas = documentService.readAnnotationCas(document, aUserName);
-                annoService.upgradeCasIfRequired(cas, document, aUserName);
-                casses.add(cas);
+                casses.add(casSnapshotCache.getSnapshot(document, aUserName));
             } catch (IOException e) {
                 log.error("Cannot read annotation CAS.", e);
-            } catch (UIMAException e) {
-                log.error("Cannot upgrade annotation CAS.", e);
             }
         }
         return casses;
     }
+
+    private static class PendingEvaluation
+    {
+        private final Recommender recommender;
+        private final CompletableFuture<EvaluationResult> result;
+        private final long start;
+
+        /**
+         * A recommender which is activated without evaluation.
+         */
+        private PendingEvaluation(Recommender aRecommender)
+        {
+            this(aRecommender, null);
+        }
+
+        private PendingEvaluation(Recommender aRecommender,
+                CompletableFuture<EvaluationResult> aResult)
+        {
+            recommender = aRecommender;
+            result = aResult;
+            start = System.currentTimeMillis();
+        }
+    }
 }
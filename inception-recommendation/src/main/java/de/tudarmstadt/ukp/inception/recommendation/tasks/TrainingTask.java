@@ -22,12 +22,18 @@ import static de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recomm
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import javax.persistence.NoResultException;
 
+import org.apache.commons.lang3.concurrent.ConcurrentException;
 import org.apache.commons.lang3.concurrent.LazyInitializer;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
@@ -51,6 +57,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineCapability;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.service.CasSnapshotCache;
 import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.scheduling.Task;
 
@@ -66,6 +73,7 @@ public class TrainingTask
     private @Autowired DocumentService documentService;
     private @Autowired RecommendationService recommendationService;
     private @Autowired SchedulingService schedulingService;
+    private @Autowired CasSnapshotCache casSnapshotCache;
 
     public TrainingTask(User aUser, Project aProject, String aTrigger)
     {
@@ -81,6 +89,18 @@ public class TrainingTask
         log.debug("[{}][{}]: Starting training for project [{}] triggered by [{}]...",
                 getId(), user.getUsername(),project, getTrigger());
 
+        // List the documents only when they are accessed the first time. This allows us to skip
+        // accessing the database in case that no layer / recommender is available.
+        LazyInitializer<Map<SourceDocument, AnnotationDocument>> allDocuments =
+                new LazyInitializer<Map<SourceDocument, AnnotationDocument>>()
+        {
+            @Override
+            protected Map<SourceDocument, AnnotationDocument> initialize()
+            {
+                return documentService.listAllDocuments(project, user);
+            }
+        };
+        
         // Read the CASes only when they are accessed the first time. This allows us to skip reading
         // the CASes in case that no layer / recommender is available or if no recommender requires
         // evaluation.
@@ -88,9 +108,9 @@ public class TrainingTask
                 new LazyInitializer<List<TrainingDocument>>()
         {
             @Override
-            protected List<TrainingDocument> initialize()
+            protected List<TrainingDocument> initialize() throws ConcurrentException
             {
-                return readCasses(project, user);
+                return readCasses(allDocuments.get(), user);
             }
         };
         
@@ -109,6 +129,11 @@ public class TrainingTask
             }
             
             for (EvaluatedRecommender r : recommenders) {
+                if (Thread.currentThread().isInterrupted()) {
+                    log.info("[{}][{}]: Training interrupted", getId(), user.getUsername());
+                    return;
+                }
+                
                 // Make sure we have the latest recommender config from the DB - the one from the
                 // active recommenders list may be outdated
                 Recommender recommender;
@@ -141,14 +166,30 @@ public class TrainingTask
                     }
                     
                     RecommendationEngine recommendationEngine = factory.build(recommender);
-                   
-                    RecommenderContext ctx = recommendationEngine
-                            .newContext(recommendationService.getContext(user, recommender)
-                                    .orElse(RecommenderContext.EMPTY_CONTEXT));
-                    ctx.setUser(user);
                     
                     RecommendationEngineCapability capability = recommendationEngine
                             .getTrainingCapability();
+                   
+                    // If the model has been trained on the same data with the same configuration
+                    // before, we keep the current context. Since its version does not change, the
+                    // prediction task will not predict again either.
+                    Optional<RecommenderContext> currentContext = recommendationService
+                            .getContext(user, recommender);
+                    String trainingDataHash = getTrainingDataHash(recommender, capability,
+                            allDocuments.get(), user);
+                    if (trainingDataHash != null && currentContext.isPresent()
+                            && trainingDataHash.equals(
+                                    currentContext.get().getTrainingDataHash())) {
+                        log.debug("[{}][{}][{}]: Training data unchanged since model version [{}] "
+                                + "- skipping training", getId(), user.getUsername(),
+                                recommender.getName(), currentContext.get().getVersion());
+                        continue;
+                    }
+                    
+                    RecommenderContext ctx = recommendationEngine
+                            .newContext(currentContext.orElse(RecommenderContext.EMPTY_CONTEXT));
+                    ctx.setUser(user);
+                    ctx.setTrainingDataHash(trainingDataHash);
                     
                     // If engine does not support training, mark engine ready and skip to prediction
                     if (capability == TRAINING_NOT_SUPPORTED) {
@@ -181,11 +222,12 @@ public class TrainingTask
                     
                     recommendationEngine.train(ctx, cassesForTraining);
                     
-                    log.info("[{}][{}][{}]: Training complete ({} ms)", getId(),
-                            user.getUsername(), recommender.getName(),
+                    ctx.close();
+
+                    log.info("[{}][{}][{}]: Training complete - model version [{}] ({} ms)",
+                            getId(), user.getUsername(), recommender.getName(), ctx.getVersion(),
                             (System.currentTimeMillis() - startTime));
                     
-                    ctx.close();
                     recommendationService.putContext(user, recommender, ctx);
                 }
                 catch (Throwable e) {
@@ -200,19 +242,63 @@ public class TrainingTask
                         String.format("TrainingTask %s complete", getId())));
     }
 
-    private List<TrainingDocument> readCasses(Project aProject, User aUser)
+    /**
+     * Computes a hash of the training data of the given recommender and of the configuration
+     * affecting its model. The hash is based on the CAS timestamps and document states, so it can
+     * be computed without reading any CAS.
+     * 
+     * @return the hash or {@code null} if it could not be computed.
+     */
+    private String getTrainingDataHash(Recommender aRecommender,
+            RecommendationEngineCapability aCapability,
+            Map<SourceDocument, AnnotationDocument> aDocuments, User aUser)
+    {
+        // The threshold is not included since it does not affect the model
+        StringBuilder qualifier = new StringBuilder();
+        qualifier.append(aRecommender.getId()).append('|').append(aRecommender.getTool())
+                .append('|').append(aRecommender.getLayer().getId()).append('|')
+                .append(aRecommender.getFeature().getId()).append('|')
+                .append(aRecommender.getMaxRecommendations()).append('|')
+                .append(aRecommender.getTraits()).append('|')
+                .append(new TreeSet<>(aRecommender.getStatesIgnoredForTraining()));
+        
+        // If the engine does not train, the data does not matter
+        Collection<SourceDocument> documents;
+        if (aCapability == TRAINING_NOT_SUPPORTED) {
+            documents = Collections.emptyList();
+        }
+        else {
+            documents = aDocuments.keySet();
+            aDocuments.entrySet().stream()
+                    .sorted(Comparator.comparing(e -> e.getKey().getId()))
+                    .forEach(e -> qualifier.append(';').append(e.getKey().getId()).append(':')
+                            .append(e.getValue() != null ? e.getValue().getState()
+                                    : AnnotationDocumentState.NEW));
+        }
+        
+        try {
+            return casSnapshotCache.getFingerprint(documents, aUser.getUsername(),
+                    qualifier.toString());
+        }
+        catch (IOException e) {
+            log.warn("[{}][{}][{}]: Unable to compute training data hash", getId(),
+                    aUser.getUsername(), aRecommender.getName(), e);
+            return null;
+        }
+    }
+
+    private List<TrainingDocument> readCasses(Map<SourceDocument, AnnotationDocument> aDocuments,
+            User aUser)
     {
         List<TrainingDocument> casses = new ArrayList<>();
-        Map<SourceDocument, AnnotationDocument> allDocuments =
-                documentService.listAllDocuments(aProject, aUser);
-        for (Map.Entry<SourceDocument, AnnotationDocument> entry : allDocuments.entrySet()) {
+        for (Map.Entry<SourceDocument, AnnotationDocument> entry : aDocuments.entrySet()) {
             try {
                 SourceDocument sourceDocument = entry.getKey();
                 AnnotationDocument annotationDocument = entry.getValue();
                 AnnotationDocumentState state = annotationDocument != null ?
                         annotationDocument.getState() : AnnotationDocumentState.NEW;
 
-                CAS cas = documentService.readAnnotationCas(sourceDocument, aUser.getUsername());
+                CAS cas = casSnapshotCache.getSnapshot(sourceDocument, aUser.getUsername());
                 casses.add(new TrainingDocument(cas, state));
             } catch (IOException e) {
                 log.error("Cannot read annotation CAS.", e);
@@ -40,10 +40,12 @@ import de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.inception.recommendation.api.LearningRecordService;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecord;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordIndex;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.LearningRecordType;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SuggestionGroup;
 
@@ -53,6 +55,7 @@ public class VisibilityCalculationTests
     private @Mock AnnotationSchemaService annoService;
 
     private Project project;
+    private SourceDocument document;
     private AnnotationLayer layer;
     private String user;
     private String neName;
@@ -87,6 +90,10 @@ public class VisibilityCalculationTests
         project.setName("Test Project");
         project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
 
+        document = new SourceDocument();
+        document.setName(DOC_NAME);
+        document.setProject(project);
+
         List<AnnotationFeature> featureList = new ArrayList<AnnotationFeature>();
         featureList.add(new AnnotationFeature("value", "uima.cas.String"));
         when(annoService.listAnnotationFeature(layer)).thenReturn(featureList);
@@ -98,7 +105,8 @@ public class VisibilityCalculationTests
     @Test
     public void testCalculateVisibilityNoRecordsAllHidden() throws Exception
     {
-        when(recordService.listRecords(user, layer)).thenReturn(new ArrayList<>());
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(LearningRecordIndex.of(new ArrayList<>()));
 
         CAS cas = getTestCas();
         Collection<SuggestionGroup> suggestions = getSuggestionGroup(
@@ -123,7 +131,8 @@ public class VisibilityCalculationTests
     @Test
     public void testCalculateVisibilityNoRecordsNotHidden() throws Exception
     {
-        when(recordService.listRecords(user, layer)).thenReturn(new ArrayList<>());
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(LearningRecordIndex.of(new ArrayList<>()));
 
         CAS cas = getTestCas();
         Collection<SuggestionGroup> suggestions = getSuggestionGroup(new int[][] { { 1, 5, 10 } });
@@ -142,11 +151,13 @@ public class VisibilityCalculationTests
     {
         List<LearningRecord> records = new ArrayList<>();
         LearningRecord rejectedRecord = new LearningRecord();
+        rejectedRecord.setSourceDocument(document);
         rejectedRecord.setUserAction(LearningRecordType.REJECTED);
         rejectedRecord.setOffsetCharacterBegin(5);
         rejectedRecord.setOffsetCharacterEnd(10);
         records.add(rejectedRecord);
-        when(recordService.listRecords(user, layer)).thenReturn(records);
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(LearningRecordIndex.of(records));
 
         CAS cas = getTestCas();
         Collection<SuggestionGroup> suggestions = getSuggestionGroup(new int[][] { { 1, 5, 10 } });
@@ -162,6 +173,30 @@ public class VisibilityCalculationTests
                 .containsExactly("rejected");
     }
 
+    @Test
+    public void testCalculateVisibilityRejectedInOtherDocument() throws Exception
+    {
+        SourceDocument otherDocument = new SourceDocument();
+        otherDocument.setName("OtherDocument");
+        
+        List<LearningRecord> records = new ArrayList<>();
+        LearningRecord rejectedRecord = new LearningRecord();
+        rejectedRecord.setSourceDocument(otherDocument);
+        rejectedRecord.setUserAction(LearningRecordType.REJECTED);
+        rejectedRecord.setOffsetCharacterBegin(5);
+        rejectedRecord.setOffsetCharacterEnd(10);
+        records.add(rejectedRecord);
+        when(recordService.getRecordIndex(user, layer))
+                .thenReturn(LearningRecordIndex.of(records));
+
+        CAS cas = getTestCas();
+        Collection<SuggestionGroup> suggestions = getSuggestionGroup(new int[][] { { 1, 5, 10 } });
+        sut.calculateVisibility(cas, user, layer, suggestions, 0, 25);
+
+        assertThat(getVisibleSuggestions(suggestions)).isNotEmpty();
+        assertThat(getInvisibleSuggestions(suggestions)).isEmpty();
+    }
+
     private List<AnnotationSuggestion> getInvisibleSuggestions(
             Collection<SuggestionGroup> aSuggestions)
     {
@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.scheduling;
 
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -36,8 +37,17 @@ public class InspectableThreadPoolExecutor
                                          BiConsumer<Thread, Runnable> aBeforeExecuteCallback,
                                          BiConsumer<Runnable, Throwable> aAfterExecuteCallback)
     {
-        super(aNumberOfThreads, aNumberOfThreads, 0L, TimeUnit.MILLISECONDS,
-                new ArrayBlockingQueue<>(queueSize, true), buildThreadFactory());
+        this(aNumberOfThreads, new ArrayBlockingQueue<>(queueSize, true), aBeforeExecuteCallback,
+                aAfterExecuteCallback);
+    }
+
+    public InspectableThreadPoolExecutor(int aNumberOfThreads,
+                                         BlockingQueue<Runnable> aQueue,
+                                         BiConsumer<Thread, Runnable> aBeforeExecuteCallback,
+                                         BiConsumer<Runnable, Throwable> aAfterExecuteCallback)
+    {
+        super(aNumberOfThreads, aNumberOfThreads, 0L, TimeUnit.MILLISECONDS, aQueue,
+                buildThreadFactory());
 
         beforeExecuteCallback = aBeforeExecuteCallback;
         afterExecuteCallback = aAfterExecuteCallback;
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in milliseconds using fixed, exponentially growing buckets.
+ */
+public class LatencyHistogram
+{
+    /**
+     * Inclusive upper bounds of the buckets in milliseconds. An additional last bucket takes all
+     * values above the last bound.
+     */
+    private static final long[] BUCKET_BOUNDS = { 10, 100, 1_000, 10_000, 60_000, 600_000 };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    public void record(long aMillis)
+    {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && aMillis > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        total.add(aMillis);
+        max.accumulate(aMillis);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getTotal()
+    {
+        return total.sum();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public long getMean()
+    {
+        long n = getCount();
+        return n > 0 ? getTotal() / n : 0;
+    }
+
+    /**
+     * @param aPercentile
+     *            a percentile between 0 and 1.
+     * @return the upper bound of the bucket containing the given percentile. If the percentile
+     *         falls into the last (unbounded) bucket, the maximum recorded value is returned.
+     */
+    public long getPercentile(double aPercentile)
+    {
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(aPercentile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], getMax());
+            }
+        }
+
+        return getMax();
+    }
+}
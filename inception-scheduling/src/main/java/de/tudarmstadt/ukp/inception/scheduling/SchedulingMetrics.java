@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics collected by the {@link SchedulingService}. Queue and run times are tracked per task
+ * type (i.e. the simple class name of the task).
+ */
+public class SchedulingMetrics
+{
+    private final Map<String, TaskTypeMetrics> taskTypes = new ConcurrentHashMap<>();
+
+    private final LongAdder enqueuedTasks = new LongAdder();
+    private final LongAdder supersededTasks = new LongAdder();
+    private final LongAdder droppedTasks = new LongAdder();
+    private final LongAdder removedTasks = new LongAdder();
+    private final LongAdder interruptedTasks = new LongAdder();
+    private final LongAdder failedTasks = new LongAdder();
+
+    void taskEnqueued()
+    {
+        enqueuedTasks.increment();
+    }
+
+    void taskSuperseded()
+    {
+        supersededTasks.increment();
+    }
+
+    void taskDropped()
+    {
+        droppedTasks.increment();
+    }
+
+    void taskRemoved()
+    {
+        removedTasks.increment();
+    }
+
+    void taskInterrupted()
+    {
+        interruptedTasks.increment();
+    }
+
+    void taskStarted(Task aTask, long aQueueTime)
+    {
+        getTaskTypeMetrics(aTask.getName()).queueTime.record(aQueueTime);
+    }
+
+    void taskFinished(Task aTask, long aRunTime, Throwable aThrowable)
+    {
+        getTaskTypeMetrics(aTask.getName()).runTime.record(aRunTime);
+
+        if (aThrowable != null) {
+            failedTasks.increment();
+        }
+    }
+
+    /**
+     * @return the names of all task types for which statistics have been recorded, in
+     *         alphabetical order.
+     */
+    public List<String> getTaskTypes()
+    {
+        List<String> result = new ArrayList<>(taskTypes.keySet());
+        Collections.sort(result);
+        return result;
+    }
+
+    public TaskTypeMetrics getTaskTypeMetrics(String aTaskType)
+    {
+        return taskTypes.computeIfAbsent(aTaskType, _key -> new TaskTypeMetrics());
+    }
+
+    public long getEnqueuedTasks()
+    {
+        return enqueuedTasks.sum();
+    }
+
+    /**
+     * @return the number of queued tasks which have been replaced by a newer equivalent task.
+     */
+    public long getSupersededTasks()
+    {
+        return supersededTasks.sum();
+    }
+
+    /**
+     * @return the number of tasks which have been dropped or refused because the queue was full.
+     */
+    public long getDroppedTasks()
+    {
+        return droppedTasks.sum();
+    }
+
+    /**
+     * @return the number of queued tasks which have been removed before they could run.
+     */
+    public long getRemovedTasks()
+    {
+        return removedTasks.sum();
+    }
+
+    public long getInterruptedTasks()
+    {
+        return interruptedTasks.sum();
+    }
+
+    public long getFailedTasks()
+    {
+        return failedTasks.sum();
+    }
+
+    public static class TaskTypeMetrics
+    {
+        private final LatencyHistogram queueTime = new LatencyHistogram();
+        private final LatencyHistogram runTime = new LatencyHistogram();
+
+        /**
+         * @return the time in milliseconds tasks of this type spent in the queue.
+         */
+        public LatencyHistogram getQueueTime()
+        {
+            return queueTime;
+        }
+
+        /**
+         * @return the time in milliseconds tasks of this type spent running.
+         */
+        public LatencyHistogram getRunTime()
+        {
+            return runTime;
+        }
+    }
+}
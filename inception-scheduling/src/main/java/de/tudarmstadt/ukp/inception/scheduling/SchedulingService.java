@@ -17,10 +17,23 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,53 +41,110 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingMetrics.TaskTypeMetrics;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
 
 @Component
+@ManagedResource(description = "Scheduler for background tasks")
 public class SchedulingService
         implements DisposableBean
 {
     private static final Logger log = LoggerFactory.getLogger(SchedulingService.class);
 
+    /**
+     * Tasks with a higher priority go first - within the same priority, older tasks go first.
+     */
+    private static final Comparator<Runnable> TASK_ORDER = Comparator
+            .comparing((Runnable r) -> ((Task) r).getPriority())
+            .thenComparingInt(r -> ((Task) r).getId());
+
     private final ApplicationContext applicationContext;
+    private final SchedulingProperties config;
     private final ThreadPoolExecutor executor;
+    private final SchedulingMetrics metrics;
+
+    /**
+     * The latest task enqueued for each user/project/task type which has not been started yet.
+     * Tasks are {@link Task#equals equal} if they have the same type, user and project, so this
+     * map allows finding the queued task which is superseded by a new task in constant time. Tasks
+     * in the executor queue which are not (identically) contained in this map have been superseded
+     * and are skipped by the queue.
+     */
+    private final Map<Task, Task> pendingTasks;
 
-    private final List<Task> runningTasks;
+    /**
+     * The running tasks and the threads they are running on. Since running tasks may be equal to
+     * each other (e.g. a task and the task which superseded it while it was already running), this
+     * is an identity map.
+     */
+    private final Map<Task, Thread> runningTasks;
 
     @Autowired
     public SchedulingService(ApplicationContext aApplicationContext, SchedulingProperties aConfig)
     {
         applicationContext = aApplicationContext;
-        executor = new InspectableThreadPoolExecutor(
-                aConfig.getNumberOfThreads(), aConfig.getQueueSize(),
-                this::beforeExecute, this::afterExecute);
-        runningTasks = Collections.synchronizedList(new ArrayList<>());
+        config = aConfig;
+        metrics = new SchedulingMetrics();
+        pendingTasks = new ConcurrentHashMap<>();
+        runningTasks = Collections.synchronizedMap(new IdentityHashMap<>());
+        executor = new InspectableThreadPoolExecutor(aConfig.getNumberOfThreads(),
+                new TaskQueue(this::isPending), this::beforeExecute, this::afterExecute);
     }
 
     private void beforeExecute(Thread aThread, Runnable aRunnable)
     {
-        runningTasks.add((Task) aRunnable);
+        Task task = (Task) aRunnable;
+        runningTasks.put(task, aThread);
+
+        task.setStartTime(System.currentTimeMillis());
+        metrics.taskStarted(task, task.getStartTime() - task.getEnqueueTime());
+
+        // If the task has been superseded while being started, the superseding task must remain
+        // pending
+        pendingTasks.computeIfPresent(task, (_key, pending) -> pending == task ? null : pending);
     }
 
     private void afterExecute(Runnable aRunnable, Throwable aThrowable)
     {
-        runningTasks.remove(aRunnable);
+        Task task = (Task) aRunnable;
+        runningTasks.remove(task);
+
+        metrics.taskFinished(task, System.currentTimeMillis() - task.getStartTime(), aThrowable);
     }
 
+    private boolean isPending(Runnable aRunnable)
+    {
+        return pendingTasks.get(aRunnable) == aRunnable;
+    }
+
+    private boolean isWorkerThread()
+    {
+        return runningTasks.containsValue(Thread.currentThread());
+    }
+
+    /**
+     * @return the queued tasks in the order in which they are going to be run.
+     */
     public List<Task> getScheduledTasks()
     {
-        List<Task> result = new ArrayList<>();
-        executor.getQueue().forEach(r -> result.add((Task) r));
-        return result;
+        return executor.getQueue().stream()
+                .filter(this::isPending)
+                .sorted(TASK_ORDER)
+                .map(r -> (Task) r)
+                .collect(toList());
     }
 
     public List<Task> getRunningTasks()
     {
         // We return copy here, as else the list the receiver sees might be updated
         // when new tasks are running or existing ones stopped.
-        return new ArrayList<>(runningTasks);
+        synchronized (runningTasks) {
+            return new ArrayList<>(runningTasks.keySet());
+        }
     }
 
     public List<Task> getScheduledAndRunningTasks()
@@ -85,34 +155,185 @@ public class SchedulingService
         return result;
     }
 
-    public synchronized void enqueue(Task aTask)
+    /**
+     * Enqueues the given task. If an equal task (same type, user and project) is still waiting in
+     * the queue, the new task supersedes it. Otherwise, if the queue is full, the queued task with
+     * the lowest priority is dropped in favor of the new task if the new task has a higher
+     * priority. If there is no such task, the new task is refused. This method never blocks since
+     * it is called from request threads. Tasks enqueued from within a running task are never
+     * refused, because follow-up tasks (e.g. the training scheduled after the recommender
+     * selection) would otherwise get lost.
+     * 
+     * @param aTask
+     *            the task to enqueue.
+     * @return whether the task has been enqueued - {@code false} if it has been refused because
+     *         the queue is full.
+     */
+    public boolean enqueue(Task aTask)
     {
-        if (getScheduledTasks().contains(aTask)) {
-            log.debug("Task already in queue: {}", aTask);
-            return;
-        }
-
-        log.debug("Enqueuing task [{}]", aTask);
-
         // This autowires the task fields manually.
         AutowireCapableBeanFactory factory = applicationContext.getAutowireCapableBeanFactory();
         factory.autowireBean(aTask);
         factory.initializeBean(aTask, "transientTask");
 
-        executor.execute(aTask);
+        synchronized (this) {
+            if (!pendingTasks.containsKey(aTask) && pendingTasks.size() >= config.getQueueSize()
+                    && !isWorkerThread()) {
+                Task victim = pendingTasks.values().stream().max(TASK_ORDER).orElse(null);
+                if (victim == null || victim.getPriority().compareTo(aTask.getPriority()) <= 0) {
+                    log.warn("Queue is full - refusing task [{}]", aTask);
+                    metrics.taskDropped();
+                    return false;
+                }
+                
+                log.warn("Queue is full - dropping queued task [{}] in favor of task [{}]",
+                        victim, aTask);
+                pendingTasks.remove(victim, victim);
+                removeFromQueue(victim);
+                metrics.taskDropped();
+            }
+
+            // The task must be pending before it is handed to the executor, otherwise the queue
+            // would consider it as superseded.
+            aTask.setEnqueueTime(System.currentTimeMillis());
+            metrics.taskEnqueued();
+            Task superseded = pendingTasks.put(aTask, aTask);
+            if (superseded != null) {
+                log.debug("Task [{}] supersedes queued task [{}]", aTask, superseded);
+                metrics.taskSuperseded();
+                removeFromQueue(superseded);
+            }
+            else {
+                log.debug("Enqueuing task [{}]", aTask);
+            }
+
+            executor.execute(aTask);
+            return true;
+        }
+    }
+    
+    /**
+     * Removes the given task from the executor queue. Since tasks which are waiting in the queue
+     * may be equal to each other, the task is looked up by identity.
+     */
+    private void removeFromQueue(Task aTask)
+    {
+        executor.getQueue().removeIf(r -> r == aTask);
     }
 
     /**
-     * Removes all task for the user with name {@code aUsername} from the scheduler's queue.
+     * Removes all task for the user with name {@code aUsername} from the scheduler's queue and
+     * interrupts the running tasks of the user.
+     * 
      * @param aUserName The name of the user whose tasks will be removed.
      */
     public synchronized void stopAllTasksForUser(String aUserName)
     {
-        // TODO: Stop the running tasks also
-        executor.getQueue().removeIf(e -> {
-            Task task = (Task) e;
-            return task.getUser().getUsername().equals(aUserName);
+        Predicate<Task> isUserTask = task -> task.getUser().getUsername().equals(aUserName);
+
+        pendingTasks.values().removeIf(task -> {
+            if (isUserTask.test(task)) {
+                metrics.taskRemoved();
+                return true;
+            }
+            return false;
         });
+        executor.getQueue().removeIf(r -> isUserTask.test((Task) r));
+
+        // A task is removed from the running tasks before its thread picks up the next task, so
+        // holding the lock makes sure we only interrupt threads which still run a task of the user
+        synchronized (runningTasks) {
+            runningTasks.forEach((task, thread) -> {
+                if (isUserTask.test(task)) {
+                    log.debug("Interrupting running task [{}]", task);
+                    thread.interrupt();
+                    metrics.taskInterrupted();
+                }
+            });
+        }
+    }
+
+    public SchedulingMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    @ManagedAttribute(description = "Number of tasks waiting in the queue")
+    public int getQueueDepth()
+    {
+        return pendingTasks.size();
+    }
+
+    @ManagedAttribute(description = "Number of running tasks")
+    public int getRunningTaskCount()
+    {
+        return runningTasks.size();
+    }
+
+    @ManagedAttribute(description = "Number of threads running tasks")
+    public int getNumberOfThreads()
+    {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return the number of tasks waiting in the queue per user.
+     */
+    @ManagedAttribute(description = "Number of tasks waiting in the queue per user")
+    public Map<String, Long> getQueueDepthPerUser()
+    {
+        return pendingTasks.values().stream()
+                .collect(groupingBy(task -> task.getUser().getUsername(), TreeMap::new,
+                        counting()));
+    }
+
+    @ManagedAttribute(description = "Number of enqueued tasks")
+    public long getEnqueuedTaskCount()
+    {
+        return metrics.getEnqueuedTasks();
+    }
+
+    @ManagedAttribute(description = "Number of queued tasks superseded by a newer task")
+    public long getSupersededTaskCount()
+    {
+        return metrics.getSupersededTasks();
+    }
+
+    @ManagedAttribute(description = "Number of tasks dropped or refused because the queue was full")
+    public long getDroppedTaskCount()
+    {
+        return metrics.getDroppedTasks();
+    }
+
+    @ManagedAttribute(description = "Number of tasks which failed with an exception")
+    public long getFailedTaskCount()
+    {
+        return metrics.getFailedTasks();
+    }
+
+    /**
+     * @return queue and run time statistics per task type in milliseconds, e.g.
+     *         {@code PredictionTask.runTime.p95}.
+     */
+    @ManagedAttribute(description = "Queue and run time statistics per task type (ms)")
+    public Map<String, Long> getTaskTimings()
+    {
+        Map<String, Long> result = new TreeMap<>();
+        for (String type : metrics.getTaskTypes()) {
+            TaskTypeMetrics typeMetrics = metrics.getTaskTypeMetrics(type);
+            addTimings(result, type + ".queueTime", typeMetrics.getQueueTime());
+            addTimings(result, type + ".runTime", typeMetrics.getRunTime());
+        }
+        return result;
+    }
+
+    private void addTimings(Map<String, Long> aResult, String aPrefix,
+            LatencyHistogram aHistogram)
+    {
+        aResult.put(aPrefix + ".count", aHistogram.getCount());
+        aResult.put(aPrefix + ".mean", aHistogram.getMean());
+        aResult.put(aPrefix + ".p95", aHistogram.getPercentile(0.95));
+        aResult.put(aPrefix + ".max", aHistogram.getMax());
     }
 
     @Override
@@ -122,5 +343,56 @@ public class SchedulingService
         executor.shutdownNow();
     }
 
+    /**
+     * Priority queue which skips tasks which are no longer pending. Superseded tasks are removed
+     * from the queue, but a task may be superseded while a worker is already taking it from the
+     * queue.
+     */
+    private static class TaskQueue
+        extends PriorityBlockingQueue<Runnable>
+    {
+        private static final long serialVersionUID = -4471836453530402719L;
+
+        private final transient Predicate<Runnable> isPending;
 
+        public TaskQueue(Predicate<Runnable> aIsPending)
+        {
+            super(11, TASK_ORDER);
+            isPending = aIsPending;
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException
+        {
+            while (true) {
+                Runnable task = super.take();
+                if (isPending.test(task)) {
+                    return task;
+                }
+            }
+        }
+
+        @Override
+        public Runnable poll(long aTimeout, TimeUnit aUnit) throws InterruptedException
+        {
+            long deadline = System.nanoTime() + aUnit.toNanos(aTimeout);
+            while (true) {
+                Runnable task = super.poll(deadline - System.nanoTime(), NANOSECONDS);
+                if (task == null || isPending.test(task)) {
+                    return task;
+                }
+            }
+        }
+
+        @Override
+        public Runnable poll()
+        {
+            while (true) {
+                Runnable task = super.poll();
+                if (task == null || isPending.test(task)) {
+                    return task;
+                }
+            }
+        }
+    }
 }
@@ -34,6 +34,10 @@ public abstract class Task
     private final Project project;
     private final String trigger;
     private final int id;
+    
+    // Set by the scheduler to measure how long the task was queued and running
+    private volatile long enqueueTime;
+    private volatile long startTime;
 
     public Task(User aUser, Project aProject, String aTrigger)
     {
@@ -72,6 +76,37 @@ public abstract class Task
         return id;
     }
 
+    /**
+     * Queued tasks with a higher priority are run before queued tasks with a lower priority. Tasks
+     * of the same priority are run in the order in which they were created.
+     * 
+     * @return the priority of the task.
+     */
+    public TaskPriority getPriority()
+    {
+        return TaskPriority.NORMAL;
+    }
+
+    long getEnqueueTime()
+    {
+        return enqueueTime;
+    }
+
+    void setEnqueueTime(long aEnqueueTime)
+    {
+        enqueueTime = aEnqueueTime;
+    }
+
+    long getStartTime()
+    {
+        return startTime;
+    }
+
+    void setStartTime(long aStartTime)
+    {
+        startTime = aStartTime;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(getName());
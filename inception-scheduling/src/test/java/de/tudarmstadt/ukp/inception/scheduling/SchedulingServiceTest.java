@@ -115,6 +115,119 @@ public class SchedulingServiceTest {
                 .doesNotContain(tasksToRemove);
     }
 
+    @Test
+    public void thatRunningTasksForUserAreInterrupted()
+    {
+        Task task1 = buildDummyTask("testUser", "project1");
+        Task task2 = buildDummyTask("otherUser", "project1");
+        sut.enqueue(task1);
+        sut.enqueue(task2);
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 2);
+
+        sut.stopAllTasksForUser("testUser");
+
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 1);
+        assertThat(sut.getRunningTasks()).containsExactly(task2);
+    }
+
+    @Test
+    public void thatQueuedTaskIsSupersededByNewerTask()
+    {
+        useSingleThread();
+
+        User user = buildUser("testUser");
+        Project project = buildProject("project1");
+        Task olderTask = new DummyTask(user, project);
+        Task newerTask = new DummyTask(user, project);
+        sut.enqueue(olderTask);
+        sut.enqueue(newerTask);
+
+        assertThat(sut.getScheduledTasks()).hasSize(1);
+        assertThat(sut.getScheduledTasks().get(0)).isSameAs(newerTask);
+        assertThat(sut.getMetrics().getSupersededTasks()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatTasksAreScheduledByPriority()
+    {
+        useSingleThread();
+
+        Task low = new DummyTask(buildUser("user1"), buildProject("project1"), TaskPriority.LOW);
+        Task normal = new DummyTask(buildUser("user2"), buildProject("project1"),
+                TaskPriority.NORMAL);
+        Task high = new DummyTask(buildUser("user3"), buildProject("project1"),
+                TaskPriority.HIGH);
+        sut.enqueue(low);
+        sut.enqueue(normal);
+        sut.enqueue(high);
+
+        assertThat(sut.getScheduledTasks()).containsExactly(high, normal, low);
+    }
+
+    @Test
+    public void thatTasksAreRefusedWithoutBlockingWhenQueueIsFull()
+    {
+        useSingleThread(2);
+
+        Task task1 = buildDummyTask("user1", "project1");
+        Task task2 = buildDummyTask("user2", "project1");
+        Task task3 = buildDummyTask("user3", "project1");
+        Task task4 = buildDummyTask("user1", "project1");
+        assertThat(sut.enqueue(task1)).isTrue();
+        assertThat(sut.enqueue(task2)).isTrue();
+
+        long start = System.currentTimeMillis();
+        assertThat(sut.enqueue(task3)).isFalse();
+        // An equal task supersedes the queued one even if the queue is full
+        assertThat(sut.enqueue(task4)).isTrue();
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+        assertThat(sut.getScheduledTasks()).containsExactlyInAnyOrder(task2, task4);
+        assertThat(sut.getDroppedTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void thatLowerPriorityTaskIsDroppedForHigherPriorityTaskWhenQueueIsFull()
+    {
+        useSingleThread(2);
+
+        Task low = new DummyTask(buildUser("user1"), buildProject("project1"), TaskPriority.LOW);
+        Task normal = new DummyTask(buildUser("user2"), buildProject("project1"),
+                TaskPriority.NORMAL);
+        Task high = new DummyTask(buildUser("user3"), buildProject("project1"),
+                TaskPriority.HIGH);
+        sut.enqueue(low);
+        sut.enqueue(normal);
+
+        assertThat(sut.enqueue(high)).isTrue();
+
+        assertThat(sut.getScheduledTasks()).containsExactly(high, normal);
+        assertThat(sut.getDroppedTaskCount()).isEqualTo(1);
+    }
+
+    /**
+     * Replaces the service under test with one that has a single thread and occupies that thread
+     * with a blocking task, such that all tasks enqueued afterwards remain in the queue.
+     */
+    private void useSingleThread()
+    {
+        useSingleThread(new SchedulingProperties().getQueueSize());
+    }
+
+    private void useSingleThread(int aQueueSize)
+    {
+        sut.destroy();
+
+        SchedulingProperties properties = new SchedulingProperties();
+        properties.setNumberOfThreads(1);
+        properties.setQueueSize(aQueueSize);
+        sut = new SchedulingService(mockContext, properties);
+
+        sut.enqueue(buildDummyTask("blockingUser", "blockingProject"));
+        await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().size() == 1);
+    }
+
     private User buildUser(String aUsername)
     {
         return new User(aUsername);
@@ -138,9 +251,23 @@ public class SchedulingServiceTest {
      */
     private static class DummyTask extends Task
     {
+        private final TaskPriority priority;
+
         DummyTask(User aUser, Project aProject)
+        {
+            this(aUser, aProject, TaskPriority.NORMAL);
+        }
+
+        DummyTask(User aUser, Project aProject, TaskPriority aPriority)
         {
             super(aUser, aProject, "JUnit");
+            priority = aPriority;
+        }
+
+        @Override
+        public TaskPriority getPriority()
+        {
+            return priority;
         }
 
         @Override
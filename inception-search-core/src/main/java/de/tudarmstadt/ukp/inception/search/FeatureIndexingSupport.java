@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.search;
 
+import java.util.Collection;
+
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.springframework.beans.factory.BeanNameAware;
@@ -51,6 +53,24 @@ public interface FeatureIndexingSupport
     MultiValuedMap<String, String> indexFeatureValue(String aFieldPrefix,
             AnnotationFS aAnnotation, String aFeaturePrefix, AnnotationFeature aFeature);
 
+    /**
+     * Called before the values of the given feature are indexed for the given annotations.
+     * Implementations which need to look up additional information for the feature values, e.g.
+     * from a knowledge base, can use this to look up the information for all annotations at once
+     * instead of separately for every annotation in
+     * {@link #indexFeatureValue(String, AnnotationFS, String, AnnotationFeature)}.
+     * 
+     * @param aFeature
+     *            the feature whose values are going to be indexed.
+     * @param aAnnotations
+     *            the annotations which are going to be indexed.
+     */
+    default void prefetchFeatureValues(AnnotationFeature aFeature,
+            Collection<AnnotationFS> aAnnotations)
+    {
+        // Nothing to do by default
+    }
+
     /**
      * Get the name of the feature how it is used in the index
      */
@@ -35,6 +35,9 @@ public class SearchQueryRequest
 
     private final AnnotationLayer annoationLayer;
     private final AnnotationFeature annotationFeature;
+    
+    private final long offset;
+    private final long count;
 
     public SearchQueryRequest(Project aProject, User aUser, String aQuery)
     {
@@ -50,6 +53,20 @@ public class SearchQueryRequest
     public SearchQueryRequest(Project aProject, User aUser, String aQuery,
         SourceDocument aLimitedToDocument, AnnotationLayer aAnnotationLayer,
         AnnotationFeature aAnnotationFeature)
+    {
+        this(aProject, aUser, aQuery, aLimitedToDocument, aAnnotationLayer, aAnnotationFeature, 0,
+                Long.MAX_VALUE);
+    }
+
+    /**
+     * @param aOffset
+     *            number of matches to skip.
+     * @param aCount
+     *            maximum number of matches to return.
+     */
+    public SearchQueryRequest(Project aProject, User aUser, String aQuery,
+        SourceDocument aLimitedToDocument, AnnotationLayer aAnnotationLayer,
+        AnnotationFeature aAnnotationFeature, long aOffset, long aCount)
     {
         super();
         project = aProject;
@@ -58,6 +75,8 @@ public class SearchQueryRequest
         limitedToDocument = aLimitedToDocument;
         annoationLayer = aAnnotationLayer;
         annotationFeature = aAnnotationFeature;
+        offset = aOffset;
+        count = aCount;
     }
 
     public Project getProject()
@@ -89,4 +108,14 @@ public class SearchQueryRequest
     {
         return annotationFeature;
     }
+
+    public long getOffset()
+    {
+        return offset;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
 }
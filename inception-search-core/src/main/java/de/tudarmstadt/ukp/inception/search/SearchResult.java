@@ -43,6 +43,28 @@ public class SearchResult
     // only used in the ui to simplify the selection of search results for annotation
     private boolean isSelectedForAnnotation = true;
 
+    public SearchResult()
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Creates a copy of the given search result.
+     */
+    public SearchResult(SearchResult aOther)
+    {
+        tokenStart = aOther.tokenStart;
+        tokenLength = aOther.tokenLength;
+        offsetStart = aOther.offsetStart;
+        offsetEnd = aOther.offsetEnd;
+        text = aOther.text;
+        leftContext = aOther.leftContext;
+        rightContext = aOther.rightContext;
+        documentId = aOther.documentId;
+        documentTitle = aOther.documentTitle;
+        isSelectedForAnnotation = aOther.isSelectedForAnnotation;
+    }
+
     public int getTokenStart()
     {
         return tokenStart;
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+/**
+ * Cache of recent query results and result counts. The size of the cache is bounded by the total
+ * number of search results it holds (each result count counts as a single result), so a few broad
+ * queries cannot pin arbitrary amounts of memory. Results of queries which alone exceed that bound
+ * are not cached at all.
+ */
+public class SearchResultCache
+{
+    private final long maximumWeight;
+    private final Cache<Key, Object> cache;
+
+    /**
+     * @param aMaximumWeight
+     *            maximum number of search results kept in the cache.
+     */
+    public SearchResultCache(long aMaximumWeight)
+    {
+        maximumWeight = aMaximumWeight;
+        cache = Caffeine.newBuilder()
+                .maximumWeight(aMaximumWeight)
+                .weigher((Key key, Object value) -> (int) Math.min(weigh(value),
+                        Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, List<SearchResult>> getResults(Key aKey)
+    {
+        return (Map<String, List<SearchResult>>) cache.getIfPresent(aKey);
+    }
+
+    public void putResults(Key aKey, Map<String, List<SearchResult>> aResults)
+    {
+        put(aKey, aResults);
+    }
+
+    public Long getCount(Key aKey)
+    {
+        return (Long) cache.getIfPresent(aKey);
+    }
+
+    public void putCount(Key aKey, long aCount)
+    {
+        put(aKey, aCount);
+    }
+
+    private void put(Key aKey, Object aValue)
+    {
+        if (weigh(aValue) <= maximumWeight) {
+            cache.put(aKey, aValue);
+        }
+    }
+
+    /**
+     * Drops all cached results of the given project.
+     */
+    public void invalidate(Project aProject)
+    {
+        long projectId = aProject.getId();
+        cache.asMap().keySet().removeIf(key -> key.projectId == projectId);
+    }
+
+    /**
+     * Drops all cached results of the given user in the given project.
+     */
+    public void invalidate(Project aProject, String aUsername)
+    {
+        long projectId = aProject.getId();
+        cache.asMap().keySet().removeIf(
+            key -> key.projectId == projectId && Objects.equals(key.username, aUsername));
+    }
+
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+
+    public long estimatedSize()
+    {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Forces pending maintenance work such as evictions to be performed.
+     */
+    void cleanUp()
+    {
+        cache.cleanUp();
+    }
+
+    private static long weigh(Object aValue)
+    {
+        if (!(aValue instanceof Map)) {
+            return 1;
+        }
+
+        long weight = 1;
+        for (Object group : ((Map<?, ?>) aValue).values()) {
+            weight += ((List<?>) group).size();
+        }
+        return weight;
+    }
+
+    /**
+     * Identifies the results of a query. Since the generation of the index is part of the key,
+     * results obtained before the index has changed are never used again and age out of the
+     * cache.
+     */
+    public static final class Key
+    {
+        private final long projectId;
+        private final String username;
+        private final String query;
+        private final Long documentId;
+        private final Long layerId;
+        private final Long featureId;
+        private final long offset;
+        private final long count;
+        private final boolean countOnly;
+        private final long generation;
+
+        public Key(User aUser, Project aProject, String aQuery, SourceDocument aDocument,
+                AnnotationLayer aLayer, AnnotationFeature aFeature, long aOffset, long aCount,
+                boolean aCountOnly, long aGeneration)
+        {
+            projectId = aProject.getId();
+            username = aUser.getUsername();
+            // Queries differing only in whitespace yield the same results
+            query = aQuery.trim().replaceAll("\\s+", " ");
+            documentId = aDocument != null ? aDocument.getId() : null;
+            layerId = aLayer != null ? aLayer.getId() : null;
+            featureId = aFeature != null ? aFeature.getId() : null;
+            offset = aOffset;
+            count = aCount;
+            countOnly = aCountOnly;
+            generation = aGeneration;
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+            if (!(aOther instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) aOther;
+            return projectId == other.projectId && offset == other.offset
+                    && count == other.count && countOnly == other.countOnly
+                    && generation == other.generation && username.equals(other.username)
+                    && query.equals(other.query) && Objects.equals(documentId, other.documentId)
+                    && Objects.equals(layerId, other.layerId)
+                    && Objects.equals(featureId, other.featureId);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(projectId, username, query, documentId, layerId, featureId,
+                    offset, count, countOnly, generation);
+        }
+    }
+}
@@ -63,8 +63,39 @@ public interface SearchService
         SourceDocument aDocument, AnnotationLayer aAnnotationLayer,
         AnnotationFeature aAnnotationFeature) throws IOException, ExecutionException;
 
+    /**
+     * Like {@link #query(User, Project, String, SourceDocument, AnnotationLayer,
+     * AnnotationFeature)}, but only returns a page of the matches. The context of a match is only
+     * retrieved if the match is part of the page.
+     * 
+     * @param aOffset
+     *            number of matches to skip.
+     * @param aCount
+     *            maximum number of matches to return.
+     */
+    Map<String, List<SearchResult>> query(User aUser, Project aProject, String aQuery,
+        SourceDocument aDocument, AnnotationLayer aAnnotationLayer,
+        AnnotationFeature aAnnotationFeature, long aOffset, long aCount)
+        throws IOException, ExecutionException;
+
+    /**
+     * Counts the matches of the query without retrieving them.
+     * 
+     * @param aDocument
+     *            limit search to this document or search in the whole project if null
+     */
+    long determineNumOfQueryResults(User aUser, Project aProject, String aQuery,
+        SourceDocument aDocument) throws IOException, ExecutionException;
+
     void reindex(Project aproject) throws IOException;
 
+    /**
+     * Updates the index of the project after its layer configuration has changed. Only the
+     * documents affected by the change are re-indexed. If that is not possible, the whole index
+     * is rebuilt.
+     */
+    void reindexChangedLayers(Project aProject) throws IOException;
+
     Index getIndex(Project aProject);
 
     boolean isIndexValid(Project aProject);
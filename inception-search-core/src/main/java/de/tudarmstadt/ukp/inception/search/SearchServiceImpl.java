@@ -19,10 +19,10 @@ package de.tudarmstadt.ukp.inception.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -34,6 +34,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.event.TransactionalEventListener;
@@ -52,6 +54,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.search.config.SearchProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactory;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
@@ -60,6 +63,7 @@ import de.tudarmstadt.ukp.inception.search.scheduling.IndexScheduler;
 
 @Component(SearchService.SERVICE_NAME)
 @Transactional
+@ManagedResource(description = "Annotation search service")
 public class SearchServiceImpl
     implements SearchService
 {
@@ -81,13 +85,17 @@ public class SearchServiceImpl
     // The indexes for each project
     private static Map<Long, Index> indexes;
 
+    // Recent query results - entries are only valid for the index generation they were obtained at
+    private final SearchResultCache queryCache;
+
     @Value(value = "${repository.path}")
     private String dir;
 
     @Autowired
-    public SearchServiceImpl()
+    public SearchServiceImpl(SearchProperties aProperties)
     {
-        indexes = new HashMap<>();
+        indexes = new ConcurrentHashMap<>();
+        queryCache = new SearchResultCache(aProperties.getQueryCacheSize());
     }
 
     /** 
@@ -95,7 +103,7 @@ public class SearchServiceImpl
      * @param aProject The project
      * @return The index
      */
-    private Index getIndexFromMemory(Project aProject)
+    private synchronized Index getIndexFromMemory(Project aProject)
     {
         // Search index entry in the memory map
         if (!indexes.containsKey(aProject.getId())) {
@@ -159,6 +167,9 @@ public class SearchServiceImpl
         // Remove the index entry from the memory map
         indexes.remove(project.getId());
         
+        // Drop cached query results of the project
+        queryCache.invalidate(project);
+        
         // Delete the index entry from the DB
         deleteIndexByProject(project);
     }
@@ -238,11 +249,7 @@ public class SearchServiceImpl
         }
             
         try {
-            // Remove source document from index.
-            log.trace("Remove source document from index");
-            index.getPhysicalIndex().deindexDocument(aSourceDocument);
-
-            // Add annotation document to the index again
+            // Add source document to the index - this replaces any previously indexed version
             log.trace("Add source document to index");
             index.getPhysicalIndex().indexDocument(aSourceDocument, aJCas);
         }
@@ -268,27 +275,13 @@ public class SearchServiceImpl
 
         if (canAddDocumentToIndex(index)) {
             try {
-                // Retrieve the timestamp for the current indexed annotation document
-                Optional<String> timestamp = index.getPhysicalIndex()
-                        .getTimestamp(aAnnotationDocument);
-                
-                // Add annotation document to the index again
+                // Add annotation document to the index again - this replaces the previously 
+                // indexed version in a single delete-then-add step
                 log.debug("Add to the index: annotation document [{}]({}) in project [{}]({})",
                         aAnnotationDocument.getName(), aAnnotationDocument.getId(),
                         aAnnotationDocument.getProject().getName(),
                         aAnnotationDocument.getProject().getId());
                 index.getPhysicalIndex().indexDocument(aAnnotationDocument, aCas);
-                
-                // If there was a previous timestamped indexed annotation document, remove it from 
-                // index
-                if (timestamp.isPresent()) {
-                    log.debug("Remove from the index previous annotation document [{}]({}) "
-                            + "in project [{}]({}) based on last timestamp {}",
-                            aAnnotationDocument.getName(), aAnnotationDocument.getId(),
-                            aAnnotationDocument.getProject().getName(),
-                            aAnnotationDocument.getProject().getId(), timestamp);
-                    index.getPhysicalIndex().deindexDocument(aAnnotationDocument, timestamp.get());
-                }
 
                 log.debug("Finished indexing annotation document [{}]({}) in project [{}]({})",
                         aAnnotationDocument.getName(), aAnnotationDocument.getId(),
@@ -310,6 +303,12 @@ public class SearchServiceImpl
     {
         log.trace("Starting afterAnnotationUpdate");
 
+        // Cached query results of the user are outdated by the change. They would not be used
+        // anymore once the document has been re-indexed anyway, but until then they must not be
+        // served either.
+        AnnotationDocument document = aEvent.getDocument();
+        queryCache.invalidate(document.getProject(), document.getUser());
+
         // Schedule new document index process
         indexScheduler.enqueueIndexDocument(aEvent.getDocument(), aEvent.getCas());
     }
@@ -339,12 +338,96 @@ public class SearchServiceImpl
     public Map<String, List<SearchResult>> query(User aUser,
         Project aProject, String aQuery, SourceDocument aDocument, AnnotationLayer aAnnotationLayer,
         AnnotationFeature aAnnotationFeature) throws IOException, ExecutionException
+    {
+        return query(aUser, aProject, aQuery, aDocument, aAnnotationLayer, aAnnotationFeature, 0,
+                Long.MAX_VALUE);
+    }
+
+    @Override
+    @Transactional
+    public Map<String, List<SearchResult>> query(User aUser, Project aProject, String aQuery,
+        SourceDocument aDocument, AnnotationLayer aAnnotationLayer,
+        AnnotationFeature aAnnotationFeature, long aOffset, long aCount)
+        throws IOException, ExecutionException
     {
         log.debug("Starting query for user [{}] in project [{}]({})", aUser.getUsername(),
                 aProject.getName(), aProject.getId());
 
-        Map<String, List<SearchResult>> results = null;
+        PhysicalIndex physicalIndex = getPhysicalIndexForQuery(aProject);
+
+        // The generation must be obtained before running the query - if the index changes
+        // while the query is running, the result is cached for an outdated generation only
+        SearchResultCache.Key key = new SearchResultCache.Key(aUser, aProject, aQuery, aDocument,
+                aAnnotationLayer, aAnnotationFeature, aOffset, aCount, false,
+                physicalIndex.getGeneration(aUser.getUsername()));
+        
+        Map<String, List<SearchResult>> results = queryCache.getResults(key);
+        if (results == null) {
+            log.debug("Running query: [{}]", aQuery);
 
+            results = physicalIndex.executeQuery(new SearchQueryRequest(aProject, aUser, aQuery,
+                    aDocument, aAnnotationLayer, aAnnotationFeature, aOffset, aCount));
+            queryCache.putResults(key, results);
+        }
+        else {
+            log.debug("Serving cached results of query: [{}]", aQuery);
+        }
+        
+        return copyResults(results);
+    }
+    
+    /**
+     * Copies the given query results. The search results are mutable (e.g. the sidebar marks
+     * which results are selected for annotation), so callers must not receive the cached
+     * instances.
+     */
+    private Map<String, List<SearchResult>> copyResults(Map<String, List<SearchResult>> aResults)
+    {
+        Map<String, List<SearchResult>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<SearchResult>> group : aResults.entrySet()) {
+            List<SearchResult> results = new ArrayList<>(group.getValue().size());
+            for (SearchResult result : group.getValue()) {
+                results.add(new SearchResult(result));
+            }
+            copy.put(group.getKey(), results);
+        }
+        return copy;
+    }
+
+    @Override
+    @Transactional
+    public long determineNumOfQueryResults(User aUser, Project aProject, String aQuery,
+        SourceDocument aDocument) throws IOException, ExecutionException
+    {
+        log.debug("Counting query results for user [{}] in project [{}]({})",
+                aUser.getUsername(), aProject.getName(), aProject.getId());
+
+        PhysicalIndex physicalIndex = getPhysicalIndexForQuery(aProject);
+
+        SearchResultCache.Key key = new SearchResultCache.Key(aUser, aProject, aQuery,
+                aDocument, null, null, 0, Long.MAX_VALUE, true,
+                physicalIndex.getGeneration(aUser.getUsername()));
+        
+        Long count = queryCache.getCount(key);
+        if (count == null) {
+            log.debug("Counting results of query: [{}]", aQuery);
+
+            count = physicalIndex.numberOfQueryResults(
+                    new SearchQueryRequest(aProject, aUser, aQuery, aDocument));
+            queryCache.putCount(key, count);
+        }
+        
+        return count;
+    }
+
+    /**
+     * Returns the physical index of the project to run a query on, opening it if necessary.
+     * 
+     * @throws ExecutionException
+     *             if there is no usable index - a rebuild of the index is scheduled then.
+     */
+    private PhysicalIndex getPhysicalIndexForQuery(Project aProject) throws ExecutionException
+    {
         Index index = getIndexFromMemory(aProject);
 
         if (index.getInvalid()) {
@@ -353,42 +436,36 @@ public class SearchServiceImpl
                 indexScheduler.enqueueReindexTask(aProject);
             }
 
-            // Throw execution exception so that the user knows the query was not run
-            throw (new ExecutionException("Query not executed because index is in invalid state. Try again later."));
-        }
-        else {
-            // Index is valid, try to execute the query
-
             if (!index.getPhysicalIndex().isCreated()) {
-                // Physical index does not exist.
-
-                // Set the invalid flag
-                index.setInvalid(true);
-                updateIndex(index);
-
-                // Schedule new reindexing process
-                indexScheduler.enqueueReindexTask(aProject);
-
                 // Throw execution exception so that the user knows the query was not run
                 throw (new ExecutionException("Query not executed because index is in invalid state. Try again later."));
             }
-            else {
-                // Physical index exists
+            
+            // The existing physical index keeps serving queries until it has been rebuilt
+            log.debug("Index of project [{}]({}) is being rebuilt - querying previous index",
+                    aProject.getName(), aProject.getId());
+        }
+        else if (!index.getPhysicalIndex().isCreated()) {
+            // Physical index does not exist.
 
-                if (!index.getPhysicalIndex().isOpen()) {
-                    // Physical index is not open. Open it.
-                    index.getPhysicalIndex().openPhysicalIndex();
-                }
+            // Set the invalid flag
+            index.setInvalid(true);
+            updateIndex(index);
 
-                log.debug("Running query: [{}]", aQuery);
+            // Schedule new reindexing process
+            indexScheduler.enqueueReindexTask(aProject);
 
-                results = index.getPhysicalIndex().executeQuery(
-                    new SearchQueryRequest(aProject, aUser, aQuery, aDocument,
-                        aAnnotationLayer, aAnnotationFeature));
-            }
+            // Throw execution exception so that the user knows the query was not run
+            throw (new ExecutionException("Query not executed because index is in invalid state. Try again later."));
+        }
 
+        // Physical index exists
+        if (!index.getPhysicalIndex().isOpen()) {
+            // Physical index is not open. Open it.
+            index.getPhysicalIndex().openPhysicalIndex();
         }
-        return results;
+        
+        return index.getPhysicalIndex();
     }
 
     @TransactionalEventListener(fallbackExecution = true)
@@ -409,16 +486,9 @@ public class SearchServiceImpl
     {
         log.trace("Starting beforeLayerConfigurationChanged");
 
-        Project project = aEvent.getProject();
-
-        Index index = getIndexFromMemory(project);
-
-        // Set the invalid flag
-        index.setInvalid(true);
-        updateIndex(index);
-
-        // Schedule reindexing of the physical index
-        indexScheduler.enqueueReindexTask(aEvent.getProject());
+        // Schedule reindexing of the documents affected by the change - the index remains valid
+        // and keeps serving queries meanwhile
+        indexScheduler.enqueueReindexChangedLayersTask(aEvent.getProject());
     }
 
     /** 
@@ -433,15 +503,17 @@ public class SearchServiceImpl
         Index index = getIndexFromMemory(aProject);
 
         if (index.getPhysicalIndex().isCreated()) {
-            // Physical index already exists, drop it
-            log.debug("Physical index already exists. Drop it.");
+            // Physical index already exists, rebuild it - the existing index keeps serving
+            // queries until the rebuilt index replaces it
+            log.debug("Physical index already exists. Rebuild it.");
 
-            index.getPhysicalIndex().dropPhysicalIndex();
+            index.getPhysicalIndex().rebuildPhysicalIndex();
+        }
+        else {
+            // Create physical index and index all project documents
+            log.debug("Create new physical index.");
+            index.getPhysicalIndex().createPhysicalIndex();
         }
-
-        // Create physical index and index all project documents
-        log.debug("Create new physical index.");
-        index.getPhysicalIndex().createPhysicalIndex();
         
         // After reindexing, reset the invalid flag
         log.trace("Set index invalid flag to false.");
@@ -450,6 +522,28 @@ public class SearchServiceImpl
         updateIndex(index);
     }
     
+    @Override
+    @Transactional
+    public void reindexChangedLayers(Project aProject) throws IOException
+    {
+        Index index = getIndexFromMemory(aProject);
+        
+        if (index.getInvalid() || !index.getPhysicalIndex().isCreated()) {
+            // The index needs to be (re-)built anyway
+            reindex(aProject);
+            return;
+        }
+        
+        log.info("Re-indexing documents affected by layer changes in project [{}]({})",
+                aProject.getName(), aProject.getId());
+        
+        if (!index.getPhysicalIndex().reindexChangedLayers()) {
+            log.info("Unable to determine documents affected by layer changes in project "
+                    + "[{}]({}) - rebuilding index", aProject.getName(), aProject.getId());
+            reindex(aProject);
+        }
+    }
+    
     @Override
     public Index getIndex(Project aProject)
     {
@@ -493,8 +587,9 @@ public class SearchServiceImpl
     @Override
     public boolean isIndexValid(Project aProject)
     {
-        if (indexes.containsKey(aProject.getId())) {
-            return !indexes.get(aProject.getId()).getInvalid();
+        Index index = indexes.get(aProject.getId());
+        if (index != null) {
+            return !index.getInvalid();
         }
         else {
             return false;
@@ -506,4 +601,28 @@ public class SearchServiceImpl
     {
         return indexScheduler.isIndexInProgress(aProject);
     }
+    
+    @ManagedAttribute(description = "Ratio of queries answered from the query cache")
+    public double getQueryCacheHitRate()
+    {
+        return queryCache.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Number of queries answered from the query cache")
+    public long getQueryCacheHitCount()
+    {
+        return queryCache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of queries which had to be run on the index")
+    public long getQueryCacheMissCount()
+    {
+        return queryCache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Number of query results and counts in the query cache")
+    public long getQueryCacheSize()
+    {
+        return queryCache.estimatedSize();
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties("inception.search")
+public class SearchProperties
+{
+    private int indexBatchSize = 50;
+    private long indexCommitLatency = 1000;
+    private int indexThreads = 2;
+    private int indexQueueSize = 100;
+    private int indexRebuildThreads = 4;
+    private long queryCacheSize = 100_000;
+
+    public int getIndexBatchSize()
+    {
+        return indexBatchSize;
+    }
+
+    /**
+     * @param aIndexBatchSize
+     *            maximum number of queued indexing tasks which are processed together.
+     */
+    public void setIndexBatchSize(int aIndexBatchSize)
+    {
+        indexBatchSize = aIndexBatchSize;
+    }
+
+    public long getIndexCommitLatency()
+    {
+        return indexCommitLatency;
+    }
+
+    /**
+     * @param aIndexCommitLatency
+     *            maximum time in milliseconds after which changes to the index are committed to
+     *            disk. If this is {@code 0}, every change is committed immediately.
+     */
+    public void setIndexCommitLatency(long aIndexCommitLatency)
+    {
+        indexCommitLatency = aIndexCommitLatency;
+    }
+
+    public int getIndexThreads()
+    {
+        return indexThreads;
+    }
+
+    /**
+     * @param aIndexThreads
+     *            number of worker threads processing indexing tasks. The tasks of different
+     *            projects are processed in parallel, those of a single project in order.
+     */
+    public void setIndexThreads(int aIndexThreads)
+    {
+        indexThreads = aIndexThreads;
+    }
+
+    public int getIndexQueueSize()
+    {
+        return indexQueueSize;
+    }
+
+    /**
+     * @param aIndexQueueSize
+     *            maximum number of pending indexing tasks per project. If more tasks are
+     *            enqueued, they are replaced by a single task re-indexing the whole project.
+     */
+    public void setIndexQueueSize(int aIndexQueueSize)
+    {
+        indexQueueSize = aIndexQueueSize;
+    }
+
+    public int getIndexRebuildThreads()
+    {
+        return indexRebuildThreads;
+    }
+
+    /**
+     * @param aIndexRebuildThreads
+     *            number of threads reading and indexing documents in parallel while the index of
+     *            a project is rebuilt.
+     */
+    public void setIndexRebuildThreads(int aIndexRebuildThreads)
+    {
+        indexRebuildThreads = aIndexRebuildThreads;
+    }
+
+    public long getQueryCacheSize()
+    {
+        return queryCacheSize;
+    }
+
+    /**
+     * @param aQueryCacheSize
+     *            maximum number of search results kept in memory. Each cached result count
+     *            counts as one result. Cached results are used until the index changes in a way
+     *            that may affect them.
+     */
+    public void setQueryCacheSize(long aQueryCacheSize)
+    {
+        queryCacheSize = aQueryCacheSize;
+    }
+}
@@ -38,6 +38,30 @@ public interface PhysicalIndex
 
     void dropPhysicalIndex() throws IOException;
 
+    /**
+     * Re-creates the index from all documents of the project. Implementations which can build the
+     * new index while the existing one keeps serving queries should override this method.
+     */
+    default void rebuildPhysicalIndex() throws IOException
+    {
+        if (isCreated()) {
+            dropPhysicalIndex();
+        }
+        createPhysicalIndex();
+    }
+
+    /**
+     * Updates the index after the layer configuration of the project has changed. Only documents
+     * which may be indexed differently under the new configuration need to be re-indexed.
+     * 
+     * @return whether the index has been updated. If the changes cannot be determined, the index
+     *         needs to be rebuilt instead.
+     */
+    default boolean reindexChangedLayers() throws IOException
+    {
+        return false;
+    }
+
     void openPhysicalIndex();
 
     void closePhysicalIndex();
@@ -46,19 +70,43 @@ public interface PhysicalIndex
 
     boolean isOpen();
 
+    /**
+     * Runs the query and returns the matches in the range given by the offset and count of the
+     * request.
+     */
     Map<String, List<SearchResult>> executeQuery(SearchQueryRequest aRequest)
             throws IOException, ExecutionException;
 
+    /**
+     * Counts the matches of the query without retrieving them. The offset and count of the
+     * request are ignored.
+     */
+    long numberOfQueryResults(SearchQueryRequest aRequest)
+            throws IOException, ExecutionException;
+
+    /**
+     * Returns the generation of the index as seen by the given user. The generation increases
+     * whenever the index is changed in a way that may affect the results of queries by that user,
+     * i.e. when source documents or annotation documents of the user are (re-)indexed or removed.
+     * Query results obtained at a given generation can be re-used as long as the generation does
+     * not change.
+     */
+    long getGeneration(String aUser);
+
+    /**
+     * Adds the given document to the index, replacing any previously indexed version of it.
+     */
     public void indexDocument(SourceDocument aDocument, CAS aJCas) throws IOException;
 
+    /**
+     * Adds the given document to the index, replacing any previously indexed version of it.
+     */
     public void indexDocument(AnnotationDocument aDocument, CAS aJCas) throws IOException;
 
     public void deindexDocument(SourceDocument aDocument) throws IOException;
 
     public void deindexDocument(AnnotationDocument aDocument) throws IOException;
 
-    public void deindexDocument(AnnotationDocument aDocument, String aTimestamp) throws IOException;
-
     /**
      * Retrieve the timestamp of this annotation document
      * @param aDocument
@@ -17,31 +17,46 @@
  */
 package de.tudarmstadt.ukp.inception.search.scheduling;
 
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.search.config.SearchProperties;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexAnnotationDocumentTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.IndexSourceDocumentTask;
+import de.tudarmstadt.ukp.inception.search.scheduling.tasks.ReindexChangedLayersTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.ReindexTask;
 import de.tudarmstadt.ukp.inception.search.scheduling.tasks.Task;
 
 /**
  * Indexer scheduler. Does the project re-indexing in an asynchronous way.
+ * <p>
+ * Every project has its own FIFO queue of indexing tasks. The queues of different projects are
+ * processed in parallel by a pool of worker threads, but at most one worker processes the queue of
+ * a given project at any time, so the tasks of a project are run in the order they were enqueued.
+ * A project queue is only registered while it has pending or running tasks.
  */
 @Component
 public class IndexScheduler
@@ -50,25 +65,29 @@ public class IndexScheduler
     private Logger log = LoggerFactory.getLogger(getClass());
 
     private @Autowired ApplicationContext applicationContext;
+    private @Autowired SearchProperties properties;
 
-    private TaskConsumer consumer;
-    private Thread consumerThread;
-    private BlockingQueue<Task> queue = new ArrayBlockingQueue<Task>(100);
+    private ExecutorService workers;
+    
+    // Guarded by "this"
+    private final Map<Long, ProjectQueue> queues = new HashMap<>();
 
     @Override
     public void afterPropertiesSet()
     {
-        consumer = new TaskConsumer(applicationContext, queue);
-        consumerThread = new Thread(consumer, "Index task consumer");
-        consumerThread.setPriority(Thread.MIN_PRIORITY);
-        consumerThread.start();
-        log.info("Started Search Indexing Thread");
+        int threads = Math.max(properties.getIndexThreads(), 1);
+        workers = Executors.newFixedThreadPool(threads, new BasicThreadFactory.Builder()
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .namingPattern("Index task consumer-%d")
+                .build());
+        log.info("Started Search Indexing with {} worker threads", threads);
     }
 
     @Override
     public void destroy()
     {
-        consumerThread.interrupt();
+        workers.shutdownNow();
     }
 
     public void enqueueReindexTask(Project aProject)
@@ -77,6 +96,12 @@ public class IndexScheduler
         enqueue(new ReindexTask(aProject));
     }
 
+    public void enqueueReindexChangedLayersTask(Project aProject)
+    {
+        // Add task re-indexing the documents affected by a layer configuration change
+        enqueue(new ReindexChangedLayersTask(aProject));
+    }
+
     public void enqueueIndexDocument(SourceDocument aSourceDocument, CAS aCas)
     {
         // Index source document
@@ -90,18 +115,29 @@ public class IndexScheduler
     }
     
     /**
-     * Put a new indexing task in the queue.
-     * Indexing tasks can be of three types:
+     * Put a new indexing task in the queue of its project.
+     * Indexing tasks can be of four types:
      *  - Indexing of a whole project
+     *  - Indexing of the documents affected by a layer configuration change
      *  - Indexing of a source document
      *  - Indexing of an annotation document for a given user
+     * If the queue of the project is full, the pending tasks of the project are replaced by a
+     * single task re-indexing the whole project.
      *  
      * @param aRunnable
      *          The indexing task
      */
     public synchronized void enqueue(Task aRunnable)
     {
-        Optional<Task> alreadyScheduledTask = findAlreadyScheduled(aRunnable);
+        Project project = aRunnable.getProject();
+        ProjectQueue queue = queues.get(project.getId());
+        if (queue == null) {
+            queue = new ProjectQueue(project.getId());
+            queues.put(project.getId(), queue);
+            schedule(queue);
+        }
+        
+        Optional<Task> alreadyScheduledTask = queue.findAlreadyScheduled(aRunnable);
         
         // Project indexing task
         if (aRunnable instanceof ReindexTask) {
@@ -110,10 +146,22 @@ public class IndexScheduler
                         aRunnable);
             }
             else {
-                queue.offer(aRunnable);
+                // Re-indexing the project covers all document indexing tasks still pending
+                queue.tasks.clear();
+                queue.tasks.add(aRunnable);
                 log.info("Enqueued new project indexing task: {}", aRunnable);
             }
         }
+        // Layer configuration change task
+        else if (aRunnable instanceof ReindexChangedLayersTask) {
+            if (alreadyScheduledTask.isPresent()) {
+                log.debug("Matching project indexing task already scheduled: [{}] - skipping ...",
+                        aRunnable);
+            }
+            else if (offer(queue, aRunnable)) {
+                log.info("Enqueued new layer configuration indexing task: {}", aRunnable);
+            }
+        }
         // Source document indexing task
         else if (aRunnable instanceof IndexSourceDocumentTask) {
             if (alreadyScheduledTask.isPresent()) {
@@ -121,8 +169,7 @@ public class IndexScheduler
                         "Matching source document indexing task already scheduled: [{}] - skipping ...",
                         aRunnable);
             }
-            else {
-                queue.offer(aRunnable);
+            else if (offer(queue, aRunnable)) {
                 log.info("Enqueued new source document indexing task: {}", aRunnable);
             }
         }
@@ -138,34 +185,130 @@ public class IndexScheduler
                         "Matching source document indexing task already scheduled: [{}] - updating CAS",
                         aRunnable);
             }
-            else {
-                queue.offer(aRunnable);
+            else if (offer(queue, aRunnable)) {
                 log.info("Enqueued new annotation document indexing task: {}", aRunnable);
             }
         }
     }
+    
+    /**
+     * Adds the given task to the queue unless the queue is full. In the latter case, all pending
+     * tasks of the project are replaced by a task re-indexing the whole project.
+     * 
+     * @return whether the task has been added.
+     */
+    private boolean offer(ProjectQueue aQueue, Task aTask)
+    {
+        if (aQueue.tasks.size() < properties.getIndexQueueSize()) {
+            aQueue.tasks.add(aTask);
+            return true;
+        }
+        
+        Project project = aTask.getProject();
+        log.warn("Indexing queue of project [{}]({}) is full - replacing {} pending tasks with a "
+                + "project indexing task", project.getName(), project.getId(),
+                aQueue.tasks.size());
+        aQueue.tasks.clear();
+        aQueue.tasks.add(new ReindexTask(project));
+        return false;
+    }
 
     public synchronized void stopAllTasksForUser(String username)
     {
-        Iterator<Task> taskIterator = queue.iterator();
-        while (taskIterator.hasNext()) {
-            Task task = taskIterator.next();
-            if (task.getUser().equals(username)) {
-                queue.remove(task);
-            }
+        for (ProjectQueue queue : queues.values()) {
+            queue.tasks.removeIf(task -> username.equals(task.getUser()));
         }
     }
 
-    public boolean isIndexInProgress(Project aProject)
+    public synchronized boolean isIndexInProgress(Project aProject)
     {
         Validate.notNull(aProject, "Project cannot be null");
         
-        return queue.stream().anyMatch(task -> aProject.equals(task.getProject())) ||
-                consumer.getActiveTask().map(t -> aProject.equals(t.getProject())).orElse(false);
+        return queues.containsKey(aProject.getId());
     }
     
-    private Optional<Task> findAlreadyScheduled(Task aTask)
+    private void schedule(ProjectQueue aQueue)
     {
-        return queue.stream().filter(aTask::matches).findAny();
+        try {
+            workers.execute(() -> consume(aQueue));
+        }
+        catch (RejectedExecutionException e) {
+            // Only happens when the scheduler is shutting down
+            log.debug("Unable to schedule indexing tasks for project [{}]", aQueue.projectId);
+            queues.remove(aQueue.projectId);
+        }
+    }
+
+    /**
+     * Runs the next batch of tasks from the given project queue. The index changes made by the
+     * tasks of a batch are committed together (cf. {@code inception.search.index-commit-latency}).
+     * If there are further tasks left afterwards, the queue is re-scheduled at the end of the
+     * worker pool queue so that other projects get their turn.
+     */
+    private void consume(ProjectQueue aQueue)
+    {
+        List<Task> batch = new ArrayList<>();
+        synchronized (this) {
+            int batchSize = Math.max(properties.getIndexBatchSize(), 1);
+            while (batch.size() < batchSize && !aQueue.tasks.isEmpty()) {
+                batch.add(aQueue.tasks.poll());
+            }
+        }
+        
+        if (batch.size() > 1) {
+            log.debug("Running batch of {} indexing tasks", batch.size());
+        }
+        
+        try {
+            for (Task task : batch) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                runTask(task);
+            }
+        }
+        finally {
+            synchronized (this) {
+                if (aQueue.tasks.isEmpty()) {
+                    queues.remove(aQueue.projectId);
+                }
+                else {
+                    schedule(aQueue);
+                }
+            }
+        }
+    }
+
+    private void runTask(Task aTask)
+    {
+        try {
+            AutowireCapableBeanFactory factory = applicationContext
+                    .getAutowireCapableBeanFactory();
+            factory.autowireBean(aTask);
+            factory.initializeBean(aTask, "transientTask");
+
+            log.debug("Indexing task started: {}", aTask);
+            aTask.run();
+            log.debug("Indexing task completed: {}", aTask);
+        }
+        catch (Throwable e) {
+            log.error("Indexing task failed: {}", aTask, e);
+        }
+    }
+    
+    private static class ProjectQueue
+    {
+        private final long projectId;
+        private final Deque<Task> tasks = new ArrayDeque<>();
+        
+        public ProjectQueue(long aProjectId)
+        {
+            projectId = aProjectId;
+        }
+        
+        private Optional<Task> findAlreadyScheduled(Task aTask)
+        {
+            return tasks.stream().filter(aTask::matches).findAny();
+        }
     }
 }
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
 
+import java.util.Objects;
+
 import org.apache.uima.cas.CAS;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -45,7 +47,8 @@ public class IndexAnnotationDocumentTask
     @Override
     public boolean matches(Task aTask)
     {
-        return getAnnotationDocument().getId() == aTask.getAnnotationDocument().getId();
+        return aTask instanceof IndexAnnotationDocumentTask && Objects.equals(
+                getAnnotationDocument().getId(), aTask.getAnnotationDocument().getId());
     }
 
 }
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
 
+import java.util.Objects;
+
 import org.apache.uima.cas.CAS;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -51,6 +53,7 @@ public class IndexSourceDocumentTask
     @Override
     public boolean matches(Task aTask)
     {
-        return getSourceDocument().getId() == aTask.getSourceDocument().getId();
+        return aTask instanceof IndexSourceDocumentTask && Objects.equals(
+                getSourceDocument().getId(), aTask.getSourceDocument().getId());
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.search.SearchService;
+
+/**
+ * Search indexer task. Re-indexes the documents of a given project which are affected by a change
+ * of the layer configuration.
+ */
+public class ReindexChangedLayersTask
+    extends Task
+{
+    private @Autowired SearchService searchService;
+
+    public ReindexChangedLayersTask(Project aProject)
+    {
+        super(aProject, null);
+    }
+
+    @Override
+    public void run()
+    {
+        try {
+            searchService.reindexChangedLayers(super.getProject());
+        }
+        catch (IOException e) {
+            // Let the scheduler know that the index may only have been partially updated - it
+            // logs the failure of the task
+            throw new UncheckedIOException("Unable to re-index documents affected by layer "
+                    + "changes in project [" + getProject().getName() + "]("
+                    + getProject().getId() + ")", e);
+        }
+    }
+    
+    @Override
+    public boolean matches(Task aTask)
+    {
+        // A pending re-indexing of the whole project also covers the layer changes
+        return (aTask instanceof ReindexChangedLayersTask || aTask instanceof ReindexTask)
+                && Objects.equals(getProject().getId(), aTask.getProject().getId());
+    }
+}
@@ -18,6 +18,7 @@
 package de.tudarmstadt.ukp.inception.search.scheduling.tasks;
 
 import java.io.IOException;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -52,6 +53,7 @@ public class ReindexTask
     @Override
     public boolean matches(Task aTask)
     {
-        return getProject().getId() == aTask.getProject().getId();
+        return aTask instanceof ReindexTask
+                && Objects.equals(getProject().getId(), aTask.getProject().getId());
     }
 }
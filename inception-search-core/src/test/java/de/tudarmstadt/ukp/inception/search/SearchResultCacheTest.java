@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+
+public class SearchResultCacheTest
+{
+    private Project project1;
+    private Project project2;
+    private User user1;
+    private User user2;
+
+    @Before
+    public void setUp()
+    {
+        project1 = new Project();
+        project1.setId(1l);
+        project2 = new Project();
+        project2.setId(2l);
+
+        user1 = new User();
+        user1.setUsername("user1");
+        user2 = new User();
+        user2.setUsername("user2");
+    }
+
+    @Test
+    public void thatResultsAreCachedPerGeneration()
+    {
+        SearchResultCache sut = new SearchResultCache(100);
+
+        sut.putResults(key(user1, project1, "Foo", 1), results(3));
+
+        assertThat(sut.getResults(key(user1, project1, " Foo ", 1))).hasSize(1);
+        assertThat(sut.getResults(key(user1, project1, "Foo", 2))).isNull();
+        assertThat(sut.getResults(key(user2, project1, "Foo", 1))).isNull();
+    }
+
+    @Test
+    public void thatResultsExceedingTheMaximumAreNotCached()
+    {
+        SearchResultCache sut = new SearchResultCache(10);
+
+        sut.putResults(key(user1, project1, "Foo", 1), results(10));
+
+        assertThat(sut.getResults(key(user1, project1, "Foo", 1))).isNull();
+    }
+
+    @Test
+    public void thatCacheIsBoundedByNumberOfResults()
+    {
+        SearchResultCache sut = new SearchResultCache(100);
+
+        for (int i = 0; i < 10; i++) {
+            sut.putResults(key(user1, project1, "Foo" + i, 1), results(30));
+        }
+        sut.cleanUp();
+
+        // Each entry weighs 31 (one for the entry plus one per result)
+        assertThat(sut.estimatedSize()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    public void thatProjectChangeInvalidatesResultsOfProject()
+    {
+        SearchResultCache sut = new SearchResultCache(100);
+        sut.putResults(key(user1, project1, "Foo", 1), results(1));
+        sut.putCount(key(user2, project1, "Foo", 1), 1);
+        sut.putResults(key(user1, project2, "Foo", 1), results(1));
+
+        sut.invalidate(project1);
+
+        assertThat(sut.getResults(key(user1, project1, "Foo", 1))).isNull();
+        assertThat(sut.getCount(key(user2, project1, "Foo", 1))).isNull();
+        assertThat(sut.getResults(key(user1, project2, "Foo", 1))).isNotNull();
+    }
+
+    @Test
+    public void thatAnnotationChangeInvalidatesResultsOfUser()
+    {
+        SearchResultCache sut = new SearchResultCache(100);
+        sut.putResults(key(user1, project1, "Foo", 1), results(1));
+        sut.putResults(key(user2, project1, "Foo", 1), results(1));
+        sut.putResults(key(user1, project2, "Foo", 1), results(1));
+
+        sut.invalidate(project1, "user1");
+
+        assertThat(sut.getResults(key(user1, project1, "Foo", 1))).isNull();
+        assertThat(sut.getResults(key(user2, project1, "Foo", 1))).isNotNull();
+        assertThat(sut.getResults(key(user1, project2, "Foo", 1))).isNotNull();
+    }
+
+    private SearchResultCache.Key key(User aUser, Project aProject, String aQuery,
+            long aGeneration)
+    {
+        return new SearchResultCache.Key(aUser, aProject, aQuery, null, null, null, 0,
+                Long.MAX_VALUE, false, aGeneration);
+    }
+
+    private Map<String, List<SearchResult>> results(int aCount)
+    {
+        List<SearchResult> results = new ArrayList<>();
+        for (int i = 0; i < aCount; i++) {
+            results.add(new SearchResult());
+        }
+        return singletonMap("doc", results);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst.SPAN_TYPE;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.SINGLE_TOKEN;
+import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.TOKENS;
+import static de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode.NO_OVERLAP;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.cas.CAS;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.clarin.webanno.api.DocumentService;
+import de.tudarmstadt.ukp.clarin.webanno.api.ProjectService;
+import de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRegistryImpl;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.PrimitiveUimaFeatureSupport;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.clarin.webanno.support.ApplicationContextProvider;
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistryImpl;
+import de.tudarmstadt.ukp.inception.search.PrimitiveUimaIndexingSupport;
+import de.tudarmstadt.ukp.inception.search.config.SearchProperties;
+import de.tudarmstadt.ukp.inception.search.index.mtas.MtasDocumentIndex;
+import de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser;
+
+/**
+ * Sets up a project with a named entity and a part-of-speech layer for the benchmarks. The
+ * services which would require a database are mocked in the same way as in the unit tests of the
+ * MTAS index. The indexes are created in a temporary repository which is removed on
+ * {@link #close()}.
+ */
+public class BenchmarkFixture
+    implements AutoCloseable
+{
+    public static final String USER = "benchmark";
+
+    private final Project project;
+    private final User user;
+    private final AnnotationLayer namedEntityLayer;
+    private final AnnotationFeature namedEntityValueFeature;
+
+    private final AnnotationSchemaService annotationSchemaService;
+    private final ProjectService projectService;
+    private final DocumentService documentService;
+    private final FeatureSupportRegistryImpl featureSupportRegistry;
+    private final FeatureIndexingSupportRegistryImpl featureIndexingSupportRegistry;
+
+    private final Map<SourceDocument, AnnotationDocument> documents = new LinkedHashMap<>();
+
+    private final File repositoryDir;
+    private AnnotationConfigApplicationContext context;
+    private MtasDocumentIndex index;
+
+    public BenchmarkFixture() throws IOException
+    {
+        project = new Project();
+        project.setId(1l);
+        project.setName("benchmark");
+        project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
+
+        user = new User(USER);
+
+        namedEntityLayer = new AnnotationLayer(NamedEntity.class.getName(), "Named entity",
+                SPAN_TYPE, project, true, TOKENS, NO_OVERLAP);
+        namedEntityLayer.setId(1l);
+        namedEntityValueFeature = new AnnotationFeature(1l, namedEntityLayer, "value",
+                CAS.TYPE_NAME_STRING);
+        AnnotationFeature namedEntityIdentifierFeature = new AnnotationFeature(2l,
+                namedEntityLayer, "identifier", CAS.TYPE_NAME_STRING);
+
+        AnnotationLayer posLayer = new AnnotationLayer(POS.class.getName(), "Part of speech",
+                SPAN_TYPE, project, true, SINGLE_TOKEN, NO_OVERLAP);
+        posLayer.setId(2l);
+        AnnotationFeature posValueFeature = new AnnotationFeature(3l, posLayer, "PosValue",
+                CAS.TYPE_NAME_STRING);
+
+        annotationSchemaService = mock(AnnotationSchemaService.class);
+        when(annotationSchemaService.listAnnotationLayer(any(Project.class)))
+                .thenReturn(asList(namedEntityLayer, posLayer));
+        when(annotationSchemaService.listAnnotationFeature(namedEntityLayer))
+                .thenReturn(asList(namedEntityValueFeature, namedEntityIdentifierFeature));
+        when(annotationSchemaService.listAnnotationFeature(posLayer))
+                .thenReturn(asList(posValueFeature));
+
+        projectService = mock(ProjectService.class);
+        when(projectService.getProject(anyLong())).thenReturn(project);
+        when(projectService.listProjectUsersWithPermissions(any(Project.class)))
+                .thenReturn(emptyList());
+
+        documentService = mock(DocumentService.class);
+        when(documentService.listSourceDocuments(any(Project.class))).thenReturn(emptyList());
+        when(documentService.listAnnotatableDocuments(any(Project.class), any(User.class)))
+                .thenAnswer(invocation -> new LinkedHashMap<>(documents));
+
+        featureSupportRegistry = new FeatureSupportRegistryImpl(
+                asList(new PrimitiveUimaFeatureSupport()));
+        featureSupportRegistry.init();
+
+        featureIndexingSupportRegistry = new FeatureIndexingSupportRegistryImpl(
+                asList(new PrimitiveUimaIndexingSupport(featureSupportRegistry)));
+        featureIndexingSupportRegistry.init();
+
+        repositoryDir = Files.createTempDirectory("inception-benchmark").toFile();
+    }
+
+    public Project getProject()
+    {
+        return project;
+    }
+
+    public User getUser()
+    {
+        return user;
+    }
+
+    public AnnotationLayer getNamedEntityLayer()
+    {
+        return namedEntityLayer;
+    }
+
+    public AnnotationFeature getNamedEntityValueFeature()
+    {
+        return namedEntityValueFeature;
+    }
+
+    /**
+     * Creates a parser which is not connected to an index.
+     */
+    public MtasUimaParser createParser()
+    {
+        return new MtasUimaParser(project, annotationSchemaService,
+                featureIndexingSupportRegistry);
+    }
+
+    /**
+     * Registers a new annotation document of the benchmark user. The document is not indexed.
+     */
+    public AnnotationDocument addDocument()
+    {
+        long id = documents.size() + 1;
+
+        SourceDocument sourceDocument = new SourceDocument();
+        sourceDocument.setId(id);
+        sourceDocument.setName("document-" + id);
+        sourceDocument.setProject(project);
+
+        AnnotationDocument annotationDocument = new AnnotationDocument();
+        annotationDocument.setId(id);
+        annotationDocument.setName(sourceDocument.getName());
+        annotationDocument.setDocument(sourceDocument);
+        annotationDocument.setProject(project);
+        annotationDocument.setUser(USER);
+
+        documents.put(sourceDocument, annotationDocument);
+
+        return annotationDocument;
+    }
+
+    public List<AnnotationDocument> getDocuments()
+    {
+        return new ArrayList<>(documents.values());
+    }
+
+    /**
+     * Creates an empty index for the project. Only one index can be created per fixture.
+     *
+     * @param aCommitLatency
+     *            the commit latency of the index, cf. {@link SearchProperties}. If this is
+     *            {@code 0}, every indexed document is committed immediately.
+     */
+    public MtasDocumentIndex createIndex(long aCommitLatency) throws IOException
+    {
+        if (index != null) {
+            throw new IllegalStateException("Index has already been created");
+        }
+
+        SearchProperties searchProperties = new SearchProperties();
+        searchProperties.setIndexCommitLatency(aCommitLatency);
+
+        // The index and the parsers created by Lucene obtain the services via the application
+        // context
+        context = new AnnotationConfigApplicationContext();
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        beanFactory.registerSingleton("annotationSchemaService", annotationSchemaService);
+        beanFactory.registerSingleton("projectService", projectService);
+        beanFactory.registerSingleton("documentService", documentService);
+        beanFactory.registerSingleton("featureSupportRegistry", featureSupportRegistry);
+        beanFactory.registerSingleton("featureIndexingSupportRegistry",
+                featureIndexingSupportRegistry);
+        beanFactory.registerSingleton("searchProperties", searchProperties);
+        context.register(ApplicationContextProvider.class);
+        context.refresh();
+
+        index = new MtasDocumentIndex(project, annotationSchemaService, documentService,
+                projectService, repositoryDir.getAbsolutePath());
+        index.createPhysicalIndex();
+
+        return index;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (index != null) {
+            index.closePhysicalIndex();
+            index = null;
+        }
+
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+
+        FileUtils.deleteDirectory(repositoryDir);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.inception.search.index.mtas.MtasDocumentIndex;
+
+/**
+ * Measures (re-)indexing an annotation document. The benchmark cycles through a fixed set of
+ * documents, so after the first round every invocation replaces an existing document in the index
+ * as it happens when a user edits annotations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndexingBenchmark
+{
+    @Param({ "1000", "10000" })
+    public int tokens;
+
+    @Param({ "10" })
+    public int documents;
+
+    /**
+     * Commit latency of the index in milliseconds. With {@code 0}, every indexed document is
+     * committed immediately.
+     */
+    @Param({ "0", "1000" })
+    public long commitLatency;
+
+    private BenchmarkFixture fixture;
+    private MtasDocumentIndex index;
+    private AnnotationDocument[] annotationDocuments;
+    private CAS cas;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        fixture = new BenchmarkFixture();
+        for (int i = 0; i < documents; i++) {
+            fixture.addDocument();
+        }
+        List<AnnotationDocument> docs = fixture.getDocuments();
+        annotationDocuments = docs.toArray(new AnnotationDocument[docs.size()]);
+        cas = SyntheticDocuments.createJCas(tokens).getCas();
+        index = fixture.createIndex(commitLatency);
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void indexDocument() throws Exception
+    {
+        index.indexDocument(annotationDocuments[next++ % annotationDocuments.length], cas);
+    }
+}
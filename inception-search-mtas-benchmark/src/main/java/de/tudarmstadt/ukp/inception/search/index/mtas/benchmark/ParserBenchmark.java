@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser;
+import mtas.analysis.token.MtasTokenCollection;
+
+/**
+ * Measures the conversion of a CAS into the MTAS token collection which is then written to the
+ * index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark
+{
+    @Param({ "100", "1000", "10000" })
+    public int tokens;
+
+    private BenchmarkFixture fixture;
+    private MtasUimaParser parser;
+    private JCas jcas;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        fixture = new BenchmarkFixture();
+        parser = fixture.createParser();
+        jcas = SyntheticDocuments.createJCas(tokens);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        fixture.close();
+    }
+
+    @Benchmark
+    public MtasTokenCollection createTokenCollection() throws Exception
+    {
+        return parser.createTokenCollection(jcas);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.cas.CAS;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
+import de.tudarmstadt.ukp.inception.search.SearchResult;
+import de.tudarmstadt.ukp.inception.search.index.mtas.MtasDocumentIndex;
+
+/**
+ * Measures query execution on an index containing a number of synthetic documents. The benchmark
+ * reports the throughput of the queries and the rate of the {@code matches} counter. Run with
+ * {@code -prof gc} to obtain the allocation rate; dividing it by the rate of matches yields the
+ * allocation per returned match.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark
+{
+    public enum QueryType
+    {
+        /**
+         * Plain token query.
+         */
+        TOKEN,
+
+        /**
+         * Query for annotations with a specific feature value.
+         */
+        ANNOTATION,
+
+        /**
+         * Query for all annotations of a layer, grouping the results by a feature value.
+         */
+        GROUPED
+    }
+
+    @Param({ "1000" })
+    public int tokens;
+
+    @Param({ "100" })
+    public int documents;
+
+    @Param({ "TOKEN", "ANNOTATION", "GROUPED" })
+    public QueryType query;
+
+    private BenchmarkFixture fixture;
+    private MtasDocumentIndex index;
+    private SearchQueryRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        fixture = new BenchmarkFixture();
+
+        // Use a long commit latency to avoid committing after every document. Uncommitted
+        // documents are visible to the searcher anyway.
+        index = fixture.createIndex(60_000);
+
+        CAS cas = SyntheticDocuments.createJCas(tokens).getCas();
+        for (int i = 0; i < documents; i++) {
+            AnnotationDocument document = fixture.addDocument();
+            index.indexDocument(document, cas);
+        }
+
+        switch (query) {
+        case TOKEN:
+            request = new SearchQueryRequest(fixture.getProject(), fixture.getUser(), "city");
+            break;
+        case ANNOTATION:
+            request = new SearchQueryRequest(fixture.getProject(), fixture.getUser(),
+                    "<Named_entity.value=\"LOC\"/>");
+            break;
+        case GROUPED:
+            request = new SearchQueryRequest(fixture.getProject(), fixture.getUser(),
+                    "<Named_entity/>", null, fixture.getNamedEntityLayer(),
+                    fixture.getNamedEntityValueFeature());
+            break;
+        default:
+            throw new IllegalStateException("Unsupported query type [" + query + "]");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Map<String, List<SearchResult>> executeQuery(MatchCounter aCounter) throws Exception
+    {
+        Map<String, List<SearchResult>> results = index.executeQuery(request);
+        for (List<SearchResult> group : results.values()) {
+            aCounter.matches += group.size();
+        }
+        return results;
+    }
+
+    @Benchmark
+    public long countResults(MatchCounter aCounter) throws Exception
+    {
+        long count = index.numberOfQueryResults(request);
+        aCounter.matches += count;
+        return count;
+    }
+
+    /**
+     * Counts the matches returned by the benchmarked queries. JMH reports the counter as a
+     * secondary result next to the primary one.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class MatchCounter
+    {
+        public long matches;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            matches = 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas.benchmark;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasBuilder;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * Builds synthetic documents for the benchmarks. The documents are deterministic, so every run of
+ * a benchmark works on the same data: the tokens cycle through a small vocabulary, every token
+ * has a part-of-speech annotation and every {@link #NAMED_ENTITY_INTERVAL}th token is covered by
+ * a named entity.
+ */
+public final class SyntheticDocuments
+{
+    public static final String[] WORDS = { "The", "capital", "of", "the", "region", "is", "a",
+            "city", "near", "the", "river", "." };
+    public static final String[] POS_TAGS = { "DET", "NOUN", "ADP", "DET", "NOUN", "VERB", "DET",
+            "NOUN", "ADP", "DET", "NOUN", "PUNCT" };
+    public static final String[] NAMED_ENTITY_VALUES = { "LOC", "PER", "ORG", "OTH" };
+
+    public static final int SENTENCE_LENGTH = WORDS.length;
+    public static final int NAMED_ENTITY_INTERVAL = 5;
+
+    private SyntheticDocuments()
+    {
+        // No instances
+    }
+
+    /**
+     * Creates a document consisting of the given number of tokens.
+     */
+    public static JCas createJCas(int aTokens) throws UIMAException
+    {
+        JCas jcas = JCasFactory.createJCas();
+
+        JCasBuilder builder = new JCasBuilder(jcas);
+        int sentenceBegin = 0;
+        for (int i = 0; i < aTokens; i++) {
+            Token token = builder.add(WORDS[i % WORDS.length], Token.class);
+
+            POS pos = new POS(jcas, token.getBegin(), token.getEnd());
+            pos.setPosValue(POS_TAGS[i % POS_TAGS.length]);
+            pos.addToIndexes();
+            token.setPos(pos);
+
+            if (i % NAMED_ENTITY_INTERVAL == 0) {
+                NamedEntity ne = new NamedEntity(jcas, token.getBegin(), token.getEnd());
+                ne.setValue(NAMED_ENTITY_VALUES[(i / NAMED_ENTITY_INTERVAL)
+                        % NAMED_ENTITY_VALUES.length]);
+                ne.addToIndexes();
+            }
+
+            if ((i + 1) % SENTENCE_LENGTH == 0 || i == aTokens - 1) {
+                builder.add(sentenceBegin, Sentence.class);
+                builder.add(" ");
+                sentenceBegin = builder.getPosition();
+            }
+            else {
+                builder.add(" ");
+            }
+        }
+        builder.close();
+
+        return jcas;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.xml.sax.SAXException;
+
+/**
+ * Passes a CAS to the {@link MtasUimaParser} as the value of the indexed content field. Lucene
+ * hands the reader of the field to the parser, which then builds the token collection directly
+ * from the CAS, so the CAS does not need to be serialized for indexing. Since the CAS is only
+ * referenced by the field, it is released together with the indexed document.
+ * <p>
+ * If the reader is read as text nevertheless, it provides the CAS serialized as XMI, which the
+ * parser can read as well.
+ */
+class CasReader
+    extends Reader
+{
+    private final CAS cas;
+    private Reader xmi;
+
+    public CasReader(CAS aCas)
+    {
+        cas = aCas;
+    }
+
+    public CAS getCas()
+    {
+        return cas;
+    }
+
+    @Override
+    public int read(char[] aBuffer, int aOffset, int aLength) throws IOException
+    {
+        if (xmi == null) {
+            xmi = new StringReader(toXmi());
+        }
+        return xmi.read(aBuffer, aOffset, aLength);
+    }
+
+    private String toXmi() throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            XmiCasSerializer.serialize(cas, null, bos, true, null);
+        }
+        catch (SAXException e) {
+            throw new IOException("Unable to serialize CAS", e);
+        }
+        return new String(bos.toByteArray(), UTF_8);
+    }
+
+    @Override
+    public void close()
+    {
+        xmi = null;
+    }
+}
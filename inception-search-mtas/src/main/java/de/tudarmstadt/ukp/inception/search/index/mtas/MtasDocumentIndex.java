@@ -20,27 +20,45 @@ package de.tudarmstadt.ukp.inception.search.index.mtas;
 import static de.tudarmstadt.ukp.clarin.webanno.api.ProjectService.PROJECT_FOLDER;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.getIndexedName;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.decodeFSAddress;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.file.Files;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.custom.CustomAnalyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
@@ -51,7 +69,6 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -61,21 +78,29 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.search.spans.SpanWeight;
 import org.apache.lucene.search.spans.Spans;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
-import org.xml.sax.SAXException;
 
 import com.github.openjson.JSONObject;
 
@@ -96,6 +121,7 @@ import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupportRegistry;
 import de.tudarmstadt.ukp.inception.search.PrimitiveUimaIndexingSupport;
 import de.tudarmstadt.ukp.inception.search.SearchQueryRequest;
 import de.tudarmstadt.ukp.inception.search.SearchResult;
+import de.tudarmstadt.ukp.inception.search.config.SearchProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
@@ -118,6 +144,15 @@ public class MtasDocumentIndex
             "de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser";
     private static final String MTAS_TOKENIZER = "mtas";
     private static final String INDEX = "indexMtas";
+    private static final String INDEX_REBUILD = INDEX + "-rebuild";
+    private static final String INDEX_OLD = INDEX + "-old";
+    
+    /**
+     * Keys of the commit data recording the layer configuration the index has been built with.
+     * The configuration of each layer is stored under the prefix followed by the layer name.
+     */
+    private static final String COMMIT_DATA_LAYERS = "layers";
+    private static final String COMMIT_DATA_LAYER_PREFIX = "layer:";
 
     /**
      * Constant for the field which carries the unique identifier for the index document consisting:
@@ -148,6 +183,10 @@ public class MtasDocumentIndex
 
     /** The Constant FIELD_TIMESTAMP. */
     private static final String FIELD_TIMESTAMP = "timestamp";
+    
+    // Stored fields which are needed to create search results
+    private static final Set<String> RESULT_FIELDS = unmodifiableSet(
+            new HashSet<>(asList(FIELD_SOURCE_DOCUMENT_ID, FIELD_TITLE)));
 
     // Default prefix for CQL queries
     private static final String DEFAULT_PREFIX = "Token";
@@ -173,18 +212,48 @@ public class MtasDocumentIndex
         }
     };
 
+    // Runs the deferred commits of all indexes
+    private static final ScheduledExecutorService COMMIT_SCHEDULER = Executors
+            .newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Index committer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private @Autowired FeatureIndexingSupportRegistry featureIndexingSupportRegistry;
     private @Autowired  FeatureSupportRegistry featureSupportRegistry;
+    private @Autowired SearchProperties searchProperties;
 
     private final AnnotationSchemaService annotationSchemaService;
     private final DocumentService documentService;
     private final ProjectService projectService;
     private final Project project;
 
-    // The index writers for this index
-    private IndexWriter indexWriter;
+    // The index writers for this index - replaced when the index has been rebuilt
+    private volatile IndexWriter indexWriter;
+    
+    // Provides searchers on the near-real-time readers of the index writer. The searchers are
+    // refreshed before the next query after the index has been changed - a commit is not
+    // required for that. Changes are counted so that a refresh only covers those changes which
+    // have been made before it started.
+    private volatile SearcherManager searcherManager;
+    private final AtomicLong searcherChanges = new AtomicLong();
+    private final AtomicLong searcherRefreshedChanges = new AtomicLong();
+    
+    private final AtomicBoolean commitScheduled = new AtomicBoolean(false);
+    
+    // IDs of the documents removed while the index is being rebuilt (null if no rebuild is in
+    // progress) - they are removed from the rebuilt index when it replaces the current one. Only
+    // accessed while holding the lock of this index.
+    private Set<String> rebuildDeletions;
+    
+    // Generations of the index (cf. getGeneration) - changes to source documents affect all users
+    // while changes to annotation documents only affect their user
+    private final AtomicLong changeCounter = new AtomicLong();
+    private final AtomicLong sharedGeneration = new AtomicLong();
+    private final Map<String, Long> userGenerations = new ConcurrentHashMap<>();
 
     private final File resourceDir;
 
@@ -215,13 +284,25 @@ public class MtasDocumentIndex
     @Override
     public Map<String, List<SearchResult>> executeQuery(SearchQueryRequest aRequest)
         throws IOException, ExecutionException
+    {
+        return runQuery(aRequest, (searcher, query) -> doQuery(searcher, aRequest,
+                FIELD_CONTENT, query));
+    }
+
+    @Override
+    public long numberOfQueryResults(SearchQueryRequest aRequest)
+        throws IOException, ExecutionException
+    {
+        return runQuery(aRequest, (searcher, query) -> doCountResults(searcher, aRequest,
+                FIELD_CONTENT, query));
+    }
+
+    private <T> T runQuery(SearchQueryRequest aRequest, QueryRunner<T> aRunner)
+        throws ExecutionException
     {
         try {
             log.trace("Executing query {} on index {}", aRequest, getIndexDir());
             
-            Directory directory = FSDirectory.open(getIndexDir().toPath());
-            IndexReader indexReader = DirectoryReader.open(directory);
-
             String modifiedQuery = parseQuery(aRequest.getQuery());
             MtasSpanQuery mtasSpanQuery;
             try (Reader reader = new StringReader(modifiedQuery)) {
@@ -229,7 +310,14 @@ public class MtasDocumentIndex
                 mtasSpanQuery = parser.parse(FIELD_CONTENT, DEFAULT_PREFIX, null, null, null);
             }
             
-            return doQuery(indexReader, aRequest, FIELD_CONTENT, mtasSpanQuery);
+            SearcherManager manager = getSearcherManager();
+            IndexSearcher searcher = manager.acquire();
+            try {
+                return aRunner.run(searcher, mtasSpanQuery);
+            }
+            finally {
+                manager.release(searcher);
+            }
         }
         catch (mtas.parser.cql.ParseException e) {
             log.error("Unable to parse query: [{}]" + aRequest.getQuery(), e);
@@ -286,196 +374,265 @@ public class MtasDocumentIndex
         return annotateableDocuments;
     }
 
-    private Map<String, List<SearchResult>> doQuery(IndexReader aIndexReader,
+    private Map<String, List<SearchResult>> doQuery(IndexSearcher aSearcher,
         SearchQueryRequest aRequest, String field, MtasSpanQuery q)
         throws IOException
     {
         Map<String, List<SearchResult>> results = new TreeMap<>(FEATUREVALUE_COMPARATOR);
+        
+        long offset = aRequest.getOffset();
+        long count = aRequest.getCount();
+        if (count <= 0) {
+            return results;
+        }
+        
+        // Only the matches within the requested range are materialized - the others are merely
+        // counted so we can skip over them
+        long[] matchIndex = { 0 };
+        forEachMatch(aSearcher, aRequest, field, q, (codecInfo, docId, sourceDocumentId,
+                documentTitle, matchStart, matchEnd) -> {
+            long index = matchIndex[0]++;
+            if (index < offset) {
+                return true;
+            }
 
-        ListIterator<LeafReaderContext> leafReaderContextIterator = aIndexReader.leaves()
-                .listIterator();
-
-        IndexSearcher searcher = new IndexSearcher(aIndexReader);
-
-        Map<Long, Long> annotatableDocuments = listAnnotatableDocuments(aRequest.getProject(),
-            aRequest.getUser());
+            addResult(codecInfo, field, docId, sourceDocumentId, documentTitle, matchStart,
+                    matchEnd, aRequest, results);
+            
+            // Stop once the last requested match has been reached
+            return index - offset + 1 < count;
+        });
+        
+        return results;
+    }
+    
+    private long doCountResults(IndexSearcher aSearcher, SearchQueryRequest aRequest,
+            String field, MtasSpanQuery q)
+        throws IOException
+    {
+        long[] numResults = { 0 };
+        forEachMatch(aSearcher, aRequest, field, q, (codecInfo, docId, sourceDocumentId,
+                documentTitle, matchStart, matchEnd) -> {
+            numResults[0]++;
+            return true;
+        });
+        return numResults[0];
+    }
+    
+    /**
+     * Calls the consumer for every match of the query in the documents visible to the requesting
+     * user. The context of the matches is not retrieved here.
+     */
+    private void forEachMatch(IndexSearcher aSearcher, SearchQueryRequest aRequest, String field,
+            MtasSpanQuery q, MatchConsumer aConsumer)
+        throws IOException
+    {
+        IndexReader indexReader = aSearcher.getIndexReader();
 
         final float boost = 0;
-        SpanWeight spanweight = q.rewrite(aIndexReader).createWeight(searcher, false, boost);
+        SpanWeight spanweight = q.rewrite(indexReader).createWeight(aSearcher, false, boost);
+        Weight visibilityWeight = aSearcher.createNormalizedWeight(
+                buildVisibilityFilter(aRequest), false);
 
-        while (leafReaderContextIterator.hasNext()) {
-            LeafReaderContext leafReaderContext = leafReaderContextIterator.next();
+        for (LeafReaderContext leafReaderContext : indexReader.leaves()) {
             try {
                 Spans spans = spanweight.getSpans(leafReaderContext, SpanWeight.Postings.POSITIONS);
+                Scorer visibilityScorer = visibilityWeight.scorer(leafReaderContext);
+                if (spans == null || visibilityScorer == null) {
+                    continue;
+                }
+                
+                DocIdSetIterator visibleDocs = visibilityScorer.iterator();
                 SegmentReader segmentReader = (SegmentReader) leafReaderContext.reader();
+                Bits liveDocs = segmentReader.getLiveDocs();
                 Terms terms = segmentReader.terms(field);
                 CodecInfo mtasCodecInfo = CodecInfo.getCodecInfoFromTerms(terms);
-                if (spans != null) {
-                    while (spans.nextDoc() != Spans.NO_MORE_DOCS) {
-                        if (segmentReader.numDocs() == segmentReader.maxDoc()
-                                || segmentReader.getLiveDocs().get(spans.docID())) {
-                            Document document = segmentReader.document(spans.docID());
-
-                            // Retrieve user
-                            String user = document.get(FIELD_USER);
-
-                            // Retrieve source and annotation document ids
-                            String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
-                            String rawAnnotationDocumentId = document
-                                    .get(FIELD_ANNOTATION_DOCUMENT_ID);
-                            if (rawSourceDocumentId == null || rawAnnotationDocumentId == null) {
-                                log.trace("Indexed document lacks source/annotation document IDs"
-                                        + " - source: {}, annotation: {}",
-                                        rawSourceDocumentId, rawAnnotationDocumentId);
-                                continue;
-
-                            }
-                            long sourceDocumentId = Long.valueOf(rawSourceDocumentId);
-                            long annotationDocumentId = Long.valueOf(rawAnnotationDocumentId);
-                            
-                            // If the query is limited to a given document, skip any results
-                            // which are not in the given document
-                            Optional<SourceDocument> limitedToDocument = aRequest
-                                    .getLimitedToDocument();
-                            if (limitedToDocument.isPresent() && !Objects
-                                    .equals(limitedToDocument.get().getId(), sourceDocumentId)) {
-                                log.trace("Query limited to document {}, skipping results for "
-                                        + "document {}",
-                                        limitedToDocument.get().getId(), sourceDocumentId);
-                                continue;
-                            }
-
-                            if (annotatableDocuments.containsKey(sourceDocumentId)
-                                && annotationDocumentId == -1) {
-                                // Exclude result if the retrieved document is a sourcedocument
-                                // (that is, has annotationDocument = -1) AND it has a
-                                // corresponding annotation document for this user
-                                log.trace("Skipping results from indexed source document {} in"
-                                        + "favor of results from the corresponding annotation "
-                                        + "document", sourceDocumentId);
-                                continue;
-                            }
-                            else if (annotationDocumentId != -1
-                                    && !aRequest.getUser().getUsername().equals(user)) {
-                                // Exclude result if the retrieved document is an annotation
-                                // document (that is, annotationDocument != -1 and its username
-                                // is different from the quering user
-                                log.trace("Skipping results from annotation document for user {} "
-                                        + "which does not match the requested user {}", user,
-                                        aRequest.getUser().getUsername());
-                                continue;
-                            }
-
-                            // Retrieve document title
-                            String documentTitle = document.get(FIELD_TITLE);
-
-                            // String idValue = segmentReader.document(spans.docID())
-                            // .getField(FIELD_ID).stringValue();
-                            // log.debug("******** New doc {}-{}", + spans.docID(), idValue);
-
-                            while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
-                                int matchStart = spans.startPosition();
-                                int matchEnd = spans.endPosition();
-                                
-                                int windowStart = Math.max(matchStart - RESULT_WINDOW_SIZE, 0);
-                                int windowEnd = matchEnd + RESULT_WINDOW_SIZE - 1;
-                                
-                                // Retrieve all indexed objects within the matching range
-                                List<MtasTokenString> tokens = mtasCodecInfo.getObjectsByPositions(
-                                        field, spans.docID(), windowStart, windowEnd);
-                                
-                                tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
-
-                                if (tokens.isEmpty()) {
-                                    continue;
-                                }
-
-                                SearchResult result = new SearchResult();
-                                StringBuilder resultText = new StringBuilder();
-                                StringBuilder leftContext = new StringBuilder();
-                                StringBuilder rightContext = new StringBuilder();
-                                result.setDocumentId(sourceDocumentId);
-                                result.setDocumentTitle(documentTitle);
-                                result.setOffsetStart(tokens.stream()
-                                        .filter(t -> t.getPositionStart() >= matchStart && 
-                                                t.getPositionEnd() < matchEnd)
-                                        .mapToInt(MtasTokenString::getOffsetStart)
-                                        .min()
-                                        .getAsInt());
-                                result.setOffsetEnd(tokens.stream()
-                                        .filter(t -> t.getPositionStart() >= matchStart && 
-                                                t.getPositionEnd() < matchEnd)
-                                        .mapToInt(MtasTokenString::getOffsetEnd)
-                                        .max()
-                                        .getAsInt());
-                                result.setTokenStart(matchStart);
-                                result.setTokenLength(matchEnd - matchStart);
-                                
-                                MtasTokenString prevToken = null;
-                                for (MtasTokenString token : tokens) {
-                                    if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
-                                        continue;
-                                    }
-                                    
-                                    // When searching for an annotation, we don't get the matching
-                                    // text back... not sure why...
-                                    String tokenText = CodecUtil.termValue(token.getValue());
-                                    if (tokenText == null) {
-                                        continue;
-                                    }
-                                    
-                                    if (token.getPositionStart() < matchStart) {
-                                        fill(leftContext, prevToken, token);
-                                        leftContext.append(tokenText);
-                                    }
-                                    else if (token.getPositionStart() >= matchEnd) {
-                                        fill(rightContext, prevToken, token);
-                                        rightContext.append(tokenText);
-                                    }
-                                    else {
-                                        // Only add the whitespace to the match if we already have
-                                        // added any text to the match - otherwise consider the 
-                                        // whitespace to be part of the left contex
-                                        if (resultText.length() > 0) {
-                                            fill(resultText, prevToken, token);
-                                        }
-                                        else {
-                                            fill(leftContext, prevToken, token);
-                                        }
-                                        resultText.append(tokenText);
-                                    }
-                                    prevToken = token;
-                                }
-                                result.setText(resultText.toString());
-                                result.setLeftContext(leftContext.toString());
-                                result.setRightContext(rightContext.toString());
-
-                                AnnotationLayer groupingLayer = aRequest.getAnnoationLayer();
-                                AnnotationFeature groupingFeature = aRequest.getAnnotationFeature();
-
-                                if (groupingLayer != null && groupingFeature != null) {
-                                    List<String> featureValues = featureValuesAtMatch(tokens,
-                                        matchStart, matchEnd, groupingLayer, groupingFeature);
-                                    for (String featureValue : featureValues) {
-                                        addToResults(results, featureValue, result);
-                                    }
-                                }
-                                else {
-                                    // if no annotation feature is specified group by document title
-                                    addToResults(results, result.getDocumentTitle(), result);
-                                }
+                
+                // Leap-frog between the documents containing matches and the visible documents
+                // such that matches are only enumerated in the visible documents
+                int docId = spans.nextDoc();
+                while (docId != Spans.NO_MORE_DOCS) {
+                    int visibleDocId = visibleDocs.docID() < docId ? visibleDocs.advance(docId)
+                            : visibleDocs.docID();
+                    if (visibleDocId != docId) {
+                        docId = visibleDocId == DocIdSetIterator.NO_MORE_DOCS ? Spans.NO_MORE_DOCS
+                                : spans.advance(visibleDocId);
+                        continue;
+                    }
+                    
+                    if (liveDocs == null || liveDocs.get(docId)) {
+                        Document document = segmentReader.document(docId, RESULT_FIELDS);
+
+                        // Retrieve source document id
+                        String rawSourceDocumentId = document.get(FIELD_SOURCE_DOCUMENT_ID);
+                        if (rawSourceDocumentId == null) {
+                            log.trace("Indexed document lacks source document ID");
+                            docId = spans.nextDoc();
+                            continue;
+                        }
+                        long sourceDocumentId = Long.valueOf(rawSourceDocumentId);
 
+                        // Retrieve document title
+                        String documentTitle = document.get(FIELD_TITLE);
 
+                        while (spans.nextStartPosition() != Spans.NO_MORE_POSITIONS) {
+                            if (!aConsumer.accept(mtasCodecInfo, docId, sourceDocumentId,
+                                    documentTitle, spans.startPosition(),
+                                    spans.endPosition())) {
+                                return;
                             }
                         }
                     }
+                    
+                    docId = spans.nextDoc();
                 }
             }
             catch (Exception e) {
                 log.error("Unable to process query results", e);
             }
         }
-        return results;
+    }
+    
+    /**
+     * Builds a filter matching the indexed documents which are visible to the requesting user.
+     * These are the annotation documents of the user and the source documents for which the user
+     * does not have an annotation document (yet). If the query is limited to a given document,
+     * only the indexed documents belonging to that document are matched.
+     */
+    private Query buildVisibilityFilter(SearchQueryRequest aRequest)
+    {
+        BooleanQuery.Builder filter = new BooleanQuery.Builder();
+        
+        Term sourceDocumentTerm = new Term(FIELD_ANNOTATION_DOCUMENT_ID, "-1");
+        
+        // Exclude annotation documents of other users
+        filter.add(new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FIELD_USER, aRequest.getUser().getUsername())),
+                        BooleanClause.Occur.SHOULD)
+                .add(new TermQuery(sourceDocumentTerm), BooleanClause.Occur.SHOULD)
+                .build(), BooleanClause.Occur.FILTER);
+        
+        // Exclude source documents for which the user has an annotation document - the results
+        // come from the annotation document then
+        List<BytesRef> shadowedSourceDocuments = listAnnotatableDocuments(aRequest.getProject(),
+                aRequest.getUser()).keySet().stream()
+                .map(id -> new BytesRef(String.valueOf(id)))
+                .collect(Collectors.toList());
+        if (!shadowedSourceDocuments.isEmpty()) {
+            filter.add(new BooleanQuery.Builder()
+                    .add(new TermQuery(sourceDocumentTerm), BooleanClause.Occur.FILTER)
+                    .add(new TermInSetQuery(FIELD_SOURCE_DOCUMENT_ID, shadowedSourceDocuments),
+                            BooleanClause.Occur.FILTER)
+                    .build(), BooleanClause.Occur.MUST_NOT);
+        }
+        
+        // If the query is limited to a given document, exclude all other documents
+        Optional<SourceDocument> limitedToDocument = aRequest.getLimitedToDocument();
+        if (limitedToDocument.isPresent()) {
+            filter.add(new TermQuery(new Term(FIELD_SOURCE_DOCUMENT_ID,
+                    String.valueOf(limitedToDocument.get().getId()))),
+                    BooleanClause.Occur.FILTER);
+        }
+        
+        return filter.build();
+    }
+    
+    /**
+     * Retrieves the context of the given match and adds the resulting search result to the
+     * results map. If no tokens can be retrieved for the match, no result is added.
+     */
+    private void addResult(CodecInfo aCodecInfo, String field, int aDocId,
+            long aSourceDocumentId, String aDocumentTitle, int aMatchStart, int aMatchEnd,
+            SearchQueryRequest aRequest, Map<String, List<SearchResult>> aResults)
+        throws IOException
+    {
+        int windowStart = Math.max(aMatchStart - RESULT_WINDOW_SIZE, 0);
+        int windowEnd = aMatchEnd + RESULT_WINDOW_SIZE - 1;
+        
+        // Retrieve all indexed objects within the matching range
+        List<MtasTokenString> tokens = aCodecInfo.getObjectsByPositions(field, aDocId,
+                windowStart, windowEnd);
+        
+        tokens.sort(Comparator.comparing(MtasTokenString::getOffsetStart));
+
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        SearchResult result = new SearchResult();
+        StringBuilder resultText = new StringBuilder();
+        StringBuilder leftContext = new StringBuilder();
+        StringBuilder rightContext = new StringBuilder();
+        result.setDocumentId(aSourceDocumentId);
+        result.setDocumentTitle(aDocumentTitle);
+        result.setOffsetStart(tokens.stream()
+                .filter(t -> t.getPositionStart() >= aMatchStart && 
+                        t.getPositionEnd() < aMatchEnd)
+                .mapToInt(MtasTokenString::getOffsetStart)
+                .min()
+                .getAsInt());
+        result.setOffsetEnd(tokens.stream()
+                .filter(t -> t.getPositionStart() >= aMatchStart && 
+                        t.getPositionEnd() < aMatchEnd)
+                .mapToInt(MtasTokenString::getOffsetEnd)
+                .max()
+                .getAsInt());
+        result.setTokenStart(aMatchStart);
+        result.setTokenLength(aMatchEnd - aMatchStart);
+        
+        MtasTokenString prevToken = null;
+        for (MtasTokenString token : tokens) {
+            if (!token.getPrefix().equals(DEFAULT_PREFIX)) {
+                continue;
+            }
+            
+            // When searching for an annotation, we don't get the matching
+            // text back... not sure why...
+            String tokenText = CodecUtil.termValue(token.getValue());
+            if (tokenText == null) {
+                continue;
+            }
+            
+            if (token.getPositionStart() < aMatchStart) {
+                fill(leftContext, prevToken, token);
+                leftContext.append(tokenText);
+            }
+            else if (token.getPositionStart() >= aMatchEnd) {
+                fill(rightContext, prevToken, token);
+                rightContext.append(tokenText);
+            }
+            else {
+                // Only add the whitespace to the match if we already have
+                // added any text to the match - otherwise consider the 
+                // whitespace to be part of the left contex
+                if (resultText.length() > 0) {
+                    fill(resultText, prevToken, token);
+                }
+                else {
+                    fill(leftContext, prevToken, token);
+                }
+                resultText.append(tokenText);
+            }
+            prevToken = token;
+        }
+        result.setText(resultText.toString());
+        result.setLeftContext(leftContext.toString());
+        result.setRightContext(rightContext.toString());
+
+        AnnotationLayer groupingLayer = aRequest.getAnnoationLayer();
+        AnnotationFeature groupingFeature = aRequest.getAnnotationFeature();
+
+        if (groupingLayer != null && groupingFeature != null) {
+            List<String> featureValues = featureValuesAtMatch(tokens,
+                aMatchStart, aMatchEnd, groupingLayer, groupingFeature);
+            for (String featureValue : featureValues) {
+                addToResults(aResults, featureValue, result);
+            }
+        }
+        else {
+            // if no annotation feature is specified group by document title
+            addToResults(aResults, result.getDocumentTitle(), result);
+        }
     }
 
     private void addToResults(Map<String, List<SearchResult>> aResultsMap, String aKey,
@@ -557,53 +714,24 @@ public class MtasDocumentIndex
         throws IOException
     {
         if (indexWriter != null) {
-            try {
-                log.debug(
-                        "Indexing document in project [{}]({}). sourceId: {}, annotationId: {}, "
-                                + "user: {}",
-                        project.getName(), project.getId(), aSourceDocumentId,
-                        aAnnotationDocumentId, aUser);
-                
-                // Prepare bytearray with document content to be indexed
-                ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                XmiCasSerializer.serialize(aCas, null, bos, true, null);
-                bos.close();
+            log.debug(
+                    "Indexing document in project [{}]({}). sourceId: {}, annotationId: {}, "
+                            + "user: {}",
+                    project.getName(), project.getId(), aSourceDocumentId,
+                    aAnnotationDocumentId, aUser);
+            
+            String timestamp = writeDocument(indexWriter, aDocumentTitle, aSourceDocumentId,
+                    aAnnotationDocumentId, aUser, aCas);
 
-                // Calculate timestamp that will be indexed
-                String timestamp = DateTools.dateToString(new Date(),
-                        DateTools.Resolution.MILLISECOND);
+            // commit
+            scheduleCommit();
+            nextGeneration(aUser);
 
-                // Create new Lucene document
-                Document doc = new Document();
-                
-                // Add indexed fields
-                doc.add(new StringField(FIELD_ID, String.valueOf(aSourceDocumentId) + "/"
-                        + String.valueOf(aAnnotationDocumentId), Field.Store.YES));
-                doc.add(new StringField(FIELD_SOURCE_DOCUMENT_ID, String.valueOf(aSourceDocumentId),
-                        Field.Store.YES));
-                doc.add(new StringField(FIELD_ANNOTATION_DOCUMENT_ID,
-                        String.valueOf(aAnnotationDocumentId), Field.Store.YES));
-                doc.add(new StringField(FIELD_TITLE, aDocumentTitle, Field.Store.YES));
-                doc.add(new StringField(FIELD_USER, aUser, Field.Store.YES));
-                doc.add(new StringField(FIELD_TIMESTAMP, timestamp, Field.Store.YES));
-                doc.add(new TextField(FIELD_CONTENT, new String(bos.toByteArray(), "UTF-8"),
-                        Field.Store.NO));
-    
-                // Add document to the Lucene index
-                indexWriter.addDocument(doc);
-    
-                // commit
-                indexWriter.commit();
-    
-                log.debug(
-                        "Document indexed in project [{}]({}). sourceId: {}, annotationId: {}, "
-                                + "user: {}, timestamp: {}",
-                        project.getName(), project.getId(), aSourceDocumentId,
-                        aAnnotationDocumentId, aUser, timestamp);
-            }
-            catch (SAXException e) {
-                log.error("Unable to index document", e);
-            }
+            log.debug(
+                    "Document indexed in project [{}]({}). sourceId: {}, annotationId: {}, "
+                            + "user: {}, timestamp: {}",
+                    project.getName(), project.getId(), aSourceDocumentId,
+                    aAnnotationDocumentId, aUser, timestamp);
         }
         else {
             log.debug(
@@ -613,6 +741,44 @@ public class MtasDocumentIndex
         }
     };
 
+    /**
+     * Adds the document to the given index writer, replacing any previous version of it. Index
+     * writers are thread-safe, so this can be called concurrently.
+     * 
+     * @return the timestamp stored with the document.
+     */
+    private String writeDocument(IndexWriter aWriter, String aDocumentTitle,
+            long aSourceDocumentId, long aAnnotationDocumentId, String aUser, CAS aCas)
+        throws IOException
+    {
+        // Calculate timestamp that will be indexed
+        String timestamp = DateTools.dateToString(new Date(), DateTools.Resolution.MILLISECOND);
+
+        // Create new Lucene document
+        Document doc = new Document();
+
+        // Add indexed fields
+        doc.add(new StringField(FIELD_ID, String.valueOf(aSourceDocumentId) + "/"
+                + String.valueOf(aAnnotationDocumentId), Field.Store.YES));
+        doc.add(new StringField(FIELD_SOURCE_DOCUMENT_ID, String.valueOf(aSourceDocumentId),
+                Field.Store.YES));
+        doc.add(new StringField(FIELD_ANNOTATION_DOCUMENT_ID,
+                String.valueOf(aAnnotationDocumentId), Field.Store.YES));
+        doc.add(new StringField(FIELD_TITLE, aDocumentTitle, Field.Store.YES));
+        doc.add(new StringField(FIELD_USER, aUser, Field.Store.YES));
+        doc.add(new StringField(FIELD_TIMESTAMP, timestamp, Field.Store.YES));
+        // Instead of serializing the CAS, we pass the in-memory CAS to the MtasUimaParser which
+        // builds the token collection directly from the CAS
+        doc.add(new TextField(FIELD_CONTENT, new CasReader(aCas)));
+
+        // Add document to the Lucene index - replacing any previous version of the document in
+        // one atomic delete-then-add step
+        aWriter.updateDocument(new Term(FIELD_ID, String.valueOf(aSourceDocumentId) + "/"
+                + String.valueOf(aAnnotationDocumentId)), doc);
+
+        return timestamp;
+    }
+
     @Override
     public void indexDocument(SourceDocument aDocument, CAS aCas) throws IOException
     {
@@ -641,83 +807,41 @@ public class MtasDocumentIndex
     private void deindexDocument(long aSourceDocumentId, long aAnnotationDocumentId, String aUser)
         throws IOException
     {
-        if (indexWriter != null) {
+        // Holding the lock of the index ensures that the index writer is not closed or replaced
+        // by a rebuild meanwhile
+        synchronized (this) {
+            if (indexWriter == null || !indexWriter.isOpen()) {
+                log.debug(
+                        "Aborted removal of document from index in project [{}]. sourceId: {}, "
+                                + "annotationId: {}, user: {} - indexWriter was not open.",
+                        project.getName(), aSourceDocumentId, aAnnotationDocumentId, aUser);
+                return;
+            }
+            
             log.debug(
                     "Removing document from index in project [{}]({}). sourceId: {}, "
                             + "annotationId: {}, user: {}",
                     project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
                     aUser);
 
-            indexWriter.deleteDocuments(new Term(FIELD_ID,
-                    String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId)));
-
-            indexWriter.commit();
-
-            log.debug(
-                    "Removed document from index in project [{}]({}). sourceId: {}, "
-                            + "annotationId: {}, user: {}",
-                    project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
-                    aUser);
-        }
-        else {
-            log.debug(
-                    "Aborted removal of document from index in project [{}]. sourceId: {}, "
-                            + "annotationId: {}, " + "user: {} - indexWriter was null.",
-                    project.getName(), aSourceDocumentId, aAnnotationDocumentId, aUser);
+            String id = String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId);
+            indexWriter.deleteDocuments(new Term(FIELD_ID, id));
+            
+            // The document may already have been added to an index which is being rebuilt or it
+            // may still be added to it, so it is removed from that index when it is swapped in
+            if (rebuildDeletions != null) {
+                rebuildDeletions.add(id);
+            }
         }
-        return;
-    }
-
-    /**
-     * Remove a specific document from the index based on its timestamp
-     * 
-     * @param aSourceDocumentId
-     *            The ID of the source document to be removed
-     * @param aSourceDocumentId
-     *            The ID of the annotation document to be removed
-     * @param aUser
-     *            The owner of the document to be removed
-     * @param aTimestamp
-     *            The timestamp of the document to be removed
-     */
-    private void deindexDocument(long aSourceDocumentId, long aAnnotationDocumentId, String aUser,
-            String aTimestamp)
-        throws IOException
-    {
-        if (indexWriter != null) {
-            log.debug(
-                    "Removing document from index in project [{}]({}). sourceId: {}, "
-                            + "annotationId: {}, user: {}, timestamp: {}",
-                    project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
-                    aUser, aTimestamp);
 
-            // Prepare boolean query with the two obligatory terms (id and timestamp)
-            BooleanQuery.Builder booleanQuery = new BooleanQuery.Builder()
-                    .add(new TermQuery(new Term(FIELD_ID,
-                            String.format("%d/%d", aSourceDocumentId, aAnnotationDocumentId))),
-                            BooleanClause.Occur.MUST)
-                    .add(new TermQuery(new Term(FIELD_TIMESTAMP, aTimestamp)),
-                            BooleanClause.Occur.MUST);
+        scheduleCommit();
+        nextGeneration(aUser);
 
-            // Delete document based on the previous query
-            indexWriter.deleteDocuments(booleanQuery.build());
-
-            indexWriter.commit();
-
-            log.debug(
-                    "Removed document from index in project [{}]({}). sourceId: {}, "
-                            + "annotationId: {}, user: {}",
-                    project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
-                    aUser);
-        }
-        else {
-            log.debug(
-                    "Aborted removal of document from index in project [{}]({}). sourceId: {}, "
-                            + "annotationId: {}, " + "user: {} - indexWriter was null.",
-                    project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
-                    aUser);
-        }
-        return;
+        log.debug(
+                "Removed document from index in project [{}]({}). sourceId: {}, "
+                        + "annotationId: {}, user: {}",
+                project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId,
+                aUser);
     }
 
     /**
@@ -744,19 +868,6 @@ public class MtasDocumentIndex
         deindexDocument(aDocument.getDocument().getId(), aDocument.getId(), aDocument.getUser());
     }
 
-    /**
-     * Remove annotation document from the index based on its timestamp
-     * 
-     * @param aDocument
-     *            The document to be removed
-     */
-    @Override
-    public void deindexDocument(AnnotationDocument aDocument, String aTimestamp) throws IOException
-    {
-        deindexDocument(aDocument.getDocument().getId(), aDocument.getId(), aDocument.getUser(),
-                aTimestamp);
-    }
-
     /**
      * Checks if a project index is open
      * 
@@ -783,9 +894,110 @@ public class MtasDocumentIndex
         return new File(resourceDir, "/" + PROJECT_FOLDER + "/" + project.getId() + "/" + INDEX);
     }
 
+    /**
+     * Makes the pending changes visible to subsequent queries and schedules a commit. If a commit
+     * is already scheduled, the changes are committed along with it. Thus, there is at most one
+     * commit per commit latency window.
+     */
+    private void scheduleCommit() throws IOException
+    {
+        searcherChanges.incrementAndGet();
+        
+        long latency = searchProperties.getIndexCommitLatency();
+        if (latency <= 0) {
+            commit();
+            return;
+        }
+        
+        if (commitScheduled.compareAndSet(false, true)) {
+            COMMIT_SCHEDULER.schedule(() -> {
+                // Changes made while committing schedule another commit
+                commitScheduled.set(false);
+                try {
+                    commit();
+                }
+                catch (IOException | AlreadyClosedException e) {
+                    log.error("Unable to commit index for project [{}]({})", project.getName(),
+                            project.getId(), e);
+                }
+            }, latency, MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Durably commits the pending changes of the index writer (if there are any).
+     */
+    private void commit() throws IOException
+    {
+        IndexWriter writer = indexWriter;
+        if (writer != null && writer.isOpen() && writer.hasUncommittedChanges()) {
+            writer.commit();
+            log.trace("Committed index for project [{}]({})", project.getName(),
+                    project.getId());
+        }
+    }
+    
+    /**
+     * Advances the generation of the index for the given user or, if no user is given (i.e. a
+     * source document has changed or the whole index has been replaced), for all users.
+     */
+    private void nextGeneration(String aUser)
+    {
+        long generation = changeCounter.incrementAndGet();
+        if (StringUtils.isEmpty(aUser)) {
+            sharedGeneration.accumulateAndGet(generation, Math::max);
+        }
+        else {
+            userGenerations.merge(aUser, generation, Math::max);
+        }
+    }
+    
+    @Override
+    public long getGeneration(String aUser)
+    {
+        return Math.max(sharedGeneration.get(), userGenerations.getOrDefault(aUser, 0L));
+    }
+    
+    /**
+     * @return the searcher manager of the index. If the index is not open yet, it is opened.
+     */
+    private SearcherManager getSearcherManager() throws IOException
+    {
+        if (!isOpen()) {
+            openPhysicalIndex();
+        }
+        
+        SearcherManager manager = searcherManager;
+        if (manager == null) {
+            throw new IOException("Index for project [" + project.getName() + "]("
+                    + project.getId() + ") is not open");
+        }
+        
+        // Refresh once for all changes since the last query. Until the refresh has completed,
+        // concurrent queries wait for it instead of using the outdated searcher.
+        long changes = searcherChanges.get();
+        if (searcherRefreshedChanges.get() < changes) {
+            manager.maybeRefreshBlocking();
+            searcherRefreshedChanges.accumulateAndGet(changes, Math::max);
+        }
+        
+        return manager;
+    }
+    
     @Override
-    public void closePhysicalIndex()
+    public synchronized void closePhysicalIndex()
     {
+        if (searcherManager != null) {
+            try {
+                // Searchers which are still in use are closed as soon as they are released
+                searcherManager.close();
+            }
+            catch (IOException e) {
+                log.error("Error closing searchers for project [{}]", project.getId(), e);
+            }
+            searcherManager = null;
+        }
+        
         if (indexWriter != null) {
             try {
                 if (indexWriter.isOpen()) {
@@ -816,13 +1028,21 @@ public class MtasDocumentIndex
 
         // Delete the index directory
         FileUtils.deleteDirectory(getIndexDir());
+        
+        // Delete leftovers from a previous rebuild
+        FileUtils.deleteQuietly(new File(getIndexDir().getParentFile(), INDEX_REBUILD));
+        FileUtils.deleteQuietly(new File(getIndexDir().getParentFile(), INDEX_OLD));
+        
+        MtasUimaParser.dropLayerAndFeatureCache(project);
+
+        nextGeneration(null);
 
         log.debug("Index for project [{}]({}) has been deleted", project.getName(),
                 project.getId());
     }
 
     @Override
-    public boolean isCreated()
+    public synchronized boolean isCreated()
     {
         if (getIndexDir().isDirectory()) {
             return true;
@@ -836,7 +1056,7 @@ public class MtasDocumentIndex
      * Open a Mtas physical index, setting indexWriter
      */
     @Override
-    public void openPhysicalIndex()
+    public synchronized void openPhysicalIndex()
     {
         boolean isOpen;
         
@@ -850,6 +1070,13 @@ public class MtasDocumentIndex
 
                 indexWriter = openLuceneIndex(getIndexDir());
                 indexWriter.commit();
+                
+                // Searchers from a previous writer (if any) would not see any changes anymore
+                if (searcherManager != null) {
+                    searcherManager.close();
+                }
+                searcherManager = new SearcherManager(indexWriter, null);
+                nextGeneration(null);
 
                 log.debug("indexWriter has been opened for project [{}]({})", project.getName(),
                         project.getId());
@@ -886,7 +1113,13 @@ public class MtasDocumentIndex
                 // Index all documents of the project
                 log.info("Indexing all documents in the project [{}]({})", project.getName(),
                         project.getId());
-                indexAllDocuments();
+                Map<String, String> layerConfiguration = getLayerConfiguration();
+                MtasUimaParser.refreshLayerAndFeatureCache(project, annotationSchemaService);
+                indexAllDocuments(indexWriter);
+                recordLayerConfiguration(indexWriter, layerConfiguration);
+                searcherChanges.incrementAndGet();
+                commit();
+                nextGeneration(null);
                 log.debug("All documents have been indexed in the project [{}]({})",
                         project.getName(), project.getId());
             } else {
@@ -933,14 +1166,249 @@ public class MtasDocumentIndex
         return new IndexWriter(directory, config);
     }
 
-    private void indexAllDocuments()
+    /**
+     * Rebuilds the index in a shadow directory and then replaces the current index with it. The
+     * current index keeps serving queries until it is replaced. If the rebuild fails, the current
+     * index remains in place.
+     */
+    @Override
+    public void rebuildPhysicalIndex() throws IOException
     {
+        File shadowDir = new File(getIndexDir().getParentFile(), INDEX_REBUILD);
+        
+        // Remove the remains of an earlier rebuild which did not complete
+        FileUtils.deleteDirectory(shadowDir);
+        FileUtils.forceMkdir(shadowDir);
+        
+        log.info("Rebuilding index for project [{}]({})", project.getName(), project.getId());
+        
+        IndexWriter shadowWriter = openLuceneIndex(shadowDir);
+        synchronized (this) {
+            rebuildDeletions = new HashSet<>();
+        }
+        try {
+            boolean success = false;
+            try {
+                Map<String, String> layerConfiguration = getLayerConfiguration();
+                MtasUimaParser.refreshLayerAndFeatureCache(project, annotationSchemaService);
+                indexAllDocuments(shadowWriter);
+                recordLayerConfiguration(shadowWriter, layerConfiguration);
+                shadowWriter.commit();
+                success = true;
+            }
+            finally {
+                if (success) {
+                    shadowWriter.close();
+                }
+                else {
+                    shadowWriter.rollback();
+                    FileUtils.deleteQuietly(shadowDir);
+                }
+            }
+            
+            swapPhysicalIndex(shadowDir);
+        }
+        finally {
+            synchronized (this) {
+                rebuildDeletions = null;
+            }
+        }
+        
+        log.info("Rebuilt index for project [{}]({})", project.getName(), project.getId());
+    }
+    
+    /**
+     * Re-indexes the documents containing annotations of layers whose configuration has changed
+     * since the index was built. The documents are replaced one by one in the current index, so
+     * it keeps serving queries meanwhile.
+     */
+    @Override
+    public boolean reindexChangedLayers() throws IOException
+    {
+        if (!isOpen()) {
+            openPhysicalIndex();
+        }
+        
+        IndexWriter writer = indexWriter;
+        if (writer == null || !writer.isOpen()) {
+            return false;
+        }
+        
+        Map<String, String> indexedConfiguration = getIndexedLayerConfiguration(writer);
+        if (indexedConfiguration == null) {
+            log.info("Layer configuration of the index for project [{}]({}) is unknown",
+                    project.getName(), project.getId());
+            return false;
+        }
+        
+        Map<String, String> configuration = getLayerConfiguration();
+        Set<String> changedLayers = new HashSet<>(configuration.keySet());
+        changedLayers.addAll(indexedConfiguration.keySet());
+        changedLayers.removeIf(layer -> Objects.equals(configuration.get(layer),
+                indexedConfiguration.get(layer)));
+        
+        // Documents indexed from now on must already use the new configuration
+        MtasUimaParser.refreshLayerAndFeatureCache(project, annotationSchemaService);
+        
+        if (!changedLayers.isEmpty()) {
+            log.info("Re-indexing documents in project [{}]({}) containing annotations on the "
+                    + "changed layers {}", project.getName(), project.getId(), changedLayers);
+            indexDocuments(writer, cas -> containsAnnotations(cas, changedLayers));
+        }
+        else {
+            log.debug("No indexed layers changed in project [{}]({})", project.getName(),
+                    project.getId());
+        }
+        
+        recordLayerConfiguration(writer, configuration);
+        searcherChanges.incrementAndGet();
+        commit();
+        nextGeneration(null);
+        
+        return true;
+    }
+    
+    /**
+     * Describes the configuration of the enabled layers of the project as far as it affects the
+     * indexed representation of their annotations. The result maps layer names to a description
+     * of the layer and its features.
+     */
+    private Map<String, String> getLayerConfiguration()
+    {
+        Map<String, String> configuration = new HashMap<>();
+        for (AnnotationLayer layer : annotationSchemaService.listAnnotationLayer(project)) {
+            if (!layer.isEnabled()) {
+                continue;
+            }
+            
+            StringBuilder description = new StringBuilder();
+            description.append(layer.getUiName()).append('|').append(layer.getType())
+                    .append('|').append(layer.getAttachFeature() != null
+                            ? layer.getAttachFeature().getName() : "");
+            for (AnnotationFeature feature : annotationSchemaService
+                    .listAnnotationFeature(layer)) {
+                description.append('|').append(feature.getName())
+                        .append(':').append(feature.getUiName())
+                        .append(':').append(feature.getType())
+                        .append(':').append(feature.isEnabled())
+                        .append(':').append(feature.getMultiValueMode())
+                        .append(':').append(feature.getLinkMode())
+                        .append(':').append(feature.getTraits());
+            }
+            configuration.put(layer.getName(), description.toString());
+        }
+        return configuration;
+    }
+    
+    /**
+     * @return the layer configuration recorded in the last commit of the given index or
+     *         {@code null} if none has been recorded, e.g. because the index was built by an
+     *         earlier version.
+     */
+    private Map<String, String> getIndexedLayerConfiguration(IndexWriter aWriter)
+    {
+        Iterable<Map.Entry<String, String>> commitData = aWriter.getLiveCommitData();
+        if (commitData == null) {
+            return null;
+        }
+        
+        boolean recorded = false;
+        Map<String, String> configuration = new HashMap<>();
+        for (Map.Entry<String, String> entry : commitData) {
+            if (COMMIT_DATA_LAYERS.equals(entry.getKey())) {
+                recorded = true;
+            }
+            else if (entry.getKey().startsWith(COMMIT_DATA_LAYER_PREFIX)) {
+                configuration.put(entry.getKey().substring(COMMIT_DATA_LAYER_PREFIX.length()),
+                        entry.getValue());
+            }
+        }
+        return recorded ? configuration : null;
+    }
+    
+    /**
+     * Stores the given layer configuration with the next commit of the given index.
+     */
+    private void recordLayerConfiguration(IndexWriter aWriter, Map<String, String> aConfiguration)
+    {
+        Map<String, String> commitData = new HashMap<>();
+        commitData.put(COMMIT_DATA_LAYERS, String.valueOf(aConfiguration.size()));
+        aConfiguration.forEach((layer, description) -> commitData
+                .put(COMMIT_DATA_LAYER_PREFIX + layer, description));
+        aWriter.setLiveCommitData(commitData.entrySet());
+    }
+    
+    private static boolean containsAnnotations(CAS aCas, Set<String> aTypeNames)
+    {
+        for (String typeName : aTypeNames) {
+            Type type = aCas.getTypeSystem().getType(typeName);
+            if (type != null && aCas.getIndexRepository().getAllIndexedFS(type).hasNext()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Replaces the current index directory with the given one and re-opens the index. Documents
+     * which have been removed during the rebuild are removed from the new index as well. While
+     * this is in progress, the index cannot be opened, closed or checked for existence and no
+     * documents can be removed from it.
+     */
+    private synchronized void swapPhysicalIndex(File aNewIndexDir) throws IOException
+    {
+        File indexDir = getIndexDir();
+        File oldIndexDir = new File(indexDir.getParentFile(), INDEX_OLD);
+        
+        closePhysicalIndex();
+        
+        FileUtils.deleteDirectory(oldIndexDir);
+        if (indexDir.exists()) {
+            Files.move(indexDir.toPath(), oldIndexDir.toPath(), ATOMIC_MOVE);
+        }
+        Files.move(aNewIndexDir.toPath(), indexDir.toPath(), ATOMIC_MOVE);
+        
+        openPhysicalIndex();
+        
+        if (rebuildDeletions != null && !rebuildDeletions.isEmpty() && isOpen()) {
+            for (String id : rebuildDeletions) {
+                indexWriter.deleteDocuments(new Term(FIELD_ID, id));
+            }
+            rebuildDeletions.clear();
+            scheduleCommit();
+            nextGeneration(null);
+        }
+        
+        // Searchers on the old index which are still in use may keep files open. Thus, this may
+        // fail on some platforms - then the old index is removed during the next rebuild.
+        FileUtils.deleteQuietly(oldIndexDir);
+    }
 
-        int users = 0;
-        int annotationDocs = 0;
-        int sourceDocs = 0;
+    private void indexAllDocuments(IndexWriter aWriter) throws IOException
+    {
+        indexDocuments(aWriter, cas -> true);
+    }
 
+    /**
+     * Adds the annotation documents and source documents of the project whose CAS is accepted by
+     * the given filter to the given index writer. The CASes are read and indexed in parallel.
+     * Documents whose CAS cannot be read are skipped.
+     */
+    private void indexDocuments(IndexWriter aWriter, Predicate<CAS> aFilter) throws IOException
+    {
+        int users = 0;
+        AtomicInteger annotationDocs = new AtomicInteger();
+        AtomicInteger sourceDocs = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(searchProperties.getIndexRebuildThreads(), 1),
+                new BasicThreadFactory.Builder()
+                        .daemon(true)
+                        .namingPattern("Index rebuild " + project.getId() + "-%d")
+                        .build());
         try {
+            List<Future<Void>> tasks = new ArrayList<>();
+            
             log.debug("Indexing all annotation documents of project [{}]({})", project.getName(),
                     project.getId());
 
@@ -948,8 +1416,17 @@ public class MtasDocumentIndex
                 users++;
                 for (AnnotationDocument document : documentService.listAnnotationDocuments(project,
                         user)) {
-                    indexDocument(document, documentService.readAnnotationCas(document));
-                    annotationDocs++;
+                    tasks.add(executor.submit(() -> {
+                        CAS cas = readCas(document, () -> documentService
+                                .readAnnotationCas(document));
+                        if (cas != null && aFilter.test(cas)) {
+                            writeDocument(aWriter, document.getName(),
+                                    document.getDocument().getId(), document.getId(),
+                                    document.getUser(), cas);
+                            annotationDocs.incrementAndGet();
+                        }
+                        return null;
+                    }));
                 }
             }
 
@@ -957,17 +1434,48 @@ public class MtasDocumentIndex
                     project.getId());
 
             for (SourceDocument document : documentService.listSourceDocuments(project)) {
-                indexDocument(document, documentService.createOrReadInitialCas(document));
-                sourceDocs++;
+                tasks.add(executor.submit(() -> {
+                    CAS cas = readCas(document, () -> documentService
+                            .createOrReadInitialCas(document));
+                    if (cas != null && aFilter.test(cas)) {
+                        writeDocument(aWriter, document.getName(), document.getId(), -1, "", cas);
+                        sourceDocs.incrementAndGet();
+                    }
+                    return null;
+                }));
             }
+            
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Indexing of project [" + project.getName()
+                    + "](" + project.getId() + ") was interrupted");
         }
-        catch (IOException e) {
-            log.error("Unable to index document", e);
+        catch (java.util.concurrent.ExecutionException e) {
+            throw new IOException("Unable to index documents of project [" + project.getName()
+                    + "](" + project.getId() + ")", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
         }
 
         log.debug(String.format(
                 "Indexing results: %d source doc(s), %d annotation doc(s) for %d user(s)",
-                sourceDocs, annotationDocs, users));
+                sourceDocs.get(), annotationDocs.get(), users));
+    }
+    
+    private CAS readCas(Object aDocument, Callable<CAS> aReader)
+    {
+        try {
+            return aReader.call();
+        }
+        catch (Exception e) {
+            log.error("Unable to read CAS of [{}] for indexing - skipping", aDocument, e);
+            return null;
+        }
     }
 
     private String getShortName(String aName)
@@ -989,30 +1497,33 @@ public class MtasDocumentIndex
         Optional<String> result = Optional.empty();
 
         // Prepare index searcher for accessing index
-        Directory directory = FSDirectory.open(getIndexDir().toPath());
-        IndexReader indexReader = DirectoryReader.open(directory);
-        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
-
-        // Prepare query for the annotation document for this annotation document
-        Term term = new Term(FIELD_ID,
-                String.format("%d/%d", aDocument.getDocument().getId(), aDocument.getId()));
-        
-        TermQuery query = new TermQuery(term);
-
-        // Do query
-        TopDocs docs = indexSearcher.search(query, 1);
-
-        if (docs.scoreDocs.length > 0) {
-            // If there are results, retrieve first document, since all results should come
-            // from the same document
-            Document document = indexSearcher.doc(docs.scoreDocs[0].doc);
-
-            // Retrieve the timestamp field if it exists
-            if (document.getField(FIELD_TIMESTAMP) != null) {
-                result = Optional.ofNullable(StringUtils
-                        .trimToNull(document.getField(FIELD_TIMESTAMP).stringValue()));
+        SearcherManager manager = getSearcherManager();
+        IndexSearcher indexSearcher = manager.acquire();
+        try {
+            // Prepare query for the annotation document for this annotation document
+            Term term = new Term(FIELD_ID,
+                    String.format("%d/%d", aDocument.getDocument().getId(), aDocument.getId()));
+            
+            TermQuery query = new TermQuery(term);
+    
+            // Do query
+            TopDocs docs = indexSearcher.search(query, 1);
+    
+            if (docs.scoreDocs.length > 0) {
+                // If there are results, retrieve first document, since all results should come
+                // from the same document
+                Document document = indexSearcher.doc(docs.scoreDocs[0].doc);
+    
+                // Retrieve the timestamp field if it exists
+                if (document.getField(FIELD_TIMESTAMP) != null) {
+                    result = Optional.ofNullable(StringUtils
+                            .trimToNull(document.getField(FIELD_TIMESTAMP).stringValue()));
+                }
             }
         }
+        finally {
+            manager.release(indexSearcher);
+        }
         
         return result;
     }
@@ -1023,4 +1534,21 @@ public class MtasDocumentIndex
         return new ToStringBuilder(this).append("project", project)
                 .append("path", getIndexDir()).toString();
     }
+    
+    @FunctionalInterface
+    private interface QueryRunner<T>
+    {
+        T run(IndexSearcher aSearcher, MtasSpanQuery aQuery) throws IOException;
+    }
+    
+    @FunctionalInterface
+    private interface MatchConsumer
+    {
+        /**
+         * @return whether further matches should be passed to the consumer.
+         */
+        boolean accept(CodecInfo aCodecInfo, int aDocId, long aSourceDocumentId,
+                String aDocumentTitle, int aMatchStart, int aMatchEnd)
+            throws IOException;
+    }
 }
@@ -19,11 +19,13 @@ package de.tudarmstadt.ukp.inception.search.index.mtas;
 
 import static de.tudarmstadt.ukp.inception.search.FeatureIndexingSupport.SPECIAL_SEP;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.encodeFSAddress;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,14 +33,19 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.uima.UIMAException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.util.CasUtil;
 import org.apache.uima.fit.util.FSUtil;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
@@ -91,6 +98,15 @@ public class MtasUimaParser
     private static final String SPECIAL_ATTR_REL_SOURCE = "source";
     private static final String SPECIAL_ATTR_REL_TARGET = "target";
     
+    /**
+     * Enabled layers and their features per project. MTAS creates a new parser for every indexed
+     * document, so the layer configuration is shared by all parsers of a project instead of being
+     * loaded from the database for every document. The index refreshes it using
+     * {@link #refreshLayerAndFeatureCache} when the layer configuration changes.
+     */
+    private static final Map<Long, LayerAndFeatureCache> LAYER_AND_FEATURE_CACHES =
+            new ConcurrentHashMap<>();
+    
     // Annotation schema and project services with knowledge base service
     private @Autowired AnnotationSchemaService annotationSchemaService;
     private @Autowired ProjectService projectService;
@@ -122,8 +138,9 @@ public class MtasUimaParser
                 config.attributes.get(MtasTokenizerFactory.ARGUMENT_PARSER_ARGS));
         project = projectService.getProject(jsonParserConfiguration.getInt("projectId"));
         
-        // Initialize and populate the hash maps for the layers and features
-        initLayerAndFeatureCache();
+        // Use the shared layers and features of the project
+        initLayerAndFeatureCache(LAYER_AND_FEATURE_CACHES.computeIfAbsent(project.getId(),
+            _id -> new LayerAndFeatureCache(annotationSchemaService, project)));
     }
     
     // This constructor is used for testing
@@ -137,26 +154,31 @@ public class MtasUimaParser
         annotationSchemaService = aAnnotationSchemaService;
         featureIndexingSupportRegistry = aFeatureIndexingSupportRegistry;
         
-        // Initialize and populate the hash maps for the layers and features
-        initLayerAndFeatureCache();
+        // Initialize and populate the hash maps for the layers and features - these are not
+        // shared since tests may use different layer configurations for the same project
+        initLayerAndFeatureCache(new LayerAndFeatureCache(annotationSchemaService, project));
     }
 
-    private void initLayerAndFeatureCache()
+    private void initLayerAndFeatureCache(LayerAndFeatureCache aCache)
     {
-        // Initialize and populate the hash maps for the layers and features
-        layers = new HashMap<String, AnnotationLayer>();
-        layerFeatures = new HashMap<String, List<AnnotationFeature>>();
-        for (AnnotationLayer layer : annotationSchemaService.listAnnotationLayer(project)) {
-            if (layer.isEnabled()) {
-                layers.put(layer.getName(), layer);
-                List<AnnotationFeature> features = new ArrayList<AnnotationFeature>();
-                for (AnnotationFeature feature : annotationSchemaService
-                        .listAnnotationFeature(layer)) {
-                    features.add(feature);
-                }
-                layerFeatures.put(layer.getName(), features);
-            }
-        }
+        layers = aCache.layers;
+        layerFeatures = aCache.layerFeatures;
+    }
+    
+    /**
+     * Re-loads the layers and features of the given project. Parsers created afterwards use the
+     * new layer configuration.
+     */
+    static void refreshLayerAndFeatureCache(Project aProject,
+            AnnotationSchemaService aAnnotationSchemaService)
+    {
+        LAYER_AND_FEATURE_CACHES.put(aProject.getId(),
+                new LayerAndFeatureCache(aAnnotationSchemaService, aProject));
+    }
+    
+    static void dropLayerAndFeatureCache(Project aProject)
+    {
+        LAYER_AND_FEATURE_CACHES.remove(aProject.getId());
     }
     
     @Override
@@ -168,7 +190,13 @@ public class MtasUimaParser
 
         JCas jcas;
         try {
-            jcas = readCas(aReader);
+            if (aReader instanceof CasReader) {
+                // Use the in-memory CAS directly
+                jcas = ((CasReader) aReader).getCas().getJCas();
+            }
+            else {
+                jcas = readCas(IOUtils.toString(aReader));
+            }
         }
         catch (Exception e) {
             log.error("Unable to decode CAS", e);
@@ -186,15 +214,14 @@ public class MtasUimaParser
         }
     }
     
-    private JCas readCas(Reader reader) throws UIMAException, IOException, SAXException
+    private JCas readCas(String xmi) throws UIMAException, IOException, SAXException
     {
         JCas jcas = JCasFactory
                 .createJCas(annotationSchemaService.getFullProjectTypeSystem(project));
 
-        String xmi = IOUtils.toString(reader);
-
         // Get the annotations from the XMI are back in the CAS.
-        XmiCasDeserializer.deserialize(new ByteArrayInputStream(xmi.getBytes()), jcas.getCas());
+        XmiCasDeserializer.deserialize(new ByteArrayInputStream(xmi.getBytes(UTF_8)),
+                jcas.getCas());
 
         return jcas;
     }
@@ -216,6 +243,10 @@ public class MtasUimaParser
             tokenNum++;
         }
         
+        // Allow the indexing supports to look up what they need to index the feature values of
+        // all annotations at once
+        prefetchFeatureValues(aJCas.getCas());
+        
         // Loop over the annotations
         for (Annotation annotation : JCasUtil.select(aJCas, Annotation.class)) {
             // MTAS cannot index zero-width annotations, so we skip them here.
@@ -228,6 +259,27 @@ public class MtasUimaParser
         return tokenCollection;
     }
     
+    private void prefetchFeatureValues(CAS aCas)
+    {
+        TypeSystem ts = aCas.getTypeSystem();
+        for (AnnotationLayer layer : layers.values()) {
+            Type type = ts.getType(layer.getName());
+            if (type == null || !ts.subsumes(aCas.getAnnotationType(), type)) {
+                continue;
+            }
+            
+            Collection<AnnotationFS> annotations = CasUtil.select(aCas, type);
+            if (annotations.isEmpty()) {
+                continue;
+            }
+            
+            for (AnnotationFeature feature : layerFeatures.get(layer.getName())) {
+                featureIndexingSupportRegistry.getIndexingSupport(feature)
+                        .ifPresent(fis -> fis.prefetchFeatureValues(feature, annotations));
+            }
+        }
+    }
+    
     private Range getRange(AnnotationFS aAnnotation)
     {
         // Get begin of the first token. Special cases:
@@ -444,6 +496,31 @@ public class MtasUimaParser
         return null;
     }
     
+    private static class LayerAndFeatureCache
+    {
+        private final Map<String, AnnotationLayer> layers;
+        private final Map<String, List<AnnotationFeature>> layerFeatures;
+
+        public LayerAndFeatureCache(AnnotationSchemaService aAnnotationSchemaService,
+                Project aProject)
+        {
+            // Initialize and populate the hash maps for the layers and features
+            layers = new HashMap<String, AnnotationLayer>();
+            layerFeatures = new HashMap<String, List<AnnotationFeature>>();
+            for (AnnotationLayer layer : aAnnotationSchemaService.listAnnotationLayer(aProject)) {
+                if (layer.isEnabled()) {
+                    layers.put(layer.getName(), layer);
+                    List<AnnotationFeature> features = new ArrayList<AnnotationFeature>();
+                    for (AnnotationFeature feature : aAnnotationSchemaService
+                            .listAnnotationFeature(layer)) {
+                        features.add(feature);
+                    }
+                    layerFeatures.put(layer.getName(), features);
+                }
+            }
+        }
+    }
+    
     private static class Range
     {
         private final int begin;
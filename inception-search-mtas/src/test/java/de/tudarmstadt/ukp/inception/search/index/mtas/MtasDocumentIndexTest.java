@@ -21,13 +21,20 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -84,6 +91,7 @@ import de.tudarmstadt.ukp.clarin.webanno.conll.Conll2002FormatSupport;
 import de.tudarmstadt.ukp.clarin.webanno.curation.storage.CurationDocumentService;
 import de.tudarmstadt.ukp.clarin.webanno.curation.storage.CurationDocumentServiceImpl;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.clarin.webanno.project.ProjectServiceImpl;
@@ -104,6 +112,7 @@ import de.tudarmstadt.ukp.inception.search.PrimitiveUimaIndexingSupport;
 import de.tudarmstadt.ukp.inception.search.SearchResult;
 import de.tudarmstadt.ukp.inception.search.SearchService;
 import de.tudarmstadt.ukp.inception.search.SearchServiceImpl;
+import de.tudarmstadt.ukp.inception.search.config.SearchProperties;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexFactory;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistryImpl;
@@ -377,6 +386,42 @@ public class MtasDocumentIndexTest
                 .containsExactlyInAnyOrder(expectedResult1, expectedResult2);
     }
 
+    @Test
+    public void testQueryResultRangeAndCount() throws Exception
+    {
+        Project project = new Project();
+        project.setName("TestQueryResultRangeAndCount");
+        project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
+
+        createProject(project);
+
+        SourceDocument sourceDocument = new SourceDocument();
+        sourceDocument.setName("Raw text document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+        String fileContent = "The capital of Galicia is Santiago de Compostela. "
+                + "The capital of Portugal is Lissabon.";
+
+        uploadDocument(Pair.of(sourceDocument, fileContent));
+
+        User user = userRepository.get("admin");
+
+        String query = "capital";
+
+        // Execute queries
+        long count = searchService.determineNumOfQueryResults(user, project, query, null);
+        List<SearchResult> results = searchService
+                .query(user, project, query, null, null, null, 1, 1).values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+
+        // Test results
+        assertThat(count).isEqualTo(2);
+        assertThat(results)
+                .extracting(SearchResult::getText, SearchResult::getTokenStart)
+                .containsExactly(tuple("capital", 10));
+    }
+
     @Test
     public void testSimplifiedTokenTextQuery() throws Exception
     {
@@ -465,6 +510,108 @@ public class MtasDocumentIndexTest
                 .containsExactly(expectedResult);
     }
 
+    @Test
+    public void thatConcurrentQueriesSeeNewlyIndexedAnnotations() throws Exception
+    {
+        Project project = new Project();
+        project.setName("ConcurrentQueriesSeeNewlyIndexedAnnotations");
+        project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
+
+        createProject(project);
+
+        User user = userRepository.get("admin");
+
+        SourceDocument sourceDocument = new SourceDocument();
+
+        sourceDocument.setName("Annotation document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        String fileContent = "The capital of Galicia is Santiago de Compostela.";
+
+        uploadDocument(Pair.of(sourceDocument, fileContent));
+        
+        String query = "<Named_entity.value=\"LOC\"/>";
+        
+        // Query once before the annotation is indexed so that the searcher needs a refresh
+        assertThat(searchService.query(user, project, query)).isEmpty();
+        
+        annotateDocument(project, user, sourceDocument);
+
+        // All queries start at the same time - none of them may use the searcher from before
+        // the annotation has been indexed
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<SearchResult>>> queries = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                queries.add(executor.submit(() -> {
+                    start.await();
+                    return searchService.query(user, project, query);
+                }));
+            }
+            start.countDown();
+            
+            for (Future<List<SearchResult>> results : queries) {
+                assertThat(results.get(60, SECONDS))
+                        .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd)
+                        .containsExactly(tuple(15, 22));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        
+        // The results cached for the current index generation must be the fresh ones as well
+        assertThat(searchService.query(user, project, query))
+                .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd)
+                .containsExactly(tuple(15, 22));
+    }
+
+    @Test
+    public void testReindexChangedLayers() throws Exception
+    {
+        Project project = new Project();
+        project.setName("TestReindexChangedLayers");
+        project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
+
+        createProject(project);
+
+        User user = userRepository.get("admin");
+
+        SourceDocument sourceDocument = new SourceDocument();
+
+        sourceDocument.setName("Annotation document");
+        sourceDocument.setProject(project);
+        sourceDocument.setFormat("text");
+
+        String fileContent = "The capital of Galicia is Santiago de Compostela.";
+
+        uploadDocument(Pair.of(sourceDocument, fileContent));
+        annotateDocument(project, user, sourceDocument);
+
+        // Rename the named entity layer
+        AnnotationLayer layer = annotationSchemaService.getLayer(NamedEntity.class.getName(),
+                project);
+        layer.setUiName("Entity");
+        annotationSchemaService.createLayer(layer);
+
+        await("Waiting for indexing process to complete")
+                .atMost(60, SECONDS)
+                .pollInterval(5, SECONDS)
+                .until(() -> !searchService.isIndexInProgress(project));
+        
+        searchService.reindexChangedLayers(project);
+
+        assertThat(searchService.isIndexValid(project)).isTrue();
+        assertThat(searchService.query(user, project, "<Entity.value=\"LOC\"/>"))
+                .extracting(SearchResult::getOffsetStart, SearchResult::getOffsetEnd)
+                .containsExactly(tuple(15, 22));
+        assertThat(searchService.query(user, project, "<Named_entity.value=\"LOC\"/>"))
+                .isEmpty();
+    }
+
     @Configuration
     public static class TestContext
     {
@@ -561,7 +708,7 @@ public class MtasDocumentIndexTest
         @Bean
         public SearchService searchService()
         {
-            return new SearchServiceImpl();
+            return new SearchServiceImpl(searchProperties());
         }
 
         @Bean
@@ -582,6 +729,12 @@ public class MtasDocumentIndexTest
             return new IndexScheduler();
         }
 
+        @Bean
+        public SearchProperties searchProperties()
+        {
+            return new SearchProperties();
+        }
+
         @Bean
         public DocumentService documentService()
         {
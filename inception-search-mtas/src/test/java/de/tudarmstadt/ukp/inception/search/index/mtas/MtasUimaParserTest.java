@@ -31,6 +31,7 @@ import static org.mockito.MockitoAnnotations.initMocks;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.fit.factory.JCasBuilder;
 import org.apache.uima.fit.factory.JCasFactory;
@@ -125,6 +126,32 @@ public class MtasUimaParserTest
                         "This is a test .", "This is sentence two .");
     }
     
+    @Test
+    public void testCasReader() throws Exception
+    {
+        TokenBuilder<Token, Sentence> builder = TokenBuilder.create(Token.class, Sentence.class);
+        builder.buildTokens(jcas, "This is a test .");
+
+        when(annotationSchemaService.listAnnotationLayer(project)).thenReturn(asList());
+        
+        MtasUimaParser sut = new MtasUimaParser(project, annotationSchemaService,
+                featureIndexingSupportRegistry);
+        MtasTokenCollection tc = sut.createTokenCollection(new CasReader(jcas.getCas()));
+        
+        List<MtasToken> tokens = new ArrayList<>();
+        tc.iterator().forEachRemaining(tokens::add);
+        
+        assertThat(tokens)
+                .filteredOn(t -> "Token".equals(t.getPrefix()))
+                .extracting(MtasToken::getPostfix)
+                .containsExactly("This", "is", "a", "test", ".");
+        
+        // When read as text, the reader provides the CAS as XMI
+        assertThat(IOUtils.toString(new CasReader(jcas.getCas())))
+                .contains("xmi:XMI")
+                .contains("This is a test .");
+    }
+    
     @Test
     public void testNamedEnity() throws Exception
     {
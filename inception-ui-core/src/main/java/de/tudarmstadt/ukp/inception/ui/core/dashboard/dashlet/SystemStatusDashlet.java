@@ -18,11 +18,16 @@
 package de.tudarmstadt.ukp.inception.ui.core.dashboard.dashlet;
 
 import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
 import org.apache.wicket.model.LoadableDetachableModel;
 import org.apache.wicket.spring.injection.annot.SpringBean;
 import org.springframework.security.core.session.SessionRegistry;
 
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.inception.scheduling.LatencyHistogram;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingMetrics.TaskTypeMetrics;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 
 public class SystemStatusDashlet
     extends Dashlet_ImplBase
@@ -31,6 +36,7 @@ public class SystemStatusDashlet
 
     private @SpringBean SessionRegistry sessionRegistry;
     private @SpringBean UserDao userRepository;
+    private @SpringBean SchedulingService schedulingService;
 
     public SystemStatusDashlet(String aId)
     {
@@ -38,6 +44,43 @@ public class SystemStatusDashlet
 
         add(new Label("activeUsers",
                 LoadableDetachableModel.of(() -> sessionRegistry.getAllPrincipals().size())));
+        
+        add(new Label("schedulerThreads",
+                LoadableDetachableModel.of(() -> schedulingService.getNumberOfThreads())));
+        add(new Label("runningTasks",
+                LoadableDetachableModel.of(() -> schedulingService.getRunningTaskCount())));
+        add(new Label("queuedTasks",
+                LoadableDetachableModel.of(() -> schedulingService.getQueueDepth())));
+        add(new Label("supersededTasks", LoadableDetachableModel
+                .of(() -> schedulingService.getMetrics().getSupersededTasks())));
+        add(new Label("droppedTasks", LoadableDetachableModel
+                .of(() -> schedulingService.getMetrics().getDroppedTasks())));
+        add(new Label("failedTasks", LoadableDetachableModel
+                .of(() -> schedulingService.getMetrics().getFailedTasks())));
+        
+        add(new ListView<String>("taskTypes", LoadableDetachableModel
+                .of(() -> schedulingService.getMetrics().getTaskTypes()))
+        {
+            private static final long serialVersionUID = -6839256317458263520L;
+
+            @Override
+            protected void populateItem(ListItem<String> aItem)
+            {
+                TaskTypeMetrics metrics = schedulingService.getMetrics()
+                        .getTaskTypeMetrics(aItem.getModelObject());
+                LatencyHistogram queueTime = metrics.getQueueTime();
+                LatencyHistogram runTime = metrics.getRunTime();
+                
+                aItem.add(new Label("name", aItem.getModelObject()));
+                aItem.add(new Label("count", runTime.getCount()));
+                aItem.add(new Label("queueTimeMean", queueTime.getMean()));
+                aItem.add(new Label("queueTimeP95", queueTime.getPercentile(0.95)));
+                aItem.add(new Label("queueTimeMax", queueTime.getMax()));
+                aItem.add(new Label("runTimeMean", runTime.getMean()));
+                aItem.add(new Label("runTimeP95", runTime.getPercentile(0.95)));
+                aItem.add(new Label("runTimeMax", runTime.getMax()));
+            }
+        });
     }
     
     @Override
@@ -22,13 +22,15 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.resource.metadata.TypeDescription;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
@@ -40,9 +42,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.action.AnnotationActionHandler;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureType;
@@ -55,7 +54,7 @@ import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.support.JSONUtil;
 import de.tudarmstadt.ukp.inception.kb.ConceptFeatureTraits;
-import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.cache.KnowledgeBaseEntityCache;
 import de.tudarmstadt.ukp.inception.kb.graph.KBErrorHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBObject;
@@ -75,20 +74,14 @@ public class ConceptFeatureSupport
     
     private static final Logger LOG = LoggerFactory.getLogger(ConceptFeatureSupport.class);
 
-    private final KnowledgeBaseService kbService;
-    
-    private LoadingCache<Key, KBHandle> labelCache = Caffeine.newBuilder()
-        .maximumSize(10_000)
-        .expireAfterWrite(1, TimeUnit.MINUTES)
-        .refreshAfterWrite(1, TimeUnit.MINUTES)
-        .build(key -> loadLabelValue(key));
+    private final KnowledgeBaseEntityCache entityCache;
     
     private String featureSupportId;
 
     @Autowired
-    public ConceptFeatureSupport(KnowledgeBaseService aKbService)
+    public ConceptFeatureSupport(KnowledgeBaseEntityCache aEntityCache)
     {
-        kbService = aKbService;
+        entityCache = aEntityCache;
     }
     
     @Override
@@ -140,40 +133,79 @@ public class ConceptFeatureSupport
     {
         String renderValue = null;
         if (aLabel != null) {
-            return labelCache.get(new Key(aFeature, aLabel)).getUiLabel();
+            return loadLabelValue(aFeature, aLabel).getUiLabel();
         }
         return renderValue;
     }
     
-    private KBHandle loadLabelValue(Key aKey)
+    /**
+     * Renders the given values of the given feature. In contrast to calling
+     * {@link #renderFeatureValue(AnnotationFeature, String)} for every value, the values which
+     * are not in the {@link KnowledgeBaseEntityCache} are looked up from the knowledge base in
+     * bulk.
+     * 
+     * @return map from the feature values to their rendered labels.
+     */
+    public Map<String, String> renderFeatureValues(AnnotationFeature aFeature,
+            Collection<String> aLabels)
     {
+        List<String> identifiers = aLabels.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        
+        Map<String, String> renderedValues = new LinkedHashMap<>();
+        
+        Map<String, KBObject> kbObjects;
         try {
-            ConceptFeatureTraits t = readTraits(aKey.getAnnotationFeature());
-    
-            // Use the concept from a particular knowledge base
-            Optional<KBObject> kbObject;
-            if (t.getRepositoryId() != null) {
-                kbObject = kbService
-                        .getKnowledgeBaseById(aKey.getAnnotationFeature().getProject(),
-                                t.getRepositoryId())
-                        .flatMap(kb -> kbService.readItem(kb, aKey.getLabel()));
-            }
+            ConceptFeatureTraits t = readTraits(aFeature);
             
-            // Use the concept from any knowledge base (leave KB unselected)
+            // Use the concepts from a particular knowledge base or from any knowledge base if
+            // no repository ID is set (leave KB unselected)
+            kbObjects = entityCache.getItems(aFeature.getProject(), t.getRepositoryId(),
+                    identifiers);
+        }
+        catch (Exception e) {
+            LOG.error("Unable to obtain label values for feature values {}", identifiers, e);
+            for (String identifier : identifiers) {
+                renderedValues.put(identifier, "ERROR (" + identifier + ")");
+            }
+            return renderedValues;
+        }
+        
+        for (String identifier : identifiers) {
+            KBObject kbObject = kbObjects.get(identifier);
+            if (kbObject != null) {
+                renderedValues.put(identifier, kbObject.getUiLabel());
+            }
             else {
-                kbObject = kbService.readItem(aKey.getAnnotationFeature().getProject(),
-                        aKey.getLabel());
-
+                LOG.error("No label for feature value [{}]", identifier);
+                renderedValues.put(identifier, "NO LABEL (" + identifier + ")");
             }
+        }
+        
+        return renderedValues;
+    }
+    
+    private KBHandle loadLabelValue(AnnotationFeature aFeature, String aLabel)
+    {
+        try {
+            ConceptFeatureTraits t = readTraits(aFeature);
+    
+            // Use the concept from a particular knowledge base or from any knowledge base if no
+            // repository ID is set (leave KB unselected)
+            Optional<KBObject> kbObject = entityCache.getItem(aFeature.getProject(),
+                    t.getRepositoryId(), aLabel);
+            
             return kbObject.map(KBObject::toKBHandle).orElseThrow(NoSuchElementException::new);
         }
         catch (NoSuchElementException e) {
-            LOG.error("No label for feature value [{}]", aKey.getLabel());
-            return new KBErrorHandle("NO LABEL (" + aKey.getLabel() + ")", e);
+            LOG.error("No label for feature value [{}]", aLabel);
+            return new KBErrorHandle("NO LABEL (" + aLabel + ")", e);
         }
         catch (Exception e) {
-            LOG.error("Unable to obtain label value for feature value [{}]", aKey.getLabel(), e);
-            return new KBErrorHandle("ERROR (" + aKey.getLabel() + ")", e);
+            LOG.error("Unable to obtain label value for feature value [{}]", aLabel, e);
+            return new KBErrorHandle("ERROR (" + aLabel + ")", e);
         }
     }
 
@@ -308,7 +340,7 @@ public class ConceptFeatureSupport
     {
         List<VLazyDetailResult> result = new ArrayList<>();
         
-        KBHandle handle = labelCache.get(new Key(aFeature, aQuery));
+        KBHandle handle = loadLabelValue(aFeature, aQuery);
 
         result.add(new VLazyDetailResult("Label", handle.getUiLabel()));
 
@@ -318,44 +350,4 @@ public class ConceptFeatureSupport
         
         return result;
     }
-
-    private class Key
-    {
-        private final AnnotationFeature feature;
-        private final String label;
-        
-        public Key(AnnotationFeature aFeature, String aLabel)
-        {
-            super();
-            feature = aFeature;
-            label = aLabel;
-        }
-        
-        public String getLabel()
-        {
-            return label;
-        }
-        
-        public AnnotationFeature getAnnotationFeature()
-        {
-            return feature;
-        }
-        
-        @Override
-        public boolean equals(final Object other)
-        {
-            if (!(other instanceof Key)) {
-                return false;
-            }
-            Key castOther = (Key) other;
-            return new EqualsBuilder().append(feature, castOther.feature)
-                    .append(label, castOther.label).isEquals();
-        }
-
-        @Override
-        public int hashCode()
-        {
-            return new HashCodeBuilder().append(feature).append(label).toHashCode();
-        }
-    }
 }
@@ -20,11 +20,7 @@ package de.tudarmstadt.ukp.inception.ui.kb.feature;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.resource.metadata.TypeDescription;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
@@ -35,9 +31,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.action.AnnotationActionHandler;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureType;
@@ -46,7 +39,8 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.AnnotatorState;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.model.FeatureState;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
-import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.cache.KnowledgeBaseEntityCache;
+import de.tudarmstadt.ukp.inception.kb.graph.KBObject;
 import de.tudarmstadt.ukp.inception.kb.graph.KBProperty;
 
 @Component
@@ -58,20 +52,14 @@ public class PropertyFeatureSupport
     
     private static final Logger LOG = LoggerFactory.getLogger(PropertyFeatureSupport.class);
 
-    private final KnowledgeBaseService kbService;
-    
-    private LoadingCache<Key, String> labelCache = Caffeine.newBuilder()
-        .maximumSize(10_000)
-        .expireAfterWrite(1, TimeUnit.MINUTES)
-        .refreshAfterWrite(1, TimeUnit.MINUTES)
-        .build(key -> loadLabelValue(key));
+    private final KnowledgeBaseEntityCache entityCache;
     
     private String featureSupportId;
 
     @Autowired
-    public PropertyFeatureSupport(KnowledgeBaseService aKbService)
+    public PropertyFeatureSupport(KnowledgeBaseEntityCache aEntityCache)
     {
-        kbService = aKbService;
+        entityCache = aEntityCache;
     }
     
     @Override
@@ -111,22 +99,20 @@ public class PropertyFeatureSupport
     {
         String renderValue = null;
         if (aLabel != null) {
-            renderValue = labelCache.get(new Key(aFeature, aLabel));
+            renderValue = loadLabelValue(aFeature, aLabel);
         }
         return renderValue;
     }
 
-    private String loadLabelValue(Key aKey)
+    private String loadLabelValue(AnnotationFeature aFeature, String aLabel)
     {
         try {
-            return kbService.getKnowledgeBases(aKey.getAnnotationFeature().getProject()).stream()
-                    .map(k -> kbService.readProperty(k, aKey.getLabel()))
-                    .flatMap(o -> o.map(Stream::of).orElseGet(Stream::empty))
-                    .map(KBProperty::getUiLabel).findAny().orElseThrow(NoSuchElementException::new);
+            return entityCache.getItem(aFeature.getProject(), aLabel)
+                    .map(KBObject::getUiLabel).orElseThrow(NoSuchElementException::new);
         }
         catch (Exception e) {
-            LOG.error("Unable to render feature value [{}]", aKey.getLabel(), e);
-            return "ERROR (" + aKey.getLabel() + ")";
+            LOG.error("Unable to render feature value [{}]", aLabel, e);
+            return "ERROR (" + aLabel + ")";
         }
     }
 
@@ -196,45 +182,5 @@ public class PropertyFeatureSupport
     {
         aTD.addFeature(aFeature.getName(), "", CAS.TYPE_NAME_STRING);
     }
-
-    private class Key
-    {
-        private final AnnotationFeature feature;
-        private final String label;
-        
-        public Key(AnnotationFeature aFeature, String aLabel)
-        {
-            super();
-            feature = aFeature;
-            label = aLabel;
-        }
-        
-        public String getLabel()
-        {
-            return label;
-        }
-        
-        public AnnotationFeature getAnnotationFeature()
-        {
-            return feature;
-        }
-        
-        @Override
-        public boolean equals(final Object other)
-        {
-            if (!(other instanceof Key)) {
-                return false;
-            }
-            Key castOther = (Key) other;
-            return new EqualsBuilder().append(feature, castOther.feature)
-                    .append(label, castOther.label).isEquals();
-        }
-
-        @Override
-        public int hashCode()
-        {
-            return new HashCodeBuilder().append(feature).append(label).toHashCode();
-        }
-    }
 }
 
@@ -18,8 +18,6 @@
 package de.tudarmstadt.ukp.inception.ui.kb.project;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.util.Collections;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -176,8 +174,9 @@ public class KnowledgeBaseDetailsPanel
             if (kb.getType() == RepositoryType.LOCAL) {
                 kbService.defineBaseProperties(kb);
                 for (Pair<String, File> f : kbw.getFiles()) {
-                    try (InputStream is = new FileInputStream(f.getValue())) {
-                        kbService.importData(kb, f.getValue().getName(), is);
+                    try {
+                        // Import the file in chunks so that also large files can be imported
+                        kbService.importData(kb, f.getValue(), null);
                         success("Imported: " + f.getKey());
                     }
                     catch (Exception e) {
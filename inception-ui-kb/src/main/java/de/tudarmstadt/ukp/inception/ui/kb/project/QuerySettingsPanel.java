@@ -34,6 +34,7 @@ import de.tudarmstadt.ukp.clarin.webanno.support.bootstrap.select.BootstrapSelec
 import de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior;
 import de.tudarmstadt.ukp.inception.kb.IriConstants;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.RepositoryType;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
 
@@ -61,7 +62,7 @@ public class QuerySettingsPanel
         maxQueryLimitCheckBox = maxQueryLimitCheckbox("maxQueryLimit", Model.of(false));
         add(maxQueryLimitCheckBox);
         add(ftsField("fullTextSearchIri", "kb.fullTextSearchIri"));
-
+        add(queryCacheCheckbox("queryCacheEnabled", "kb.queryCacheEnabled"));
     }
 
 
@@ -110,6 +111,15 @@ public class QuerySettingsPanel
         return queryLimit;
     }
 
+    private CheckBox queryCacheCheckbox(String aId, String aProperty)
+    {
+        // Query results are only cached for remote knowledge bases
+        CheckBox queryCache = new CheckBox(aId, kbModel.bind(aProperty));
+        queryCache.add(LambdaBehavior.onConfigure(it -> it.setVisible(
+                kbModel.getObject().getKb().getType() == RepositoryType.REMOTE)));
+        return queryCache;
+    }
+
     private DropDownChoice<IRI> ftsField(String aId, String aProperty)
     {
         DropDownChoice<IRI> ftsField = new BootstrapSelect<>(aId, kbModel.bind(aProperty),
@@ -18,9 +18,7 @@
 package de.tudarmstadt.ukp.inception.ui.kb.project.wizard;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -259,8 +257,9 @@ public class KnowledgeBaseCreationWizard extends BootstrapWizard {
                     success("Created knowledge base: " + kb.getName());
                     kbService.defineBaseProperties(kb);
                     for (Pair<String, File> f : wrapper.getFiles()) {
-                        try (InputStream is = new FileInputStream(f.getValue())) {
-                            kbService.importData(kb, f.getValue().getName(), is);
+                        try {
+                            // Import the file in chunks so that also large files can be imported
+                            kbService.importData(kb, f.getValue(), null);
                             success("Imported: " + f.getKey());
                         }
                         catch (Exception e) {
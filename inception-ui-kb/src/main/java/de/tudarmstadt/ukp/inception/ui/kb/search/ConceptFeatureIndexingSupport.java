@@ -19,8 +19,11 @@ package de.tudarmstadt.ukp.inception.ui.kb.search;
 
 import static de.tudarmstadt.ukp.inception.kb.IriConstants.hasImplicitNamespace;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
@@ -34,10 +37,11 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.feature.FeatureSupportRegistry;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
-import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.cache.KnowledgeBaseEntityCache;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBObject;
 import de.tudarmstadt.ukp.inception.search.FeatureIndexingSupport;
+import de.tudarmstadt.ukp.inception.ui.kb.feature.ConceptFeatureSupport;
 
 @Component
 public class ConceptFeatureIndexingSupport
@@ -53,14 +57,14 @@ public class ConceptFeatureIndexingSupport
     private String id;
 
     private final FeatureSupportRegistry featureSupportRegistry;
-    private final KnowledgeBaseService kbService;
+    private final KnowledgeBaseEntityCache entityCache;
 
     @Autowired
     public ConceptFeatureIndexingSupport(FeatureSupportRegistry aFeatureSupportRegistry,
-            KnowledgeBaseService aKbService)
+            KnowledgeBaseEntityCache aEntityCache)
     {
         featureSupportRegistry = aFeatureSupportRegistry;
-        kbService = aKbService;
+        entityCache = aEntityCache;
     }
     
     @Override
@@ -87,6 +91,38 @@ public class ConceptFeatureIndexingSupport
         }
     }
     
+    @Override
+    public void prefetchFeatureValues(AnnotationFeature aFeature,
+            Collection<AnnotationFS> aAnnotations)
+    {
+        Set<String> identifiers = new LinkedHashSet<>();
+        for (AnnotationFS annotation : aAnnotations) {
+            String identifier = WebAnnoCasUtil.getFeature(annotation, aFeature.getName());
+            if (identifier != null) {
+                identifiers.add(identifier);
+            }
+        }
+        
+        if (identifiers.isEmpty()) {
+            return;
+        }
+        
+        try {
+            // Look up the labels which are obtained via the feature support
+            FeatureSupport<?> featSup = featureSupportRegistry.getFeatureSupport(aFeature);
+            if (featSup instanceof ConceptFeatureSupport) {
+                ((ConceptFeatureSupport) featSup).renderFeatureValues(aFeature, identifiers);
+            }
+            
+            // Look up the items which are not in the cache yet
+            entityCache.getItems(aFeature.getProject(), null, identifiers);
+        }
+        catch (Exception e) {
+            // If the bulk lookup fails, the items are looked up one-by-one during indexing
+            log.error("Unable to look up feature values {}", identifiers, e);
+        }
+    }
+    
     @Override
     public MultiValuedMap<String, String> indexFeatureValue(String aFieldPrefix,
             AnnotationFS aAnnotation, String aFeaturePrefix, AnnotationFeature aFeature)
@@ -103,8 +139,8 @@ public class ConceptFeatureIndexingSupport
         }
 
         // Get object from the KB
-        Optional<KBObject> kbObject = kbService.readItem(aFeature.getProject(),
-                WebAnnoCasUtil.getFeature(aAnnotation, aFeature.getName()));
+        String identifier = WebAnnoCasUtil.getFeature(aAnnotation, aFeature.getName());
+        Optional<KBObject> kbObject = entityCache.getItem(aFeature.getProject(), identifier);
 
         if (!kbObject.isPresent()) {
             return values;
@@ -133,8 +169,8 @@ public class ConceptFeatureIndexingSupport
         
         // Indexing super concepts with type super.concept 
         KBObject kbObj = kbObject.get();
-        List<KBHandle> listParentConcepts = kbService.getParentConceptList(kbObj.getKB(),
-                kbObj.getIdentifier(), false);
+        List<KBHandle> listParentConcepts = entityCache.getParentConcepts(kbObj.getKB(),
+                kbObj.getIdentifier());
         for (KBHandle parentConcept : listParentConcepts) {
             if (hasImplicitNamespace(kbObj.getKB(), parentConcept.getIdentifier())) {
                 continue;
@@ -33,23 +33,32 @@ import org.mockito.Mock;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.cache.KnowledgeBaseEntityCache;
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
 
 public class ConceptFeatureSupportTest
 {
     private @Mock KnowledgeBaseService kbService;
+    private KnowledgeBaseEntityCache entityCache;
+    private Project project;
     
     @Before
     public void setUp()
     {
         initMocks(this);
+        
+        entityCache = new KnowledgeBaseEntityCache(kbService, new KnowledgeBasePropertiesImpl());
+        
+        project = new Project();
+        project.setId(1l);
     }
     
     @Test
     public void testAccepts()
     {
-        ConceptFeatureSupport sut = new ConceptFeatureSupport(kbService);
+        ConceptFeatureSupport sut = new ConceptFeatureSupport(entityCache);
         
         AnnotationFeature feat1 = new AnnotationFeature("Dummy feature",
                 ConceptFeatureSupport.PREFIX + "someConcept");
@@ -63,10 +72,11 @@ public class ConceptFeatureSupportTest
     @Test
     public void testWrapUnwrap() throws Exception
     {
-        ConceptFeatureSupport sut = new ConceptFeatureSupport(kbService);
+        ConceptFeatureSupport sut = new ConceptFeatureSupport(entityCache);
         
         AnnotationFeature feat1 = new AnnotationFeature("Dummy feature",
                 ConceptFeatureSupport.PREFIX + "someConcept");
+        feat1.setProject(project);
         
         KBHandle referenceHandle = new KBHandle("id", "name");
         
@@ -21,8 +21,10 @@ import static de.tudarmstadt.ukp.clarin.webanno.api.WebAnnoConst.SPAN_TYPE;
 import static de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode.TOKENS;
 import static de.tudarmstadt.ukp.clarin.webanno.model.OverlapMode.NO_OVERLAP;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -48,6 +50,8 @@ import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.cache.KnowledgeBaseEntityCache;
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
 import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
 import de.tudarmstadt.ukp.inception.kb.graph.KBInstance;
 import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
@@ -80,15 +84,20 @@ public class ConceptFeatureIndexingSupportTest
         project.setMode(WebAnnoConst.PROJECT_TYPE_ANNOTATION);
 
         kb = new KnowledgeBase();
+        kb.setRepositoryId("kb");
+        kb.setProject(project);
+        
+        KnowledgeBaseEntityCache entityCache = new KnowledgeBaseEntityCache(kbService,
+                new KnowledgeBasePropertiesImpl());
 
         featureSupportRegistry = new FeatureSupportRegistryImpl(asList(
                 new PrimitiveUimaFeatureSupport(),
-                new ConceptFeatureSupport(kbService)));
+                new ConceptFeatureSupport(entityCache)));
         featureSupportRegistry.init();
         
         featureIndexingSupportRegistry = new FeatureIndexingSupportRegistryImpl(asList(
                 new PrimitiveUimaIndexingSupport(featureSupportRegistry),
-                new ConceptFeatureIndexingSupport(featureSupportRegistry, kbService)));
+                new ConceptFeatureIndexingSupport(featureSupportRegistry, entityCache)));
         featureIndexingSupportRegistry.init();
         
         // Resetting the JCas is faster than re-creating it
@@ -137,6 +146,8 @@ public class ConceptFeatureIndexingSupportTest
         
         when(kbService.readItem(any(Project.class), any(String.class)))
                 .thenReturn(Optional.of(kbInstance));
+        when(kbService.readItems(any(Project.class), anyCollection()))
+                .thenReturn(singletonMap("urn:dummy-concept", kbInstance));
 
         List<KBHandle> dummyValue = new ArrayList<KBHandle>();
         dummyValue.add(new KBHandle("urn:dummy-parent-concept", "Dummy Parent Concept"));
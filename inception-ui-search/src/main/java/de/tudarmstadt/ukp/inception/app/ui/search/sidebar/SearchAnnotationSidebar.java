@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.inception.app.ui.search.sidebar;
 
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.getAddr;
 import static de.tudarmstadt.ukp.clarin.webanno.api.annotation.util.WebAnnoCasUtil.selectSingleFsAt;
+import static de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior.enabledWhen;
 import static de.tudarmstadt.ukp.clarin.webanno.support.lambda.LambdaBehavior.visibleWhen;
 import static java.util.stream.Collectors.groupingBy;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -28,6 +29,7 @@ import java.io.Serializable;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -102,6 +104,8 @@ public class SearchAnnotationSidebar
     private static final long serialVersionUID = -3358207848681467993L;
 
     private static final Logger LOG = LoggerFactory.getLogger(SearchAnnotationSidebar.class);
+    
+    private static final long RESULTS_PER_PAGE = 100;
 
     private @SpringBean DocumentService documentService;
     private @SpringBean AnnotationSchemaService annotationService;
@@ -127,6 +131,15 @@ public class SearchAnnotationSidebar
         Collections.emptyList(), new ChoiceRenderer<>("uiName"));
 
     private SearchResult selectedResult;
+    
+    private long currentPage = 0;
+    private long numberOfResults = 0;
+    
+    /**
+     * Results of the current query which the user has excluded from bulk actions. Only the results
+     * of the current page are loaded, so the selection is tracked here to survive paging.
+     */
+    private Set<String> deselectedResults = new HashSet<>();
 
     public SearchAnnotationSidebar(String aId, IModel<AnnotatorState> aModel,
             AnnotationActionHandler aActionHandler, CasProvider aCasProvider,
@@ -198,6 +211,20 @@ public class SearchAnnotationSidebar
                         .sorted(Comparator.comparing(ResultsGroup::getGroupKey))
                         .collect(Collectors.toList())));
         resultsGroupContainer.add(searchResultGroups);
+        
+        WebMarkupContainer pagingContainer = new WebMarkupContainer("pagingContainer");
+        pagingContainer.add(visibleWhen(() -> numberOfResults > 0));
+        pagingContainer.add(new Label("resultCount", LoadableDetachableModel.of(() -> 
+                String.format("%d - %d of %d", currentPage * RESULTS_PER_PAGE + 1,
+                        Math.min((currentPage + 1) * RESULTS_PER_PAGE, numberOfResults),
+                        numberOfResults))));
+        pagingContainer.add(new LambdaAjaxLink("previousPage", _target -> 
+                actionChangePage(_target, -1))
+                .add(enabledWhen(() -> currentPage > 0)));
+        pagingContainer.add(new LambdaAjaxLink("nextPage", _target -> 
+                actionChangePage(_target, 1))
+                .add(enabledWhen(() -> (currentPage + 1) * RESULTS_PER_PAGE < numberOfResults)));
+        mainContainer.add(pagingContainer);
 
         Form<Void> annotationForm = new Form<>("annotateForm");
         // create annotate-button and options form
@@ -243,12 +270,12 @@ public class SearchAnnotationSidebar
         mainContainer.add(annotationForm);
     }
 
-    private Map<String, Boolean> initGroupLevelSelections(
-        Set<String> groupKeys)
+    private Map<String, Boolean> initGroupLevelSelections(Map<String, ResultsGroup> aGroups)
     {
         Map<String, Boolean> selections = new HashMap<>();
-        for (String key : groupKeys) {
-            selections.put(key, true);
+        for (ResultsGroup group : aGroups.values()) {
+            selections.put(group.getGroupKey(), group.getResults().stream()
+                    .allMatch(SearchResult::isSelectedForAnnotation));
         }
         return selections;
     }
@@ -287,7 +314,7 @@ public class SearchAnnotationSidebar
                     .entrySet()) {
                     if (entry.getKey().equals(aGroupKey)) {
                         entry.getValue().getResults().stream()
-                            .forEach(r -> r.setSelectedForAnnotation(getModelObject()));
+                            .forEach(r -> setSelectedForAnnotation(r, getModelObject()));
                     }
                 }
                 groupLevelSelections.put(aGroupKey, getModelObject());
@@ -299,11 +326,85 @@ public class SearchAnnotationSidebar
 
     private void actionSearch(AjaxRequestTarget aTarget, Form<Void> aForm) {
         selectedResult = null;
+        currentPage = 0;
+        deselectedResults.clear();
+        numberOfResults = countSearchResults();
+        if (!isBlank(targetQuery.getObject())) {
+            applicationEventPublisher.get().publishEvent(new SearchQueryEvent(this,
+                    getModelObject().getProject(), currentUser.getUsername(),
+                    targetQuery.getObject(), getLimitToDocument()));
+        }
         groupedSearchResults.detach();
         aTarget.add(mainContainer);
         aTarget.addChildren(getPage(), IFeedback.class);
     }
     
+    private void actionChangePage(AjaxRequestTarget aTarget, int aDelta)
+    {
+        selectedResult = null;
+        currentPage += aDelta;
+        groupedSearchResults.detach();
+        aTarget.add(mainContainer);
+        aTarget.addChildren(getPage(), IFeedback.class);
+    }
+    
+    /**
+     * Re-counts the results after the annotations have been changed and makes sure that the
+     * current page still exists.
+     */
+    private void refreshSearchResults()
+    {
+        selectedResult = null;
+        numberOfResults = countSearchResults();
+        long lastPage = numberOfResults > 0 ? (numberOfResults - 1) / RESULTS_PER_PAGE : 0;
+        currentPage = Math.min(currentPage, lastPage);
+        groupedSearchResults.detach();
+    }
+    
+    private void setSelectedForAnnotation(SearchResult aResult, boolean aSelected)
+    {
+        aResult.setSelectedForAnnotation(aSelected);
+        if (aSelected) {
+            deselectedResults.remove(resultKey(aResult));
+        }
+        else {
+            deselectedResults.add(resultKey(aResult));
+        }
+    }
+    
+    private static String resultKey(SearchResult aResult)
+    {
+        return aResult.getDocumentId() + ":" + aResult.getOffsetStart() + ":"
+                + aResult.getOffsetEnd();
+    }
+    
+    private SourceDocument getLimitToDocument()
+    {
+        return searchOptions.getObject().isLimitedToCurrentDocument()
+                ? getModelObject().getDocument()
+                : null;
+    }
+    
+    /**
+     * Counts the results of the query without retrieving them. Problems are reported when the
+     * results of the current page are retrieved.
+     */
+    private long countSearchResults()
+    {
+        if (isBlank(targetQuery.getObject())) {
+            return 0;
+        }
+        
+        try {
+            return searchService.determineNumOfQueryResults(currentUser,
+                    getModelObject().getProject(), targetQuery.getObject(), getLimitToDocument());
+        }
+        catch (Exception e) {
+            LOG.debug("Unable to count results of query [{}]", targetQuery.getObject(), e);
+            return 0;
+        }
+    }
+    
     private Map<String, ResultsGroup> getSearchResultsGrouped()
     {
         if (isBlank(targetQuery.getObject())) {
@@ -321,20 +422,24 @@ public class SearchAnnotationSidebar
         try {
             AnnotatorState state = getModelObject();
             Project project = state.getProject();
-            SourceDocument limitToDocument = searchOptions.getObject().isLimitedToCurrentDocument()
-                    ? state.getDocument()
-                    : null;
-            applicationEventPublisher.get().publishEvent(new SearchQueryEvent(this, project,
-                    currentUser.getUsername(), targetQuery.getObject(), limitToDocument));
+            SourceDocument limitToDocument = getLimitToDocument();
             SearchOptions opt = searchOptions.getObject();
+            // Only retrieve the results of the current page
             Map<String, ResultsGroup> queryResults = searchService
                     .query(currentUser, project, targetQuery.getObject(), limitToDocument,
-                            opt.getGroupingLayer(), opt.getGroupingFeature())
+                            opt.getGroupingLayer(), opt.getGroupingFeature(),
+                            currentPage * RESULTS_PER_PAGE, RESULTS_PER_PAGE)
                     .entrySet().stream().collect(Collectors.toMap(Entry::getKey, e -> 
                             new ResultsGroup(e.getKey(), e.getValue())));
 
+            // Restore the selection made by the user on this page before
+            queryResults.values().stream()
+                    .flatMap(group -> group.getResults().stream())
+                    .forEach(r -> r.setSelectedForAnnotation(
+                            !deselectedResults.contains(resultKey(r))));
+            
             // init group level selection as soon as we know what the group-keys are
-            groupLevelSelections = initGroupLevelSelections(queryResults.keySet());
+            groupLevelSelections = initGroupLevelSelections(queryResults);
             return queryResults;
         }
         catch (Exception e) {
@@ -369,12 +474,19 @@ public class SearchAnnotationSidebar
             try {
                 SpanAdapter adapter = (SpanAdapter) annotationService.getAdapter(layer);
                 
-                // Group the results by document such that we can process one CAS at a time
-                Map<Long, List<SearchResult>> resultsByDocument = groupedSearchResults.getObject()
+                // The action applies to all results of the query - not only to the ones on the
+                // current page - except for those the user has deselected. Group the results by
+                // document such that we can process one CAS at a time.
+                SearchOptions opt = searchOptions.getObject();
+                Map<Long, List<SearchResult>> resultsByDocument = searchService
+                        .query(currentUser, getModelObject().getProject(),
+                                targetQuery.getObject(), getLimitToDocument(),
+                                opt.getGroupingLayer(), opt.getGroupingFeature())
                         .values().stream()
                         // the grouping can be based on some other strategy than the document, so
                         // we re-group here
-                        .flatMap(group -> group.getResults().stream())
+                        .flatMap(List::stream)
+                        .filter(result -> !deselectedResults.contains(resultKey(result)))
                         .collect(groupingBy(SearchResult::getDocumentId));
                 
                 AnnotatorState state = getModelObject();
@@ -389,9 +501,7 @@ public class SearchAnnotationSidebar
 
                     // Apply bulk operations to all hits from this document
                     for (SearchResult result : resultsGroup.getValue()) {
-                        if (result.isSelectedForAnnotation()) {
-                            aConsumer.apply(sourceDoc, cas, adapter, result);
-                        }
+                        aConsumer.apply(sourceDoc, cas, adapter, result);
                     }
 
                     // Persist annotated document
@@ -406,6 +516,9 @@ public class SearchAnnotationSidebar
                 error("Unable to apply action to search results: " + e.getMessage());
                 LOG.error("Unable to apply action to search results: ", e);
             }
+            
+            refreshSearchResults();
+            aTarget.add(mainContainer);
         }
         getAnnotationPage().actionRefreshDocument(aTarget);
     }
@@ -565,7 +678,7 @@ public class SearchAnnotationSidebar
                         protected void onUpdate(AjaxRequestTarget target)
                         {
                             SearchResult modelObject = aItem.getModelObject();
-                            modelObject.setSelectedForAnnotation(getModelObject());
+                            setSelectedForAnnotation(modelObject, getModelObject());
                             if (!getModelObject()) {
                                 // not all results in the document are selected, so set document
                                 // level selection to false